@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
 import javax.management.MBeanServerInvocationHandler;
 import javax.management.MalformedObjectNameException;
@@ -18,12 +19,15 @@ import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.UndeclaredThrowableException;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
 /**
- * The MBean server providing access to ActiveMQ MBeans. Uses a JMX connection.
+ * The MBean server providing access to ActiveMQ MBeans. If the broker is embedded in this MOTECH instance, its MBeans
+ * are accessed through the platform MBean server, otherwise a JMX connection is used. Which of the two is used, and
+ * the MBean names of the broker, are resolved when connecting.
  */
 @Component
 public class MotechMBeanServer {
@@ -52,13 +56,14 @@ public class MotechMBeanServer {
      * @return a view into the broker MBeans.
      */
     public BrokerViewMBean getBrokerViewMBean() {
+        // connecting resolves the MBean names used by the broker
+        MBeanServerConnection serverConnection = openConnection();
         try {
-            return getBrokerViewMBean(mBeanName);
+            return getBrokerViewMBean(serverConnection, mBeanName);
         } catch (UndeclaredThrowableException utEx) {
             //ActiveMQ version is <5.8, set beanName and destination properties to pre-5.8 values
-            mBeanName = "org.apache.activemq:BrokerName=" + configurationService.getPlatformSettings().getJmxBroker() + ",Type=Broker";
-            destinationProperty = "Destination";
-            return getBrokerViewMBean(mBeanName);
+            useLegacyNames();
+            return getBrokerViewMBean(serverConnection, mBeanName);
         }
     }
 
@@ -129,12 +134,46 @@ public class MotechMBeanServer {
             String settingsURL = configurationService.getPlatformSettings().getJmxHost();
             if (connection == null || !settingsURL.equals(jmxCurrentHost)) {
                 jmxCurrentHost = settingsURL;
-                createConnection();
+                connection = getLocalServer();
+                if (connection == null) {
+                    createConnection();
+                }
             }
             return this.connection;
         }
     }
 
+    /**
+     * Returns the platform MBean server if the broker is embedded in this instance, resolving the MBean names the
+     * broker uses.
+     */
+    private MBeanServerConnection getLocalServer() {
+        try {
+            MBeanServer platformServer = ManagementFactory.getPlatformMBeanServer();
+            if (platformServer.isRegistered(new ObjectName(mBeanName))) {
+                return platformServer;
+            }
+
+            // the embedded broker might use a pre-5.8 version of ActiveMQ
+            if (platformServer.isRegistered(new ObjectName(getLegacyMBeanName()))) {
+                useLegacyNames();
+                return platformServer;
+            }
+        } catch (MalformedObjectNameException ex) {
+            LOGGER.debug("Invalid broker MBean name", ex);
+        }
+        return null;
+    }
+
+    private void useLegacyNames() {
+        mBeanName = getLegacyMBeanName();
+        destinationProperty = "Destination";
+    }
+
+    private String getLegacyMBeanName() {
+        return "org.apache.activemq:BrokerName=" + configurationService.getPlatformSettings().getJmxBroker() + ",Type=Broker";
+    }
+
     private void createConnection() {
         try {
             JMXConnector jmxc = JMXConnectorFactory.connect(new JMXServiceURL(getUrl()));
@@ -148,10 +187,10 @@ public class MotechMBeanServer {
         return "service:jmx:rmi:///jndi/rmi://" + jmxCurrentHost + ":1099/jmxrmi";
     }
 
-    private BrokerViewMBean getBrokerViewMBean(String mBeanName) {
+    private BrokerViewMBean getBrokerViewMBean(MBeanServerConnection serverConnection, String mBeanName) {
         try {
             ObjectName activeMQ = new ObjectName(mBeanName);
-            BrokerViewMBean brokerViewMBean = MBeanServerInvocationHandler.newProxyInstance(openConnection(), activeMQ, BrokerViewMBean.class, true);
+            BrokerViewMBean brokerViewMBean = MBeanServerInvocationHandler.newProxyInstance(serverConnection, activeMQ, BrokerViewMBean.class, true);
             LOGGER.info("Retrieving BrokerViewMBean from Broker version: " + brokerViewMBean.getBrokerVersion());
             return brokerViewMBean;
         } catch (MalformedObjectNameException ex) {
@@ -0,0 +1,79 @@
+package org.motechproject.admin.web.controller;
+
+import org.motechproject.event.metrics.EventMetrics;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.motechproject.event.metrics.OutboundEventMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the throughput and latency metrics of events relayed by this MOTECH instance.
+ * Uses {@link org.motechproject.event.metrics.EventMetricsService} for retrieving the metrics.
+ */
+@Controller
+public class EventMetricsController {
+
+    @Autowired
+    private EventMetricsService eventMetricsService;
+
+    /**
+     * Returns the event metrics for each subject.
+     * @return a list of {@link org.motechproject.event.metrics.EventMetrics}, one for each subject
+     */
+    @RequestMapping(value = "/events/metrics/subjects", method = RequestMethod.GET)
+    @ResponseBody
+    public List<EventMetrics> subjectMetrics() {
+        return eventMetricsService.getSubjectMetrics();
+    }
+
+    /**
+     * Returns the event metrics for each listener.
+     * @return a list of {@link org.motechproject.event.metrics.EventMetrics}, one for each listener
+     */
+    @RequestMapping(value = "/events/metrics/listeners", method = RequestMethod.GET)
+    @ResponseBody
+    public List<EventMetrics> listenerMetrics() {
+        return eventMetricsService.getListenerMetrics();
+    }
+
+    /**
+     * Returns the number of pending broadcast deliveries and the broadcast lag, in milliseconds.
+     * @return a map with the <code>pending</code> and <code>lag</code> keys
+     */
+    @RequestMapping(value = "/events/metrics/broadcast", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Long> broadcastMetrics() {
+        Map<String, Long> result = new HashMap<>();
+        result.put("pending", (long) eventMetricsService.getPendingBroadcastCount());
+        result.put("lag", eventMetricsService.getBroadcastLag());
+        return result;
+    }
+
+    /**
+     * Returns the state and counters of the buffer holding events published asynchronously.
+     * @return the {@link org.motechproject.event.metrics.OutboundEventMetrics}
+     */
+    @RequestMapping(value = "/events/metrics/outbound", method = RequestMethod.GET)
+    @ResponseBody
+    public OutboundEventMetrics outboundMetrics() {
+        return eventMetricsService.getOutboundMetrics();
+    }
+
+    /**
+     * Clears the event metrics.
+     */
+    @RequestMapping(value = "/events/metrics/reset", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void resetMetrics() {
+        eventMetricsService.reset();
+    }
+}
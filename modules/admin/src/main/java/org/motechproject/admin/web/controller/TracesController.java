@@ -0,0 +1,71 @@
+package org.motechproject.admin.web.controller;
+
+import org.motechproject.event.metrics.LatencyStatistics;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the traces recorded by this MOTECH instance, followed from scheduler jobs through events, tasks and actions.
+ * Uses {@link org.motechproject.event.trace.TraceService} for retrieving the spans of the traces.
+ */
+@Controller
+public class TracesController {
+
+    private static final String DEFAULT_SPAN_COUNT = "100";
+
+    @Autowired
+    private TraceService traceService;
+
+    /**
+     * Returns the most recently recorded spans, newest first.
+     * @param max the maximum number of spans to return
+     * @return a list of {@link org.motechproject.event.trace.Span}s
+     */
+    @RequestMapping(value = "/events/traces", method = RequestMethod.GET)
+    @ResponseBody
+    public List<Span> recentSpans(@RequestParam(value = "max", defaultValue = DEFAULT_SPAN_COUNT) int max) {
+        return traceService.getRecentSpans(max);
+    }
+
+    /**
+     * Returns the latency of each stage of the recorded traces.
+     * @return a map of {@link org.motechproject.event.metrics.LatencyStatistics}, keyed by stage
+     */
+    @RequestMapping(value = "/events/traces/stages", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, LatencyStatistics> stageStatistics() {
+        return traceService.getStageStatistics();
+    }
+
+    /**
+     * Returns the recorded spans of a single trace, in the order they started.
+     * @param traceId the id of the trace
+     * @return a list of {@link org.motechproject.event.trace.Span}s
+     */
+    @RequestMapping(value = "/events/traces/{traceId}", method = RequestMethod.GET)
+    @ResponseBody
+    public List<Span> trace(@PathVariable String traceId) {
+        return traceService.getTrace(traceId);
+    }
+
+    /**
+     * Clears the recorded spans and stage statistics.
+     */
+    @RequestMapping(value = "/events/traces/reset", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void reset() {
+        traceService.reset();
+    }
+}
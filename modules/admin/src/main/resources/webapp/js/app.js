@@ -107,6 +107,16 @@
                    }
                }
             })
+            .state('admin.traces', {
+               url: '/traces?traceId',
+               parent: 'admin',
+               views: {
+                   'adminView': {
+                       templateUrl: '../admin/partials/traces.html',
+                       controller: 'AdminTracesCtrl'
+                   }
+               }
+            })
             .state('admin.browse', {
                url: '/browse',
                parent: 'admin',
@@ -990,6 +990,47 @@
 
     });
 
+    controllers.controller('AdminTracesCtrl', function($scope, $http, $stateParams) {
+
+        $scope.dataAvailable = true;
+        $scope.traceId = $stateParams.traceId;
+
+        $scope.loadTraces = function () {
+            var spansUrl = $scope.traceId ? '../admin/api/events/traces/' + $scope.traceId : '../admin/api/events/traces';
+
+            $http.get(spansUrl).success(function (data) {
+                $scope.spans = data;
+            }).error(function () {
+                $scope.dataAvailable = false;
+            });
+
+            $http.get('../admin/api/events/traces/stages').success(function (data) {
+                $scope.stages = data;
+            }).error(function () {
+                $scope.dataAvailable = false;
+            });
+        };
+
+        $scope.resetTraces = function () {
+            $http.post('../admin/api/events/traces/reset').success(function () {
+                $scope.loadTraces();
+            });
+        };
+
+        $scope.attributesOf = function (span) {
+            var attributes = [];
+            angular.forEach(span.attributes, function (value, key) {
+                attributes.push(key + '=' + value);
+            });
+            return attributes.join(', ');
+        };
+
+        $scope.loadTraces();
+
+        innerLayout({});
+
+    });
+
     controllers.controller('AdminQueueMessageStatsCtrl', function($scope, $http, $stateParams) {
 
         var queue = $stateParams.queueName;
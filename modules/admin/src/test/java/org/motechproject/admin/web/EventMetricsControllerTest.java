@@ -0,0 +1,97 @@
+package org.motechproject.admin.web;
+
+import org.hamcrest.text.StringContains;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.admin.web.controller.EventMetricsController;
+import org.motechproject.event.metrics.EventMetrics;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.motechproject.event.metrics.OutboundEventMetrics;
+import org.springframework.test.web.server.MockMvc;
+import org.springframework.test.web.server.request.MockMvcRequestBuilders;
+import org.springframework.test.web.server.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.web.server.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.server.result.MockMvcResultMatchers.status;
+
+public class EventMetricsControllerTest {
+
+    MockMvc mockMvc;
+
+    @InjectMocks
+    EventMetricsController eventMetricsController = new EventMetricsController();
+
+    @Mock
+    EventMetricsService eventMetricsService;
+
+    @Before
+    public void before() {
+        initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(eventMetricsController).build();
+    }
+
+    @Test
+    public void shouldReturnSubjectMetrics() throws Exception {
+        EventMetrics metrics = new EventMetrics("org.motechproject.test");
+        metrics.setPublishedCount(5);
+        given(eventMetricsService.getSubjectMetrics()).willReturn(Arrays.asList(metrics));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/events/metrics/subjects"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(new StringContains("\"name\":\"org.motechproject.test\"")))
+                .andExpect(content().string(new StringContains("\"publishedCount\":5")));
+    }
+
+    @Test
+    public void shouldReturnListenerMetrics() throws Exception {
+        given(eventMetricsService.getListenerMetrics()).willReturn(Arrays.asList(new EventMetrics("listener-1")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/events/metrics/listeners"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(new StringContains("\"name\":\"listener-1\"")));
+    }
+
+    @Test
+    public void shouldReturnBroadcastMetrics() throws Exception {
+        given(eventMetricsService.getPendingBroadcastCount()).willReturn(3);
+        given(eventMetricsService.getBroadcastLag()).willReturn(250L);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/events/metrics/broadcast"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(new StringContains("\"pending\":3")))
+                .andExpect(content().string(new StringContains("\"lag\":250")));
+    }
+
+    @Test
+    public void shouldReturnOutboundMetrics() throws Exception {
+        OutboundEventMetrics metrics = new OutboundEventMetrics();
+        metrics.setDepth(7);
+        metrics.setCapacity(100);
+        given(eventMetricsService.getOutboundMetrics()).willReturn(metrics);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/events/metrics/outbound"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(new StringContains("\"depth\":7")))
+                .andExpect(content().string(new StringContains("\"capacity\":100")));
+    }
+
+    @Test
+    public void shouldResetMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                .post("/events/metrics/reset"))
+                .andExpect(status().isOk());
+
+        verify(eventMetricsService).reset();
+    }
+}
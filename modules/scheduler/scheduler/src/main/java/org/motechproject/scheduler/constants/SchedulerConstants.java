@@ -9,6 +9,18 @@ public final class SchedulerConstants {
     public static final String EVENT_TYPE_KEY_NAME = "eventType";
     public static final String EVENT_METADATA = "org.motechproject.scheduler.service.Job.metadata";
 
+    /* Settings, also passed to jobs through the scheduler context */
+    public static final String PUBLISH_ASYNC = "scheduler.publishAsync";
+    public static final String COMPACT_JOB_DATA = "scheduler.jobData.compact";
+    public static final String BATCH_FIRE = "scheduler.batchFire";
+    public static final String BATCH_FIRE_WINDOW = "scheduler.batchFire.windowMillis";
+    public static final String BATCH_FIRE_PUBLISHER = "batchFirePublisher";
+
+    /* Job group settings */
+    public static final String JOB_GROUPS = "scheduler.jobGroups";
+    public static final String JOB_GROUPS_BY_MODULE = "scheduler.jobGroups.byModule";
+    public static final String JOB_GROUP_PRIORITIES = "scheduler.jobGroups.priorities";
+
     /* Job types */
     public static final String CRON = "CRON";
     public static final String DAY_OF_WEEK = "DAY_OF_WEEK";
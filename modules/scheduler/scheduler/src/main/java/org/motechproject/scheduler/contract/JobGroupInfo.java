@@ -0,0 +1,64 @@
+package org.motechproject.scheduler.contract;
+
+/**
+ * <code>JobGroupInfo</code> holds the information about a group of jobs. Jobs are kept in groups by the module
+ * scheduling them or the prefix of their subject, so that the jobs of a group can be paused, counted and unscheduled
+ * at once.
+ *
+ * @see org.motechproject.scheduler.service.MotechSchedulerService#getJobGroups()
+ */
+public class JobGroupInfo {
+    private String name;
+    private int jobCount;
+    private boolean paused;
+    private int priority;
+
+    public JobGroupInfo() {
+    }
+
+    public JobGroupInfo(String name, int jobCount, boolean paused, int priority) {
+        this.name = name;
+        this.jobCount = jobCount;
+        this.paused = paused;
+        this.priority = priority;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getJobCount() {
+        return jobCount;
+    }
+
+    public void setJobCount(int jobCount) {
+        this.jobCount = jobCount;
+    }
+
+    /**
+     * @return true if the group was paused, in which case jobs scheduled in it are paused as well
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * @return the priority of the triggers of the group, of the triggers due to fire the ones with a higher priority
+     * are fired first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+}
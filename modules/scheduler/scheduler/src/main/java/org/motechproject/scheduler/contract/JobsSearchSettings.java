@@ -9,6 +9,7 @@ package org.motechproject.scheduler.contract;
  */
 public class JobsSearchSettings {
     private String name;
+    private String group;
     private Integer rows;
     private Integer page;
     private String sortColumn;
@@ -26,6 +27,17 @@ public class JobsSearchSettings {
         this.name = name;
     }
 
+    /**
+     * @return the group of the listed jobs, all groups are listed if blank
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
     public Integer getRows() {
         return rows;
     }
@@ -0,0 +1,125 @@
+package org.motechproject.scheduler.contract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>SchedulerMetrics</code> is a snapshot of the state of the scheduler running on this node - its clustering
+ * setup, the usage of its thread pool and how well it keeps up with firing triggers. The counters cover the time
+ * since the scheduler was started or the metrics were last reset, the windows cover the last few minutes.
+ *
+ * @see org.motechproject.scheduler.service.MotechSchedulerService#getSchedulerMetrics()
+ */
+public class SchedulerMetrics {
+    private String instanceId;
+    private boolean clustered;
+    private int threadPoolSize;
+    private int executingJobs;
+    private int jobsExecuted;
+    private long firedCount;
+    private long misfiredCount;
+    private long averageFireLag;
+    private long maxFireLag;
+    private List<SchedulerWindowMetrics> windows = new ArrayList<>();
+    private List<SubjectSchedulerMetrics> subjects = new ArrayList<>();
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    public void setClustered(boolean clustered) {
+        this.clustered = clustered;
+    }
+
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    public void setThreadPoolSize(int threadPoolSize) {
+        this.threadPoolSize = threadPoolSize;
+    }
+
+    public int getExecutingJobs() {
+        return executingJobs;
+    }
+
+    public void setExecutingJobs(int executingJobs) {
+        this.executingJobs = executingJobs;
+    }
+
+    public int getJobsExecuted() {
+        return jobsExecuted;
+    }
+
+    public void setJobsExecuted(int jobsExecuted) {
+        this.jobsExecuted = jobsExecuted;
+    }
+
+    public long getFiredCount() {
+        return firedCount;
+    }
+
+    public void setFiredCount(long firedCount) {
+        this.firedCount = firedCount;
+    }
+
+    public long getMisfiredCount() {
+        return misfiredCount;
+    }
+
+    public void setMisfiredCount(long misfiredCount) {
+        this.misfiredCount = misfiredCount;
+    }
+
+    /**
+     * @return the average time between the scheduled and the actual fire time of triggers, in milliseconds
+     */
+    public long getAverageFireLag() {
+        return averageFireLag;
+    }
+
+    public void setAverageFireLag(long averageFireLag) {
+        this.averageFireLag = averageFireLag;
+    }
+
+    /**
+     * @return the longest time between the scheduled and the actual fire time of a trigger, in milliseconds
+     */
+    public long getMaxFireLag() {
+        return maxFireLag;
+    }
+
+    public void setMaxFireLag(long maxFireLag) {
+        this.maxFireLag = maxFireLag;
+    }
+
+    /**
+     * @return the metrics of all fired jobs, one for each window
+     */
+    public List<SchedulerWindowMetrics> getWindows() {
+        return windows;
+    }
+
+    public void setWindows(List<SchedulerWindowMetrics> windows) {
+        this.windows = windows;
+    }
+
+    /**
+     * @return the metrics of the jobs fired within the longest window, one for each subject
+     */
+    public List<SubjectSchedulerMetrics> getSubjects() {
+        return subjects;
+    }
+
+    public void setSubjects(List<SubjectSchedulerMetrics> subjects) {
+        this.subjects = subjects;
+    }
+}
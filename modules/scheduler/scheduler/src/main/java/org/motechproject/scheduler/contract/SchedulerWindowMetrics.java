@@ -0,0 +1,148 @@
+package org.motechproject.scheduler.contract;
+
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <code>SchedulerWindowMetrics</code> describes how the scheduler running on this node fired and executed jobs within
+ * a window of the last few minutes. The metrics of a single subject only include the fired count, the fire lag and
+ * the execution duration, the rest is only measured for the scheduler as a whole.
+ *
+ * @see SchedulerMetrics
+ */
+public class SchedulerWindowMetrics {
+    private int windowMinutes;
+    private long firedCount;
+    private LatencyStatistics fireLag = new LatencyStatistics();
+    private LatencyStatistics executionDuration = new LatencyStatistics();
+    private long misfiredCount;
+    private Map<String, Long> misfiresByPolicy = new HashMap<>();
+    private long acquisitionCount;
+    private double averageAcquisitionSize;
+    private long maxAcquisitionSize;
+    private double averageBusyThreads;
+    private long maxBusyThreads;
+    private long saturatedFireCount;
+
+    /**
+     * @return the length of the window, in minutes, counting the current one
+     */
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    public void setWindowMinutes(int windowMinutes) {
+        this.windowMinutes = windowMinutes;
+    }
+
+    public long getFiredCount() {
+        return firedCount;
+    }
+
+    public void setFiredCount(long firedCount) {
+        this.firedCount = firedCount;
+    }
+
+    /**
+     * @return the statistics of the time between the scheduled and the actual fire time of triggers
+     */
+    public LatencyStatistics getFireLag() {
+        return fireLag;
+    }
+
+    public void setFireLag(LatencyStatistics fireLag) {
+        this.fireLag = fireLag;
+    }
+
+    /**
+     * @return the statistics of the time it took to execute jobs
+     */
+    public LatencyStatistics getExecutionDuration() {
+        return executionDuration;
+    }
+
+    public void setExecutionDuration(LatencyStatistics executionDuration) {
+        this.executionDuration = executionDuration;
+    }
+
+    public long getMisfiredCount() {
+        return misfiredCount;
+    }
+
+    public void setMisfiredCount(long misfiredCount) {
+        this.misfiredCount = misfiredCount;
+    }
+
+    /**
+     * @return the number of misfired triggers, by the name of the misfire instruction applied to them
+     */
+    public Map<String, Long> getMisfiresByPolicy() {
+        return misfiresByPolicy;
+    }
+
+    public void setMisfiresByPolicy(Map<String, Long> misfiresByPolicy) {
+        this.misfiresByPolicy = misfiresByPolicy;
+    }
+
+    /**
+     * @return the number of times the job store acquired triggers to fire
+     */
+    public long getAcquisitionCount() {
+        return acquisitionCount;
+    }
+
+    public void setAcquisitionCount(long acquisitionCount) {
+        this.acquisitionCount = acquisitionCount;
+    }
+
+    /**
+     * @return the average number of triggers acquired at once
+     */
+    public double getAverageAcquisitionSize() {
+        return averageAcquisitionSize;
+    }
+
+    public void setAverageAcquisitionSize(double averageAcquisitionSize) {
+        this.averageAcquisitionSize = averageAcquisitionSize;
+    }
+
+    public long getMaxAcquisitionSize() {
+        return maxAcquisitionSize;
+    }
+
+    public void setMaxAcquisitionSize(long maxAcquisitionSize) {
+        this.maxAcquisitionSize = maxAcquisitionSize;
+    }
+
+    /**
+     * @return the average number of threads that were already executing jobs when a trigger fired
+     */
+    public double getAverageBusyThreads() {
+        return averageBusyThreads;
+    }
+
+    public void setAverageBusyThreads(double averageBusyThreads) {
+        this.averageBusyThreads = averageBusyThreads;
+    }
+
+    public long getMaxBusyThreads() {
+        return maxBusyThreads;
+    }
+
+    public void setMaxBusyThreads(long maxBusyThreads) {
+        this.maxBusyThreads = maxBusyThreads;
+    }
+
+    /**
+     * @return the number of triggers which took the last free thread of the pool when they fired
+     */
+    public long getSaturatedFireCount() {
+        return saturatedFireCount;
+    }
+
+    public void setSaturatedFireCount(long saturatedFireCount) {
+        this.saturatedFireCount = saturatedFireCount;
+    }
+}
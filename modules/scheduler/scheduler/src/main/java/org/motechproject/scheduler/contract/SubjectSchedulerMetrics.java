@@ -0,0 +1,42 @@
+package org.motechproject.scheduler.contract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>SubjectSchedulerMetrics</code> holds the metrics of the jobs publishing events with the given subject, fired
+ * by the scheduler running on this node.
+ *
+ * @see SchedulerMetrics
+ */
+public class SubjectSchedulerMetrics {
+    private String subject;
+    private List<SchedulerWindowMetrics> windows = new ArrayList<>();
+
+    public SubjectSchedulerMetrics() {
+    }
+
+    public SubjectSchedulerMetrics(String subject, List<SchedulerWindowMetrics> windows) {
+        this.subject = subject;
+        this.windows = windows;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * @return the metrics of the jobs, one for each window
+     */
+    public List<SchedulerWindowMetrics> getWindows() {
+        return windows;
+    }
+
+    public void setWindows(List<SchedulerWindowMetrics> windows) {
+        this.windows = windows;
+    }
+}
@@ -0,0 +1,43 @@
+package org.motechproject.scheduler.exception;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Thrown when some of the jobs passed for bulk scheduling are invalid. None of the jobs are scheduled in such case.
+ * The errors are keyed by the position of the invalid job in the scheduled collection.
+ *
+ * @see org.motechproject.scheduler.service.MotechSchedulerService#scheduleJobs(java.util.Collection)
+ */
+public class BulkSchedulingException extends MotechSchedulerException {
+
+    private static final long serialVersionUID = -4731908812453097716L;
+
+    private final Map<Integer, String> errors;
+    private final int jobCount;
+
+    /**
+     * @param errors the error messages, keyed by the position of the invalid job
+     * @param jobCount the number of jobs passed for scheduling
+     */
+    public BulkSchedulingException(Map<Integer, String> errors, int jobCount) {
+        super(String.format("Can not schedule jobs, %d out of %d jobs are invalid: %s", errors.size(), jobCount, errors));
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+        this.jobCount = jobCount;
+    }
+
+    /**
+     * @return the error messages, keyed by the position of the invalid job in the scheduled collection
+     */
+    public Map<Integer, String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of jobs passed for scheduling
+     */
+    public int getJobCount() {
+        return jobCount;
+    }
+}
@@ -1,9 +1,24 @@
 package org.motechproject.scheduler.factory;
 
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.constants.SchedulerConstants;
 import org.motechproject.scheduler.exception.SchedulerInstantiationException;
 import org.motechproject.scheduler.exception.SchedulerShutdownException;
+import org.motechproject.scheduler.jobstore.CompactJobDataPostgreSQLDelegate;
+import org.motechproject.scheduler.jobstore.CompactJobDataStdJDBCDelegate;
+import org.motechproject.scheduler.jobstore.MotechJobStoreTX;
+import org.motechproject.scheduler.jobstore.PriorityAcquisitionPostgreSQLDelegate;
+import org.motechproject.scheduler.jobstore.PriorityAcquisitionStdJDBCDelegate;
+import org.motechproject.scheduler.listener.SchedulerMetricsListener;
+import org.motechproject.scheduler.service.impl.BatchFirePublisher;
+import org.motechproject.scheduler.service.impl.JobGroupMigrator;
+import org.motechproject.scheduler.service.impl.JobGroupResolver;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
@@ -12,7 +27,10 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import static java.lang.Boolean.getBoolean;
 
@@ -22,12 +40,37 @@ import static java.lang.Boolean.getBoolean;
 @Component("motechSchedulerFactoryBean")
 public class MotechSchedulerFactoryBean {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotechSchedulerFactoryBean.class);
+
+    private static final String THREAD_COUNT = "org.quartz.threadPool.threadCount";
+    private static final String BATCH_MAX_COUNT = "org.quartz.scheduler.batchTriggerAcquisitionMaxCount";
+    private static final String ACQUIRE_WITHIN_LOCK = "org.quartz.jobStore.acquireTriggersWithinLock";
+    private static final String MAX_CONNECTIONS = "org.quartz.dataSource.motechDS.maxConnections";
+    private static final String IS_CLUSTERED = "org.quartz.jobStore.isClustered";
+    private static final String DRIVER_DELEGATE = "org.quartz.jobStore.driverDelegateClass";
+    private static final String DRIVER_DELEGATE_INIT_STRING = "org.quartz.jobStore.driverDelegateInitString";
+    private static final String COMPACT_JOB_DATA_SETTING = "compactJobData";
+    private static final String TRIGGER_PRIORITIES_SETTING = "triggerPriorities";
+    private static final String JOB_STORE_CLASS = "org.quartz.jobStore.class";
+    private static final String INSTANCE_NAME = "org.quartz.scheduler.instanceName";
+
+    /* Connections used by the job store besides the ones of the threads firing jobs - misfire handling and cluster check-ins */
+    private static final int SPARE_CONNECTIONS = 2;
+
+    private static final int DEFAULT_BATCH_FIRE_WINDOW = 100;
+
     private ApplicationContext applicationContext;
 
     private SchedulerFactoryBean schedulerFactoryBean;
 
     private Properties schedulerProperties;
 
+    private SchedulerMetricsListener metricsListener = new SchedulerMetricsListener();
+
+    private BatchFirePublisher batchFirePublisher;
+
+    private JobGroupResolver jobGroupResolver;
+
     /**
      * Constructor.
      *
@@ -38,6 +81,7 @@ public class MotechSchedulerFactoryBean {
     public MotechSchedulerFactoryBean(ApplicationContext applicationContext, @Qualifier("sqlProperties") Properties schedulerProperties) {
         this.applicationContext = applicationContext;
         this.schedulerProperties = schedulerProperties;
+        this.jobGroupResolver = new JobGroupResolver(schedulerProperties);
     }
 
     /**
@@ -45,14 +89,27 @@ public class MotechSchedulerFactoryBean {
      */
     @PostConstruct
     public void init() {
+        Properties quartzProperties = prepareQuartzProperties(schedulerProperties);
+        MotechJobStoreTX.registerMetricsListener(quartzProperties.getProperty(INSTANCE_NAME), metricsListener);
+
         schedulerFactoryBean = new SchedulerFactoryBean();
-        schedulerFactoryBean.setQuartzProperties(schedulerProperties);
+        schedulerFactoryBean.setQuartzProperties(quartzProperties);
         schedulerFactoryBean.setWaitForJobsToCompleteOnShutdown(getBooleanWithDefault(schedulerProperties.getProperty("scheduler.waitForJobsToCompleteOnShutdown"), true));
         schedulerFactoryBean.setApplicationContextSchedulerContextKey("applicationContext");
         schedulerFactoryBean.setApplicationContext(applicationContext);
+        schedulerFactoryBean.setSchedulerContextAsMap(createSchedulerContext());
+        schedulerFactoryBean.setGlobalTriggerListeners(metricsListener);
+        schedulerFactoryBean.setGlobalJobListeners(metricsListener);
         try {
             schedulerFactoryBean.afterPropertiesSet();
-            schedulerFactoryBean.getScheduler().start();
+            Scheduler scheduler = schedulerFactoryBean.getScheduler();
+            metricsListener.setThreadPoolSize(scheduler.getMetaData().getThreadPoolSize());
+            // jobs are moved into their groups before any of them fires on this node
+            int movedJobs = new JobGroupMigrator(quartzProperties, jobGroupResolver, scheduler).migrate();
+            if (movedJobs > 0) {
+                LOGGER.info("Moved {} jobs into their groups", movedJobs);
+            }
+            scheduler.start();
         } catch (Exception e) {
             throw new SchedulerInstantiationException("Failed to instantiate scheduler with configuration from quartz.properties", e);
         }
@@ -67,6 +124,11 @@ public class MotechSchedulerFactoryBean {
             schedulerFactoryBean.destroy();
         } catch (SchedulerException e) {
             throw new SchedulerShutdownException("Failed to shutdown scheduler", e);
+        } finally {
+            MotechJobStoreTX.unregisterMetricsListener(schedulerProperties.getProperty(INSTANCE_NAME));
+            if (batchFirePublisher != null) {
+                batchFirePublisher.shutdown();
+            }
         }
     }
 
@@ -74,6 +136,24 @@ public class MotechSchedulerFactoryBean {
         return schedulerFactoryBean;
     }
 
+    /**
+     * Returns the listener measuring the triggers fired and the jobs executed by the scheduler on this node.
+     *
+     * @return the metrics listener
+     */
+    public SchedulerMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Returns the resolver telling the groups in which jobs are kept, and the priorities of their triggers.
+     *
+     * @return the job group resolver
+     */
+    public JobGroupResolver getJobGroupResolver() {
+        return jobGroupResolver;
+    }
+
     /**
      * Returns created scheduler.
      *
@@ -83,6 +163,84 @@ public class MotechSchedulerFactoryBean {
         return getQuartzSchedulerFactoryBean().getScheduler();
     }
 
+    /**
+     * Fills in the Quartz settings that follow from the ones configured. Batch trigger acquisition requires acquiring
+     * triggers under a database lock, and every thread of the pool needs a database connection to fire jobs. The
+     * standard delegates are replaced with ones that can read compact job data, which they also write if
+     * <code>scheduler.jobData.compact</code> is set. If priorities are configured for job groups, the delegates also
+     * acquire the triggers which are already due by their priority. The JDBC job store is replaced with one reporting the number of
+     * triggers it acquires at once to the metrics listener.
+     */
+    static Properties prepareQuartzProperties(Properties properties) {
+        Properties quartzProperties = new Properties();
+        quartzProperties.putAll(properties);
+
+        int batchMaxCount = getIntWithDefault(quartzProperties.getProperty(BATCH_MAX_COUNT), 1);
+        if (batchMaxCount > 1 && quartzProperties.getProperty(ACQUIRE_WITHIN_LOCK) == null) {
+            quartzProperties.setProperty(ACQUIRE_WITHIN_LOCK, "true");
+        }
+
+        int threadCount = getIntWithDefault(quartzProperties.getProperty(THREAD_COUNT), 1);
+        int maxConnections = getIntWithDefault(quartzProperties.getProperty(MAX_CONNECTIONS), 0);
+        if (maxConnections > 0 && maxConnections < threadCount + SPARE_CONNECTIONS) {
+            LOGGER.warn("Raising {} from {} to {} to match {} scheduler threads", MAX_CONNECTIONS, maxConnections,
+                    threadCount + SPARE_CONNECTIONS, threadCount);
+            quartzProperties.setProperty(MAX_CONNECTIONS, String.valueOf(threadCount + SPARE_CONNECTIONS));
+        }
+
+        Set<Integer> priorities = new JobGroupResolver(properties).getPriorities();
+        String delegate = getMotechDelegate(quartzProperties.getProperty(DRIVER_DELEGATE), !priorities.isEmpty());
+        if (delegate != null) {
+            boolean compactJobData = Boolean.parseBoolean(quartzProperties.getProperty(SchedulerConstants.COMPACT_JOB_DATA));
+            String initString = quartzProperties.getProperty(DRIVER_DELEGATE_INIT_STRING);
+
+            quartzProperties.setProperty(DRIVER_DELEGATE, delegate);
+            quartzProperties.setProperty(DRIVER_DELEGATE_INIT_STRING, (initString != null ? initString + "|" : "") +
+                    COMPACT_JOB_DATA_SETTING + "=" + compactJobData +
+                    (priorities.isEmpty() ? "" : "|" + TRIGGER_PRIORITIES_SETTING + "=" + StringUtils.join(priorities, ",")));
+        }
+
+        if (JobStoreTX.class.getName().equals(quartzProperties.getProperty(JOB_STORE_CLASS))) {
+            quartzProperties.setProperty(JOB_STORE_CLASS, MotechJobStoreTX.class.getName());
+        }
+
+        LOGGER.info("Starting scheduler with {} threads, acquiring up to {} triggers at once, clustered: {}",
+                threadCount, batchMaxCount, Boolean.parseBoolean(quartzProperties.getProperty(IS_CLUSTERED)));
+
+        return quartzProperties;
+    }
+
+    private Map<String, Object> createSchedulerContext() {
+        Map<String, Object> schedulerContext = new HashMap<>();
+        // jobs can publish their events asynchronously, so that a slow broker does not hold up Quartz threads
+        schedulerContext.put(SchedulerConstants.PUBLISH_ASYNC,
+                Boolean.parseBoolean(schedulerProperties.getProperty(SchedulerConstants.PUBLISH_ASYNC)));
+        // or hand them over to be published in batches, along with the events of jobs fired at the same time
+        if (Boolean.parseBoolean(schedulerProperties.getProperty(SchedulerConstants.BATCH_FIRE))) {
+            long window = getIntWithDefault(schedulerProperties.getProperty(SchedulerConstants.BATCH_FIRE_WINDOW),
+                    DEFAULT_BATCH_FIRE_WINDOW);
+            batchFirePublisher = new BatchFirePublisher(applicationContext, window);
+            schedulerContext.put(SchedulerConstants.BATCH_FIRE_PUBLISHER, batchFirePublisher);
+        }
+        return schedulerContext;
+    }
+
+    private static String getMotechDelegate(String delegate, boolean acquireByPriority) {
+        if (Drivers.QUARTZ_STD_JDBC_DELEGATE.equals(delegate)) {
+            return acquireByPriority ? PriorityAcquisitionStdJDBCDelegate.class.getName() :
+                    CompactJobDataStdJDBCDelegate.class.getName();
+        } else if (Drivers.QUARTZ_POSTGRESQL_DELEGATE.equals(delegate)) {
+            return acquireByPriority ? PriorityAcquisitionPostgreSQLDelegate.class.getName() :
+                    CompactJobDataPostgreSQLDelegate.class.getName();
+        } else {
+            return null;
+        }
+    }
+
+    private static int getIntWithDefault(String s, int defaultValue) {
+        return s != null ? Integer.parseInt(s.trim()) : defaultValue;
+    }
+
     private boolean getBooleanWithDefault(String s, boolean defaultValue) {
         return s != null ? getBoolean(s) : defaultValue;
     }
@@ -0,0 +1,63 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.PostgreSQLDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.motechproject.scheduler.jobstore.CompactJobDataStdJDBCDelegate.COMPACT_JOB_DATA;
+
+/**
+ * The {@link PostgreSQLDelegate} storing job data in the compact form of {@link CompactJobDataSerializer}.
+ *
+ * @see CompactJobDataStdJDBCDelegate
+ */
+public class CompactJobDataPostgreSQLDelegate extends PostgreSQLDelegate {
+
+    private boolean compactJobData;
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId,
+                           ClassLoadHelper classLoadHelper, boolean useProperties, String initString)
+            throws NoSuchDelegateException {
+        compactJobData = Boolean.parseBoolean(DelegateSettings.getSetting(initString, COMPACT_JOB_DATA));
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties,
+                DelegateSettings.removeSetting(initString, COMPACT_JOB_DATA));
+    }
+
+    @Override
+    public int insertJobDetail(Connection conn, JobDetail job) throws IOException, SQLException {
+        int inserted = super.insertJobDetail(conn, job);
+        if (inserted > 0 && UiDefinedColumn.isUiDefined(job)) {
+            UiDefinedColumn.update(conn, rtp(UiDefinedColumn.UPDATE_UI_DEFINED), job, true);
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateJobDetail(Connection conn, JobDetail job) throws IOException, SQLException {
+        int updated = super.updateJobDetail(conn, job);
+        if (updated > 0) {
+            UiDefinedColumn.update(conn, rtp(UiDefinedColumn.UPDATE_UI_DEFINED), job, UiDefinedColumn.isUiDefined(job));
+        }
+        return updated;
+    }
+
+    @Override
+    protected ByteArrayOutputStream serializeJobData(JobDataMap data) throws IOException {
+        return compactJobData && !canUseProperties() ? CompactJobDataSerializer.serialize(data) : super.serializeJobData(data);
+    }
+
+    @Override
+    protected Object getObjectFromBlob(ResultSet rs, String colName) throws ClassNotFoundException, IOException, SQLException {
+        return CompactJobDataSerializer.deserialize(rs.getBytes(colName));
+    }
+}
@@ -0,0 +1,212 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.quartz.JobDataMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes job data maps in a compact binary form, instead of Java serialization. Java serialization writes the class
+ * descriptors of the job data map and of every value along with the data, which makes up most of the stored blob and
+ * of the time spent reading it. The compact form writes strings, numbers, booleans and maps with string keys (such as
+ * the metadata of MOTECH events) as tagged values. Other values are still written with Java serialization.
+ * <p>
+ * Compact blobs start with a header that can not start a Java serialization stream, so blobs written in both forms
+ * can be read by {@link #deserialize(byte[])}.
+ */
+public final class CompactJobDataSerializer {
+
+    private static final byte[] HEADER = {'M', 'J', 1};
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte MAP = 6;
+    private static final byte SERIALIZED = 7;
+
+    /**
+     * Encodes the given job data in the compact form.
+     *
+     * @param data the job data to encode
+     * @return the stream holding the encoded data
+     * @throws NotSerializableException if one of the values can not be encoded
+     * @throws IOException if encoding fails
+     */
+    public static ByteArrayOutputStream serialize(Map<?, ?> data) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.write(HEADER);
+            writeMap(out, data);
+        }
+        return baos;
+    }
+
+    /**
+     * Decodes the given blob, written either in the compact form or with Java serialization.
+     *
+     * @param bytes the blob to decode
+     * @return the decoded object, null if the blob is empty
+     * @throws ClassNotFoundException if a Java serialized value is of an unknown class
+     * @throws IOException if decoding fails
+     */
+    public static Object deserialize(byte[] bytes) throws ClassNotFoundException, IOException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        if (!isCompact(bytes)) {
+            return readSerialized(bytes);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, HEADER.length,
+                bytes.length - HEADER.length))) {
+            JobDataMap jobDataMap = new JobDataMap();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                jobDataMap.put(readString(in), readValue(in));
+            }
+            jobDataMap.clearDirtyFlag();
+            return jobDataMap;
+        }
+    }
+
+    /**
+     * Checks whether the given blob was written in the compact form.
+     *
+     * @param bytes the blob to check
+     * @return true if the blob starts with the header of the compact form, false otherwise
+     */
+    public static boolean isCompact(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (bytes[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, (String) entry.getKey());
+            writeValue(out, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object key, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value.getClass() == HashMap.class && hasStringKeys((Map<?, ?>) value)) {
+            out.writeByte(MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else {
+            out.writeByte(SERIALIZED);
+            byte[] bytes = writeSerialized(key, value);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case MAP:
+                Map<String, Object> map = new HashMap<>();
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                return map;
+            case SERIALIZED:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return readSerialized(bytes);
+            default:
+                throw new StreamCorruptedException("Unknown job data value tag: " + tag);
+        }
+    }
+
+    private static boolean hasStringKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] writeSerialized(Object key, Object value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            throw new NotSerializableException(String.format("Unable to serialize job data, the value of property " +
+                    "'%s' is not serializable: %s", key, e.getMessage()));
+        }
+        return baos.toByteArray();
+    }
+
+    private static Object readSerialized(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    private CompactJobDataSerializer() {
+    }
+}
@@ -0,0 +1,55 @@
+package org.motechproject.scheduler.jobstore;
+
+/**
+ * Reads the settings of the MOTECH delegates from the delegate init string, a list of <code>name=value</code> pairs
+ * separated with '|'. The standard delegate rejects settings it does not know, so the delegates remove theirs before
+ * passing the init string on.
+ */
+final class DelegateSettings {
+
+    /**
+     * Returns the value of the given setting.
+     *
+     * @param initString the delegate init string, null if none was configured
+     * @param name the name of the setting
+     * @return the trimmed value of the setting, null if it is not set
+     */
+    static String getSetting(String initString, String name) {
+        if (initString != null) {
+            for (String setting : initString.split("\\|")) {
+                String[] parts = setting.split("=", 2);
+                if (name.equals(parts[0].trim()) && parts.length == 2) {
+                    return parts[1].trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the init string without the given setting.
+     *
+     * @param initString the delegate init string, null if none was configured
+     * @param name the name of the setting
+     * @return the remaining settings, null if there are none
+     */
+    static String removeSetting(String initString, String name) {
+        if (initString == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String setting : initString.split("\\|")) {
+            if (!name.equals(setting.split("=", 2)[0].trim())) {
+                if (sb.length() > 0) {
+                    sb.append('|');
+                }
+                sb.append(setting);
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private DelegateSettings() {
+    }
+}
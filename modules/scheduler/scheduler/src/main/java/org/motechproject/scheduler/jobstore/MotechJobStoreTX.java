@@ -0,0 +1,53 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.motechproject.scheduler.listener.SchedulerMetricsListener;
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link JobStoreTX} reporting the number of triggers acquired at once to the {@link SchedulerMetricsListener}
+ * of its scheduler. Job stores are created by Quartz, so listeners are registered by the name of the scheduler
+ * instance, before the scheduler is created.
+ */
+public class MotechJobStoreTX extends JobStoreTX {
+
+    private static final ConcurrentMap<String, SchedulerMetricsListener> METRICS_LISTENERS = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the listener to which the job store of the given scheduler reports acquired triggers.
+     *
+     * @param instanceName the name of the scheduler instance
+     * @param metricsListener the listener
+     */
+    public static void registerMetricsListener(String instanceName, SchedulerMetricsListener metricsListener) {
+        METRICS_LISTENERS.put(instanceName, metricsListener);
+    }
+
+    /**
+     * Unregisters the listener of the given scheduler.
+     *
+     * @param instanceName the name of the scheduler instance
+     */
+    public static void unregisterMetricsListener(String instanceName) {
+        METRICS_LISTENERS.remove(instanceName);
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        List<OperableTrigger> triggers = super.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+
+        // empty acquisitions only mean the scheduler is idle, they are not counted
+        SchedulerMetricsListener metricsListener = METRICS_LISTENERS.get(getInstanceName());
+        if (metricsListener != null && !triggers.isEmpty()) {
+            metricsListener.triggersAcquired(triggers.size());
+        }
+
+        return triggers;
+    }
+}
@@ -0,0 +1,52 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.motechproject.scheduler.jobstore.TriggerPriorityAcquisition.SELECT_DUE_TRIGGERS_OF_PRIORITY;
+import static org.motechproject.scheduler.jobstore.TriggerPriorityAcquisition.TRIGGER_PRIORITIES;
+
+/**
+ * The {@link CompactJobDataPostgreSQLDelegate} acquiring the triggers which are already due by their
+ * priority. Used instead of it when priorities are configured for job groups.
+ *
+ * @see TriggerPriorityAcquisition
+ */
+public class PriorityAcquisitionPostgreSQLDelegate extends CompactJobDataPostgreSQLDelegate {
+
+    private TriggerPriorityAcquisition priorityAcquisition;
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId,
+                           ClassLoadHelper classLoadHelper, boolean useProperties, String initString)
+            throws NoSuchDelegateException {
+        priorityAcquisition = TriggerPriorityAcquisition.fromInitString(initString);
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties,
+                DelegateSettings.removeSetting(initString, TRIGGER_PRIORITIES));
+    }
+
+    @Override
+    public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+            throws SQLException {
+        if (priorityAcquisition == null) {
+            return super.selectTriggerToAcquire(conn, noLaterThan, noEarlierThan, maxCount);
+        }
+
+        // at least one trigger is acquired
+        int count = Math.max(maxCount, 1);
+        List<TriggerKey> keys = priorityAcquisition.selectDueTriggers(conn, rtp(SELECT_DUE_TRIGGERS_OF_PRIORITY),
+                noLaterThan, noEarlierThan, count);
+        if (keys.size() < count) {
+            // the standard query can return the triggers already added
+            TriggerPriorityAcquisition.addNextTriggers(keys,
+                    super.selectTriggerToAcquire(conn, noLaterThan, noEarlierThan, count + keys.size()), count);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,128 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.apache.commons.lang.StringUtils;
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.Constants;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Acquires the triggers which are already due by their priority. Quartz acquires the triggers which are due first,
+ * and of triggers due at the same time the ones with a higher priority, so when the scheduler falls behind the
+ * triggers of critical job groups wait for all the triggers due before them.
+ * <p>
+ * The due triggers of every priority but the lowest are looked up first, from the highest priority, each through a
+ * query ordered by the fire time, which runs on the index on the trigger state, priority and fire time. The rest is
+ * filled up with the triggers of the standard query. This takes a query for every priority on every acquisition, so
+ * the delegates only acquire triggers this way when priorities are configured, with the
+ * <code>triggerPriorities</code> setting of the delegate init string.
+ */
+final class TriggerPriorityAcquisition {
+
+    static final String TRIGGER_PRIORITIES = "triggerPriorities";
+
+    static final String SELECT_DUE_TRIGGERS_OF_PRIORITY = "SELECT TRIGGER_NAME, TRIGGER_GROUP FROM {0}TRIGGERS " +
+            "WHERE SCHED_NAME = {1} AND TRIGGER_STATE = ? AND PRIORITY = ? AND NEXT_FIRE_TIME <= ? " +
+            "AND (MISFIRE_INSTR = -1 OR (MISFIRE_INSTR != -1 AND NEXT_FIRE_TIME >= ?)) ORDER BY NEXT_FIRE_TIME ASC";
+
+    private final List<Integer> priorities;
+
+    private TriggerPriorityAcquisition(List<Integer> priorities) {
+        this.priorities = priorities;
+    }
+
+    /**
+     * Creates the acquisition for the priorities of the <code>triggerPriorities</code> setting.
+     *
+     * @param initString the delegate init string, null if none was configured
+     * @return the acquisition, null if triggers are acquired by their fire time
+     * @throws NoSuchDelegateException if the priorities are not numbers
+     */
+    static TriggerPriorityAcquisition fromInitString(String initString) throws NoSuchDelegateException {
+        String setting = DelegateSettings.getSetting(initString, TRIGGER_PRIORITIES);
+        if (StringUtils.isBlank(setting)) {
+            return null;
+        }
+
+        TreeSet<Integer> priorities = new TreeSet<>(Collections.reverseOrder());
+        for (String priority : setting.split(",")) {
+            try {
+                priorities.add(Integer.parseInt(priority.trim()));
+            } catch (NumberFormatException e) {
+                throw new NoSuchDelegateException("Invalid trigger priority: " + priority);
+            }
+        }
+        // the triggers of the lowest priority are acquired by the standard query anyway
+        priorities.remove(priorities.last());
+
+        return priorities.isEmpty() ? null : new TriggerPriorityAcquisition(new ArrayList<>(priorities));
+    }
+
+    /**
+     * Returns the keys of the triggers which are already due, by their priority.
+     *
+     * @param conn the connection
+     * @param query the {@link #SELECT_DUE_TRIGGERS_OF_PRIORITY} query, with the table prefix and scheduler name
+     * @param noLaterThan the time after which triggers are not acquired
+     * @param noEarlierThan the time before which misfired triggers are not acquired
+     * @param count the maximum number of returned keys
+     * @return the keys of the due triggers
+     * @throws SQLException if the query fails
+     */
+    List<TriggerKey> selectDueTriggers(Connection conn, String query, long noLaterThan, long noEarlierThan, int count)
+            throws SQLException {
+        BigDecimal dueTime = new BigDecimal(String.valueOf(Math.min(noLaterThan, System.currentTimeMillis())));
+        List<TriggerKey> keys = new ArrayList<>(count);
+
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
+            for (int priority : priorities) {
+                if (keys.size() >= count) {
+                    break;
+                }
+
+                ps.setMaxRows(count - keys.size());
+                ps.setString(1, Constants.STATE_WAITING);
+                ps.setInt(2, priority);
+                ps.setBigDecimal(3, dueTime);
+                ps.setBigDecimal(4, new BigDecimal(String.valueOf(noEarlierThan)));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        keys.add(TriggerKey.triggerKey(rs.getString(1), rs.getString(2)));
+                    }
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Adds the keys returned by the standard query to the keys of the due triggers, skipping the ones already added.
+     *
+     * @param keys the keys of the due triggers
+     * @param nextKeys the keys returned by the standard query
+     * @param count the maximum number of keys
+     * @return the keys of the triggers to acquire
+     */
+    static List<TriggerKey> addNextTriggers(List<TriggerKey> keys, List<TriggerKey> nextKeys, int count) {
+        for (TriggerKey key : nextKeys) {
+            if (keys.size() >= count) {
+                break;
+            }
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,53 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.quartz.JobDetail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Keeps the <code>UI_DEFINED</code> column of the job details, telling whether the job was defined through the
+ * scheduler UI, in line with the flag in the job data. The jobs UI reads the column instead of the job data. The
+ * column defaults to false, so it is only written for jobs defined through the UI, and when a job is replaced.
+ */
+final class UiDefinedColumn {
+
+    static final String UPDATE_UI_DEFINED = "UPDATE {0}JOB_DETAILS SET UI_DEFINED = ? " +
+            "WHERE SCHED_NAME = {1} AND JOB_NAME = ? AND JOB_GROUP = ?";
+
+    /**
+     * Returns whether the job was defined through the UI, as set in the metadata of its job data.
+     *
+     * @param job the job
+     * @return true if the job was defined through the UI
+     */
+    static boolean isUiDefined(JobDetail job) {
+        Object metadata = job.getJobDataMap().get(SchedulerConstants.EVENT_METADATA);
+        return metadata instanceof Map &&
+                Boolean.TRUE.equals(((Map<?, ?>) metadata).get(SchedulerConstants.UI_DEFINED));
+    }
+
+    /**
+     * Sets the column of the given job.
+     *
+     * @param conn the connection
+     * @param query the {@link #UPDATE_UI_DEFINED} query, with the table prefix and scheduler name
+     * @param job the job
+     * @param uiDefined the value of the column
+     * @throws SQLException if the update fails
+     */
+    static void update(Connection conn, String query, JobDetail job, boolean uiDefined) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setBoolean(1, uiDefined);
+            ps.setString(2, job.getKey().getName());
+            ps.setString(3, job.getKey().getGroup());
+            ps.executeUpdate();
+        }
+    }
+
+    private UiDefinedColumn() {
+    }
+}
@@ -0,0 +1,168 @@
+package org.motechproject.scheduler.listener;
+
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the values recorded within the last {@link #MAX_WINDOW_MINUTES} minutes. Values are recorded into
+ * one-minute slots, which are reused once they fall out of the window, so a summary can be taken of any window up to
+ * that length. Within a slot, values are counted in buckets whose upper bounds are powers of two. Recording never
+ * blocks, a few samples recorded while a slot is being reused can be lost, which is acceptable for monitoring.
+ */
+class RollingHistogram {
+
+    static final int MAX_WINDOW_MINUTES = 15;
+
+    private static final int BUCKET_COUNT = 32;
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final double MEDIAN = 0.5;
+    private static final double PERCENTILE_90 = 0.9;
+    private static final double PERCENTILE_99 = 0.99;
+
+    private final Slot[] slots = new Slot[MAX_WINDOW_MINUTES];
+
+    RollingHistogram() {
+        for (int i = 0; i < MAX_WINDOW_MINUTES; ++i) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative values are recorded as zero
+     * @param now the current time, in milliseconds since the epoch
+     */
+    void record(long value, long now) {
+        long minute = now / MINUTE_MILLIS;
+        Slot slot = slots[(int) (minute % MAX_WINDOW_MINUTES)];
+        slot.rollTo(minute);
+        slot.record(Math.max(0, value));
+    }
+
+    /**
+     * Sums up the values recorded within the given number of minutes, counting the current one.
+     *
+     * @param minutes the length of the window, at most {@link #MAX_WINDOW_MINUTES}
+     * @param now the current time, in milliseconds since the epoch
+     * @return the summary of the window
+     */
+    Summary summarize(int minutes, long now) {
+        long minute = now / MINUTE_MILLIS;
+        Summary summary = new Summary();
+        for (int i = 0; i < Math.min(minutes, MAX_WINDOW_MINUTES); ++i) {
+            Slot slot = slots[(int) ((minute - i) % MAX_WINDOW_MINUTES)];
+            if (slot.minute.get() == minute - i) {
+                summary.add(slot);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    void reset() {
+        for (Slot slot : slots) {
+            slot.minute.set(-1);
+            slot.clear();
+        }
+    }
+
+    private static int bucketOf(long value) {
+        // bucket i holds values from 2^(i-1) to 2^i - 1, bucket 0 holds zeros
+        int bucket = Long.SIZE - Long.numberOfLeadingZeros(value);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return (1L << bucket) - 1;
+    }
+
+    private static final class Slot {
+        private final AtomicLong minute = new AtomicLong(-1);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private void rollTo(long newMinute) {
+            long current = minute.get();
+            if (current != newMinute && minute.compareAndSet(current, newMinute)) {
+                clear();
+            }
+        }
+
+        private void record(long value) {
+            buckets.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private void clear() {
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    /**
+     * The summary of the values recorded within a window.
+     */
+    static final class Summary {
+        private final long[] buckets = new long[BUCKET_COUNT];
+        private long count;
+        private long sum;
+        private long max;
+
+        private void add(Slot slot) {
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                buckets[i] += slot.buckets.get(i);
+            }
+            count += slot.count.get();
+            sum += slot.sum.get();
+            max = Math.max(max, slot.max.get());
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        double getMean() {
+            return count == 0 ? 0 : sum / (double) count;
+        }
+
+        /**
+         * @return the summary as latency statistics, the recorded values must be in milliseconds
+         */
+        LatencyStatistics toLatencyStatistics() {
+            if (count == 0) {
+                return new LatencyStatistics();
+            }
+            return new LatencyStatistics(count, getMean(), max, percentile(MEDIAN), percentile(PERCENTILE_90),
+                    percentile(PERCENTILE_99));
+        }
+
+        private double percentile(double percentile) {
+            long threshold = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                seen += buckets[i];
+                if (seen >= threshold) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.motechproject.scheduler.listener;
+
+import org.joda.time.DateTimeUtils;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.contract.SchedulerWindowMetrics;
+import org.motechproject.scheduler.contract.SubjectSchedulerMetrics;
+import org.motechproject.scheduler.trigger.PeriodIntervalTrigger;
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quartz trigger and job listener counting the triggers fired and misfired on this node, and measuring the fire lag -
+ * the time between the scheduled fire time of a trigger and the moment it was acquired and fired. A growing lag means
+ * that the threads of the scheduler can not keep up with the triggers.
+ * <p>
+ * Besides the counters kept since the start, the listener keeps rolling windows of the last
+ * {@link #WINDOW_MINUTES} minutes, in aggregate and for every subject: the fire lag, the execution duration of jobs,
+ * misfires by misfire instruction, the sizes of trigger acquisitions reported by the job store and the number of busy
+ * threads when triggers fire.
+ */
+public class SchedulerMetricsListener implements TriggerListener, JobListener {
+
+    public static final String NAME = "motechSchedulerMetricsListener";
+
+    /**
+     * The lengths of the windows for which the metrics are reported, in minutes.
+     */
+    public static final int[] WINDOW_MINUTES = {1, 5, RollingHistogram.MAX_WINDOW_MINUTES};
+
+    private static final String SUBJECT_KEY = NAME + ".subject";
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder misfired = new LongAdder();
+    private final LongAdder totalFireLag = new LongAdder();
+    private final AtomicLong maxFireLag = new AtomicLong();
+
+    private final JobStatistics aggregate = new JobStatistics();
+    private final ConcurrentMap<String, JobStatistics> subjects = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RollingHistogram> misfiresByPolicy = new ConcurrentHashMap<>();
+    private final RollingHistogram acquisitions = new RollingHistogram();
+    private final RollingHistogram busyThreads = new RollingHistogram();
+    private final RollingHistogram saturatedFires = new RollingHistogram();
+
+    private final AtomicInteger executing = new AtomicInteger();
+    private volatile int threadPoolSize;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        long now = DateTimeUtils.currentTimeMillis();
+        fired.increment();
+
+        // the job removes the subject from its data map while executing, so it is kept for the job listener methods
+        String subject = context.getMergedJobDataMap().getString(SchedulerConstants.EVENT_TYPE_KEY_NAME);
+        JobStatistics subjectStatistics = null;
+        if (subject != null) {
+            context.put(SUBJECT_KEY, subject);
+            subjectStatistics = forSubject(subject);
+        }
+
+        if (context.getScheduledFireTime() != null) {
+            // triggers acquired ahead of time in a batch can fire slightly before their time
+            long lag = Math.max(0, context.getFireTime().getTime() - context.getScheduledFireTime().getTime());
+            totalFireLag.add(lag);
+            maxFireLag.accumulateAndGet(lag, Math::max);
+
+            aggregate.fireLag.record(lag, now);
+            if (subjectStatistics != null) {
+                subjectStatistics.fireLag.record(lag, now);
+            }
+        }
+
+        int busy = executing.get();
+        busyThreads.record(busy, now);
+        if (threadPoolSize > 0 && busy + 1 >= threadPoolSize) {
+            saturatedFires.record(1, now);
+        }
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        misfired.increment();
+        misfiresByPolicy.computeIfAbsent(getMisfirePolicy(trigger), policy -> new RollingHistogram())
+                .record(1, DateTimeUtils.currentTimeMillis());
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                CompletedExecutionInstruction triggerInstructionCode) {
+        // execution is measured by the job listener methods
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        executing.incrementAndGet();
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // jobs are never vetoed by this listener, and vetoed jobs do not execute
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        executing.decrementAndGet();
+
+        long now = DateTimeUtils.currentTimeMillis();
+        long duration = context.getJobRunTime();
+        aggregate.executionDuration.record(duration, now);
+
+        String subject = (String) context.get(SUBJECT_KEY);
+        if (subject != null) {
+            forSubject(subject).executionDuration.record(duration, now);
+        }
+    }
+
+    /**
+     * Records the job store acquiring triggers to fire.
+     *
+     * @param count the number of acquired triggers
+     */
+    public void triggersAcquired(int count) {
+        acquisitions.record(count, DateTimeUtils.currentTimeMillis());
+    }
+
+    /**
+     * Sets the number of threads of the scheduler, used to detect firing with all threads busy.
+     *
+     * @param threadPoolSize the number of threads
+     */
+    public void setThreadPoolSize(int threadPoolSize) {
+        this.threadPoolSize = threadPoolSize;
+    }
+
+    /**
+     * @return the number of triggers fired on this node
+     */
+    public long getFiredCount() {
+        return fired.sum();
+    }
+
+    /**
+     * @return the number of misfired triggers handled by this node
+     */
+    public long getMisfiredCount() {
+        return misfired.sum();
+    }
+
+    /**
+     * @return the average fire lag, in milliseconds
+     */
+    public long getAverageFireLag() {
+        long count = fired.sum();
+        return count == 0 ? 0 : totalFireLag.sum() / count;
+    }
+
+    /**
+     * @return the longest fire lag, in milliseconds
+     */
+    public long getMaxFireLag() {
+        return maxFireLag.get();
+    }
+
+    /**
+     * Returns the metrics of all fired jobs within each of the {@link #WINDOW_MINUTES} windows.
+     *
+     * @return the metrics, one for each window
+     */
+    public List<SchedulerWindowMetrics> getWindowMetrics() {
+        long now = DateTimeUtils.currentTimeMillis();
+        List<SchedulerWindowMetrics> windows = new ArrayList<>(WINDOW_MINUTES.length);
+
+        for (int minutes : WINDOW_MINUTES) {
+            SchedulerWindowMetrics window = aggregate.toWindowMetrics(minutes, now);
+
+            long misfiredCount = 0;
+            Map<String, Long> byPolicy = new HashMap<>();
+            for (Map.Entry<String, RollingHistogram> entry : misfiresByPolicy.entrySet()) {
+                long count = entry.getValue().summarize(minutes, now).getCount();
+                if (count > 0) {
+                    byPolicy.put(entry.getKey(), count);
+                    misfiredCount += count;
+                }
+            }
+            window.setMisfiredCount(misfiredCount);
+            window.setMisfiresByPolicy(byPolicy);
+
+            RollingHistogram.Summary acquired = acquisitions.summarize(minutes, now);
+            window.setAcquisitionCount(acquired.getCount());
+            window.setAverageAcquisitionSize(acquired.getMean());
+            window.setMaxAcquisitionSize(acquired.getMax());
+
+            RollingHistogram.Summary busy = busyThreads.summarize(minutes, now);
+            window.setAverageBusyThreads(busy.getMean());
+            window.setMaxBusyThreads(busy.getMax());
+            window.setSaturatedFireCount(saturatedFires.summarize(minutes, now).getCount());
+
+            windows.add(window);
+        }
+
+        return windows;
+    }
+
+    /**
+     * Returns the metrics of jobs fired within the longest window, for each subject.
+     *
+     * @return the metrics, one for each subject
+     */
+    public List<SubjectSchedulerMetrics> getSubjectMetrics() {
+        long now = DateTimeUtils.currentTimeMillis();
+        List<SubjectSchedulerMetrics> metrics = new ArrayList<>();
+
+        for (Map.Entry<String, JobStatistics> entry : subjects.entrySet()) {
+            List<SchedulerWindowMetrics> windows = new ArrayList<>(WINDOW_MINUTES.length);
+            for (int minutes : WINDOW_MINUTES) {
+                windows.add(entry.getValue().toWindowMetrics(minutes, now));
+            }
+            // subjects of jobs which did not fire within the longest window are left out
+            if (windows.get(windows.size() - 1).getFiredCount() > 0) {
+                metrics.add(new SubjectSchedulerMetrics(entry.getKey(), windows));
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Resets all counters and windows.
+     */
+    public void reset() {
+        fired.reset();
+        misfired.reset();
+        totalFireLag.reset();
+        maxFireLag.set(0);
+
+        aggregate.reset();
+        subjects.clear();
+        misfiresByPolicy.clear();
+        acquisitions.reset();
+        busyThreads.reset();
+        saturatedFires.reset();
+    }
+
+    private JobStatistics forSubject(String subject) {
+        return subjects.computeIfAbsent(subject, key -> new JobStatistics());
+    }
+
+    /**
+     * Returns the name of the misfire instruction of the given trigger.
+     *
+     * @param trigger the trigger
+     * @return the name of the instruction
+     */
+    static String getMisfirePolicy(Trigger trigger) {
+        int instruction = trigger.getMisfireInstruction();
+
+        if (instruction == Trigger.MISFIRE_INSTRUCTION_SMART_POLICY) {
+            return "SMART_POLICY";
+        } else if (instruction == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return "IGNORE_MISFIRE_POLICY";
+        } else if (trigger instanceof CronTrigger) {
+            if (instruction == CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
+                return "FIRE_ONCE_NOW";
+            } else if (instruction == CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING) {
+                return "DO_NOTHING";
+            }
+        } else if (trigger instanceof SimpleTrigger) {
+            return getSimpleTriggerMisfirePolicy(instruction);
+        } else if (trigger instanceof CalendarIntervalTrigger || trigger instanceof PeriodIntervalTrigger) {
+            if (instruction == CalendarIntervalTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
+                return "FIRE_ONCE_NOW";
+            } else if (instruction == CalendarIntervalTrigger.MISFIRE_INSTRUCTION_DO_NOTHING) {
+                return "DO_NOTHING";
+            }
+        }
+
+        return "INSTRUCTION_" + instruction;
+    }
+
+    private static String getSimpleTriggerMisfirePolicy(int instruction) {
+        switch (instruction) {
+            case SimpleTrigger.MISFIRE_INSTRUCTION_FIRE_NOW:
+                return "FIRE_NOW";
+            case SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_EXISTING_REPEAT_COUNT:
+                return "RESCHEDULE_NOW_WITH_EXISTING_REPEAT_COUNT";
+            case SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT:
+                return "RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT";
+            case SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_REMAINING_COUNT:
+                return "RESCHEDULE_NEXT_WITH_REMAINING_COUNT";
+            case SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_EXISTING_COUNT:
+                return "RESCHEDULE_NEXT_WITH_EXISTING_COUNT";
+            default:
+                return "INSTRUCTION_" + instruction;
+        }
+    }
+
+    /*
+     * The fire lag and the execution duration of jobs, kept in aggregate and for every subject
+     */
+    private static final class JobStatistics {
+        private final RollingHistogram fireLag = new RollingHistogram();
+        private final RollingHistogram executionDuration = new RollingHistogram();
+
+        private SchedulerWindowMetrics toWindowMetrics(int minutes, long now) {
+            RollingHistogram.Summary lag = fireLag.summarize(minutes, now);
+
+            SchedulerWindowMetrics metrics = new SchedulerWindowMetrics();
+            metrics.setWindowMinutes(minutes);
+            metrics.setFiredCount(lag.getCount());
+            metrics.setFireLag(lag.toLatencyStatistics());
+            metrics.setExecutionDuration(executionDuration.summarize(minutes, now).toLatencyStatistics());
+            return metrics;
+        }
+
+        private void reset() {
+            fireLag.reset();
+            executionDuration.reset();
+        }
+    }
+}
@@ -3,7 +3,10 @@ package org.motechproject.scheduler.service;
 import org.motechproject.commons.api.TasksEventParser;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
 import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.service.impl.BatchFirePublisher;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
@@ -14,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.Date;
 import java.util.Map;
 
 /**
@@ -21,7 +25,12 @@ import java.util.Map;
  * its execute method will be called when a MOTECH job in quartz triggers. Since jobs in MOTECH are basically {@link org.motechproject.event.MotechEvent}s
  * getting published on a quartz schedule, upon execution this class retrieves the {@link org.motechproject.event.listener.EventRelay}
  * from the application context and uses it to immediately publish the event scheduled with this job. For every execution
- * a new copy of the event is constructed.
+ * a new copy of the event is constructed. If the {@link SchedulerConstants#PUBLISH_ASYNC} setting is enabled, the event
+ * is published asynchronously, so that the Quartz thread does not wait for the broker. If the
+ * {@link SchedulerConstants#BATCH_FIRE} setting is enabled, the event is handed over to the {@link BatchFirePublisher},
+ * which publishes it along with the events of other jobs fired at the same time. Each execution starts a new
+ * trace, its first span starts at the scheduled fire time of the job, so that it includes the time the job waited
+ * for a Quartz thread.
  */
 public class MotechScheduledJob implements Job {
 
@@ -36,8 +45,6 @@ public class MotechScheduledJob implements Job {
     @SuppressWarnings("unchecked")
     public void execute(JobExecutionContext jobExecutionContext) {
 
-        LOGGER.info("executing...");
-
         try {
             JobDetail jobDetail = jobExecutionContext.getJobDetail();
             JobDataMap jobDataMap = jobDetail.getJobDataMap();
@@ -53,7 +60,7 @@ public class MotechScheduledJob implements Job {
             motechEvent.getParameters().put(MotechSchedulerService.JOB_ID_KEY, jobId);
             motechEvent.getParameters().put(TasksEventParser.CUSTOM_PARSER_EVENT_KEY, SchedulerConstants.PARSER_NAME);
 
-            LOGGER.info("Sending Motech Event Message: " + motechEvent);
+            LOGGER.debug("Sending Motech Event Message: {}", motechEvent);
 
             SchedulerContext schedulerContext;
             try {
@@ -63,11 +70,51 @@ public class MotechScheduledJob implements Job {
                 return;
             }
 
+            BatchFirePublisher batchFirePublisher = (BatchFirePublisher) schedulerContext.get(SchedulerConstants.BATCH_FIRE_PUBLISHER);
+            if (batchFirePublisher != null) {
+                batchFirePublisher.publish(motechEvent, getScheduledFireTime(jobExecutionContext));
+                return;
+            }
+
             ApplicationContext applicationContext = (ApplicationContext) schedulerContext.get("applicationContext");
             EventRelay eventRelay = applicationContext.getBean(EventRelay.class);
-            eventRelay.sendEventMessage(motechEvent);
+            TraceService traceService = applicationContext.getBean(TraceService.class);
+
+            Span span = startJobSpan(traceService, jobExecutionContext, eventType, jobId);
+            boolean failed = true;
+            try {
+                if (Boolean.TRUE.equals(schedulerContext.get(SchedulerConstants.PUBLISH_ASYNC))) {
+                    eventRelay.sendEventMessageAsync(motechEvent);
+                } else {
+                    eventRelay.sendEventMessage(motechEvent);
+                }
+                failed = false;
+            } finally {
+                traceService.endSpan(span, failed);
+            }
         } catch (RuntimeException e) {
             LOGGER.error("Job execution failed.", e);
         }
     }
+
+    private Span startJobSpan(TraceService traceService, JobExecutionContext jobExecutionContext, String eventType,
+                              String jobId) {
+        long fireTime = jobExecutionContext.getFireTime().getTime();
+        long startTime = getScheduledFireTime(jobExecutionContext);
+
+        Span span = traceService.startSpan(TraceService.SCHEDULER_JOB, eventType, null, startTime);
+        if (span != null) {
+            span.addAttribute("jobId", jobId);
+            span.addAttribute("fireDelay", fireTime - startTime);
+            if (jobExecutionContext.isRecovering()) {
+                span.addAttribute("recovering", true);
+            }
+        }
+        return span;
+    }
+
+    private long getScheduledFireTime(JobExecutionContext jobExecutionContext) {
+        Date scheduledFireTime = jobExecutionContext.getScheduledFireTime();
+        return scheduledFireTime == null ? jobExecutionContext.getFireTime().getTime() : scheduledFireTime.getTime();
+    }
 }
@@ -4,12 +4,15 @@ import org.joda.time.DateTime;
 import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
 import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.JobGroupInfo;
 import org.motechproject.scheduler.contract.JobId;
 import org.motechproject.scheduler.contract.RepeatingPeriodSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
 import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
 import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.contract.SchedulerMetrics;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -47,6 +50,16 @@ public interface MotechSchedulerService {
      */
     void scheduleJob(SchedulableJob job);
 
+    /**
+     * Schedules the given jobs in a single transaction, which is much faster than scheduling them one by one.
+     * All jobs are validated before any of them is scheduled - if any job is invalid, none are scheduled.
+     * Jobs with the same job ID as already scheduled ones replace them.
+     *
+     * @param jobs the jobs to schedule, not null
+     * @throws org.motechproject.scheduler.exception.BulkSchedulingException if any of the jobs is invalid
+     */
+    void scheduleJobs(Collection<? extends SchedulableJob> jobs);
+
     /**
      * Schedules the given cron schedulable job. The Job ID by which the job will be referencing in the future should be provided
      * in an Instance of MotechEvent in SchedulableJob
@@ -149,6 +162,13 @@ public interface MotechSchedulerService {
      */
     void unscheduleJob(JobId job);
 
+    /**
+     * Unschedules jobs with given job IDs in a single transaction. IDs of jobs which are not scheduled are ignored.
+     *
+     * @param jobIds  the IDs of jobs which should be unscheduled, not null
+     */
+    void unscheduleJobs(Collection<? extends JobId> jobIds);
+
     /**
      * Returns last fire date of job with given ID.
      *
@@ -174,14 +194,14 @@ public interface MotechSchedulerService {
     void safeUnscheduleJob(String subject, String externalId);
 
     /**
-     * Unschedules all jobs with given prefix.
+     * Unschedules all jobs with IDs starting with given prefix.
      *
      * @param jobIdPrefix the jobs prefix
      */
     void unscheduleAllJobs(String jobIdPrefix);
 
     /**
-     * Unschedules all jobs with given prefix. Logs all exceptions instead of throwing them.
+     * Unschedules all jobs with IDs starting with given prefix. Logs all exceptions instead of throwing them.
      *
      * @param jobIdPrefix the jobs prefix
      */
@@ -271,4 +291,56 @@ public interface MotechSchedulerService {
      * @return the job matching the given information
      */
     SchedulableJob getJob(JobBasicInfo jobInfo);
+
+    /**
+     * Returns the group in which the job with the given ID is kept. Jobs are kept in groups by the module scheduling
+     * them, or the prefix of their subject as set with the <code>scheduler.jobGroups</code> setting.
+     *
+     * @param jobId  the {@code JobId} of job, not null
+     * @return the name of the group
+     */
+    String getJobGroup(JobId jobId);
+
+    /**
+     * Returns the groups in which jobs are kept, along with the number of jobs in each of them.
+     *
+     * @return the job groups
+     */
+    List<JobGroupInfo> getJobGroups();
+
+    /**
+     * Returns the number of jobs kept in the given group.
+     *
+     * @param group  the name of the group, not null
+     * @return the number of jobs
+     */
+    int countJobs(String group);
+
+    /**
+     * Pauses all jobs of the given group. Jobs scheduled in the group later are paused as well, until it is resumed.
+     *
+     * @param group  the name of the group, not null
+     */
+    void pauseJobGroup(String group);
+
+    /**
+     * Resumes all jobs of the given group.
+     *
+     * @param group  the name of the group, not null
+     */
+    void resumeJobGroup(String group);
+
+    /**
+     * Unschedules all jobs of the given group.
+     *
+     * @param group  the name of the group, not null
+     */
+    void unscheduleJobGroup(String group);
+
+    /**
+     * Returns the metrics of the scheduler running on this node.
+     *
+     * @return the scheduler metrics
+     */
+    SchedulerMetrics getSchedulerMetrics();
 }
@@ -0,0 +1,33 @@
+package org.motechproject.scheduler.service;
+
+import org.motechproject.scheduler.contract.SchedulerMetrics;
+
+import javax.management.MXBean;
+
+/**
+ * Gives access over JMX to the metrics of the scheduler running on this node - the fire lag, execution duration,
+ * misfires, trigger acquisitions and thread pool usage, in aggregate and per subject. The service is registered as
+ * an MXBean, under the {@link #OBJECT_NAME} name.
+ *
+ * @see MotechSchedulerService#getSchedulerMetrics()
+ */
+@MXBean
+public interface SchedulerMetricsService {
+
+    /**
+     * The JMX object name under which the metrics are available.
+     */
+    String OBJECT_NAME = "org.motechproject.scheduler:type=SchedulerMetrics";
+
+    /**
+     * Returns the metrics of the scheduler running on this node.
+     *
+     * @return the scheduler metrics
+     */
+    SchedulerMetrics getSchedulerMetrics();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,203 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the events of jobs fired in the batch fire mode, enabled with the {@link SchedulerConstants#BATCH_FIRE}
+ * setting. Jobs only hand their events over, so that Quartz threads are released right away. The events of jobs
+ * fired within the same window, {@link SchedulerConstants#BATCH_FIRE_WINDOW} milliseconds long, are grouped by
+ * subject and every group is published through a single batched send. The event relay is looked up once, instead
+ * of once per fired job. Pending events are published when the scheduler shuts down. At most
+ * {@link #MAX_PENDING_EVENTS} events wait for the next window, once there are more the events are published right away,
+ * by the threads firing the jobs. If a batched send fails, the events it did not publish are sent one by one.
+ */
+public class BatchFirePublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchFirePublisher.class);
+
+    /* The maximum number of events published through a single send */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /* The maximum number of events waiting for the next window */
+    static final int MAX_PENDING_EVENTS = 10000;
+
+    private final ApplicationContext applicationContext;
+    private final ScheduledExecutorService executor;
+    private final Object lock = new Object();
+
+    private Map<String, Batch> pending = new LinkedHashMap<>();
+    private int pendingCount;
+    private volatile EventRelay eventRelay;
+    private volatile TraceService traceService;
+
+    /**
+     * Constructor.
+     *
+     * @param applicationContext the Spring context of the Scheduler module, used to look up the event relay
+     * @param windowMillis the length of the window in which fired jobs are grouped, in milliseconds
+     */
+    public BatchFirePublisher(ApplicationContext applicationContext, long windowMillis) {
+        this.applicationContext = applicationContext;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "motech-scheduler-batch-fire");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds the event of a fired job to the batch of its subject. If too many events are already waiting, the event is
+     * published right away instead.
+     *
+     * @param event the event of the job
+     * @param scheduledFireTime the time the job was scheduled to fire, in milliseconds since the epoch
+     */
+    public void publish(MotechEvent event, long scheduledFireTime) {
+        synchronized (lock) {
+            if (pendingCount < MAX_PENDING_EVENTS) {
+                addPending(event, scheduledFireTime);
+                return;
+            }
+        }
+
+        LOGGER.debug("Too many events are waiting to be published, publishing the event of {} right away",
+                event.getSubject());
+        Batch batch = new Batch(scheduledFireTime);
+        batch.events.add(event);
+        publishBatch(event.getSubject(), batch);
+    }
+
+    private void addPending(MotechEvent event, long scheduledFireTime) {
+        Batch batch = pending.get(event.getSubject());
+        if (batch == null) {
+            batch = new Batch(scheduledFireTime);
+            pending.put(event.getSubject(), batch);
+        }
+        batch.firstFireTime = Math.min(batch.firstFireTime, scheduledFireTime);
+        batch.events.add(event);
+        pendingCount++;
+    }
+
+    /**
+     * Publishes the pending events and stops publishing.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    void flush() {
+        Map<String, Batch> batches;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batches = pending;
+            pending = new LinkedHashMap<>();
+            pendingCount = 0;
+        }
+
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            publishBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void publishBatch(String subject, Batch batch) {
+        if (eventRelay == null) {
+            // the trace service is set first, jobs fired while the pending events wait may publish at the same time
+            traceService = applicationContext.getBean(TraceService.class);
+            eventRelay = applicationContext.getBean(EventRelay.class);
+        }
+
+        List<MotechEvent> events = batch.events;
+        LOGGER.debug("Publishing {} events of jobs fired for subject {}", events.size(), subject);
+
+        Span span = traceService.startSpan(TraceService.SCHEDULER_JOB, subject, null, batch.firstFireTime);
+        if (span != null) {
+            span.addAttribute("batchSize", events.size());
+            span.addAttribute("fireDelay", System.currentTimeMillis() - batch.firstFireTime);
+        }
+
+        int published = 0;
+        boolean failed = true;
+        try {
+            while (published < events.size()) {
+                List<MotechEvent> chunk = events.subList(published, Math.min(published + MAX_BATCH_SIZE, events.size()));
+                try {
+                    eventRelay.sendEventMessages(chunk);
+                    published += chunk.size();
+                } catch (EventBatchPublishException e) {
+                    published += e.getPublishedCount();
+                    LOGGER.warn("Published only {} out of {} events of jobs fired for subject {}, sending the rest " +
+                            "one by one", published, events.size(), subject, e);
+                    break;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Published only {} out of {} events of jobs fired for subject {}, sending the rest " +
+                            "one by one", published, events.size(), subject, e);
+                    break;
+                }
+            }
+            failed = published < events.size() && !publishEach(subject, events.subList(published, events.size()));
+        } finally {
+            traceService.endSpan(span, failed);
+        }
+    }
+
+    private boolean publishEach(String subject, List<MotechEvent> events) {
+        int failures = 0;
+        RuntimeException lastFailure = null;
+        for (MotechEvent event : events) {
+            try {
+                eventRelay.sendEventMessage(event);
+            } catch (RuntimeException e) {
+                failures++;
+                lastFailure = e;
+            }
+        }
+        if (failures > 0) {
+            LOGGER.error("Unable to publish {} out of {} events of jobs fired for subject {}", failures, events.size(),
+                    subject, lastFailure);
+        }
+        return failures == 0;
+    }
+
+    private static final class Batch {
+        private long firstFireTime;
+        private final List<MotechEvent> events = new ArrayList<>();
+
+        private Batch(long firstFireTime) {
+            this.firstFireTime = firstFireTime;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rewrites the job data stored with Java serialization in the compact form, once it is enabled with the
+ * <code>scheduler.jobData.compact</code> setting. The jobs are rewritten in pages, in the background. A blob is only
+ * replaced if it did not change since it was read, so jobs rescheduled in the meantime are left as they are.
+ *
+ * @see CompactJobDataSerializer
+ */
+@Component
+public class JobDataCompactor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDataCompactor.class);
+
+    private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
+    private static final String TABLE_PREFIX = "org.quartz.jobStore.tablePrefix";
+    private static final String SCHEDULER_NAME = "org.quartz.scheduler.instanceName";
+    private static final String DRIVER = "org.quartz.dataSource.motechDS.driver";
+    static final int PAGE_SIZE = 500;
+
+    private Properties sqlProperties;
+
+    private ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param schedulerFactoryBean the factory of the scheduler, which sets up the data source used by this class
+     * @param sqlProperties the properties of the scheduler
+     */
+    @Autowired
+    public JobDataCompactor(MotechSchedulerFactoryBean schedulerFactoryBean,
+                            @Qualifier("sqlProperties") Properties sqlProperties) {
+        this.sqlProperties = sqlProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (Boolean.parseBoolean(sqlProperties.getProperty(SchedulerConstants.COMPACT_JOB_DATA))) {
+            executor = Executors.newSingleThreadExecutor();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int jobs = compactJobData();
+                        LOGGER.info("Rewrote the data of {} jobs in the compact form", jobs);
+                    } catch (SQLException e) {
+                        LOGGER.error("Unable to rewrite the data of jobs in the compact form", e);
+                    }
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Rewrites the data of jobs and triggers, stored with Java serialization, in the compact form.
+     *
+     * @return the number of rewritten rows
+     * @throws SQLException if reading or writing the data fails
+     */
+    public int compactJobData() throws SQLException {
+        return compactTable("JOB_DETAILS", "JOB_NAME", "JOB_GROUP") + compactTable("TRIGGERS", "TRIGGER_NAME", "TRIGGER_GROUP");
+    }
+
+    private int compactTable(String table, String nameColumn, String groupColumn) throws SQLException {
+        String select = String.format("SELECT %1$s, %2$s, JOB_DATA FROM %3$s WHERE SCHED_NAME = ? AND " +
+                "(%1$s > ? OR (%1$s = ? AND %2$s > ?)) ORDER BY %1$s, %2$s LIMIT %4$d",
+                nameColumn, groupColumn, getTableName(table), PAGE_SIZE);
+        String update = String.format("UPDATE %s SET JOB_DATA = ? WHERE SCHED_NAME = ? AND %s = ? AND %s = ? AND JOB_DATA = ?",
+                getTableName(table), nameColumn, groupColumn);
+
+        String schedulerName = sqlProperties.getProperty(SCHEDULER_NAME);
+        String lastName = "";
+        String lastGroup = "";
+        int compacted = 0;
+        boolean lastPage = false;
+
+        while (!lastPage && !Thread.currentThread().isInterrupted()) {
+            List<Object[]> rows = new ArrayList<>();
+
+            try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE))) {
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setString(1, schedulerName);
+                    stmt.setString(2, lastName);
+                    stmt.setString(3, lastName);
+                    stmt.setString(4, lastGroup);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows.add(new Object[] {rs.getString(1), rs.getString(2), rs.getBytes(3)});
+                        }
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(update)) {
+                    for (Object[] row : rows) {
+                        byte[] data = (byte[]) row[2];
+                        if (data != null && data.length > 0 && !CompactJobDataSerializer.isCompact(data)) {
+                            byte[] compactData = toCompactForm(data, row[0]);
+                            if (compactData != null) {
+                                stmt.setBytes(1, compactData);
+                                stmt.setString(2, schedulerName);
+                                stmt.setString(3, (String) row[0]);
+                                stmt.setString(4, (String) row[1]);
+                                stmt.setBytes(5, data);
+                                compacted += stmt.executeUpdate();
+                            }
+                        }
+                    }
+                }
+
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            }
+
+            lastPage = rows.size() < PAGE_SIZE;
+            if (!rows.isEmpty()) {
+                Object[] last = rows.get(rows.size() - 1);
+                lastName = (String) last[0];
+                lastGroup = (String) last[1];
+            }
+        }
+
+        return compacted;
+    }
+
+    /*
+     * Values of classes from other modules can not be read here, such jobs are left in the Java serialized form
+     */
+    private byte[] toCompactForm(byte[] data, Object name) {
+        try {
+            Map<?, ?> jobData = (Map<?, ?>) CompactJobDataSerializer.deserialize(data);
+            return CompactJobDataSerializer.serialize(jobData).toByteArray();
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.warn("Leaving the data of {} in the Java serialized form: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private String getTableName(String table) {
+        String name = sqlProperties.getProperty(TABLE_PREFIX) + table;
+        return Drivers.MYSQL_DRIVER.equals(sqlProperties.getProperty(DRIVER)) ? name : "\"" + name.toLowerCase() + "\"";
+    }
+}
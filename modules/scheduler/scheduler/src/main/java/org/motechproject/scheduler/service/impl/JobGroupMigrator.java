@@ -0,0 +1,340 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.service.MotechScheduledJob;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Moves jobs into the groups in which the {@link JobGroupResolver} keeps them, when the scheduler starts. This moves
+ * the jobs scheduled before jobs were grouped out of the default group, and regroups jobs after the job group settings
+ * change. Quartz can not rename triggers without computing their fire times anew, so the rows of a job and its trigger
+ * are copied to the new group and removed from the old one, in pages, each in a single transaction. A job which can
+ * not be moved is left in its group, without holding up the others. Only the jobs of the scheduler service are
+ * moved, which are {@link MotechScheduledJob}s with triggers named after them. Jobs scheduled directly through
+ * Quartz by other modules are left in the groups they were scheduled in.
+ * <p>
+ * The migration runs before the scheduler on this node is started. Other nodes of a cluster can still fire jobs, so
+ * in a cluster only waiting and paused triggers are moved, while holding the lock on trigger access. The others are
+ * moved when the scheduler is started again. The priorities of all triggers are then set to the ones of their groups.
+ */
+public class JobGroupMigrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobGroupMigrator.class);
+
+    private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
+    private static final String TABLE_PREFIX = "org.quartz.jobStore.tablePrefix";
+    private static final String SCHEDULER_NAME = "org.quartz.scheduler.instanceName";
+    private static final String DRIVER = "org.quartz.dataSource.motechDS.driver";
+    private static final String IS_CLUSTERED = "org.quartz.jobStore.isClustered";
+    private static final String TRIGGER_ACCESS = "TRIGGER_ACCESS";
+    private static final String[] TRIGGER_TYPE_TABLES = {"CRON_TRIGGERS", "SIMPLE_TRIGGERS", "SIMPROP_TRIGGERS", "BLOB_TRIGGERS"};
+    private static final String[] TRIGGER_TYPE_COLUMNS = {
+            "CRON_EXPRESSION, TIME_ZONE_ID",
+            "REPEAT_COUNT, REPEAT_INTERVAL, TIMES_TRIGGERED",
+            "STR_PROP_1, STR_PROP_2, STR_PROP_3, INT_PROP_1, INT_PROP_2, LONG_PROP_1, LONG_PROP_2, DEC_PROP_1, " +
+                    "DEC_PROP_2, BOOL_PROP_1, BOOL_PROP_2",
+            "BLOB_DATA"
+    };
+    private static final int PAGE_SIZE = 500;
+
+    private Properties sqlProperties;
+
+    private JobGroupResolver jobGroupResolver;
+
+    private Scheduler scheduler;
+
+    private boolean clustered;
+
+    /**
+     * Constructor.
+     *
+     * @param sqlProperties the properties of the scheduler
+     * @param jobGroupResolver the resolver telling the groups of jobs
+     * @param scheduler the scheduler, not yet started
+     */
+    public JobGroupMigrator(Properties sqlProperties, JobGroupResolver jobGroupResolver, Scheduler scheduler) {
+        this.sqlProperties = sqlProperties;
+        this.jobGroupResolver = jobGroupResolver;
+        this.scheduler = scheduler;
+        this.clustered = Boolean.parseBoolean(sqlProperties.getProperty(IS_CLUSTERED));
+    }
+
+    /**
+     * Moves the jobs kept in other groups than their own into their groups, and gives the triggers of every group
+     * its priority.
+     *
+     * @return the number of moved jobs
+     * @throws SchedulerException if the groups can not be retrieved
+     * @throws SQLException if reading the jobs or updating the priorities fails
+     */
+    public int migrate() throws SchedulerException, SQLException {
+        Set<String> pausedGroups = scheduler.getPausedTriggerGroups();
+        int moved = 0;
+
+        for (String group : scheduler.getTriggerGroupNames()) {
+            for (String prefix : jobGroupResolver.getRegroupedPrefixes(group)) {
+                moved += moveJobs(group, prefix, pausedGroups);
+            }
+        }
+
+        for (String group : scheduler.getTriggerGroupNames()) {
+            updatePriorities(group);
+        }
+
+        return moved;
+    }
+
+    private int moveJobs(String group, String prefix, Set<String> pausedGroups) throws SQLException {
+        StringBuilder select = new StringBuilder("SELECT t.TRIGGER_NAME FROM ").append(getTableName("TRIGGERS"))
+                .append(" t JOIN ").append(getTableName("JOB_DETAILS")).append(" j ON j.SCHED_NAME = t.SCHED_NAME")
+                .append(" AND j.JOB_NAME = t.JOB_NAME AND j.JOB_GROUP = t.JOB_GROUP")
+                .append(" WHERE t.SCHED_NAME = ? AND t.TRIGGER_GROUP = ? AND t.TRIGGER_NAME LIKE ? ESCAPE '")
+                .append(TriggerKeyQuery.LIKE_ESCAPE).append("' AND t.TRIGGER_NAME > ?")
+                .append(" AND t.JOB_NAME = t.TRIGGER_NAME AND t.JOB_GROUP = t.TRIGGER_GROUP AND j.JOB_CLASS_NAME = ?");
+        if (clustered) {
+            select.append(" AND t.TRIGGER_STATE IN ('WAITING', 'PAUSED')");
+        }
+        select.append(" ORDER BY t.TRIGGER_NAME LIMIT ").append(PAGE_SIZE);
+
+        String after = "";
+        int moved = 0;
+        List<String> names;
+
+        do {
+            names = new ArrayList<>();
+            List<String> misplaced = new ArrayList<>();
+
+            try (Connection conn = getConnection()) {
+                try (PreparedStatement stmt = conn.prepareStatement(select.toString())) {
+                    stmt.setString(1, getSchedulerName());
+                    stmt.setString(2, group);
+                    stmt.setString(3, TriggerKeyQuery.escapeLike(prefix) + '%');
+                    stmt.setString(4, after);
+                    stmt.setString(5, MotechScheduledJob.class.getName());
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            names.add(rs.getString(1));
+                        }
+                    }
+                }
+
+                for (String name : names) {
+                    if (!group.equals(jobGroupResolver.getGroup(name))) {
+                        misplaced.add(name);
+                    }
+                }
+
+                if (!misplaced.isEmpty()) {
+                    moved += movePage(conn, group, misplaced, pausedGroups);
+                }
+            }
+
+            if (!names.isEmpty()) {
+                after = names.get(names.size() - 1);
+            }
+        } while (names.size() == PAGE_SIZE);
+
+        if (moved > 0) {
+            LOGGER.info("Moved {} jobs with IDs starting with '{}' out of group {}", moved, prefix, group);
+        }
+
+        return moved;
+    }
+
+    private int movePage(Connection conn, String group, List<String> names, Set<String> pausedGroups) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (JobMover mover = new JobMover(conn)) {
+            if (clustered) {
+                lockTriggerAccess(conn);
+            }
+
+            int moved = 0;
+            for (String name : names) {
+                String newGroup = jobGroupResolver.getGroup(name);
+
+                // a job which can not be moved, for example because its new group already holds a job with the same
+                // name, is left where it is, without holding up the rest of the page
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    mover.move(name, group, newGroup, pausedGroups.contains(newGroup));
+                    conn.releaseSavepoint(savepoint);
+                    moved++;
+                } catch (SQLException e) {
+                    conn.rollback(savepoint);
+                    LOGGER.warn("Unable to move job {} from group {} to group {}, it will be moved on the next start: {}",
+                            name, group, newGroup, e.getMessage());
+                }
+            }
+
+            conn.commit();
+            return moved;
+        } catch (SQLException e) {
+            conn.rollback();
+            LOGGER.warn("Unable to move {} jobs out of group {}, they will be moved on the next start: {}",
+                    names.size(), group, e.getMessage());
+            return 0;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void updatePriorities(String group) throws SQLException {
+        int priority = jobGroupResolver.getPriority(group);
+
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement(String.format("UPDATE %s SET PRIORITY = ? " +
+                        "WHERE SCHED_NAME = ? AND TRIGGER_GROUP = ? AND PRIORITY <> ?", getTableName("TRIGGERS")))) {
+            setParameters(stmt, priority, getSchedulerName(), group, priority);
+            int updated = stmt.executeUpdate();
+            if (!conn.getAutoCommit()) {
+                conn.commit();
+            }
+
+            if (updated > 0) {
+                LOGGER.info("Set the priority of {} triggers of group {} to {}", updated, group, priority);
+            }
+        }
+    }
+
+    /*
+     * Other nodes of the cluster acquire and fire triggers under the same row lock
+     */
+    private void lockTriggerAccess(Connection conn) throws SQLException {
+        String table = getTableName("LOCKS");
+        try (PreparedStatement stmt = conn.prepareStatement(String.format(
+                "SELECT LOCK_NAME FROM %s WHERE SCHED_NAME = ? AND LOCK_NAME = ? FOR UPDATE", table))) {
+            setParameters(stmt, getSchedulerName(), TRIGGER_ACCESS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(String.format(
+                "INSERT INTO %s (SCHED_NAME, LOCK_NAME) VALUES (?, ?)", table))) {
+            setParameters(stmt, getSchedulerName(), TRIGGER_ACCESS);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void setParameters(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; ++i) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+
+    private static int update(PreparedStatement statement, Object... parameters) throws SQLException {
+        setParameters(statement, parameters);
+        return statement.executeUpdate();
+    }
+
+    /*
+     * Copies the rows of a job and its trigger to the new group, then deletes the old ones referencing them
+     */
+    private final class JobMover implements AutoCloseable {
+        private final List<PreparedStatement> statements = new ArrayList<>();
+        private final PreparedStatement copyJob;
+        private final PreparedStatement copyTrigger;
+        private final List<PreparedStatement> copyTriggerTypes = new ArrayList<>();
+        private final List<PreparedStatement> deleteTriggerTypes = new ArrayList<>();
+        private final PreparedStatement deleteTrigger;
+        private final PreparedStatement deleteJob;
+
+        private JobMover(Connection conn) throws SQLException {
+            try {
+                copyJob = prepare(conn, String.format("INSERT INTO %1$s (SCHED_NAME, JOB_NAME, JOB_GROUP, " +
+                        "DESCRIPTION, JOB_CLASS_NAME, IS_DURABLE, IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY, " +
+                        "JOB_DATA, UI_DEFINED) SELECT SCHED_NAME, JOB_NAME, ?, DESCRIPTION, JOB_CLASS_NAME, IS_DURABLE, " +
+                        "IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY, JOB_DATA, UI_DEFINED FROM %1$s " +
+                        "WHERE SCHED_NAME = ? AND JOB_NAME = ? AND JOB_GROUP = ?", getTableName("JOB_DETAILS")));
+                // triggers moved into a paused group are paused, as Quartz does with triggers stored in one
+                copyTrigger = prepare(conn, String.format("INSERT INTO %1$s (SCHED_NAME, TRIGGER_NAME, " +
+                        "TRIGGER_GROUP, JOB_NAME, JOB_GROUP, DESCRIPTION, NEXT_FIRE_TIME, PREV_FIRE_TIME, PRIORITY, " +
+                        "TRIGGER_STATE, TRIGGER_TYPE, START_TIME, END_TIME, CALENDAR_NAME, MISFIRE_INSTR, JOB_DATA) " +
+                        "SELECT SCHED_NAME, TRIGGER_NAME, ?, JOB_NAME, ?, DESCRIPTION, NEXT_FIRE_TIME, PREV_FIRE_TIME, " +
+                        "?, CASE TRIGGER_STATE WHEN 'WAITING' THEN ? WHEN 'BLOCKED' THEN ? ELSE TRIGGER_STATE END, " +
+                        "TRIGGER_TYPE, START_TIME, END_TIME, CALENDAR_NAME, MISFIRE_INSTR, JOB_DATA FROM %1$s " +
+                        "WHERE SCHED_NAME = ? AND TRIGGER_NAME = ? AND TRIGGER_GROUP = ?", getTableName("TRIGGERS")));
+                for (int i = 0; i < TRIGGER_TYPE_TABLES.length; ++i) {
+                    copyTriggerTypes.add(prepare(conn, String.format("INSERT INTO %1$s (SCHED_NAME, TRIGGER_NAME, " +
+                            "TRIGGER_GROUP, %2$s) SELECT SCHED_NAME, TRIGGER_NAME, ?, %2$s FROM %1$s " +
+                            "WHERE SCHED_NAME = ? AND TRIGGER_NAME = ? AND TRIGGER_GROUP = ?",
+                            getTableName(TRIGGER_TYPE_TABLES[i]), TRIGGER_TYPE_COLUMNS[i])));
+                    deleteTriggerTypes.add(prepare(conn, String.format("DELETE FROM %s " +
+                            "WHERE SCHED_NAME = ? AND TRIGGER_NAME = ? AND TRIGGER_GROUP = ?",
+                            getTableName(TRIGGER_TYPE_TABLES[i]))));
+                }
+                deleteTrigger = prepare(conn, String.format("DELETE FROM %s WHERE SCHED_NAME = ? AND TRIGGER_NAME = ? " +
+                        "AND TRIGGER_GROUP = ?%s", getTableName("TRIGGERS"),
+                        clustered ? " AND TRIGGER_STATE IN ('WAITING', 'PAUSED')" : ""));
+                deleteJob = prepare(conn, String.format("DELETE FROM %s " +
+                        "WHERE SCHED_NAME = ? AND JOB_NAME = ? AND JOB_GROUP = ?", getTableName("JOB_DETAILS")));
+            } catch (SQLException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void move(String name, String group, String newGroup, boolean paused) throws SQLException {
+            String schedulerName = getSchedulerName();
+
+            update(copyJob, newGroup, schedulerName, name, group);
+            update(copyTrigger, newGroup, newGroup, jobGroupResolver.getPriority(newGroup),
+                    paused ? "PAUSED" : "WAITING", paused ? "PAUSED_BLOCKED" : "BLOCKED", schedulerName, name, group);
+            for (PreparedStatement copyTriggerType : copyTriggerTypes) {
+                update(copyTriggerType, newGroup, schedulerName, name, group);
+            }
+            for (PreparedStatement deleteTriggerType : deleteTriggerTypes) {
+                update(deleteTriggerType, schedulerName, name, group);
+            }
+            if (update(deleteTrigger, schedulerName, name, group) != 1) {
+                throw new SQLException("The state of the trigger changed while it was being moved");
+            }
+            update(deleteJob, schedulerName, name, group);
+        }
+
+        private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+            PreparedStatement statement = conn.prepareStatement(sql);
+            statements.add(statement);
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement statement : statements) {
+                statement.close();
+            }
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+    }
+
+    private String getSchedulerName() {
+        return sqlProperties.getProperty(SCHEDULER_NAME);
+    }
+
+    private String getTableName(String table) {
+        String name = sqlProperties.getProperty(TABLE_PREFIX) + table;
+        return Drivers.MYSQL_DRIVER.equals(sqlProperties.getProperty(DRIVER)) ? name : "\"" + name.toLowerCase() + "\"";
+    }
+}
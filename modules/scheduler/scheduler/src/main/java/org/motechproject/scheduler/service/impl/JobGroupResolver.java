@@ -0,0 +1,204 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.quartz.Trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Tells the group in which a job is kept, by the ID of the job. Jobs with IDs starting with one of the prefixes
+ * configured with the <code>scheduler.jobGroups</code> setting are kept in the group of the longest such prefix.
+ * Unless <code>scheduler.jobGroups.byModule</code> is set to false, jobs with IDs starting with
+ * <code>org.motechproject.&lt;module&gt;.</code> are kept in the group named after the module. The remaining jobs are
+ * kept in the default group. The triggers of a group are given the priority configured for it with the
+ * <code>scheduler.jobGroups.priorities</code> setting.
+ */
+public class JobGroupResolver {
+
+    /**
+     * The group of jobs which do not belong to any other group.
+     */
+    public static final String DEFAULT_GROUP = "default";
+
+    private static final String MODULE_PREFIX = "org.motechproject.";
+
+    private final List<PrefixGroup> prefixGroups = new ArrayList<>();
+    private final Set<String> configuredGroups = new HashSet<>();
+    private final Map<String, Integer> priorities = new HashMap<>();
+    private final boolean byModule;
+
+    /**
+     * Constructor.
+     *
+     * @param properties the properties of the scheduler, holding the job group settings
+     */
+    public JobGroupResolver(Properties properties) {
+        byModule = Boolean.parseBoolean(properties.getProperty(SchedulerConstants.JOB_GROUPS_BY_MODULE, "true").trim());
+
+        for (Map.Entry<String, String> entry : parsePairs(properties.getProperty(SchedulerConstants.JOB_GROUPS)).entrySet()) {
+            prefixGroups.add(new PrefixGroup(entry.getKey(), entry.getValue()));
+            configuredGroups.add(entry.getValue());
+        }
+        // the longest matching prefix wins
+        Collections.sort(prefixGroups, new Comparator<PrefixGroup>() {
+            @Override
+            public int compare(PrefixGroup first, PrefixGroup second) {
+                return second.prefix.length() - first.prefix.length();
+            }
+        });
+
+        for (Map.Entry<String, String> entry : parsePairs(properties.getProperty(SchedulerConstants.JOB_GROUP_PRIORITIES)).entrySet()) {
+            try {
+                priorities.put(entry.getKey(), Integer.parseInt(entry.getValue()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Invalid priority of job group %s: %s",
+                        entry.getKey(), entry.getValue()), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the group in which the job with the given ID is kept.
+     *
+     * @param jobId the ID of the job, not null
+     * @return the group of the job
+     */
+    public String getGroup(String jobId) {
+        String group = getConfiguredGroup(jobId);
+        if (group == null && byModule) {
+            group = getModule(jobId);
+        }
+        return group != null ? group : DEFAULT_GROUP;
+    }
+
+    /**
+     * Returns the group in which all jobs with IDs starting with the given prefix are kept, if there is one.
+     *
+     * @param jobIdPrefix the prefix of the job IDs, not null
+     * @return the group of the jobs, null if they can be kept in different groups
+     */
+    public String getGroupOfPrefix(String jobIdPrefix) {
+        for (PrefixGroup prefixGroup : prefixGroups) {
+            if (prefixGroup.prefix.length() > jobIdPrefix.length() && prefixGroup.prefix.startsWith(jobIdPrefix)) {
+                return null;
+            }
+        }
+
+        String group = getConfiguredGroup(jobIdPrefix);
+        if (group != null) {
+            return group;
+        } else if (byModule && (jobIdPrefix.startsWith(MODULE_PREFIX) || MODULE_PREFIX.startsWith(jobIdPrefix))) {
+            // the prefix has to reach past the name of the module
+            return getModule(jobIdPrefix);
+        } else {
+            return DEFAULT_GROUP;
+        }
+    }
+
+    /**
+     * Returns the prefixes of the IDs of the jobs which can be kept in the given group, but belong to other groups by
+     * the current settings. These are the jobs moved out of the group when the settings change.
+     *
+     * @param group the group
+     * @return the prefixes of the IDs of misplaced jobs, an empty prefix if any job of the group can be misplaced
+     */
+    public List<String> getRegroupedPrefixes(String group) {
+        if (!byModule && !DEFAULT_GROUP.equals(group) && !configuredGroups.contains(group)) {
+            // the group is no longer configured
+            return Collections.singletonList("");
+        }
+
+        List<String> prefixes = new ArrayList<>();
+        for (PrefixGroup prefixGroup : prefixGroups) {
+            if (!group.equals(getGroupOfPrefix(prefixGroup.prefix))) {
+                prefixes.add(prefixGroup.prefix);
+            }
+        }
+        if (byModule && DEFAULT_GROUP.equals(group)) {
+            prefixes.add(MODULE_PREFIX);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Returns the priority given to the triggers of the given group. Of the triggers due to fire, the ones with a
+     * higher priority are acquired first.
+     *
+     * @param group the group
+     * @return the priority of the group, {@link Trigger#DEFAULT_PRIORITY} if none was configured
+     */
+    public int getPriority(String group) {
+        Integer priority = priorities.get(group);
+        return priority != null ? priority : Trigger.DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Returns the priorities configured for job groups, along with the default priority of the other groups.
+     *
+     * @return the priorities in ascending order, empty if no priorities were configured
+     */
+    public SortedSet<Integer> getPriorities() {
+        SortedSet<Integer> result = new TreeSet<>(priorities.values());
+        if (!result.isEmpty()) {
+            result.add(Trigger.DEFAULT_PRIORITY);
+        }
+        return result;
+    }
+
+    private String getConfiguredGroup(String jobId) {
+        for (PrefixGroup prefixGroup : prefixGroups) {
+            if (jobId.startsWith(prefixGroup.prefix)) {
+                return prefixGroup.group;
+            }
+        }
+        return null;
+    }
+
+    private static String getModule(String jobId) {
+        if (jobId.startsWith(MODULE_PREFIX)) {
+            int end = jobId.indexOf('.', MODULE_PREFIX.length());
+            if (end > MODULE_PREFIX.length()) {
+                return jobId.substring(MODULE_PREFIX.length(), end);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Settings are comma separated lists of key=value pairs
+     */
+    private static Map<String, String> parsePairs(String setting) {
+        Map<String, String> pairs = new HashMap<>();
+        if (StringUtils.isNotBlank(setting)) {
+            for (String pair : setting.split(",")) {
+                String[] parts = pair.split("=", 2);
+                if (parts.length != 2 || StringUtils.isBlank(parts[0]) || StringUtils.isBlank(parts[1])) {
+                    throw new IllegalArgumentException("Invalid job group setting: " + pair);
+                }
+                pairs.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+        return pairs;
+    }
+
+    private static final class PrefixGroup {
+        private final String prefix;
+        private final String group;
+
+        private PrefixGroup(String prefix, String group) {
+            this.prefix = prefix;
+            this.group = group;
+        }
+    }
+}
@@ -2,6 +2,13 @@ package org.motechproject.scheduler.service.impl;
 
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
+import org.joda.time.Days;
+import org.joda.time.Hours;
+import org.joda.time.Minutes;
+import org.joda.time.Months;
+import org.joda.time.Seconds;
+import org.joda.time.Weeks;
+import org.joda.time.Years;
 import org.joda.time.format.DateTimeFormat;
 import org.motechproject.commons.sql.util.Drivers;
 import org.motechproject.scheduler.constants.SchedulerConstants;
@@ -14,20 +21,16 @@ import org.motechproject.scheduler.contract.RepeatingPeriodJobId;
 import org.motechproject.scheduler.contract.RunOnceJobId;
 import org.motechproject.scheduler.exception.MotechSchedulerJobRetrievalException;
 import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
 import org.motechproject.scheduler.service.MotechSchedulerDatabaseService;
-import org.quartz.CalendarIntervalTrigger;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.CronTrigger;
+import org.quartz.DateBuilder.IntervalUnit;
 import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
-import org.quartz.TriggerKey;
-import org.quartz.TriggerUtils;
-import org.quartz.impl.matchers.GroupMatcher;
-import org.quartz.spi.OperableTrigger;
 import org.quartz.utils.DBConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,17 +38,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -72,9 +71,22 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     private static final String TRIGGER_GROUP = "TRIGGER_GROUP";
     private static final String TRIGGER_STATE = "TRIGGER_STATE";
     private static final String TRIGGER_TYPE = "TRIGGER_TYPE";
+    private static final String NEXT_FIRE_TIME = "NEXT_FIRE_TIME";
+    private static final String UI_DEFINED_COLUMN = "UI_DEFINED";
+    private static final String CRON_EXPRESSION = "CRON_EXPRESSION";
+    private static final String REPEAT_COUNT = "REPEAT_COUNT";
+    private static final String REPEAT_INTERVAL = "REPEAT_INTERVAL";
+    private static final String TIMES_TRIGGERED = "TIMES_TRIGGERED";
+    private static final String STR_PROP_1 = "STR_PROP_1";
+    private static final String INT_PROP_1 = "INT_PROP_1";
+    private static final String INT_PROP_2 = "INT_PROP_2";
     private static final String WAITING = "WAITING";
+    private static final String PAUSED_BLOCKED = "PAUSED_BLOCKED";
     private static final String TRIGGERS = "TRIGGERS";
     private static final String JOB_DETAILS = "JOB_DETAILS";
+    private static final String CRON_TRIGGERS = "CRON_TRIGGERS";
+    private static final String SIMPLE_TRIGGERS = "SIMPLE_TRIGGERS";
+    private static final String SIMPROP_TRIGGERS = "SIMPROP_TRIGGERS";
     private static final String JOB_DATA = "JOB_DATA";
     private static final String OR = " OR ";
     private static final String AND = " AND ";
@@ -84,12 +96,15 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
 
     private Scheduler scheduler;
 
+    private JobGroupResolver jobGroupResolver;
+
     @Autowired
     private MotechSchedulerFactoryBean motechSchedulerFactoryBean;
 
     @PostConstruct
     public void init() {
         scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
+        jobGroupResolver = motechSchedulerFactoryBean.getJobGroupResolver();
     }
 
     @Override
@@ -106,20 +121,16 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     }
 
     private String getQuery(JobsSearchSettings jobsSearchSettings){
-        String query;
-        if (isBlank(jobsSearchSettings.getName()) &&  isBlank(jobsSearchSettings.getActivity()) && isBlank(jobsSearchSettings.getStatus()) && isBlank(jobsSearchSettings.getTimeFrom()) && isBlank(jobsSearchSettings.getTimeTo())) { //NO CHECKSTYLE BooleanExpressionComplexity
-            query = buildJobsAllSqlQuery();
-        } else if (isBlank(jobsSearchSettings.getActivity()) || isBlank(jobsSearchSettings.getStatus())) {
-            query = null;
-        } else {
-            query = buildJobsBasicInfoSqlQuery(jobsSearchSettings);
+        boolean noFilters = isBlank(jobsSearchSettings.getName()) &&  isBlank(jobsSearchSettings.getActivity()) && isBlank(jobsSearchSettings.getStatus()) && isBlank(jobsSearchSettings.getTimeFrom()) && isBlank(jobsSearchSettings.getTimeTo()); //NO CHECKSTYLE BooleanExpressionComplexity
+        if (!noFilters && (isBlank(jobsSearchSettings.getActivity()) || isBlank(jobsSearchSettings.getStatus()))) {
+            return null;
         }
-        return query;
+        return buildJobsBasicInfoSqlQuery(jobsSearchSettings);
     }
-    
+
     @Override
     public List<JobBasicInfo> getScheduledJobsBasicInfo(JobsSearchSettings jobsSearchSettings) throws MotechSchedulerJobRetrievalException {
-        List<JobBasicInfo> jobBasicInfos = new LinkedList<>();
+        List<JobBasicInfo> jobBasicInfos = new ArrayList<>();
         String query = getQuery(jobsSearchSettings);
         if(query == null) {
             return jobBasicInfos;
@@ -127,48 +138,17 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
 
         LOGGER.debug("Executing {}", query);
 
-        List<String> columnNames = new LinkedList<>();
-        columnNames.add(TRIGGER_NAME);
-        columnNames.add(TRIGGER_GROUP);
-        columnNames.add(JOB_DATA);
-        List<List<Object>> objects;
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            long now = DateTime.now().getMillis();
 
-        try {
-            objects = executeQuery(query, columnNames);
-
-            for (List<Object> row : objects) {
-                JobKey jobKey = new JobKey(row.get(0).toString(), row.get(1).toString());
-                Trigger trigger = scheduler.getTriggersOfJob(jobKey).get(0);
-                String jobName = jobKey.getName();
-                String jobGroup = jobKey.getGroup();
-                String jobType = getJobType(jobKey);
-                String activity = getJobActivity(trigger);
-                String info = getJobInfo(trigger, jobType);
-                String status = getJobStatus(trigger.getKey());
-                String startDate = getStartDate(trigger);
-                String nextFireDate = "";
-                if (trigger.getNextFireTime() != null) {
-                    nextFireDate = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(trigger.getNextFireTime().getTime());
-                }
-                String endDate = getEndDate(trigger, jobType);
-                boolean uiDefined = getUiDefined((byte[]) row.get(2));
-
-                jobBasicInfos.add(new JobBasicInfo(
-                        activity,
-                        status,
-                        jobName,
-                        jobGroup,
-                        startDate,
-                        nextFireDate,
-                        endDate,
-                        jobType,
-                        info,
-                        uiDefined
-                ));
+            while (rs.next()) {
+                jobBasicInfos.add(toJobBasicInfo(rs, now));
             }
 
             return jobBasicInfos;
-        } catch (SQLException | SchedulerException | ClassNotFoundException | IOException e) {
+        } catch (SQLException | ClassNotFoundException | IOException e) {
             throw new MotechSchedulerJobRetrievalException("Retrieval of scheduled jobs failed.", e);
         }
     }
@@ -179,30 +159,30 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         List<EventInfo> eventInfos = new ArrayList<>();
 
         try {
-            for (String groupName : scheduler.getJobGroupNames()) {
-                for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
-                    if (jobKey.getName().equals(jobBasicInfo.getName())) {
-                        EventInfo eventInfo = new EventInfo();
-                        String subject;
-
-                        Map<String, Object> parameters = scheduler.getJobDetail(jobKey).getJobDataMap().getWrappedMap();
-                        Map<String, Object> metadata = (HashMap) parameters.get(SchedulerConstants.EVENT_METADATA);
-                        parameters.remove(SchedulerConstants.EVENT_METADATA);
-                        parameters.putAll(metadata);
-
-                        eventInfo.setParameters(parameters);
-
-                        if (eventInfo.getParameters().containsKey(SchedulerConstants.EVENT_TYPE_KEY_NAME)) {
-                            subject = eventInfo.getParameters().get(SchedulerConstants.EVENT_TYPE_KEY_NAME).toString();
-                            eventInfo.getParameters().remove(SchedulerConstants.EVENT_TYPE_KEY_NAME);
-                        } else {
-                            subject = jobKey.getName().substring(0, jobKey.getName().indexOf('-'));
-                        }
-
-                        eventInfo.setSubject(subject);
-                        eventInfos.add(eventInfo);
-                    }
+            String group = isNotBlank(jobBasicInfo.getGroup()) ? jobBasicInfo.getGroup() :
+                    jobGroupResolver.getGroup(jobBasicInfo.getName());
+            JobDetail jobDetail = scheduler.getJobDetail(new JobKey(jobBasicInfo.getName(), group));
+
+            if (jobDetail != null) {
+                EventInfo eventInfo = new EventInfo();
+                String subject;
+
+                Map<String, Object> parameters = jobDetail.getJobDataMap().getWrappedMap();
+                Map<String, Object> metadata = (HashMap) parameters.get(SchedulerConstants.EVENT_METADATA);
+                parameters.remove(SchedulerConstants.EVENT_METADATA);
+                parameters.putAll(metadata);
+
+                eventInfo.setParameters(parameters);
+
+                if (eventInfo.getParameters().containsKey(SchedulerConstants.EVENT_TYPE_KEY_NAME)) {
+                    subject = eventInfo.getParameters().get(SchedulerConstants.EVENT_TYPE_KEY_NAME).toString();
+                    eventInfo.getParameters().remove(SchedulerConstants.EVENT_TYPE_KEY_NAME);
+                } else {
+                    subject = jobBasicInfo.getName().substring(0, jobBasicInfo.getName().indexOf('-'));
                 }
+
+                eventInfo.setSubject(subject);
+                eventInfos.add(eventInfo);
             }
 
             jobDetailedInfo.setEventInfoList(eventInfos);
@@ -212,24 +192,32 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         }
     }
 
-    private List<List<Object>> executeQuery(String query, List<String> columns) throws SQLException {
-        List<List<Object>> rows = new LinkedList<>();
-
-        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
-                Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery(query);
-
-            while (rs.next()) {
-                List<Object> row = new LinkedList<>();
-                if (columns != null) {
-                    for (String name : columns) {
-                        row.add(rs.getObject(name));
-                    }
-                }
-                rows.add(row);
-            }
+    private JobBasicInfo toJobBasicInfo(ResultSet rs, long now) throws SQLException, IOException, ClassNotFoundException {
+        String jobName = rs.getString(TRIGGER_NAME);
+        String jobGroup = rs.getString(TRIGGER_GROUP);
+        String jobType = getJobType(jobName);
+        long startTime = rs.getLong(START_TIME);
+        long endTime = rs.getLong(END_TIME);
+        long nextFireTime = rs.getLong(NEXT_FIRE_TIME);
+
+        String startDate = formatDate(startTime);
+        String nextFireDate = "";
+        if (nextFireTime > 0) {
+            nextFireDate = formatDate(nextFireTime);
         }
-        return rows;
+
+        return new JobBasicInfo(
+                getJobActivity(startTime, endTime, now),
+                getJobStatus(rs.getString(TRIGGER_STATE)),
+                jobName,
+                jobGroup,
+                startDate,
+                nextFireDate,
+                getEndDate(startDate, endTime, jobType, now),
+                jobType,
+                getJobInfo(rs, jobType, endTime, nextFireTime),
+                getUiDefined(rs)
+        );
     }
 
     private int executeCountQuery(String query) throws SQLException {
@@ -257,7 +245,7 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         if (StringUtils.isNotBlank(jobsSearchSettings.getTimeFrom())) {
             dateFrom = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN)
                     .parseDateTime(jobsSearchSettings.getTimeFrom());
-            dateRangeSb.append(getCorrectNameRepresentation(START_TIME)).append(" >= ").append(dateFrom.getMillis());
+            dateRangeSb.append(column(START_TIME)).append(" >= ").append(dateFrom.getMillis());
             addAnd = true;
         }
 
@@ -265,7 +253,7 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
             dateTo = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN)
                     .parseDateTime(jobsSearchSettings.getTimeTo());
             checkAndAddElement(dateRangeSb, AND, addAnd);
-            dateRangeSb.append(getCorrectNameRepresentation(START_TIME)).append(" <= ").append(dateTo.getMillis());
+            dateRangeSb.append(column(START_TIME)).append(" <= ").append(dateTo.getMillis());
         }
         return dateRangeSb.toString();
     }
@@ -279,16 +267,16 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
                 for (String element : activityElements) {
                     checkAndAddElement(activitySb, OR, addOr);
                     if (JobBasicInfo.ACTIVITY_NOTSTARTED.equals(element)) {
-                        activitySb.append(getCorrectNameRepresentation(START_TIME)).append(" > ").append(DateTime.now().getMillis());
+                        activitySb.append(column(START_TIME)).append(" > ").append(DateTime.now().getMillis());
                     } else if (JobBasicInfo.ACTIVITY_FINISHED.equals(element)) {
-                        activitySb.append(getCorrectNameRepresentation(END_TIME)).append(" < ").append(DateTime.now().getMillis())
-                                .append(AND).append(getCorrectNameRepresentation(END_TIME)).append(" != 0");
+                        activitySb.append(column(END_TIME)).append(" < ").append(DateTime.now().getMillis())
+                                .append(AND).append(column(END_TIME)).append(" != 0");
                     } else {
-                        activitySb.append(" (").append(getCorrectNameRepresentation(START_TIME)).append(" <= ")
+                        activitySb.append(" (").append(column(START_TIME)).append(" <= ")
                                 .append(DateTime.now().getMillis()).append(" AND (")
-                                .append(getCorrectNameRepresentation(END_TIME)).append(" >= ")
+                                .append(column(END_TIME)).append(" >= ")
                                 .append(DateTime.now().getMillis()).append(OR)
-                                .append(getCorrectNameRepresentation(END_TIME)).append(" = 0))");
+                                .append(column(END_TIME)).append(" = 0))");
                     }
                     addOr = true;
                 }
@@ -305,18 +293,20 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
             if (statusElements.length < 4) {
                 for (String element : statusElements) {
                     checkAndAddElement(statusSb, OR, addOr);
-                    statusSb.append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ");
+                    statusSb.append(column(TRIGGER_STATE)).append(" = ");
                     if (Trigger.TriggerState.ERROR.toString().equals(element)) {
                         statusSb.append("\'").append(Trigger.TriggerState.ERROR.toString()).append("\'");
                     } else if (Trigger.TriggerState.BLOCKED.toString().equals(element)) {
                         statusSb.append("\'").append(Trigger.TriggerState.BLOCKED.toString()).append("\'");
                     } else if (Trigger.TriggerState.PAUSED.toString().equals(element)) {
-                        statusSb.append("\'").append(Trigger.TriggerState.PAUSED.toString()).append("\'");
+                        statusSb.append("\'").append(Trigger.TriggerState.PAUSED.toString()).append("\'")
+                            .append(OR).append(column(TRIGGER_STATE)).append(" = ")
+                            .append("\'").append(PAUSED_BLOCKED).append("\'");
                     } else {
                         statusSb.append("\'").append(Trigger.TriggerState.NORMAL.toString()).append("\'")
-                            .append(OR).append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ")
+                            .append(OR).append(column(TRIGGER_STATE)).append(" = ")
                             .append("\'").append(Trigger.TriggerState.COMPLETE.toString()).append("\'")
-                            .append(OR).append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ")
+                            .append(OR).append(column(TRIGGER_STATE)).append(" = ")
                             .append("\'").append(WAITING).append("\'");
                     }
                     addOr = true;
@@ -340,10 +330,13 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         if (isNotBlank(statusFilter)) {
             filters.add(statusFilter);
         }
+        if (isNotBlank(jobsSearchSettings.getGroup())) {
+            filters.add(column(TRIGGER_GROUP) + " = '" + jobsSearchSettings.getGroup().replace("\'", "\'\'") + "'");
+        }
         StringBuilder nameSb = new StringBuilder();
         if (isNotBlank(jobsSearchSettings.getName())) {
-            nameSb.append(getCorrectNameRepresentation(TRIGGER_NAME)).append(" LIKE ").append("\'%")
-                    .append(jobsSearchSettings.getName()).append("%\'");
+            nameSb.append(column(TRIGGER_NAME)).append(" LIKE ").append("\'%")
+                    .append(jobsSearchSettings.getName().replace("\'", "\'\'")).append("%\'");
             filters.add(nameSb.toString());
         }
 
@@ -373,22 +366,28 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     }
 
     private String buildJobsBasicInfoSqlQuery(JobsSearchSettings jobsSearchSettings) {
-
-        StringBuilder sb = new StringBuilder("SELECT A.TRIGGER_NAME, A.TRIGGER_GROUP, B.JOB_DATA FROM ")
-                .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
+        StringBuilder sb = new StringBuilder("SELECT A.TRIGGER_NAME, A.TRIGGER_GROUP, A.TRIGGER_STATE, A.TRIGGER_TYPE,")
+                .append(" A.START_TIME, A.END_TIME, A.NEXT_FIRE_TIME, B.UI_DEFINED,")
+                .append(" CASE WHEN B.UI_DEFINED IS NULL THEN B.JOB_DATA END AS JOB_DATA,")
+                .append(" C.CRON_EXPRESSION, S.REPEAT_COUNT, S.REPEAT_INTERVAL, S.TIMES_TRIGGERED,")
+                .append(" P.STR_PROP_1, P.INT_PROP_1, P.INT_PROP_2 FROM ")
+                .append(getTableName(TRIGGERS))
                 .append(" AS A JOIN ")
-                .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + JOB_DETAILS))
-                .append(" AS B")
-                .append(" ON A.TRIGGER_NAME = B.JOB_NAME AND A.TRIGGER_GROUP = B.JOB_GROUP")
+                .append(getTableName(JOB_DETAILS))
+                .append(" AS B ON A.SCHED_NAME = B.SCHED_NAME AND A.JOB_NAME = B.JOB_NAME AND A.JOB_GROUP = B.JOB_GROUP")
+                .append(" LEFT JOIN ").append(getTableName(CRON_TRIGGERS)).append(" AS C").append(joinOnTrigger("C"))
+                .append(" LEFT JOIN ").append(getTableName(SIMPLE_TRIGGERS)).append(" AS S").append(joinOnTrigger("S"))
+                .append(" LEFT JOIN ").append(getTableName(SIMPROP_TRIGGERS)).append(" AS P").append(joinOnTrigger("P"))
                 .append(buildWhereCondition(jobsSearchSettings));
 
-        if (isNotBlank(jobsSearchSettings.getSortColumn()) && isNotBlank(jobsSearchSettings.getSortDirection())) {
-            sb.append(" ORDER BY ")
-                    .append("A.")
-                    .append(getCorrectNameRepresentation(getSortColumn(jobsSearchSettings.getSortColumn())))
-                    .append(" ")
-                    .append(jobsSearchSettings.getSortDirection().toUpperCase());
+        String sortColumn = getSortColumn(jobsSearchSettings.getSortColumn());
+        String sortDirection = "DESC".equalsIgnoreCase(jobsSearchSettings.getSortDirection()) ? "DESC" : "ASC";
+        sb.append(" ORDER BY ").append(column(sortColumn)).append(" ").append(sortDirection);
+        // the names are unique within a group, which keeps the order of the pages stable
+        if (!TRIGGER_NAME.equals(sortColumn)) {
+            sb.append(", ").append(column(TRIGGER_NAME)).append(" ").append(sortDirection);
         }
+
         if (jobsSearchSettings.getRows() != null && jobsSearchSettings.getPage() != null) {
             int offset = (jobsSearchSettings.getPage() == 0) ? 0 : (jobsSearchSettings.getPage() - 1) * jobsSearchSettings.getRows();
             sb.append(" LIMIT ").append(jobsSearchSettings.getRows()).append(" OFFSET ").append(offset);
@@ -397,24 +396,33 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return sb.toString();
     }
 
+    private String joinOnTrigger(String alias) {
+        return String.format(" ON A.SCHED_NAME = %1$s.SCHED_NAME AND A.TRIGGER_NAME = %1$s.TRIGGER_NAME" +
+                " AND A.TRIGGER_GROUP = %1$s.TRIGGER_GROUP", alias);
+    }
+
     private String buildJobsCountSqlQuery(JobsSearchSettings jobsSearchSettings) {
         StringBuilder sb = new StringBuilder("SELECT COUNT(*) FROM ")
-            .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
+            .append(getTableName(TRIGGERS))
+            .append(" AS A")
             .append(buildWhereCondition(jobsSearchSettings));
         return sb.toString();
     }
 
-    private String buildJobsAllSqlQuery() {
-        StringBuilder sb = new StringBuilder("SELECT A. TRIGGER_NAME, A.TRIGGER_GROUP, B.JOB_DATA FROM ")
-            .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
-            .append(" AS A JOIN QRTZ_JOB_DETAILS AS B ON A.TRIGGER_NAME = B.JOB_NAME AND A.TRIGGER_GROUP = B.JOB_GROUP");
-        return sb.toString();
+    private String getTableName(String table) {
+        return getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + table);
+    }
+
+    private String column(String name) {
+        return "A." + getCorrectNameRepresentation(name);
     }
 
     private String getSortColumn(String column) {
         String sortColumn;
 
-        if (column.equalsIgnoreCase("startDate")) {
+        if (column == null) {
+            sortColumn = TRIGGER_NAME;
+        } else if (column.equalsIgnoreCase("startDate")) {
             sortColumn = START_TIME;
         } else if (column.equalsIgnoreCase("endDate")) {
             sortColumn = END_TIME;
@@ -429,105 +437,137 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return sortColumn;
     }
 
-    private String getJobInfo(Trigger trigger, String jobType) throws SchedulerException {
+    private String getJobInfo(ResultSet rs, String jobType, long endTime, long nextFireTime) throws SQLException {
         if (jobType.equals(JobBasicInfo.JOBTYPE_REPEATING)) {
-            Integer timesTriggered = 0;
-            String repeatMaxCount = "-";
-
-            if (trigger instanceof CalendarIntervalTrigger) {
-                CalendarIntervalTrigger calendarIntervalTrigger = (CalendarIntervalTrigger) trigger;
-
-                timesTriggered = calendarIntervalTrigger.getTimesTriggered();
-            } else if (trigger instanceof SimpleTrigger) {
-                SimpleTrigger simpleTrigger = (SimpleTrigger) trigger;
-
-                timesTriggered = simpleTrigger.getTimesTriggered();
+            int timesTriggered;
+            int remainingFires = 0;
+            boolean simpleTrigger = rs.getString(CRON_EXPRESSION) == null && rs.getString(STR_PROP_1) == null;
+
+            if (simpleTrigger) {
+                timesTriggered = rs.getInt(TIMES_TRIGGERED);
+                long repeatInterval = rs.getLong(REPEAT_INTERVAL);
+                if (nextFireTime > 0 && nextFireTime <= endTime && repeatInterval > 0) {
+                    remainingFires = (int) ((endTime - nextFireTime) / repeatInterval) + 1;
+                    int repeatCount = rs.getInt(REPEAT_COUNT);
+                    if (repeatCount != SimpleTrigger.REPEAT_INDEFINITELY) {
+                        remainingFires = Math.min(remainingFires, repeatCount + 1 - timesTriggered);
+                    }
+                }
+            } else {
+                timesTriggered = rs.getInt(INT_PROP_2);
+                int repeatInterval = rs.getInt(INT_PROP_1);
+                if (nextFireTime > 0 && nextFireTime <= endTime && repeatInterval > 0) {
+                    remainingFires = unitsBetween(IntervalUnit.valueOf(rs.getString(STR_PROP_1)), nextFireTime, endTime)
+                            / repeatInterval + 1;
+                }
             }
 
-            if (trigger.getEndTime() != null) {
-                repeatMaxCount = Integer.toString(TriggerUtils.computeFireTimesBetween(
-                        (OperableTrigger) trigger, null, trigger.getStartTime(), trigger.getEndTime()
-                ).size() + timesTriggered);
-            }
+            String repeatMaxCount = endTime != 0 ? Integer.toString(remainingFires + timesTriggered) : "-";
 
             return String.format("%d/%s", timesTriggered, repeatMaxCount);
         } else if (jobType.equals(JobBasicInfo.JOBTYPE_CRON)) {
-            CronScheduleBuilder cronScheduleBuilder = (CronScheduleBuilder) trigger.getScheduleBuilder();
-
-            CronTrigger cronTrigger = (CronTrigger) cronScheduleBuilder.build();
-
-            return cronTrigger.getCronExpression();
+            return rs.getString(CRON_EXPRESSION);
         } else {
             return "-";
         }
     }
 
-    private String getJobType(JobKey jobKey) throws SchedulerException {
-        if (jobKey.getName().endsWith(RunOnceJobId.SUFFIX_RUNONCEJOBID)) {
+    private int unitsBetween(IntervalUnit unit, long from, long to) {
+        DateTime start = new DateTime(from);
+        DateTime end = new DateTime(to);
+
+        switch (unit) {
+            case MILLISECOND:
+                return (int) (to - from);
+            case SECOND:
+                return Seconds.secondsBetween(start, end).getSeconds();
+            case MINUTE:
+                return Minutes.minutesBetween(start, end).getMinutes();
+            case HOUR:
+                return Hours.hoursBetween(start, end).getHours();
+            case DAY:
+                return Days.daysBetween(start, end).getDays();
+            case WEEK:
+                return Weeks.weeksBetween(start, end).getWeeks();
+            case MONTH:
+                return Months.monthsBetween(start, end).getMonths();
+            default:
+                return Years.yearsBetween(start, end).getYears();
+        }
+    }
+
+    private String getJobType(String jobName) {
+        if (jobName.endsWith(RunOnceJobId.SUFFIX_RUNONCEJOBID)) {
             return JobBasicInfo.JOBTYPE_RUNONCE;
-        } else if (jobKey.getName().endsWith(RepeatingJobId.SUFFIX_REPEATJOBID)) {
+        } else if (jobName.endsWith(RepeatingJobId.SUFFIX_REPEATJOBID)) {
             return JobBasicInfo.JOBTYPE_REPEATING;
-        } else if (jobKey.getName().endsWith(RepeatingPeriodJobId.SUFFIX_REPEATPERIODJOBID)) {
+        } else if (jobName.endsWith(RepeatingPeriodJobId.SUFFIX_REPEATPERIODJOBID)) {
             return JobBasicInfo.JOBTYPE_PERIOD;
         } else {
             return JobBasicInfo.JOBTYPE_CRON;
         }
     }
 
-    private String getStartDate(Trigger trigger) throws SchedulerException {
-        return DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(trigger.getStartTime().getTime());
+    private String formatDate(long millis) {
+        return DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(millis);
     }
 
-    private String getEndDate(Trigger trigger, String jobType) throws SchedulerException {
-        DateTime endDateTime = new DateTime(trigger.getEndTime());
-        String startDate = getStartDate(trigger);
+    private String getEndDate(String startDate, long endTime, String jobType, long now) {
         String endDate;
 
-        if (!endDateTime.isAfterNow()) {
+        if (endTime <= now) {
             if (jobType.equals(JobBasicInfo.JOBTYPE_RUNONCE)) {
                 endDate = startDate;
             } else {
                 endDate = "-";
             }
         } else {
-            endDate = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(endDateTime);
+            endDate = formatDate(endTime);
         }
 
         return endDate;
     }
 
-    private String getJobActivity(Trigger trigger) throws SchedulerException {
-        DateTime startDateTime = new DateTime(trigger.getStartTime());
-        DateTime endDateTime = new DateTime(trigger.getEndTime());
-
-        if (startDateTime.isAfterNow()) {
+    private String getJobActivity(long startTime, long endTime, long now) {
+        if (startTime > now) {
             return JobBasicInfo.ACTIVITY_NOTSTARTED;
-        } else if (endDateTime.isBeforeNow()) {
+        } else if (endTime != 0 && endTime < now) {
             return  JobBasicInfo.ACTIVITY_FINISHED;
         } else {
             return JobBasicInfo.ACTIVITY_ACTIVE;
         }
     }
 
-    private String getJobStatus(TriggerKey triggerKey) throws SchedulerException {
-        Trigger.TriggerState currentTriggerState = scheduler.getTriggerState(triggerKey);
-        if (currentTriggerState == Trigger.TriggerState.ERROR) {
+    private String getJobStatus(String triggerState) {
+        if (Trigger.TriggerState.ERROR.toString().equals(triggerState)) {
             return JobBasicInfo.STATUS_ERROR;
-        } else if (currentTriggerState == Trigger.TriggerState.BLOCKED) {
+        } else if (Trigger.TriggerState.BLOCKED.toString().equals(triggerState)) {
             return JobBasicInfo.STATUS_BLOCKED;
-        } else if (currentTriggerState == Trigger.TriggerState.PAUSED) {
+        } else if (Trigger.TriggerState.PAUSED.toString().equals(triggerState) || PAUSED_BLOCKED.equals(triggerState)) {
             return JobBasicInfo.STATUS_PAUSED;
         } else {
             return JobBasicInfo.STATUS_OK;
         }
     }
 
-    private boolean getUiDefined(byte[] bytes) throws IOException, ClassNotFoundException {
-        try (InputStream is = new ByteArrayInputStream(bytes);
-             ObjectInputStream ois = new ObjectInputStream(is)) {
-            JobDataMap jobDataMap = (JobDataMap) ois.readObject();
-            return isUiDefined(jobDataMap);
+    /*
+     * Jobs scheduled before the uiDefined flag was kept in its own column only have it in the job data, which is then
+     * selected by the query
+     */
+    private boolean getUiDefined(ResultSet rs) throws SQLException, IOException, ClassNotFoundException {
+        boolean uiDefined = rs.getBoolean(UI_DEFINED_COLUMN);
+        if (!rs.wasNull()) {
+            return uiDefined;
         }
+
+        byte[] bytes = rs.getBytes(JOB_DATA);
+        if (bytes == null) {
+            return false;
+        }
+
+        // the data is read in either form, it is rewritten in the compact form by the JobDataCompactor
+        JobDataMap jobDataMap = (JobDataMap) CompactJobDataSerializer.deserialize(bytes);
+        return jobDataMap != null && isUiDefined(jobDataMap);
     }
 
     private boolean isUiDefined(JobDataMap jobDataMap) {
@@ -11,6 +11,7 @@ import org.motechproject.scheduler.contract.CronJobId;
 import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
 import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.JobGroupInfo;
 import org.motechproject.scheduler.contract.JobId;
 import org.motechproject.scheduler.contract.MisfireSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingJobId;
@@ -20,8 +21,11 @@ import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
 import org.motechproject.scheduler.contract.RunOnceJobId;
 import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
 import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.contract.SchedulerMetrics;
+import org.motechproject.scheduler.exception.BulkSchedulingException;
 import org.motechproject.scheduler.exception.MotechSchedulerException;
 import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.listener.SchedulerMetricsListener;
 import org.motechproject.scheduler.service.MotechScheduledJob;
 import org.motechproject.scheduler.service.MotechSchedulerService;
 import org.motechproject.scheduler.trigger.PeriodIntervalScheduleBuilder;
@@ -34,9 +38,11 @@ import org.quartz.JobKey;
 import org.quartz.ScheduleBuilder;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.SchedulerMetaData;
 import org.quartz.SimpleScheduleBuilder;
 import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
 import org.quartz.TriggerUtils;
 import org.quartz.impl.calendar.BaseCalendar;
@@ -48,11 +54,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,24 +96,35 @@ import static org.quartz.TriggerKey.triggerKey;
 @Service("schedulerService")
 public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
-    public static final String JOB_GROUP_NAME = "default";
+    public static final String JOB_GROUP_NAME = JobGroupResolver.DEFAULT_GROUP;
     private static final int MAX_REPEAT_COUNT = 999999;
     private static final int MILLISECOND = 1000;
     private static final String LOG_SUBJECT_EXTERNAL_ID = "subject: %s, externalId: %s";
+    private static final int TRIGGER_PAGE_SIZE = 1000;
 
     private SettingsFacade schedulerSettings;
 
     private Scheduler scheduler;
 
+    private SchedulerMetricsListener metricsListener;
+
+    private TriggerKeyQuery triggerKeyQuery;
+
+    private JobGroupResolver jobGroupResolver;
+
     private Map<String, Integer> cronTriggerMisfirePolicies;
     private Map<String, Integer> simpleTriggerMisfirePolicies;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MotechSchedulerServiceImpl.class);
 
     @Autowired
-    public MotechSchedulerServiceImpl(MotechSchedulerFactoryBean motechSchedulerFactoryBean, SettingsFacade schedulerSettings) {
+    public MotechSchedulerServiceImpl(MotechSchedulerFactoryBean motechSchedulerFactoryBean, SettingsFacade schedulerSettings,
+                                      TriggerKeyQuery triggerKeyQuery) {
         this.schedulerSettings = schedulerSettings;
+        this.triggerKeyQuery = triggerKeyQuery;
         this.scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
+        this.metricsListener = motechSchedulerFactoryBean.getMetricsListener();
+        this.jobGroupResolver = motechSchedulerFactoryBean.getJobGroupResolver();
         constructMisfirePoliciesMaps();
     }
 
@@ -137,6 +158,43 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         scheduleJob(job, false);
     }
 
+    @Override
+    public void scheduleJobs(Collection<? extends SchedulableJob> jobs) {
+        assertArgumentNotNull("SchedulableJobs", jobs);
+
+        // job details are equal when their keys are
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new LinkedHashMap<>();
+        Map<Integer, String> errors = new HashMap<>();
+
+        int index = 0;
+        for (SchedulableJob job : jobs) {
+            try {
+                JobAndTrigger jobAndTrigger = buildJob(job);
+                if (triggersAndJobs.containsKey(jobAndTrigger.jobDetail)) {
+                    errors.put(index, format("Duplicate job: %s", jobAndTrigger.jobDetail.getKey().getName()));
+                } else {
+                    triggersAndJobs.put(jobAndTrigger.jobDetail, Collections.singleton(jobAndTrigger.trigger));
+                }
+            } catch (RuntimeException e) {
+                errors.put(index, e.getMessage());
+            }
+            index++;
+        }
+
+        if (!errors.isEmpty()) {
+            throw new BulkSchedulingException(errors, jobs.size());
+        }
+
+        LOGGER.debug("Scheduling {} jobs", triggersAndJobs.size());
+
+        try {
+            scheduler.scheduleJobs(triggersAndJobs, true);
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Can not schedule %d jobs: %s", triggersAndJobs.size(), e.getMessage()),
+                    "scheduler.error.schedulerError", Arrays.asList(e.getMessage()), e);
+        }
+    }
+
     @Override
     public void safeScheduleJob(CronSchedulableJob cronSchedulableJob) {
         logObjectIfNotNull(cronSchedulableJob);
@@ -219,7 +277,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         CronTrigger trigger;
         JobDetail job;
         try {
-            trigger = (CronTrigger) scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
+            trigger = (CronTrigger) scheduler.getTrigger(triggerKeyOf(jobId.value()));
             if (trigger == null) {
                 throw new MotechSchedulerException(format("Can not reschedule the job: %s The job does not exist (not scheduled)", jobId));
             }
@@ -239,6 +297,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         CronTrigger newTrigger = newTrigger()
                 .withIdentity(trigger.getKey())
+                .withPriority(jobGroupResolver.getPriority(trigger.getKey().getGroup()))
                 .forJob(job)
                 .withSchedule(newCronSchedule)
                 .startAt(trigger.getStartTime())
@@ -246,7 +305,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 .build();
 
         try {
-            scheduler.rescheduleJob(triggerKey(jobId.value(), JOB_GROUP_NAME), newTrigger);
+            scheduler.rescheduleJob(triggerKeyOf(jobId.value()), newTrigger);
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not reschedule the job: %s %s", jobId, e.getMessage()), e);
         }
@@ -266,6 +325,24 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         unscheduleJob(job.value());
     }
 
+    @Override
+    public void unscheduleJobs(Collection<? extends JobId> jobIds) {
+        assertArgumentNotNull("JobIds", jobIds);
+
+        List<TriggerKey> triggerKeys = new ArrayList<>(jobIds.size());
+        for (JobId jobId : jobIds) {
+            triggerKeys.add(triggerKeyOf(jobId.value()));
+        }
+
+        LOGGER.debug("Unscheduling {} jobs", triggerKeys.size());
+
+        try {
+            scheduler.unscheduleJobs(triggerKeys);
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Can not unschedule %d jobs: %s", triggerKeys.size(), e.getMessage()), e);
+        }
+    }
+
     @Override
     public void unscheduleRepeatingJob(String subject, String externalId) {
         if (LOGGER.isDebugEnabled()) {
@@ -294,16 +371,10 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     public void unscheduleAllJobs(String jobIdPrefix) {
         try {
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Unscheduling jobs with prefix: ", jobIdPrefix);
-            }
-            List<TriggerKey> triggerKeys = new ArrayList<>(scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            List<String> triggerNames = extractTriggerNames(triggerKeys);
-            for (String triggerName : triggerNames) {
-                if (StringUtils.isNotEmpty(jobIdPrefix) && triggerName.contains(jobIdPrefix)) {
-                    unscheduleJob(triggerName);
-                }
+                LOGGER.debug("Unscheduling jobs with prefix: {}", jobIdPrefix);
             }
-        } catch (SchedulerException e) {
+            unscheduleJobsWithPrefix(jobIdPrefix);
+        } catch (SchedulerException | SQLException e) {
             throw new MotechSchedulerException(String.format("Can not unschedule jobs given jobIdPrefix: %s %s",
                     jobIdPrefix, e.getMessage()), e);
         }
@@ -353,14 +424,8 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug(format("Safe unscheduling the Jobs given jobIdPrefix: %s", jobIdPrefix));
             }
-            List<TriggerKey> triggerKeys = new ArrayList<>(scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            List<String> triggerNames = extractTriggerNames(triggerKeys);
-            for (String triggerName : triggerNames) {
-                if (StringUtils.isNotEmpty(jobIdPrefix) && triggerName.contains(jobIdPrefix)) {
-                    safeUnscheduleJob(triggerName);
-                }
-            }
-        } catch (SchedulerException e) {
+            unscheduleJobsWithPrefix(jobIdPrefix);
+        } catch (SchedulerException | SQLException e) {
             LOGGER.error("Unable to unschedule all jobs with jobIdPrefix {}", jobIdPrefix, e);
         }
     }
@@ -417,11 +482,99 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
     }
 
+    @Override
+    public String getJobGroup(JobId jobId) {
+        assertArgumentNotNull("JobId", jobId);
+        return jobGroupResolver.getGroup(jobId.value());
+    }
+
+    @Override
+    public List<JobGroupInfo> getJobGroups() {
+        try {
+            Set<String> pausedGroups = scheduler.getPausedTriggerGroups();
+            List<JobGroupInfo> groups = new ArrayList<>();
+            for (Map.Entry<String, Integer> count : triggerKeyQuery.countByGroup().entrySet()) {
+                String group = count.getKey();
+                groups.add(new JobGroupInfo(group, count.getValue(), pausedGroups.contains(group),
+                        jobGroupResolver.getPriority(group)));
+            }
+            return groups;
+        } catch (SchedulerException | SQLException e) {
+            throw new MotechSchedulerException("Can not retrieve the job groups: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int countJobs(String group) {
+        assertArgumentNotNull("Group", group);
+        try {
+            return triggerKeyQuery.countInGroup(group);
+        } catch (SQLException e) {
+            throw new MotechSchedulerException(format("Can not count the jobs of group: %s %s", group, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void pauseJobGroup(String group) {
+        assertArgumentNotNull("Group", group);
+        LOGGER.info("Pausing the jobs of group {}", group);
+        try {
+            scheduler.pauseTriggers(GroupMatcher.triggerGroupEquals(group));
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Can not pause the jobs of group: %s %s", group, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void resumeJobGroup(String group) {
+        assertArgumentNotNull("Group", group);
+        LOGGER.info("Resuming the jobs of group {}", group);
+        try {
+            scheduler.resumeTriggers(GroupMatcher.triggerGroupEquals(group));
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Can not resume the jobs of group: %s %s", group, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void unscheduleJobGroup(String group) {
+        assertArgumentNotNull("Group", group);
+        LOGGER.info("Unscheduling the jobs of group {}", group);
+        try {
+            unscheduleJobsWithPrefix(group, "");
+        } catch (SchedulerException | SQLException e) {
+            throw new MotechSchedulerException(format("Can not unschedule the jobs of group: %s %s", group, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public SchedulerMetrics getSchedulerMetrics() {
+        try {
+            SchedulerMetaData metaData = scheduler.getMetaData();
+
+            SchedulerMetrics metrics = new SchedulerMetrics();
+            metrics.setInstanceId(metaData.getSchedulerInstanceId());
+            metrics.setClustered(metaData.isJobStoreClustered());
+            metrics.setThreadPoolSize(metaData.getThreadPoolSize());
+            metrics.setExecutingJobs(scheduler.getCurrentlyExecutingJobs().size());
+            metrics.setJobsExecuted(metaData.getNumberOfJobsExecuted());
+            metrics.setFiredCount(metricsListener.getFiredCount());
+            metrics.setMisfiredCount(metricsListener.getMisfiredCount());
+            metrics.setAverageFireLag(metricsListener.getAverageFireLag());
+            metrics.setMaxFireLag(metricsListener.getMaxFireLag());
+            metrics.setWindows(metricsListener.getWindowMetrics());
+            metrics.setSubjects(metricsListener.getSubjectMetrics());
+            return metrics;
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException("Can not retrieve the scheduler metrics: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public DateTime getPreviousFireDate(JobId jobId) {
         Date previousFireTime = null;
         try {
-            Trigger trigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
+            Trigger trigger = scheduler.getTrigger(triggerKeyOf(jobId.value()));
             if (trigger != null) {
                 previousFireTime = trigger.getPreviousFireTime();
             }
@@ -436,7 +589,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     public DateTime getNextFireDate(JobId jobId) {
         Date nextFireTime = null;
         try {
-            Trigger trigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
+            Trigger trigger = scheduler.getTrigger(triggerKeyOf(jobId.value()));
             if (trigger != null) {
                 nextFireTime = trigger.getNextFireTime();
             }
@@ -457,7 +610,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         JobId jobId = new CronJobId(subject, externalJobId);
         Trigger trigger;
         try {
-            trigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
+            trigger = scheduler.getTrigger(triggerKeyOf(jobId.value()));
             return DateUtil.datesToDateTimes(TriggerUtils.computeFireTimesBetween(
                     (OperableTrigger) trigger, new BaseCalendar(), DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
 
@@ -469,8 +622,8 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     /*
-     * Loads all triggers and then loops over them to find the applicable trigger using string comparison. This
-     * will work regardless of the jobId being cron or repeating.
+     * Looks up the triggers whose names start with the job ID built from the prefix. This will work regardless
+     * of the jobId being cron or repeating.
      */
     @Override
     public List<DateTime> getScheduledJobTimingsWithPrefix(
@@ -479,17 +632,24 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         JobId jobId = new CronJobId(subject, externalJobIdPrefix);
         List<Date> messageTimings = new ArrayList<>();
         try {
-            List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>(
-                    scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            for (TriggerKey triggerKey : triggerKeys) {
-                if (StringUtils.isNotEmpty(externalJobIdPrefix) && triggerKey.getName().contains(jobId.value())) {
-                    Trigger trigger = scheduler.getTrigger(triggerKey);
-                    messageTimings.addAll(TriggerUtils.computeFireTimesBetween(
-                            (OperableTrigger) trigger, new BaseCalendar(), DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
+            if (StringUtils.isNotEmpty(externalJobIdPrefix)) {
+                for (String group : getGroupsOfPrefix(jobId.value())) {
+                    String after = null;
+                    List<TriggerKey> triggerKeys;
+                    do {
+                        triggerKeys = triggerKeyQuery.findByNamePrefix(group, jobId.value(), after, TRIGGER_PAGE_SIZE);
+                        for (TriggerKey triggerKey : triggerKeys) {
+                            Trigger trigger = scheduler.getTrigger(triggerKey);
+                            if (trigger != null) {
+                                messageTimings.addAll(TriggerUtils.computeFireTimesBetween(
+                                        (OperableTrigger) trigger, new BaseCalendar(), DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
+                            }
+                            after = triggerKey.getName();
+                        }
+                    } while (triggerKeys.size() == TRIGGER_PAGE_SIZE);
                 }
             }
-
-        } catch (SchedulerException e) {
+        } catch (SchedulerException | SQLException e) {
             throw new MotechSchedulerException(String.format(
                     "Can not get scheduled job timings given subject and externalJobIdPrefix for dates : %s %s %s %s %s",
                     subject, externalJobIdPrefix, startDate.toString(), endDate.toString(), e.getMessage()), e);
@@ -523,6 +683,24 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     private void scheduleCronJob(CronSchedulableJob job, boolean isDayOfWeek, boolean update) {
+        JobAndTrigger cronJob = buildCronJob(job, isDayOfWeek);
+        JobId jobId = new CronJobId(job.getMotechEvent());
+
+        Trigger existingTrigger;
+        try {
+            existingTrigger = scheduler.getTrigger(triggerKeyOf(jobId.value()));
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
+                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
+        }
+        if (existingTrigger != null) {
+            unscheduleJob(jobId.value());
+        }
+
+        scheduleJob(cronJob.jobDetail, cronJob.trigger, update);
+    }
+
+    private JobAndTrigger buildCronJob(CronSchedulableJob job, boolean isDayOfWeek) {
         logObjectIfNotNull(job);
 
         validateCronSchedulableJob(job);
@@ -532,7 +710,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         JobId jobId = new CronJobId(motechEvent);
 
         JobDetail jobDetail = newJob(MotechScheduledJob.class)
-                .withIdentity(jobKey(jobId.value(), JOB_GROUP_NAME))
+                .withIdentity(jobKeyOf(jobId.value()))
                 .build();
 
         putMotechEventDataToJobDataMap(jobDetail.getJobDataMap(), motechEvent);
@@ -548,25 +726,13 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         // TODO: should take readable names rather than integers
         cronSchedule = setMisfirePolicyForCronTrigger(cronSchedule,  schedulerSettings.getProperty("scheduler.cron.trigger.misfire.policy"));
 
-        CronTrigger trigger = newTrigger()
-                .withIdentity(triggerKey(jobId.value(), JOB_GROUP_NAME))
+        CronTrigger trigger = newJobTrigger(jobId)
                 .forJob(jobDetail)
                 .withSchedule(cronSchedule)
                 .startAt(job.getStartDate() != null ? job.getStartDate().toDate() : now().toDate())
                 .endAt(DateUtil.toDate(job.getEndDate()))
                 .build();
 
-        Trigger existingTrigger;
-        try {
-            existingTrigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
-        } catch (SchedulerException e) {
-            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
-                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
-        }
-        if (existingTrigger != null) {
-            unscheduleJob(jobId.value());
-        }
-
         DateTime now = now();
 
         if (job.isIgnorePastFiresAtStart() && (job.getStartDate() == null || job.getStartDate().isBefore(now))) {
@@ -576,8 +742,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 newStartTime = now.toDate();
             }
 
-            trigger = newTrigger()
-                    .withIdentity(triggerKey(jobId.value(), JOB_GROUP_NAME))
+            trigger = newJobTrigger(jobId)
                     .forJob(jobDetail)
                     .withSchedule(cronSchedule)
                     .startAt(newStartTime)
@@ -585,10 +750,26 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                     .build();
         }
 
-        scheduleJob(jobDetail, trigger, update);
+        return new JobAndTrigger(jobDetail, trigger);
     }
 
     private void scheduleRepeatingJob(RepeatingSchedulableJob job, boolean update) {
+        JobAndTrigger repeatingJob = buildRepeatingJob(job);
+        JobId jobId = new RepeatingJobId(job.getMotechEvent());
+
+        try {
+            if (scheduler.getTrigger(triggerKeyOf(jobId.value())) != null) {
+                unscheduleJob(jobId);
+            }
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
+                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
+        }
+
+        scheduleJob(repeatingJob.jobDetail, repeatingJob.trigger, update);
+    }
+
+    private JobAndTrigger buildRepeatingJob(RepeatingSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRepeatingSchedulableJob(job);
@@ -607,22 +788,13 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         JobId jobId = new RepeatingJobId(motechEvent);
         JobDetail jobDetail = newJob(MotechScheduledJob.class)
-                .withIdentity(jobKey(jobId.value(), JOB_GROUP_NAME))
+                .withIdentity(jobKeyOf(jobId.value()))
                 .build();
 
         putMotechEventDataToJobDataMap(jobDetail.getJobDataMap(), motechEvent);
 
         jobDetail.getJobDataMap().put(EVENT_METADATA, createMetadataForMisfireSchedulableJob(job, motechEvent));
 
-        try {
-            if (scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME)) != null) {
-                unscheduleJob(jobId);
-            }
-        } catch (SchedulerException e) {
-            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
-                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
-        }
-
         ScheduleBuilder scheduleBuilder;
         if (!job.isUseOriginalFireTimeAfterMisfire()) {
             SimpleScheduleBuilder simpleSchedule = simpleSchedule()
@@ -644,7 +816,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         Trigger trigger = buildJobDetail(job, DateUtil.toDate(jobStartTime),
                 DateUtil.toDate(jobEndTime), jobId, jobDetail, scheduleBuilder);
-        scheduleJob(jobDetail, trigger, update);
+        return new JobAndTrigger(jobDetail, trigger);
     }
 
     private Map<String, Object> createMetadataForMisfireSchedulableJob(MisfireSchedulableJob job, MotechEvent event) {
@@ -659,6 +831,11 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     private void scheduleRepeatingPeriodJob(RepeatingPeriodSchedulableJob job, boolean update) {
+        JobAndTrigger periodJob = buildRepeatingPeriodJob(job);
+        scheduleJob(periodJob.jobDetail, periodJob.trigger, update);
+    }
+
+    private JobAndTrigger buildRepeatingPeriodJob(RepeatingPeriodSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRepeatingPeriodSchedulableJob(job);
@@ -667,7 +844,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         JobId jobId = new RepeatingPeriodJobId(motechEvent);
         JobDetail jobDetail = newJob(MotechScheduledJob.class)
-                .withIdentity(jobKey(jobId.value(), JOB_GROUP_NAME))
+                .withIdentity(jobKeyOf(jobId.value()))
                 .build();
 
         putMotechEventDataToJobDataMap(jobDetail.getJobDataMap(), motechEvent);
@@ -680,10 +857,15 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         Trigger trigger = buildJobDetail(job, DateUtil.toDate(job.getStartDate()),
                 DateUtil.toDate(job.getEndDate()), jobId, jobDetail, scheduleBuilder);
-        scheduleJob(jobDetail, trigger, update);
+        return new JobAndTrigger(jobDetail, trigger);
     }
 
     private void scheduleRunOnceJob(RunOnceSchedulableJob job, boolean update) {
+        JobAndTrigger runOnceJob = buildRunOnceJob(job);
+        scheduleJob(runOnceJob.jobDetail, runOnceJob.trigger, update);
+    }
+
+    private JobAndTrigger buildRunOnceJob(RunOnceSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRunOnceSchedulableJob(job);
@@ -692,7 +874,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         JobId jobId = new RunOnceJobId(motechEvent);
         JobDetail jobDetail = newJob(MotechScheduledJob.class)
-                .withIdentity(jobId.value(), JOB_GROUP_NAME)
+                .withIdentity(jobKeyOf(jobId.value()))
                 .build();
 
         putMotechEventDataToJobDataMap(jobDetail.getJobDataMap(), motechEvent);
@@ -706,17 +888,20 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 .withIntervalInSeconds(0)
                 .withMisfireHandlingInstructionFireNow();
 
-        Trigger trigger = newTrigger()
-                .withIdentity(triggerKey(jobId.value(), JOB_GROUP_NAME))
+        Trigger trigger = newJobTrigger(jobId)
                 .forJob(jobDetail)
                 .withSchedule(simpleSchedule)
                 .startAt(DateUtil.toDate(job.getStartDate()))
                 .build();
 
-        scheduleJob(jobDetail, trigger, update);
+        return new JobAndTrigger(jobDetail, trigger);
     }
 
     private void scheduleDayOfWeekJob(DayOfWeekSchedulableJob job, boolean update) {
+        scheduleCronJob(toCronSchedulableJob(job), true, update);
+    }
+
+    private CronSchedulableJob toCronSchedulableJob(DayOfWeekSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateDayOfWeekSchedulableJob(job);
@@ -729,10 +914,8 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                         .toArray(new Integer[job.getCronDays().size()]));
 
         CronTriggerImpl cronTrigger = (CronTriggerImpl) cronScheduleBuilder.build();
-        CronSchedulableJob cronSchedulableJob = new CronSchedulableJob(motechEvent, cronTrigger.getCronExpression(),
+        return new CronSchedulableJob(motechEvent, cronTrigger.getCronExpression(),
                 job.getStartDate(), job.getEndDate(), job.isIgnorePastFiresAtStart(), job.isUiDefined());
-
-        scheduleCronJob(cronSchedulableJob, true, update);
     }
 
     private void scheduleJob(SchedulableJob job, boolean update) {
@@ -749,6 +932,23 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
     }
 
+    private JobAndTrigger buildJob(SchedulableJob job) {
+        assertArgumentNotNull("SchedulableJob", job);
+
+        if (job instanceof CronSchedulableJob) {
+            return buildCronJob((CronSchedulableJob) job, false);
+        } else if (job instanceof DayOfWeekSchedulableJob) {
+            return buildCronJob(toCronSchedulableJob((DayOfWeekSchedulableJob) job), true);
+        } else if (job instanceof RepeatingSchedulableJob) {
+            return buildRepeatingJob((RepeatingSchedulableJob) job);
+        } else if (job instanceof RepeatingPeriodSchedulableJob) {
+            return buildRepeatingPeriodJob((RepeatingPeriodSchedulableJob) job);
+        } else if (job instanceof RunOnceSchedulableJob) {
+            return buildRunOnceJob((RunOnceSchedulableJob) job);
+        }
+        throw new IllegalArgumentException(format("Unsupported job type: %s", job.getClass().getName()));
+    }
+
     private void scheduleJob(JobDetail jobDetail, Trigger trigger) {
         scheduleJob(jobDetail, trigger, false);
     }
@@ -774,25 +974,65 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
         try {
             assertArgumentNotNull("ScheduledJobID", jobId);
-            scheduler.unscheduleJob(triggerKey(jobId, JOB_GROUP_NAME));
+            scheduler.unscheduleJob(triggerKeyOf(jobId));
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not unschedule the job: %s %s",
                     jobId, e.getMessage()), e);
         }
     }
 
-    private void safeUnscheduleJob(String jobId) {
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(jobId);
+    /**
+     * Unschedules the jobs whose IDs start with the given prefix, a page of jobs at a time. Each page is unscheduled
+     * in a single transaction.
+     */
+    private void unscheduleJobsWithPrefix(String jobIdPrefix) throws SchedulerException, SQLException {
+        if (StringUtils.isEmpty(jobIdPrefix)) {
+            return;
         }
-        try {
-            assertArgumentNotNull("ScheduledJobID", jobId);
-            scheduler.unscheduleJob(triggerKey(jobId, JOB_GROUP_NAME));
-        } catch (SchedulerException e) {
-            LOGGER.error("Unable to unschedule job with ID {}", jobId, e);
+
+        for (String group : getGroupsOfPrefix(jobIdPrefix)) {
+            unscheduleJobsWithPrefix(group, jobIdPrefix);
         }
     }
 
+    private void unscheduleJobsWithPrefix(String group, String jobIdPrefix) throws SchedulerException, SQLException {
+        String after = null;
+        List<TriggerKey> triggerKeys;
+        do {
+            triggerKeys = triggerKeyQuery.findByNamePrefix(group, jobIdPrefix, after, TRIGGER_PAGE_SIZE);
+            if (!triggerKeys.isEmpty()) {
+                scheduler.unscheduleJobs(triggerKeys);
+                after = triggerKeys.get(triggerKeys.size() - 1).getName();
+            }
+        } while (triggerKeys.size() == TRIGGER_PAGE_SIZE);
+    }
+
+    /*
+     * Jobs with IDs starting with a prefix are usually kept in a single group, otherwise every group is searched
+     */
+    private List<String> getGroupsOfPrefix(String jobIdPrefix) throws SchedulerException {
+        String group = jobGroupResolver.getGroupOfPrefix(jobIdPrefix);
+        return group != null ? Collections.singletonList(group) : scheduler.getTriggerGroupNames();
+    }
+
+    private TriggerKey triggerKeyOf(String jobId) {
+        return triggerKey(jobId, jobGroupResolver.getGroup(jobId));
+    }
+
+    private JobKey jobKeyOf(String jobId) {
+        return jobKey(jobId, jobGroupResolver.getGroup(jobId));
+    }
+
+    /*
+     * The triggers of a group are given its priority, so that the triggers of critical groups are fired first
+     */
+    private TriggerBuilder<Trigger> newJobTrigger(JobId jobId) {
+        TriggerKey key = triggerKeyOf(jobId.value());
+        return newTrigger()
+                .withIdentity(key)
+                .withPriority(jobGroupResolver.getPriority(key.getGroup()));
+    }
+
     private void validateJob(JobKey key) throws SchedulerException {
         JobDetail detail = scheduler.getJobDetail(key);
 
@@ -839,8 +1079,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
     private Trigger buildJobDetail(SchedulableJob schedulableJob, Date jobStartTime, Date jobEndTime,
                                    JobId jobId, JobDetail jobDetail, ScheduleBuilder scheduleBuilder) {
-        Trigger trigger = newTrigger()
-                .withIdentity(triggerKey(jobId.value(), JOB_GROUP_NAME))
+        Trigger trigger = newJobTrigger(jobId)
                 .forJob(jobDetail)
                 .withSchedule(scheduleBuilder)
                 .startAt(jobStartTime)
@@ -858,8 +1097,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                             .withRepeatCount(((RepeatingSchedulableJob) schedulableJob).getRepeatCount() - pastTriggers.size());
                 }
                 Date newStartTime = getFirstTriggerInFuture(trigger, now);
-                trigger = newTrigger()
-                        .withIdentity(triggerKey(jobId.value(), JOB_GROUP_NAME))
+                trigger = newJobTrigger(jobId)
                         .forJob(jobDetail)
                         .withSchedule(scheduleBuilder)
                         .startAt(newStartTime)
@@ -919,14 +1157,6 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         jobDataMap.put(EVENT_TYPE_KEY_NAME, motechEvent.getSubject());
     }
 
-    private List<String> extractTriggerNames(List<TriggerKey> triggerKeys) {
-        List<String> names = new ArrayList<>();
-        for (TriggerKey key : triggerKeys) {
-            names.add(key.getName());
-        }
-        return names;
-    }
-
     private void constructMisfirePoliciesMaps() {
         cronTriggerMisfirePolicies = new HashMap<>();
         cronTriggerMisfirePolicies.put("do_nothing", CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING);
@@ -941,4 +1171,17 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         simpleTriggerMisfirePolicies.put("reschedule_now_with_existing_count", SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_EXISTING_REPEAT_COUNT);
         simpleTriggerMisfirePolicies.put("reschedule_now_with_remaining_count", SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT);
     }
+
+    /**
+     * A job built from a schedulable job, together with its trigger.
+     */
+    private static final class JobAndTrigger {
+        private final JobDetail jobDetail;
+        private final Trigger trigger;
+
+        private JobAndTrigger(JobDetail jobDetail, Trigger trigger) {
+            this.jobDetail = jobDetail;
+            this.trigger = trigger;
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.scheduler.contract.SchedulerMetrics;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.listener.SchedulerMetricsListener;
+import org.motechproject.scheduler.service.MotechSchedulerService;
+import org.motechproject.scheduler.service.SchedulerMetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the metrics of the scheduler, gathered by the {@link SchedulerMetricsListener}, as an MXBean.
+ */
+@Service("schedulerMetricsService")
+public class SchedulerMetricsServiceImpl implements SchedulerMetricsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerMetricsServiceImpl.class);
+
+    private MotechSchedulerService schedulerService;
+
+    private SchedulerMetricsListener metricsListener;
+
+    @Autowired
+    public SchedulerMetricsServiceImpl(MotechSchedulerService schedulerService,
+                                       MotechSchedulerFactoryBean motechSchedulerFactoryBean) {
+        this.schedulerService = schedulerService;
+        this.metricsListener = motechSchedulerFactoryBean.getMetricsListener();
+    }
+
+    @Override
+    public SchedulerMetrics getSchedulerMetrics() {
+        return schedulerService.getSchedulerMetrics();
+    }
+
+    @Override
+    public void reset() {
+        metricsListener.reset();
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            // a previous instance of the bundle might not have been cleaned up
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register scheduler metrics MBean", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister scheduler metrics MBean", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.sql.util.Drivers;
+import org.quartz.TriggerKey;
+import org.quartz.utils.DBConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Looks up trigger keys directly in the Quartz tables. Quartz can only list all trigger keys of a group, which means
+ * loading millions of keys in order to find the few that start with a given prefix. The query used here runs against
+ * an index on the trigger group and name, and returns the keys in pages. Triggers are also counted here, by group,
+ * without loading their keys.
+ */
+@Component
+public class TriggerKeyQuery {
+
+    private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
+    private static final String TABLE_PREFIX = "org.quartz.jobStore.tablePrefix";
+    private static final String SCHEDULER_NAME = "org.quartz.scheduler.instanceName";
+    private static final String DRIVER = "org.quartz.dataSource.motechDS.driver";
+    private static final String TRIGGERS = "TRIGGERS";
+    static final char LIKE_ESCAPE = '!';
+
+    private Properties sqlProperties;
+
+    @Autowired
+    public TriggerKeyQuery(@Qualifier("sqlProperties") Properties sqlProperties) {
+        this.sqlProperties = sqlProperties;
+    }
+
+    /**
+     * Returns the keys of triggers from the given group, whose names start with the given prefix. The keys are ordered
+     * by the trigger name, the next page of keys can be retrieved by passing the name of the last returned trigger.
+     *
+     * @param group the group of the triggers
+     * @param prefix the prefix of the trigger names
+     * @param after the name after which the returned names start, null to start from the first one
+     * @param limit the maximum number of keys returned
+     * @return the keys of matching triggers
+     * @throws SQLException if the query fails
+     */
+    public List<TriggerKey> findByNamePrefix(String group, String prefix, String after, int limit) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT TRIGGER_NAME FROM ")
+                .append(getTableName(TRIGGERS))
+                .append(" WHERE SCHED_NAME = ? AND TRIGGER_GROUP = ? AND TRIGGER_NAME LIKE ? ESCAPE '")
+                .append(LIKE_ESCAPE).append('\'');
+        if (after != null) {
+            query.append(" AND TRIGGER_NAME > ?");
+        }
+        query.append(" ORDER BY TRIGGER_NAME LIMIT ").append(limit);
+
+        List<TriggerKey> keys = new ArrayList<>();
+
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+                PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            stmt.setString(1, sqlProperties.getProperty(SCHEDULER_NAME));
+            stmt.setString(2, group);
+            stmt.setString(3, escapeLike(prefix) + '%');
+            if (after != null) {
+                stmt.setString(4, after);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(new TriggerKey(rs.getString(1), group));
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Returns the number of triggers in the given group.
+     *
+     * @param group the group of the triggers
+     * @return the number of triggers
+     * @throws SQLException if the query fails
+     */
+    public int countInGroup(String group) throws SQLException {
+        String query = "SELECT COUNT(*) FROM " + getTableName(TRIGGERS) + " WHERE SCHED_NAME = ? AND TRIGGER_GROUP = ?";
+
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, sqlProperties.getProperty(SCHEDULER_NAME));
+            stmt.setString(2, group);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of triggers in each group.
+     *
+     * @return the numbers of triggers by the name of their group, ordered by the name
+     * @throws SQLException if the query fails
+     */
+    public Map<String, Integer> countByGroup() throws SQLException {
+        String query = "SELECT TRIGGER_GROUP, COUNT(*) FROM " + getTableName(TRIGGERS) +
+                " WHERE SCHED_NAME = ? GROUP BY TRIGGER_GROUP ORDER BY TRIGGER_GROUP";
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+                PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, sqlProperties.getProperty(SCHEDULER_NAME));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    private String getTableName(String table) {
+        String name = sqlProperties.getProperty(TABLE_PREFIX) + table;
+        return Drivers.MYSQL_DRIVER.equals(sqlProperties.getProperty(DRIVER)) ? name : "\"" + name.toLowerCase() + "\"";
+    }
+
+    static String escapeLike(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                sb.append(LIKE_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
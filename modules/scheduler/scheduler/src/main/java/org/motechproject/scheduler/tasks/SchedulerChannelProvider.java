@@ -4,6 +4,7 @@ import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.motechproject.commons.sql.util.Drivers;
 import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
 import org.motechproject.tasks.service.DynamicChannelProvider;
 import org.motechproject.tasks.domain.mds.channel.EventParameter;
 import org.motechproject.scheduler.service.MotechSchedulerService;
@@ -13,10 +14,7 @@ import org.motechproject.tasks.exception.TriggerRetrievalException;
 import org.quartz.JobDataMap;
 import org.quartz.utils.DBConnectionManager;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -53,21 +51,18 @@ public class SchedulerChannelProvider implements DynamicChannelProvider {
 
             List<TriggerEvent> triggers = new ArrayList<>();
             while (rs.next()) {
-                try (InputStream is = new ByteArrayInputStream(rs.getBytes(JOB_DATA));
-                     ObjectInputStream ois = new ObjectInputStream(is)) {
-                    JobDataMap dataMap = (JobDataMap) ois.readObject();
-
-                    List<EventParameter> parameters = new ArrayList<>();
-                    parameters.add(new EventParameter("scheduler.jobId", MotechSchedulerService.JOB_ID_KEY));
-
-                    triggers.add(new TriggerEvent(
-                            "Job: " + rs.getString(JOB_NAME),
-                            rs.getString(JOB_NAME),
-                            rs.getString(JOB_DESCRIPTION),
-                            parameters,
-                            dataMap.getString(SchedulerConstants.EVENT_TYPE_KEY_NAME)
-                    ));
-                }
+                JobDataMap dataMap = (JobDataMap) CompactJobDataSerializer.deserialize(rs.getBytes(JOB_DATA));
+
+                List<EventParameter> parameters = new ArrayList<>();
+                parameters.add(new EventParameter("scheduler.jobId", MotechSchedulerService.JOB_ID_KEY));
+
+                triggers.add(new TriggerEvent(
+                        "Job: " + rs.getString(JOB_NAME),
+                        rs.getString(JOB_NAME),
+                        rs.getString(JOB_DESCRIPTION),
+                        parameters,
+                        dataMap.getString(SchedulerConstants.EVENT_TYPE_KEY_NAME)
+                ));
             }
 
             return triggers;
@@ -84,21 +79,18 @@ public class SchedulerChannelProvider implements DynamicChannelProvider {
             ResultSet rs = stmt.executeQuery(buildGetTriggerQuery(info.getSubject()));
 
             if (rs.next()) {
-                try (InputStream is = new ByteArrayInputStream(rs.getBytes(JOB_DATA));
-                     ObjectInputStream ois = new ObjectInputStream(is)) {
-                    JobDataMap dataMap = (JobDataMap) ois.readObject();
-
-                    List<EventParameter> parameters = new ArrayList<>();
-                    parameters.add(new EventParameter("scheduler.jobId", MotechSchedulerService.JOB_ID_KEY));
-
-                    return new TriggerEvent(
-                            "Job: " + rs.getString(JOB_NAME),
-                            rs.getString(JOB_NAME),
-                            rs.getString(JOB_DESCRIPTION),
-                            parameters,
-                            dataMap.getString(SchedulerConstants.EVENT_TYPE_KEY_NAME)
-                    );
-                }
+                JobDataMap dataMap = (JobDataMap) CompactJobDataSerializer.deserialize(rs.getBytes(JOB_DATA));
+
+                List<EventParameter> parameters = new ArrayList<>();
+                parameters.add(new EventParameter("scheduler.jobId", MotechSchedulerService.JOB_ID_KEY));
+
+                return new TriggerEvent(
+                        "Job: " + rs.getString(JOB_NAME),
+                        rs.getString(JOB_NAME),
+                        rs.getString(JOB_DESCRIPTION),
+                        parameters,
+                        dataMap.getString(SchedulerConstants.EVENT_TYPE_KEY_NAME)
+                );
             }
 
             return null;
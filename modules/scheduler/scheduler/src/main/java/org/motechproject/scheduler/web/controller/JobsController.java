@@ -3,8 +3,10 @@ package org.motechproject.scheduler.web.controller;
 import org.motechproject.scheduler.constants.SchedulerConstants;
 import org.motechproject.scheduler.contract.JobBasicInfo;
 import org.motechproject.scheduler.contract.JobDetailedInfo;
+import org.motechproject.scheduler.contract.JobGroupInfo;
 import org.motechproject.scheduler.contract.JobsSearchSettings;
 import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.contract.SchedulerMetrics;
 import org.motechproject.scheduler.exception.MotechSchedulerException;
 import org.motechproject.scheduler.service.MotechSchedulerDatabaseService;
 import org.motechproject.scheduler.service.MotechSchedulerService;
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
@@ -155,6 +158,62 @@ public class JobsController {
         return motechSchedulerService.getJob(jobInfo);
     }
 
+    /**
+     * Returns the groups in which jobs are kept, along with the number of jobs in each of them.
+     *
+     * @return the job groups
+     */
+    @RequestMapping(value = "/jobs/groups", method = RequestMethod.GET)
+    @ResponseBody
+    public List<JobGroupInfo> getJobGroups() {
+        return motechSchedulerService.getJobGroups();
+    }
+
+    /**
+     * Pauses all jobs of the given group.
+     *
+     * @param group  the name of the group
+     */
+    @RequestMapping(value = "/jobs/groups/pause", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void pauseJobGroup(@RequestParam String group) {
+        motechSchedulerService.pauseJobGroup(group);
+    }
+
+    /**
+     * Resumes all jobs of the given group.
+     *
+     * @param group  the name of the group
+     */
+    @RequestMapping(value = "/jobs/groups/resume", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void resumeJobGroup(@RequestParam String group) {
+        motechSchedulerService.resumeJobGroup(group);
+    }
+
+    /**
+     * Unschedules all jobs of the given group.
+     *
+     * @param group  the name of the group
+     */
+    @RequestMapping(value = "/jobs/groups/delete", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void deleteJobGroup(@RequestParam String group) {
+        motechSchedulerService.unscheduleJobGroup(group);
+    }
+
+    /**
+     * Returns the metrics of the scheduler running on this node, such as the fire lag, execution duration and misfires
+     * of jobs within the last few minutes, in aggregate and per subject.
+     *
+     * @return the scheduler metrics
+     */
+    @RequestMapping(value = "/jobs/metrics", method = RequestMethod.GET)
+    @ResponseBody
+    public SchedulerMetrics getSchedulerMetrics() {
+        return motechSchedulerService.getSchedulerMetrics();
+    }
+
     @ExceptionHandler(MotechSchedulerException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
@@ -0,0 +1,2 @@
+-- index for looking up triggers of a group by the prefix of their name, LIKE 'prefix%' can only use it with pattern ops --
+create index idx_qrtz_t_g_name_prefix on qrtz_triggers(SCHED_NAME,TRIGGER_GROUP,TRIGGER_NAME varchar_pattern_ops);
@@ -0,0 +1,2 @@
+-- index for sorting and filtering the jobs listed in the scheduler UI by their start time --
+create index idx_qrtz_t_start_time on qrtz_triggers(START_TIME);
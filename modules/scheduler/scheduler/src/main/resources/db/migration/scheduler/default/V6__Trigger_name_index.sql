@@ -0,0 +1,3 @@
+-- index for paging through the triggers of a group ordered by their name, the pattern ops index can not be used --
+-- for comparing and sorting the names in the default collation --
+create index idx_qrtz_t_g_name on qrtz_triggers(SCHED_NAME,TRIGGER_GROUP,TRIGGER_NAME);
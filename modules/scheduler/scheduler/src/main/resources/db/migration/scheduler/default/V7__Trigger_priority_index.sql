@@ -0,0 +1,2 @@
+-- index for acquiring the due triggers of a priority ordered by their fire time, used if job groups have priorities --
+create index idx_qrtz_t_st_prio_nft on qrtz_triggers(SCHED_NAME,TRIGGER_STATE,PRIORITY,NEXT_FIRE_TIME);
@@ -0,0 +1,6 @@
+-- column telling whether a job was defined through the scheduler UI, so that the jobs UI does not read the job data --
+-- jobs scheduled before have no value, the flag is read from their job data --
+alter table qrtz_job_details add column UI_DEFINED boolean;
+alter table qrtz_job_details alter column UI_DEFINED set default false;
+-- the flag was kept in the description of the job before --
+update qrtz_job_details set UI_DEFINED = (DESCRIPTION = 'uiDefined'), DESCRIPTION = null where DESCRIPTION in ('uiDefined', 'apiDefined');
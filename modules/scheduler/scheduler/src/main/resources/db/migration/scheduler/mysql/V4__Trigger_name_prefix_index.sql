@@ -0,0 +1,4 @@
+--
+-- Index for looking up triggers of a group by the prefix of their name
+--
+CREATE INDEX IDX_QRTZ_T_G_NAME_PREFIX ON QRTZ_TRIGGERS(SCHED_NAME,TRIGGER_GROUP,TRIGGER_NAME);
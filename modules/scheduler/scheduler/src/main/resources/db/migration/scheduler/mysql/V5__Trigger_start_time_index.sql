@@ -0,0 +1,4 @@
+--
+-- Index for sorting and filtering the jobs listed in the scheduler UI by their start time
+--
+CREATE INDEX IDX_QRTZ_T_START_TIME ON QRTZ_TRIGGERS(START_TIME);
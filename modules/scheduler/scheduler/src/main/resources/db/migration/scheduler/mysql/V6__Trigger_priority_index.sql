@@ -0,0 +1,4 @@
+--
+-- Index for acquiring the due triggers of a priority ordered by their fire time, used if job groups have priorities
+--
+CREATE INDEX IDX_QRTZ_T_ST_PRIO_NFT ON QRTZ_TRIGGERS(SCHED_NAME,TRIGGER_STATE,PRIORITY,NEXT_FIRE_TIME);
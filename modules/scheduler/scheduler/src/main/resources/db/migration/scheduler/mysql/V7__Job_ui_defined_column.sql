@@ -0,0 +1,11 @@
+--
+-- Column telling whether a job was defined through the scheduler UI, so that the jobs UI does not read the job data.
+-- Jobs scheduled before have no value, the flag is read from their job data.
+--
+ALTER TABLE QRTZ_JOB_DETAILS ADD COLUMN UI_DEFINED BOOLEAN NULL;
+ALTER TABLE QRTZ_JOB_DETAILS ALTER COLUMN UI_DEFINED SET DEFAULT FALSE;
+
+--
+-- The flag was kept in the description of the job before
+--
+UPDATE QRTZ_JOB_DETAILS SET UI_DEFINED = (DESCRIPTION = 'uiDefined'), DESCRIPTION = NULL WHERE DESCRIPTION IN ('uiDefined', 'apiDefined');
@@ -0,0 +1,114 @@
+package org.motechproject.scheduler;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
+import org.quartz.JobDataMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the size of the job data of a typical MOTECH job, and the time it takes to write and read it, when stored
+ * with Java serialization and in the compact form. The number of iterations is set with the
+ * <code>scheduler.assessment.iterations</code> system property, one hundred thousand by default.
+ */
+public class JobDataStoragePerformanceAssessment {
+
+    private static final int ITERATIONS = Integer.getInteger("scheduler.assessment.iterations", 100000);
+
+    @Test
+    public void comparingJobDataStorageForms() throws Exception {
+        JobDataMap jobDataMap = createJobDataMap();
+
+        byte[] serialized = javaSerialize(jobDataMap);
+        byte[] compact = CompactJobDataSerializer.serialize(jobDataMap).toByteArray();
+        assertEquals(jobDataMap, javaDeserialize(serialized));
+        assertEquals(jobDataMap, CompactJobDataSerializer.deserialize(compact));
+
+        System.out.println(format("Size of job data: Java serialization %d bytes, compact %d bytes",
+                serialized.length, compact.length));
+
+        // warm up, so that both forms are measured on compiled code
+        measure(jobDataMap, serialized, compact);
+
+        long[] times = measure(jobDataMap, serialized, compact);
+        System.out.println(format("Time to write job data %d times: Java serialization %dms, compact %dms",
+                ITERATIONS, times[0], times[1]));
+        System.out.println(format("Time to read job data %d times: Java serialization %dms, compact %dms",
+                ITERATIONS, times[2], times[3]));
+    }
+
+    private long[] measure(JobDataMap jobDataMap, byte[] serialized, byte[] compact) throws Exception {
+        long[] times = new long[4];
+
+        NanoStopWatch stopWatch = new NanoStopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            javaSerialize(jobDataMap);
+        }
+        times[0] = TimeUnit.NANOSECONDS.toMillis(stopWatch.duration());
+
+        stopWatch = new NanoStopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CompactJobDataSerializer.serialize(jobDataMap);
+        }
+        times[1] = TimeUnit.NANOSECONDS.toMillis(stopWatch.duration());
+
+        stopWatch = new NanoStopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            javaDeserialize(serialized);
+        }
+        times[2] = TimeUnit.NANOSECONDS.toMillis(stopWatch.duration());
+
+        stopWatch = new NanoStopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CompactJobDataSerializer.deserialize(compact);
+        }
+        times[3] = TimeUnit.NANOSECONDS.toMillis(stopWatch.duration());
+
+        return times;
+    }
+
+    private JobDataMap createJobDataMap() {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(SchedulerConstants.UI_DEFINED, false);
+        metadata.put(SchedulerConstants.IGNORE_PAST_FIRES_AT_START, true);
+        metadata.put(SchedulerConstants.USE_ORIGINAL_FIRE_TIME_AFTER_MISFIRE, false);
+
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(SchedulerConstants.EVENT_TYPE_KEY_NAME, "org.motechproject.messagecampaign.fired-campaign-message");
+        jobDataMap.put("JobID", "campaign-enrollment-4f9a1c2e-message-key-week-1");
+        jobDataMap.put("CampaignName", "Pregnancy campaign");
+        jobDataMap.put("MessageKey", "week-1");
+        jobDataMap.put("ExternalID", "patient-123456");
+        jobDataMap.put("dayOffset", 7);
+        jobDataMap.put("createdAt", new DateTime(2014, 6, 20, 10, 0).getMillis());
+        jobDataMap.put(SchedulerConstants.EVENT_METADATA, metadata);
+        return jobDataMap;
+    }
+
+    private byte[] javaSerialize(Object object) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(object);
+        }
+        return baos.toByteArray();
+    }
+
+    private Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
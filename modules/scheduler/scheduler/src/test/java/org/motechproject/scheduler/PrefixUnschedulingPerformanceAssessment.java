@@ -0,0 +1,91 @@
+package org.motechproject.scheduler;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.scheduler.contract.CronSchedulableJob;
+import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.service.MotechSchedulerService;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.motechproject.commons.date.util.DateUtil.now;
+
+/**
+ * Measures unscheduling jobs by prefix among a large number of triggers. The number of triggers is set with the
+ * <code>scheduler.assessment.triggers</code> system property, one million by default.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"/performanceTestSchedulerApplicationContext.xml"})
+public class PrefixUnschedulingPerformanceAssessment {
+
+    private static final int TRIGGERS = Integer.getInteger("scheduler.assessment.triggers", 1000000);
+    private static final int MATCHING_TRIGGERS = 1000;
+    private static final int BATCH_SIZE = 10000;
+
+    @Autowired
+    private MotechSchedulerService schedulerService;
+
+    @Autowired
+    private MotechSchedulerFactoryBean schedulerFactoryBean;
+
+    @After
+    public void tearDown() throws SchedulerException {
+        schedulerFactoryBean.getQuartzScheduler().clear();
+    }
+
+    @Test
+    public void unschedulingJobsWithPrefix() throws SchedulerException {
+        DateTime startTime = now().plusDays(1);
+
+        NanoStopWatch timeToSchedule = new NanoStopWatch().start();
+        scheduleJobs("other_event", TRIGGERS - MATCHING_TRIGGERS, startTime);
+        scheduleJobs("prefixed_event", MATCHING_TRIGGERS, startTime);
+        System.out.println(format("Time to schedule %d jobs: %dms", TRIGGERS,
+                TimeUnit.NANOSECONDS.toMillis(timeToSchedule.duration())));
+
+        NanoStopWatch timeToFindTimings = new NanoStopWatch().start();
+        int timings = schedulerService.getScheduledJobTimingsWithPrefix("prefixed_event", "job_", startTime,
+                startTime.plusDays(1)).size();
+        System.out.println(format("Time to find timings of %d jobs with prefix: %dms", MATCHING_TRIGGERS,
+                TimeUnit.NANOSECONDS.toMillis(timeToFindTimings.duration())));
+        assertEquals(MATCHING_TRIGGERS, timings);
+
+        NanoStopWatch timeToUnschedule = new NanoStopWatch().start();
+        schedulerService.unscheduleAllJobs("prefixed_event-");
+        System.out.println(format("Time to unschedule %d out of %d jobs with prefix: %dms", MATCHING_TRIGGERS,
+                TRIGGERS, TimeUnit.NANOSECONDS.toMillis(timeToUnschedule.duration())));
+
+        assertEquals(TRIGGERS - MATCHING_TRIGGERS, schedulerFactoryBean.getQuartzScheduler()
+                .getTriggerKeys(GroupMatcher.triggerGroupEquals("default")).size());
+    }
+
+    private void scheduleJobs(String subject, int count, DateTime startTime) {
+        List<SchedulableJob> jobs = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> params = new HashMap<>();
+            params.put(MotechSchedulerService.JOB_ID_KEY, "job_" + i);
+            jobs.add(new CronSchedulableJob(new MotechEvent(subject, params), "0 0 12 * * ?", startTime, null));
+
+            if (jobs.size() == BATCH_SIZE || i == count - 1) {
+                schedulerService.scheduleJobs(jobs);
+                jobs.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.motechproject.scheduler.factory;
+
+import org.junit.Test;
+import org.motechproject.scheduler.jobstore.CompactJobDataPostgreSQLDelegate;
+import org.motechproject.scheduler.jobstore.CompactJobDataStdJDBCDelegate;
+import org.motechproject.scheduler.jobstore.MotechJobStoreTX;
+import org.motechproject.scheduler.jobstore.PriorityAcquisitionStdJDBCDelegate;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MotechSchedulerFactoryBeanTest {
+
+    @Test
+    public void shouldAcquireTriggersWithinLockWhenAcquiringInBatches() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "20");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals("true", quartzProperties.getProperty("org.quartz.jobStore.acquireTriggersWithinLock"));
+        assertNull(properties.getProperty("org.quartz.jobStore.acquireTriggersWithinLock"));
+    }
+
+    @Test
+    public void shouldNotOverrideConfiguredAcquisitionLock() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "20");
+        properties.setProperty("org.quartz.jobStore.acquireTriggersWithinLock", "false");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals("false", quartzProperties.getProperty("org.quartz.jobStore.acquireTriggersWithinLock"));
+    }
+
+    @Test
+    public void shouldGrowConnectionPoolToMatchThreadPool() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.threadPool.threadCount", "50");
+        properties.setProperty("org.quartz.dataSource.motechDS.maxConnections", "30");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals("52", quartzProperties.getProperty("org.quartz.dataSource.motechDS.maxConnections"));
+        assertNull(quartzProperties.getProperty("org.quartz.jobStore.acquireTriggersWithinLock"));
+    }
+
+    @Test
+    public void shouldReplaceStandardDelegateWithOneReadingCompactJobData() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+        properties.setProperty("org.quartz.jobStore.driverDelegateInitString", "triggerPersistenceDelegateClasses=Delegate");
+        properties.setProperty("scheduler.jobData.compact", "true");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals(CompactJobDataPostgreSQLDelegate.class.getName(),
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateClass"));
+        assertEquals("triggerPersistenceDelegateClasses=Delegate|compactJobData=true",
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateInitString"));
+    }
+
+    @Test
+    public void shouldAcquireTriggersByPriorityOnlyWhenPrioritiesAreConfigured() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.StdJDBCDelegate");
+        properties.setProperty("scheduler.jobGroups.priorities", "critical=10, bulk=1");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals(PriorityAcquisitionStdJDBCDelegate.class.getName(),
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateClass"));
+        assertEquals("compactJobData=false|triggerPriorities=1,5,10",
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateInitString"));
+
+        properties.setProperty("scheduler.jobGroups.priorities", "");
+        quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals(CompactJobDataStdJDBCDelegate.class.getName(),
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateClass"));
+        assertEquals("compactJobData=false", quartzProperties.getProperty("org.quartz.jobStore.driverDelegateInitString"));
+    }
+
+    @Test
+    public void shouldNotReplaceOtherDelegates() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.HSQLDBDelegate");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals("org.quartz.impl.jdbcjobstore.HSQLDBDelegate",
+                quartzProperties.getProperty("org.quartz.jobStore.driverDelegateClass"));
+        assertNull(quartzProperties.getProperty("org.quartz.jobStore.driverDelegateInitString"));
+    }
+
+    @Test
+    public void shouldReplaceJobStoreWithOneReportingAcquiredTriggers() {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+
+        Properties quartzProperties = MotechSchedulerFactoryBean.prepareQuartzProperties(properties);
+
+        assertEquals(MotechJobStoreTX.class.getName(), quartzProperties.getProperty("org.quartz.jobStore.class"));
+    }
+}
@@ -439,6 +439,29 @@ public class MotechSchedulerDatabaseServiceImplBundleIT extends BasePaxIT {
         }
     }
 
+    @Test
+    public void shouldPageJobsWhenNoFiltersSet() {
+        try {
+            fakeNow(newDateTime(CURRENT_YEAR + 1, 7, 13, 5, 0, 0));
+            addTestJobs();
+
+            JobsSearchSettings jobsSearchSettings = new JobsSearchSettings();
+            jobsSearchSettings.setPage(2);
+            jobsSearchSettings.setRows(4);
+            jobsSearchSettings.setSortColumn("name");
+            jobsSearchSettings.setSortDirection("asc");
+
+            List<JobBasicInfo> jobs = databaseService.getScheduledJobsBasicInfo(jobsSearchSettings);
+            assertNotNull(jobs);
+            assertEquals(2, jobs.size());
+            assertEquals("test_event_5-job_id5-runonce", jobs.get(0).getName());
+            assertEquals("test_event_6-job_id6-repeat", jobs.get(1).getName());
+            assertEquals(6, databaseService.countJobs(jobsSearchSettings));
+        } finally {
+            stopFakingTime();
+        }
+    }
+
     @Test
     public void shouldFilterJobsByName() {
         try {
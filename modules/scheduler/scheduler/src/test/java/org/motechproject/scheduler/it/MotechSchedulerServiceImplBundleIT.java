@@ -18,9 +18,13 @@ import org.motechproject.scheduler.contract.CronJobId;
 import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
 import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.JobId;
+import org.motechproject.scheduler.contract.RepeatingJobId;
 import org.motechproject.scheduler.contract.RepeatingPeriodSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
 import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
+import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.exception.BulkSchedulingException;
 import org.motechproject.scheduler.exception.MotechSchedulerException;
 import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
 import org.motechproject.scheduler.service.MotechSchedulerService;
@@ -49,6 +53,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 import static org.motechproject.commons.date.util.DateUtil.newDateTime;
 import static org.motechproject.commons.date.util.DateUtil.now;
 import static org.motechproject.testing.utils.IdGenerator.id;
@@ -610,6 +615,57 @@ public class MotechSchedulerServiceImplBundleIT extends BasePaxIT {
         assertNull(scheduler.getTrigger(triggerKey("test_event3-job_id", "default")));
     }
 
+    @Test
+    public void shouldScheduleAndUnscheduleJobsInBulk() throws SchedulerException {
+        List<SchedulableJob> jobs = new ArrayList<>();
+        List<JobId> jobIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> params = new HashMap<>();
+            params.put(MotechSchedulerService.JOB_ID_KEY, "job_id" + i);
+            MotechEvent event = new MotechEvent("test_event", params);
+
+            if (i % 2 == 0) {
+                jobs.add(new CronSchedulableJob(event, "0 0 12 * * ?"));
+                jobIds.add(new CronJobId(event));
+            } else {
+                jobs.add(new RepeatingSchedulableJob(event, 5, 3600, now().plusDays(1), null, false));
+                jobIds.add(new RepeatingJobId(event));
+            }
+        }
+
+        schedulerService.scheduleJobs(jobs);
+
+        for (JobId jobId : jobIds) {
+            assertNotNull(scheduler.getTrigger(triggerKey(jobId.value(), "default")));
+        }
+
+        schedulerService.unscheduleJobs(jobIds);
+
+        for (JobId jobId : jobIds) {
+            assertNull(scheduler.getTrigger(triggerKey(jobId.value(), "default")));
+        }
+    }
+
+    @Test
+    public void shouldNotScheduleAnyJobIfOneOfThemIsInvalid() throws SchedulerException {
+        Map<String, Object> params = new HashMap<>();
+        params.put(MotechSchedulerService.JOB_ID_KEY, "job_id");
+        Map<String, Object> otherParams = new HashMap<>();
+        otherParams.put(MotechSchedulerService.JOB_ID_KEY, "other_job_id");
+
+        try {
+            schedulerService.scheduleJobs(asList(
+                    new CronSchedulableJob(new MotechEvent("test_event", params), "0 0 12 * * ?"),
+                    new CronSchedulableJob(new MotechEvent("test_event", otherParams), "invalid cron expression")));
+            fail("Expected BulkSchedulingException");
+        } catch (BulkSchedulingException e) {
+            assertEquals(1, e.getErrors().size());
+            assertTrue(e.getErrors().containsKey(1));
+        }
+
+        assertNull(scheduler.getTrigger(triggerKey("test_event-job_id", "default")));
+    }
+
     @Test
     public void shouldPauseJobIfItIsUiDefined() throws Exception {
         Map<String, Object> params = new HashMap<>();
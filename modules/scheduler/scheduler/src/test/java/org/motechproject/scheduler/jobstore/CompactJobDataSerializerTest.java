@@ -0,0 +1,87 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.quartz.JobDataMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactJobDataSerializerTest {
+
+    @Test
+    public void shouldReadJobDataWrittenInCompactForm() throws Exception {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("uiDefined", true);
+        metadata.put("ignorePastFiresAtStart", false);
+
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("eventType", "test_event");
+        jobDataMap.put("JobID", "job_id");
+        jobDataMap.put("count", 3);
+        jobDataMap.put("total", 30L);
+        jobDataMap.put("ratio", 0.5);
+        jobDataMap.put("empty", null);
+        jobDataMap.put("date", new DateTime(2014, 6, 20, 10, 0));
+        jobDataMap.put("days", Arrays.asList(1, 2, 3));
+        jobDataMap.put("org.motechproject.scheduler.service.Job.metadata", metadata);
+
+        byte[] bytes = CompactJobDataSerializer.serialize(jobDataMap).toByteArray();
+
+        assertTrue(CompactJobDataSerializer.isCompact(bytes));
+        assertEquals(jobDataMap, CompactJobDataSerializer.deserialize(bytes));
+    }
+
+    @Test
+    public void shouldReadJobDataWrittenWithJavaSerialization() throws Exception {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("eventType", "test_event");
+        jobDataMap.put("count", 3);
+
+        byte[] bytes = javaSerialize(jobDataMap);
+
+        assertFalse(CompactJobDataSerializer.isCompact(bytes));
+        assertEquals(jobDataMap, CompactJobDataSerializer.deserialize(bytes));
+    }
+
+    @Test
+    public void shouldWriteJobDataInFewerBytesThanJavaSerialization() throws Exception {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("eventType", "test_event");
+        jobDataMap.put("JobID", "job_id");
+
+        assertTrue(CompactJobDataSerializer.serialize(jobDataMap).size() < javaSerialize(jobDataMap).length);
+    }
+
+    @Test
+    public void shouldReturnNullForEmptyBlob() throws Exception {
+        assertNull(CompactJobDataSerializer.deserialize(null));
+        assertNull(CompactJobDataSerializer.deserialize(new byte[0]));
+    }
+
+    @Test(expected = NotSerializableException.class)
+    public void shouldNotWriteValuesThatAreNotSerializable() throws Exception {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("value", new Object());
+
+        CompactJobDataSerializer.serialize(jobDataMap);
+    }
+
+    private byte[] javaSerialize(Object object) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(object);
+        }
+        return baos.toByteArray();
+    }
+}
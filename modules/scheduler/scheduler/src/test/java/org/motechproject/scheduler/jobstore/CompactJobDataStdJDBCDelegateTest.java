@@ -0,0 +1,100 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.service.MotechScheduledJob;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.JobDetail;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.quartz.JobBuilder.newJob;
+
+public class CompactJobDataStdJDBCDelegateTest {
+
+    private static final String SCHEDULER_NAME = "CompactJobDataScheduler";
+
+    private Connection conn;
+    private CompactJobDataStdJDBCDelegate delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        conn = DriverManager.getConnection(EmbeddedQuartzDatabase.getUrl("compactjobdata"),
+                EmbeddedQuartzDatabase.USER, EmbeddedQuartzDatabase.PASSWORD);
+
+        delegate = new CompactJobDataStdJDBCDelegate();
+        delegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", SCHEDULER_NAME, "instance", null, false,
+                "compactJobData=true");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM qrtz_job_details WHERE SCHED_NAME = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.executeUpdate();
+        }
+        conn.close();
+    }
+
+    @Test
+    public void shouldStoreCompactJobDataAndWhetherJobIsUiDefined() throws Exception {
+        delegate.insertJobDetail(conn, job("ui-job", true));
+        delegate.insertJobDetail(conn, job("api-job", false));
+
+        assertEquals(Boolean.TRUE, getUiDefined("ui-job"));
+        assertEquals(Boolean.FALSE, getUiDefined("api-job"));
+        assertTrue(CompactJobDataSerializer.isCompact(getJobData("ui-job")));
+    }
+
+    @Test
+    public void shouldUpdateWhetherJobIsUiDefinedWhenJobIsReplaced() throws Exception {
+        delegate.insertJobDetail(conn, job("job", true));
+
+        delegate.updateJobDetail(conn, job("job", false));
+        assertEquals(Boolean.FALSE, getUiDefined("job"));
+
+        delegate.updateJobDetail(conn, job("job", true));
+        assertEquals(Boolean.TRUE, getUiDefined("job"));
+    }
+
+    private JobDetail job(String name, boolean uiDefined) {
+        JobDetail job = newJob(MotechScheduledJob.class).withIdentity(name, "default").build();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(SchedulerConstants.UI_DEFINED, uiDefined);
+        job.getJobDataMap().put(SchedulerConstants.EVENT_TYPE_KEY_NAME, "test_event");
+        job.getJobDataMap().put(SchedulerConstants.EVENT_METADATA, metadata);
+        return job;
+    }
+
+    private Boolean getUiDefined(String name) throws SQLException {
+        return (Boolean) getColumn("UI_DEFINED", name);
+    }
+
+    private byte[] getJobData(String name) throws SQLException {
+        return (byte[]) getColumn("JOB_DATA", name);
+    }
+
+    private Object getColumn(String column, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT " + column + " FROM qrtz_job_details " +
+                "WHERE SCHED_NAME = ? AND JOB_NAME = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getObject(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.motechproject.scheduler.jobstore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.TriggerKey;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class PriorityAcquisitionStdJDBCDelegateTest {
+
+    private static final String SCHEDULER_NAME = "PriorityAcquisitionScheduler";
+    private static final long WINDOW = 30000L;
+
+    private Connection conn;
+    private long now;
+
+    @Before
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection(EmbeddedQuartzDatabase.getUrl("priorityacquisition"),
+                EmbeddedQuartzDatabase.USER, EmbeddedQuartzDatabase.PASSWORD);
+        now = System.currentTimeMillis();
+
+        update("INSERT INTO qrtz_job_details (SCHED_NAME, JOB_NAME, JOB_GROUP, JOB_CLASS_NAME, IS_DURABLE, " +
+                "IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY) VALUES (?, 'job', 'default', 'Job', FALSE, FALSE, " +
+                "FALSE, FALSE)", SCHEDULER_NAME);
+        addTrigger("bulk", 1, now - 120000);
+        addTrigger("old", 5, now - 60000);
+        addTrigger("critical", 10, now - 1000);
+        addTrigger("later", 10, now + 10000);
+        addTrigger("too-late", 10, now + 2 * WINDOW);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        update("DELETE FROM qrtz_triggers WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+        update("DELETE FROM qrtz_job_details WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+        conn.close();
+    }
+
+    @Test
+    public void shouldAcquireDueTriggersByPriority() throws Exception {
+        PriorityAcquisitionStdJDBCDelegate delegate = createDelegate("compactJobData=false|triggerPriorities=1,5,10");
+
+        assertEquals(asList("critical", "old", "bulk", "later"), acquire(delegate, 10));
+        assertEquals(asList("critical", "old"), acquire(delegate, 2));
+        assertEquals(Collections.singletonList("critical"), acquire(delegate, 0));
+    }
+
+    @Test
+    public void shouldAcquireTriggersByFireTimeWithoutPriorities() throws Exception {
+        PriorityAcquisitionStdJDBCDelegate delegate = createDelegate("compactJobData=false");
+
+        assertEquals(asList("bulk", "old", "critical", "later"), acquire(delegate, 10));
+    }
+
+    private PriorityAcquisitionStdJDBCDelegate createDelegate(String initString) throws Exception {
+        PriorityAcquisitionStdJDBCDelegate delegate = new PriorityAcquisitionStdJDBCDelegate();
+        delegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", SCHEDULER_NAME, "instance", null, false,
+                initString);
+        return delegate;
+    }
+
+    private List<String> acquire(PriorityAcquisitionStdJDBCDelegate delegate, int maxCount) throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (TriggerKey key : delegate.selectTriggerToAcquire(conn, now + WINDOW, now - 300000, maxCount)) {
+            names.add(key.getName());
+        }
+        return names;
+    }
+
+    private void addTrigger(String name, int priority, long nextFireTime) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO qrtz_triggers (SCHED_NAME, TRIGGER_NAME, " +
+                "TRIGGER_GROUP, JOB_NAME, JOB_GROUP, NEXT_FIRE_TIME, PRIORITY, TRIGGER_STATE, TRIGGER_TYPE, START_TIME, " +
+                "MISFIRE_INSTR) VALUES (?, ?, 'default', 'job', 'default', ?, ?, 'WAITING', 'SIMPLE', 0, 0)")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            stmt.setLong(3, nextFireTime);
+            stmt.setInt(4, priority);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void update(String sql, String schedulerName) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, schedulerName);
+            stmt.executeUpdate();
+        }
+    }
+}
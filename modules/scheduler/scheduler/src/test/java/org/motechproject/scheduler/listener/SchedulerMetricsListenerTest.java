@@ -0,0 +1,160 @@
+package org.motechproject.scheduler.listener;
+
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.contract.SchedulerWindowMetrics;
+import org.motechproject.scheduler.contract.SubjectSchedulerMetrics;
+import org.quartz.CronTrigger;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SchedulerMetricsListenerTest {
+
+    private static final long NOW = 1400000000000L;
+    private static final String SUBJECT = "reminder";
+
+    @Mock
+    private Trigger trigger;
+
+    private SchedulerMetricsListener listener;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        DateTimeUtils.setCurrentMillisFixed(NOW);
+        listener = new SchedulerMetricsListener();
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void shouldRecordFireLagAndExecutionDurationPerSubject() {
+        fire(SUBJECT, 100, 40);
+        fire(SUBJECT, 300, 60);
+        fire("campaign", 500, 10);
+
+        SchedulerWindowMetrics window = listener.getWindowMetrics().get(0);
+        assertEquals(1, window.getWindowMinutes());
+        assertEquals(3, window.getFiredCount());
+        assertEquals(300, window.getFireLag().getMean(), 0.001);
+        assertEquals(500, window.getFireLag().getMax(), 0.001);
+        assertEquals(3, window.getExecutionDuration().getCount());
+        assertEquals(60, window.getExecutionDuration().getMax(), 0.001);
+
+        List<SubjectSchedulerMetrics> subjects = listener.getSubjectMetrics();
+        assertEquals(2, subjects.size());
+        SubjectSchedulerMetrics reminder = SUBJECT.equals(subjects.get(0).getSubject()) ? subjects.get(0) : subjects.get(1);
+        SchedulerWindowMetrics reminderWindow = reminder.getWindows().get(0);
+        assertEquals(2, reminderWindow.getFiredCount());
+        assertEquals(200, reminderWindow.getFireLag().getMean(), 0.001);
+        assertEquals(50, reminderWindow.getExecutionDuration().getMean(), 0.001);
+
+        assertEquals(3, listener.getFiredCount());
+        assertEquals(300, listener.getAverageFireLag());
+    }
+
+    @Test
+    public void shouldLeaveValuesOutsideOfWindows() {
+        fire(SUBJECT, 100, 40);
+
+        DateTimeUtils.setCurrentMillisFixed(NOW + 2 * 60 * 1000);
+        fire(SUBJECT, 300, 60);
+
+        List<SchedulerWindowMetrics> windows = listener.getWindowMetrics();
+        assertEquals(1, windows.get(0).getFiredCount());
+        assertEquals(300, windows.get(0).getFireLag().getMax(), 0.001);
+        assertEquals(2, windows.get(1).getFiredCount());
+        assertEquals(2, windows.get(2).getFiredCount());
+
+        DateTimeUtils.setCurrentMillisFixed(NOW + 20 * 60 * 1000);
+
+        assertEquals(0, listener.getWindowMetrics().get(2).getFiredCount());
+        assertTrue(listener.getSubjectMetrics().isEmpty());
+        assertEquals(2, listener.getFiredCount());
+    }
+
+    @Test
+    public void shouldCountMisfiresByPolicy() {
+        CronTrigger cronTrigger = mock(CronTrigger.class);
+        when(cronTrigger.getMisfireInstruction()).thenReturn(CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING);
+        SimpleTrigger simpleTrigger = mock(SimpleTrigger.class);
+        when(simpleTrigger.getMisfireInstruction()).thenReturn(SimpleTrigger.MISFIRE_INSTRUCTION_FIRE_NOW);
+
+        listener.triggerMisfired(cronTrigger);
+        listener.triggerMisfired(cronTrigger);
+        listener.triggerMisfired(simpleTrigger);
+
+        SchedulerWindowMetrics window = listener.getWindowMetrics().get(0);
+        assertEquals(3, window.getMisfiredCount());
+        assertEquals(Long.valueOf(2), window.getMisfiresByPolicy().get("DO_NOTHING"));
+        assertEquals(Long.valueOf(1), window.getMisfiresByPolicy().get("FIRE_NOW"));
+        assertEquals(3, listener.getMisfiredCount());
+    }
+
+    @Test
+    public void shouldRecordAcquisitionsAndThreadPoolSaturation() {
+        listener.setThreadPoolSize(2);
+        listener.triggersAcquired(4);
+        listener.triggersAcquired(2);
+
+        JobExecutionContext first = context(SUBJECT, 0);
+        listener.triggerFired(trigger, first);
+        listener.jobToBeExecuted(first);
+        JobExecutionContext second = context(SUBJECT, 0);
+        listener.triggerFired(trigger, second);
+        listener.jobToBeExecuted(second);
+
+        SchedulerWindowMetrics window = listener.getWindowMetrics().get(0);
+        assertEquals(2, window.getAcquisitionCount());
+        assertEquals(3, window.getAverageAcquisitionSize(), 0.001);
+        assertEquals(4, window.getMaxAcquisitionSize());
+        assertEquals(0.5, window.getAverageBusyThreads(), 0.001);
+        assertEquals(1, window.getMaxBusyThreads());
+        assertEquals(1, window.getSaturatedFireCount());
+
+        listener.reset();
+
+        window = listener.getWindowMetrics().get(0);
+        assertEquals(0, window.getAcquisitionCount());
+        assertEquals(0, window.getSaturatedFireCount());
+    }
+
+    private void fire(String subject, long lag, long duration) {
+        JobExecutionContext context = context(subject, lag);
+        when(context.getJobRunTime()).thenReturn(duration);
+
+        listener.triggerFired(trigger, context);
+        listener.jobToBeExecuted(context);
+        listener.jobWasExecuted(context, null);
+    }
+
+    private JobExecutionContext context(String subject, long lag) {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(SchedulerConstants.EVENT_TYPE_KEY_NAME, subject);
+
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getMergedJobDataMap()).thenReturn(jobDataMap);
+        when(context.getScheduledFireTime()).thenReturn(new Date(NOW - lag));
+        when(context.getFireTime()).thenReturn(new Date(NOW));
+        when(context.get(SchedulerMetricsListener.NAME + ".subject")).thenReturn(subject);
+        return context;
+    }
+}
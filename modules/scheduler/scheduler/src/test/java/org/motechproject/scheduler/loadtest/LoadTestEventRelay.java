@@ -0,0 +1,107 @@
+package org.motechproject.scheduler.loadtest;
+
+import org.joda.time.DateTime;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event relay counting the events of fired jobs instead of sending them, so that the load test measures the
+ * scheduler alone.
+ */
+class LoadTestEventRelay implements EventRelay {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile long lastEventTime;
+
+    @Override
+    public void sendEventMessage(MotechEvent motechEvent) {
+        received(1);
+    }
+
+    @Override
+    public void sendEventMessageAsync(MotechEvent motechEvent) {
+        received(1);
+    }
+
+    @Override
+    public void broadcastEventMessage(MotechEvent motechEvent) {
+        received(1);
+    }
+
+    @Override
+    public void sendEventMessages(Collection<MotechEvent> motechEvents) {
+        received(motechEvents.size());
+    }
+
+    @Override
+    public void broadcastEventMessages(Collection<MotechEvent> motechEvents) {
+        received(motechEvents.size());
+    }
+
+    @Override
+    public UUID sendEventMessage(MotechEvent motechEvent, long delayMillis) {
+        received(1);
+        return UUID.randomUUID();
+    }
+
+    @Override
+    public UUID sendEventMessageAt(MotechEvent motechEvent, DateTime deliveryTime) {
+        received(1);
+        return UUID.randomUUID();
+    }
+
+    @Override
+    public boolean cancelEventMessage(UUID eventId) {
+        return false;
+    }
+
+    @Override
+    public boolean cancelEventMessage(UUID eventId, DateTime deliveryTime) {
+        return false;
+    }
+
+    /**
+     * Waits until the given number of events was received, or the timeout passes.
+     *
+     * @param expected the number of events to wait for
+     * @param timeoutMillis the timeout, in milliseconds
+     * @return true if all events were received, false if the timeout passed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized boolean await(int expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (count.get() < expected) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    int getCount() {
+        return count.get();
+    }
+
+    long getLastEventTime() {
+        return lastEventTime;
+    }
+
+    void reset() {
+        count.set(0);
+        lastEventTime = 0;
+    }
+
+    private void received(int events) {
+        lastEventTime = System.currentTimeMillis();
+        count.addAndGet(events);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.motechproject.scheduler.loadtest;
+
+import org.joda.time.DateTime;
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * The results of a scheduler load test. Every result is a named number with a unit, so that reports of different
+ * runs can be compared result by result. The report is written as JSON, along with the settings of the run.
+ */
+class LoadTestReport {
+
+    static final String MILLISECONDS = "ms";
+    static final String JOBS_PER_SECOND = "jobs/s";
+    static final String BYTES = "B";
+    static final String COUNT = "count";
+
+    private final Map<String, Object> settings = new LinkedHashMap<>();
+    private final List<Result> results = new ArrayList<>();
+
+    void setting(String name, Object value) {
+        settings.put(name, value);
+    }
+
+    void result(String name, String unit, double value) {
+        results.add(new Result(name, unit, value));
+    }
+
+    /**
+     * Adds the mean, median, 90th and 99th percentile and maximum of the given times as results.
+     *
+     * @param name the prefix of the names of the results
+     * @param nanos the times, in nanoseconds
+     */
+    void latencies(String name, long[] nanos) {
+        long[] sorted = Arrays.copyOf(nanos, nanos.length);
+        Arrays.sort(sorted);
+
+        double sum = 0;
+        for (long time : sorted) {
+            sum += time;
+        }
+
+        result(name + ".mean", MILLISECONDS, toMillis(sorted.length == 0 ? 0 : sum / sorted.length));
+        result(name + ".p50", MILLISECONDS, toMillis(percentile(sorted, 0.5)));
+        result(name + ".p90", MILLISECONDS, toMillis(percentile(sorted, 0.9)));
+        result(name + ".p99", MILLISECONDS, toMillis(percentile(sorted, 0.99)));
+        result(name + ".max", MILLISECONDS, toMillis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+    }
+
+    /**
+     * Adds the mean, median, 90th and 99th percentile and maximum of the given statistics as results.
+     *
+     * @param name the prefix of the names of the results
+     * @param statistics the statistics, in milliseconds
+     */
+    void latencies(String name, LatencyStatistics statistics) {
+        result(name + ".mean", MILLISECONDS, statistics.getMean());
+        result(name + ".p50", MILLISECONDS, statistics.getMedian());
+        result(name + ".p90", MILLISECONDS, statistics.getPercentile90());
+        result(name + ".p99", MILLISECONDS, statistics.getPercentile99());
+        result(name + ".max", MILLISECONDS, statistics.getMax());
+    }
+
+    Double getResult(String name) {
+        for (Result result : results) {
+            if (result.name.equals(name)) {
+                return result.value;
+            }
+        }
+        return null;
+    }
+
+    void writeTo(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            Files.createDirectories(file.getParentFile().toPath());
+        }
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"benchmark\": \"scheduler-load-test\",\n");
+        json.append("  \"timestamp\": ").append(quote(DateTime.now().toString())).append(",\n");
+
+        json.append("  \"settings\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Object> setting : settings.entrySet()) {
+            json.append(separator).append("    ").append(quote(setting.getKey())).append(": ");
+            Object value = setting.getValue();
+            json.append(value instanceof Number || value instanceof Boolean ? value.toString() : quote(String.valueOf(value)));
+            separator = ",\n";
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"results\": [");
+        separator = "\n";
+        for (Result result : results) {
+            json.append(separator).append(format("    {\"name\": %s, \"unit\": %s, \"value\": %s}",
+                    quote(result.name), quote(result.unit), toJsonNumber(result.value)));
+            separator = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Result result : results) {
+            text.append(format("%-45s %14.2f %s%n", result.name, result.value, result.unit));
+        }
+        return text.toString();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * percentile) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String toJsonNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static final class Result {
+        private final String name;
+        private final String unit;
+        private final double value;
+
+        private Result(String name, String unit, double value) {
+            this.name = name;
+            this.unit = unit;
+            this.value = value;
+        }
+    }
+}
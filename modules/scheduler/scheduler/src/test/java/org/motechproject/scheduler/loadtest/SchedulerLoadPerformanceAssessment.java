@@ -0,0 +1,57 @@
+package org.motechproject.scheduler.loadtest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the scheduler load test and writes its report. The test is set up with system properties:
+ * <ul>
+ *     <li><code>scheduler.assessment.jobs</code> - the number of jobs to schedule, one million by default</li>
+ *     <li><code>scheduler.assessment.batchSize</code> - the number of jobs scheduled at once, 1000 by default</li>
+ *     <li><code>scheduler.assessment.firedJobs</code> - the number of jobs fired at the same time, 10000 by default</li>
+ *     <li><code>scheduler.assessment.queries</code> - the number of runs of each jobs UI query, 20 by default</li>
+ *     <li><code>scheduler.assessment.report</code> - the file the JSON report is written to,
+ *     <code>target/scheduler-load-test.json</code> by default</li>
+ * </ul>
+ * Quartz settings given as system properties, such as <code>org.quartz.threadPool.threadCount</code>, override the
+ * ones of the load test. Run with <code>mvn test -P SCHEDULER_LOAD_TEST</code>.
+ */
+public class SchedulerLoadPerformanceAssessment {
+
+    private static final int JOBS = Integer.getInteger("scheduler.assessment.jobs", 1000000);
+    private static final int BATCH_SIZE = Integer.getInteger("scheduler.assessment.batchSize", 1000);
+    private static final int FIRED_JOBS = Integer.getInteger("scheduler.assessment.firedJobs", 10000);
+    private static final int QUERIES = Integer.getInteger("scheduler.assessment.queries", 20);
+    private static final String REPORT = System.getProperty("scheduler.assessment.report", "target/scheduler-load-test.json");
+
+    private static final String QUARTZ_PREFIX = "org.quartz.";
+
+    @Test
+    public void loadTestingScheduler() throws Exception {
+        LoadTestReport report;
+        try (SchedulerLoadTestHarness harness = new SchedulerLoadTestHarness(getQuartzOverrides())) {
+            report = harness.run(JOBS, BATCH_SIZE, FIRED_JOBS, QUERIES);
+        }
+
+        report.writeTo(new File(REPORT));
+        System.out.println(report);
+        System.out.println("Report written to " + new File(REPORT).getAbsolutePath());
+
+        assertEquals(FIRED_JOBS, report.getResult("fire.fired"), 0);
+        assertEquals(0, report.getResult("unscheduleAll.remainingTriggers"), 0);
+    }
+
+    private Properties getQuartzOverrides() {
+        Properties overrides = new Properties();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(QUARTZ_PREFIX)) {
+                overrides.setProperty(name, System.getProperty(name));
+            }
+        }
+        return overrides;
+    }
+}
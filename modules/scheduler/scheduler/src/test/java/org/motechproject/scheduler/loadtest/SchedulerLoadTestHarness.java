@@ -0,0 +1,344 @@
+package org.motechproject.scheduler.loadtest;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.trace.impl.TraceServiceImpl;
+import org.motechproject.scheduler.SchedulerInitializer;
+import org.motechproject.scheduler.contract.CronSchedulableJob;
+import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.JobsSearchSettings;
+import org.motechproject.scheduler.contract.RepeatingPeriodSchedulableJob;
+import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
+import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
+import org.motechproject.scheduler.contract.SchedulableJob;
+import org.motechproject.scheduler.contract.SchedulerWindowMetrics;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.listener.SchedulerMetricsListener;
+import org.motechproject.scheduler.service.MotechSchedulerDatabaseService;
+import org.motechproject.scheduler.service.MotechSchedulerService;
+import org.motechproject.scheduler.service.impl.MotechSchedulerDatabaseServiceImpl;
+import org.motechproject.scheduler.service.impl.MotechSchedulerServiceImpl;
+import org.motechproject.scheduler.service.impl.TriggerKeyQuery;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scheduler services against an embedded database and measures how they behave with a large number of jobs:
+ * the throughput of scheduling cron, repeating, run once and period jobs, the lag with which triggers are acquired
+ * and fired, the time of the jobs UI queries, the time of unscheduling all jobs of a subject and the heap usage.
+ * The services are wired the same way as in the Scheduler module, with an event relay which only counts the events of
+ * fired jobs.
+ * <p>
+ * The embedded database is an in-memory H2 database, so the heap usage includes the stored jobs.
+ */
+public class SchedulerLoadTestHarness implements AutoCloseable {
+
+    static final String SUBJECT_PREFIX = "load_test_";
+    static final String FIRED_SUBJECT = SUBJECT_PREFIX + "fired";
+
+    private static final String PROPERTIES_FILE = "quartz-load-test.properties";
+    private static final String DATABASE_NAME = "motechquartz";
+    private static final String THREAD_COUNT = "org.quartz.threadPool.threadCount";
+    private static final String BATCH_MAX_COUNT = "org.quartz.scheduler.batchTriggerAcquisitionMaxCount";
+    private static final String CRON_EXPRESSION = "0 0 12 * * ?";
+    private static final int REPEAT_INTERVAL_SECONDS = 3600;
+    private static final int PAGE_SIZE = 10;
+    private static final long MIN_FIRE_DELAY_MILLIS = 5000;
+    private static final long MIN_FIRE_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * The kinds of jobs scheduled by the load test, in equal numbers.
+     */
+    enum JobKind {
+        CRON, REPEATING, RUN_ONCE, PERIOD;
+
+        String getSubject() {
+            return SUBJECT_PREFIX + name().toLowerCase();
+        }
+    }
+
+    private final Properties properties;
+    private final GenericApplicationContext applicationContext;
+    private final LoadTestEventRelay eventRelay = new LoadTestEventRelay();
+    private final MotechSchedulerFactoryBean schedulerFactoryBean;
+    private final MotechSchedulerService schedulerService;
+    private final MotechSchedulerDatabaseService databaseService;
+
+    /**
+     * Starts the scheduler with the settings of the load test.
+     *
+     * @param overrides the settings overriding the ones of the load test, for example the number of threads
+     * @throws IOException if the settings can not be read
+     */
+    public SchedulerLoadTestHarness(Properties overrides) throws IOException {
+        properties = loadProperties();
+        properties.setProperty(SchedulerInitializer.DATABASE_URL, EmbeddedQuartzDatabase.getUrl(DATABASE_NAME));
+        properties.putAll(overrides);
+
+        // the scheduler settings are read from the file, outside of OSGi there is no configuration service
+        SettingsFacade schedulerSettings = new SettingsFacade();
+        schedulerSettings.setConfigFiles(Collections.<Resource>singletonList(new ClassPathResource(PROPERTIES_FILE)));
+
+        applicationContext = new GenericApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(applicationContext);
+
+        ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
+        beanFactory.registerSingleton("sqlProperties", properties);
+        beanFactory.registerSingleton("schedulerSettings", schedulerSettings);
+        beanFactory.registerSingleton("eventRelay", eventRelay);
+        beanFactory.registerSingleton("traceService", new TraceServiceImpl(new MotechEventConfig()));
+
+        applicationContext.registerBeanDefinition("motechSchedulerFactoryBean",
+                new RootBeanDefinition(MotechSchedulerFactoryBean.class));
+        applicationContext.registerBeanDefinition("triggerKeyQuery", new RootBeanDefinition(TriggerKeyQuery.class));
+        applicationContext.registerBeanDefinition("schedulerService",
+                new RootBeanDefinition(MotechSchedulerServiceImpl.class));
+        applicationContext.registerBeanDefinition("schedulerDatabaseService",
+                new RootBeanDefinition(MotechSchedulerDatabaseServiceImpl.class));
+        applicationContext.refresh();
+
+        schedulerFactoryBean = applicationContext.getBean(MotechSchedulerFactoryBean.class);
+        schedulerService = applicationContext.getBean(MotechSchedulerService.class);
+        databaseService = applicationContext.getBean(MotechSchedulerDatabaseService.class);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param jobs the number of jobs to schedule, split evenly between the kinds of jobs
+     * @param batchSize the number of jobs scheduled through a single call
+     * @param firedJobs the number of run once jobs scheduled to fire at the same time
+     * @param queries the number of times each jobs UI query is run
+     * @return the report of the load test
+     * @throws SchedulerException if the scheduler fails
+     * @throws InterruptedException if interrupted while waiting for jobs to fire
+     */
+    public LoadTestReport run(int jobs, int batchSize, int firedJobs, int queries)
+            throws SchedulerException, InterruptedException {
+        LoadTestReport report = new LoadTestReport();
+        report.setting("jobs", jobs);
+        report.setting("batchSize", batchSize);
+        report.setting("firedJobs", firedJobs);
+        report.setting("queries", queries);
+        report.setting("threadCount", properties.getProperty(THREAD_COUNT));
+        report.setting("batchTriggerAcquisitionMaxCount", properties.getProperty(BATCH_MAX_COUNT));
+        report.setting("database", "h2-in-memory");
+        report.setting("javaVersion", System.getProperty("java.version"));
+        report.setting("maxHeap", Runtime.getRuntime().maxMemory());
+
+        schedulerFactoryBean.getQuartzScheduler().clear();
+        long baselineHeap = usedHeap();
+
+        DateTime startTime = DateTime.now().plusDays(1);
+        int jobsPerKind = jobs / JobKind.values().length;
+        long schedulingNanos = 0;
+        Map<JobKind, Double> throughput = new HashMap<>();
+        for (JobKind kind : JobKind.values()) {
+            long nanos = scheduleJobs(kind, jobsPerKind, batchSize, startTime);
+            schedulingNanos += nanos;
+            throughput.put(kind, perSecond(jobsPerKind, nanos));
+
+            report.result("schedule." + kind.name().toLowerCase() + ".time", LoadTestReport.MILLISECONDS, millis(nanos));
+            report.result("schedule." + kind.name().toLowerCase() + ".throughput", LoadTestReport.JOBS_PER_SECOND,
+                    throughput.get(kind));
+        }
+        report.result("schedule.total.throughput", LoadTestReport.JOBS_PER_SECOND,
+                perSecond(jobsPerKind * JobKind.values().length, schedulingNanos));
+
+        long scheduledHeap = usedHeap();
+        report.result("memory.baseline", LoadTestReport.BYTES, baselineHeap);
+        report.result("memory.afterScheduling", LoadTestReport.BYTES, scheduledHeap);
+        report.result("memory.perJob", LoadTestReport.BYTES, jobs == 0 ? 0 : (scheduledHeap - baselineHeap) / (double) jobs);
+
+        for (Map.Entry<String, JobsSearchSettings> query : getQueries(jobs).entrySet()) {
+            measureQuery(report, query.getKey(), query.getValue(), queries);
+        }
+        report.result("memory.afterQueries", LoadTestReport.BYTES, usedHeap());
+
+        fireJobs(report, firedJobs, throughput.get(JobKind.RUN_ONCE));
+
+        for (JobKind kind : JobKind.values()) {
+            NanoStopWatch stopWatch = new NanoStopWatch().start();
+            schedulerService.unscheduleAllJobs(kind.getSubject() + "-");
+            long nanos = stopWatch.duration();
+
+            report.result("unscheduleAll." + kind.name().toLowerCase() + ".time", LoadTestReport.MILLISECONDS, millis(nanos));
+            report.result("unscheduleAll." + kind.name().toLowerCase() + ".throughput", LoadTestReport.JOBS_PER_SECOND,
+                    perSecond(jobsPerKind, nanos));
+        }
+        report.result("unscheduleAll.remainingTriggers", LoadTestReport.COUNT,
+                schedulerFactoryBean.getQuartzScheduler().getTriggerKeys(GroupMatcher.anyTriggerGroup()).size());
+        report.result("memory.afterUnscheduling", LoadTestReport.BYTES, usedHeap());
+
+        return report;
+    }
+
+    @Override
+    public void close() {
+        applicationContext.close();
+    }
+
+    private long scheduleJobs(JobKind kind, int count, int batchSize, DateTime startTime) {
+        List<SchedulableJob> batch = new ArrayList<>(batchSize);
+        NanoStopWatch stopWatch = new NanoStopWatch().start();
+
+        for (int i = 0; i < count; i++) {
+            batch.add(createJob(kind, i, startTime));
+            if (batch.size() == batchSize || i == count - 1) {
+                schedulerService.scheduleJobs(batch);
+                batch.clear();
+            }
+        }
+
+        return stopWatch.duration();
+    }
+
+    private SchedulableJob createJob(JobKind kind, int index, DateTime startTime) {
+        Map<String, Object> params = new HashMap<>();
+        params.put(MotechSchedulerService.JOB_ID_KEY, "job_" + index);
+        params.put("externalId", "patient_" + index);
+        MotechEvent event = new MotechEvent(kind.getSubject(), params);
+
+        switch (kind) {
+            case CRON:
+                return new CronSchedulableJob(event, CRON_EXPRESSION, startTime, null);
+            case REPEATING:
+                return new RepeatingSchedulableJob(event, REPEAT_INTERVAL_SECONDS, startTime, null, false);
+            case RUN_ONCE:
+                return new RunOnceSchedulableJob(event, startTime);
+            default:
+                return new RepeatingPeriodSchedulableJob(event, startTime, null, Period.days(1), false);
+        }
+    }
+
+    private Map<String, JobsSearchSettings> getQueries(int jobs) {
+        Map<String, JobsSearchSettings> queries = new LinkedHashMap<>();
+
+        queries.put("firstPage", searchSettings(1, null, null, null));
+        queries.put("lastPage", searchSettings(Math.max(1, jobs / PAGE_SIZE), null, null, null));
+        queries.put("sortedByStartDate", searchSettings(1, "startDate", "desc", null));
+        queries.put("filteredByName", searchSettings(1, null, null, JobKind.CRON.getSubject() + "-job_1"));
+
+        return queries;
+    }
+
+    private JobsSearchSettings searchSettings(int page, String sortColumn, String sortDirection, String name) {
+        JobsSearchSettings settings = new JobsSearchSettings();
+        settings.setPage(page);
+        settings.setRows(PAGE_SIZE);
+        settings.setSortColumn(sortColumn);
+        settings.setSortDirection(sortDirection);
+
+        if (name != null) {
+            settings.setName(name);
+            settings.setActivity(String.format("%s,%s,%s", JobBasicInfo.ACTIVITY_ACTIVE, JobBasicInfo.ACTIVITY_FINISHED,
+                    JobBasicInfo.ACTIVITY_NOTSTARTED));
+            settings.setStatus(String.format("%s,%s,%s,%s", JobBasicInfo.STATUS_BLOCKED, JobBasicInfo.STATUS_ERROR,
+                    JobBasicInfo.STATUS_OK, JobBasicInfo.STATUS_PAUSED));
+        }
+
+        return settings;
+    }
+
+    private void measureQuery(LoadTestReport report, String name, JobsSearchSettings settings, int times) {
+        long[] listNanos = new long[times];
+        long[] countNanos = new long[times];
+
+        for (int i = 0; i < times; i++) {
+            NanoStopWatch stopWatch = new NanoStopWatch().start();
+            databaseService.getScheduledJobsBasicInfo(settings);
+            listNanos[i] = stopWatch.duration();
+
+            stopWatch = new NanoStopWatch().start();
+            databaseService.countJobs(settings);
+            countNanos[i] = stopWatch.duration();
+        }
+
+        report.latencies("ui." + name + ".list", listNanos);
+        report.latencies("ui." + name + ".count", countNanos);
+    }
+
+    /*
+     * Run once jobs are all scheduled to fire at the same time, after the time it takes to schedule them
+     */
+    private void fireJobs(LoadTestReport report, int count, double schedulingThroughput) throws InterruptedException {
+        SchedulerMetricsListener metricsListener = schedulerFactoryBean.getMetricsListener();
+        metricsListener.reset();
+        eventRelay.reset();
+
+        long delay = MIN_FIRE_DELAY_MILLIS + (schedulingThroughput > 0 ? (long) (2 * count / schedulingThroughput * 1000) : 0);
+        DateTime fireTime = DateTime.now().plusMillis((int) delay);
+        List<SchedulableJob> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> params = new HashMap<>();
+            params.put(MotechSchedulerService.JOB_ID_KEY, "job_" + i);
+            jobs.add(new RunOnceSchedulableJob(new MotechEvent(FIRED_SUBJECT, params), fireTime));
+        }
+        schedulerService.scheduleJobs(jobs);
+
+        long timeout = delay + Math.max(MIN_FIRE_TIMEOUT_MILLIS, count);
+        boolean allFired = eventRelay.await(count, timeout);
+        long firingMillis = Math.max(1, eventRelay.getLastEventTime() - fireTime.getMillis());
+
+        report.result("fire.fired", LoadTestReport.COUNT, eventRelay.getCount());
+        report.result("fire.timedOut", LoadTestReport.COUNT, allFired ? 0 : 1);
+        report.result("fire.throughput", LoadTestReport.JOBS_PER_SECOND,
+                eventRelay.getCount() * 1000.0 / firingMillis);
+
+        // the longest window covers the whole firing phase
+        List<SchedulerWindowMetrics> windows = metricsListener.getWindowMetrics();
+        SchedulerWindowMetrics window = windows.get(windows.size() - 1);
+        report.latencies("fire.lag", window.getFireLag());
+        report.latencies("fire.executionDuration", window.getExecutionDuration());
+        report.result("fire.acquisitions", LoadTestReport.COUNT, window.getAcquisitionCount());
+        report.result("fire.acquisitionSize.mean", LoadTestReport.COUNT, window.getAverageAcquisitionSize());
+        report.result("fire.acquisitionSize.max", LoadTestReport.COUNT, window.getMaxAcquisitionSize());
+        report.result("fire.busyThreads.mean", LoadTestReport.COUNT, window.getAverageBusyThreads());
+        report.result("fire.saturatedFires", LoadTestReport.COUNT, window.getSaturatedFireCount());
+        report.result("fire.misfires", LoadTestReport.COUNT, window.getMisfiredCount());
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static double perSecond(int count, long nanos) {
+        return nanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static Properties loadProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new ClassPathResource(PROPERTIES_FILE).getInputStream()) {
+            properties.load(in);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,129 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.trace.TraceService;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class BatchFirePublisherTest {
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private TraceService traceService;
+
+    private BatchFirePublisher publisher;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        when(applicationContext.getBean(EventRelay.class)).thenReturn(eventRelay);
+        when(applicationContext.getBean(TraceService.class)).thenReturn(traceService);
+
+        publisher = new BatchFirePublisher(applicationContext, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @After
+    public void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldPublishEventsGroupedBySubject() {
+        MotechEvent first = new MotechEvent("reminder");
+        MotechEvent second = new MotechEvent("campaign");
+        MotechEvent third = new MotechEvent("reminder");
+
+        publisher.publish(first, 1000);
+        publisher.publish(second, 1000);
+        publisher.publish(third, 1000);
+        publisher.flush();
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(eventRelay, times(2)).sendEventMessages(captor.capture());
+
+        List<Collection> batches = captor.getAllValues();
+        assertEquals(asList(first, third), batches.get(0));
+        assertEquals(asList(second), batches.get(1));
+    }
+
+    @Test
+    public void shouldLookUpEventRelayOnce() {
+        publisher.publish(new MotechEvent("reminder"), 1000);
+        publisher.flush();
+        publisher.publish(new MotechEvent("reminder"), 2000);
+        publisher.flush();
+
+        verify(eventRelay, times(2)).sendEventMessages(any(Collection.class));
+        verify(applicationContext).getBean(EventRelay.class);
+    }
+
+    @Test
+    public void shouldPublishPendingEventsOnShutdown() {
+        publisher.publish(new MotechEvent("reminder"), 1000);
+        publisher.shutdown();
+
+        verify(eventRelay).sendEventMessages(any(Collection.class));
+    }
+
+    @Test
+    public void shouldPublishEventRightAwayWhenTooManyEventsArePending() {
+        for (int i = 0; i < BatchFirePublisher.MAX_PENDING_EVENTS; i++) {
+            publisher.publish(new MotechEvent("reminder"), 1000);
+        }
+        MotechEvent event = new MotechEvent("campaign");
+        publisher.publish(event, 1000);
+
+        verify(eventRelay).sendEventMessages(asList(event));
+
+        publisher.flush();
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(eventRelay, times(BatchFirePublisher.MAX_PENDING_EVENTS / 1000 + 1)).sendEventMessages(captor.capture());
+        assertEquals("reminder", ((MotechEvent) captor.getValue().iterator().next()).getSubject());
+    }
+
+    @Test
+    public void shouldSendEventsNotPublishedByFailedBatchOneByOne() {
+        MotechEvent first = new MotechEvent("reminder");
+        MotechEvent second = new MotechEvent("reminder");
+        MotechEvent third = new MotechEvent("reminder");
+        doThrow(new EventBatchPublishException(1, 3, new IllegalStateException("Broker down")))
+                .when(eventRelay).sendEventMessages(any(Collection.class));
+
+        publisher.publish(first, 1000);
+        publisher.publish(second, 1000);
+        publisher.publish(third, 1000);
+        publisher.flush();
+
+        verify(eventRelay, never()).sendEventMessage(first);
+        verify(eventRelay).sendEventMessage(second);
+        verify(eventRelay).sendEventMessage(third);
+        verify(traceService).endSpan(null, false);
+    }
+}
@@ -0,0 +1,188 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.JobDataMap;
+import org.quartz.utils.ConnectionProvider;
+import org.quartz.utils.DBConnectionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JobDataCompactorTest {
+
+    private static final String DATA_SOURCE = "jobDataCompactorDS";
+    private static final String SCHEDULER_NAME = "JobDataCompactorScheduler";
+
+    private String url;
+    private JobDataCompactor jobDataCompactor;
+
+    // run before the data is written, in order to change a job after it was read by the compactor
+    private volatile String concurrentUpdate;
+
+    @Before
+    public void setUp() {
+        url = EmbeddedQuartzDatabase.getUrl("jobdatacompactor");
+
+        DBConnectionManager.getInstance().addConnectionProvider(DATA_SOURCE, new ConnectionProvider() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return interceptUpdates(connect());
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public void initialize() {
+            }
+        });
+
+        Properties sqlProperties = new Properties();
+        sqlProperties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE);
+        sqlProperties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        sqlProperties.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+        sqlProperties.setProperty("org.quartz.dataSource.motechDS.driver", "org.h2.Driver");
+        jobDataCompactor = new JobDataCompactor(null, sqlProperties);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection conn = connect();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM qrtz_job_details WHERE SCHED_NAME = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    public void shouldRewriteJobDataOfAllPagesInCompactForm() throws Exception {
+        int jobs = JobDataCompactor.PAGE_SIZE + 1;
+        for (int i = 0; i < jobs; i++) {
+            addJob(String.format("job-%04d", i), serialized(jobData("job-" + i)));
+        }
+        addJob("compact", CompactJobDataSerializer.serialize(jobData("compact")).toByteArray());
+        addJob("empty", null);
+
+        assertEquals(jobs, jobDataCompactor.compactJobData());
+
+        for (int i = 0; i < jobs; i++) {
+            byte[] data = getJobData(String.format("job-%04d", i));
+            assertTrue(CompactJobDataSerializer.isCompact(data));
+            assertEquals(jobData("job-" + i), CompactJobDataSerializer.deserialize(data));
+        }
+        assertEquals(jobData("compact"), CompactJobDataSerializer.deserialize(getJobData("compact")));
+        assertNull(getJobData("empty"));
+
+        assertEquals(0, jobDataCompactor.compactJobData());
+    }
+
+    @Test
+    public void shouldNotOverwriteJobDataChangedSinceItWasRead() throws Exception {
+        addJob("rescheduled", serialized(jobData("old")));
+        addJob("unchanged", serialized(jobData("unchanged")));
+        concurrentUpdate = "rescheduled";
+
+        assertEquals(1, jobDataCompactor.compactJobData());
+
+        byte[] rescheduled = getJobData("rescheduled");
+        assertFalse(CompactJobDataSerializer.isCompact(rescheduled));
+        assertEquals(jobData("new"), CompactJobDataSerializer.deserialize(rescheduled));
+        assertTrue(CompactJobDataSerializer.isCompact(getJobData("unchanged")));
+    }
+
+    private Connection interceptUpdates(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("prepareStatement".equals(method.getName()) && ((String) args[0]).startsWith("UPDATE") &&
+                                concurrentUpdate != null) {
+                            setJobData(concurrentUpdate, serialized(jobData("new")));
+                            concurrentUpdate = null;
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    private void addJob(String name, byte[] data) throws SQLException {
+        try (Connection conn = connect();
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO qrtz_job_details (SCHED_NAME, JOB_NAME, " +
+                        "JOB_GROUP, JOB_CLASS_NAME, IS_DURABLE, IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY, " +
+                        "JOB_DATA) VALUES (?, ?, 'default', 'Job', FALSE, FALSE, FALSE, FALSE, ?)")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            stmt.setBytes(3, data);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void setJobData(String name, byte[] data) throws SQLException {
+        try (Connection conn = connect();
+                PreparedStatement stmt = conn.prepareStatement("UPDATE qrtz_job_details SET JOB_DATA = ? " +
+                        "WHERE SCHED_NAME = ? AND JOB_NAME = ?")) {
+            stmt.setBytes(1, data);
+            stmt.setString(2, SCHEDULER_NAME);
+            stmt.setString(3, name);
+            stmt.executeUpdate();
+        }
+    }
+
+    private byte[] getJobData(String name) throws SQLException {
+        try (Connection conn = connect();
+                PreparedStatement stmt = conn.prepareStatement("SELECT JOB_DATA FROM qrtz_job_details " +
+                        "WHERE SCHED_NAME = ? AND JOB_NAME = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getBytes(1);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, EmbeddedQuartzDatabase.USER, EmbeddedQuartzDatabase.PASSWORD);
+    }
+
+    private JobDataMap jobData(String jobId) {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("eventType", "test_event");
+        jobDataMap.put("JobID", jobId);
+        jobDataMap.put("count", 3);
+        return jobDataMap;
+    }
+
+    private byte[] serialized(JobDataMap jobDataMap) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(jobDataMap);
+        }
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,167 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.scheduler.service.MotechScheduledJob;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.Scheduler;
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobGroupMigratorTest {
+
+    private static final String DATA_SOURCE = "jobGroupMigratorDS";
+    private static final String SCHEDULER_NAME = "JobGroupMigratorScheduler";
+    private static final String MDS_JOB = "org.motechproject.mds.emptyTrash-emptyTrash-repeat";
+
+    @Mock
+    private Scheduler scheduler;
+
+    private JobGroupMigrator migrator;
+
+    @Before
+    public void setUp() throws Exception {
+        EmbeddedQuartzDatabase.addConnectionProvider("jobgroupmigrator", DATA_SOURCE);
+
+        Properties sqlProperties = new Properties();
+        sqlProperties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE);
+        sqlProperties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        sqlProperties.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+        sqlProperties.setProperty("org.quartz.dataSource.motechDS.driver", "org.h2.Driver");
+        sqlProperties.setProperty("scheduler.jobGroups.priorities", "sms=8");
+
+        when(scheduler.getPausedTriggerGroups()).thenReturn(Collections.singleton("ivr"));
+        when(scheduler.getTriggerGroupNames()).thenReturn(asList("default", "sms"));
+
+        migrator = new JobGroupMigrator(sqlProperties, new JobGroupResolver(sqlProperties), scheduler);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        for (String table : asList("qrtz_simple_triggers", "qrtz_triggers", "qrtz_job_details")) {
+            execute("DELETE FROM " + table + " WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+        }
+    }
+
+    @Test
+    public void shouldMoveJobsOfSchedulerServiceIntoTheirGroups() throws Exception {
+        addJob("org.motechproject.sms.send-1", "default", MotechScheduledJob.class.getName());
+        addJob("org.motechproject.ivr.call-1", "default", MotechScheduledJob.class.getName());
+        addJob("test_event-job_id1", "default", MotechScheduledJob.class.getName());
+
+        assertEquals(2, migrator.migrate());
+
+        assertEquals(asList("test_event-job_id1"), getJobs("default"));
+        assertEquals(asList("org.motechproject.sms.send-1"), getJobs("sms"));
+        assertEquals(asList("org.motechproject.ivr.call-1"), getJobs("ivr"));
+        assertEquals("WAITING:8:1", getTrigger("org.motechproject.sms.send-1", "sms"));
+        assertEquals("PAUSED:5:1", getTrigger("org.motechproject.ivr.call-1", "ivr"));
+        assertEquals(0, migrator.migrate());
+    }
+
+    @Test
+    public void shouldLeaveJobsScheduledDirectlyThroughQuartzInTheirGroups() throws Exception {
+        addJob(MDS_JOB, "default", "org.motechproject.mds.service.impl.MdsScheduledJob");
+
+        assertEquals(0, migrator.migrate());
+
+        assertEquals(asList(MDS_JOB), getJobs("default"));
+        assertEquals(Collections.<String>emptyList(), getJobs("mds"));
+    }
+
+    @Test
+    public void shouldMoveOtherJobsOfPageWhenOneCanNotBeMoved() throws Exception {
+        addJob("org.motechproject.sms.send-1", "default", MotechScheduledJob.class.getName());
+        addJob("org.motechproject.sms.send-1", "sms", MotechScheduledJob.class.getName());
+        addJob("org.motechproject.sms.send-2", "default", MotechScheduledJob.class.getName());
+
+        assertEquals(1, migrator.migrate());
+
+        assertEquals(asList("org.motechproject.sms.send-1"), getJobs("default"));
+        assertEquals(asList("org.motechproject.sms.send-1", "org.motechproject.sms.send-2"), getJobs("sms"));
+        assertEquals("WAITING:8:1", getTrigger("org.motechproject.sms.send-2", "sms"));
+    }
+
+    private void addJob(String name, String group, String jobClass) throws SQLException {
+        try (Connection conn = getConnection()) {
+            update(conn, "INSERT INTO qrtz_job_details (SCHED_NAME, JOB_NAME, JOB_GROUP, JOB_CLASS_NAME, IS_DURABLE, " +
+                    "IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY) VALUES (?, ?, ?, ?, FALSE, FALSE, FALSE, FALSE)",
+                    SCHEDULER_NAME, name, group, jobClass);
+            update(conn, "INSERT INTO qrtz_triggers (SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP, JOB_NAME, JOB_GROUP, " +
+                    "NEXT_FIRE_TIME, PRIORITY, TRIGGER_STATE, TRIGGER_TYPE, START_TIME) " +
+                    "VALUES (?, ?, ?, ?, ?, 1000, 5, 'WAITING', 'SIMPLE', 0)", SCHEDULER_NAME, name, group, name, group);
+            update(conn, "INSERT INTO qrtz_simple_triggers (SCHED_NAME, TRIGGER_NAME, TRIGGER_GROUP, REPEAT_COUNT, " +
+                    "REPEAT_INTERVAL, TIMES_TRIGGERED) VALUES (?, ?, ?, -1, 60000, 0)", SCHEDULER_NAME, name, group);
+        }
+    }
+
+    private List<String> getJobs(String group) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT JOB_NAME FROM qrtz_job_details " +
+                        "WHERE SCHED_NAME = ? AND JOB_GROUP = ? ORDER BY JOB_NAME")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, group);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    /*
+     * Returns the state and the priority of the trigger, and the number of its simple trigger rows
+     */
+    private String getTrigger(String name, String group) throws SQLException {
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT t.TRIGGER_STATE, t.PRIORITY, " +
+                        "(SELECT COUNT(*) FROM qrtz_simple_triggers s WHERE s.SCHED_NAME = t.SCHED_NAME " +
+                        "AND s.TRIGGER_NAME = t.TRIGGER_NAME AND s.TRIGGER_GROUP = t.TRIGGER_GROUP) " +
+                        "FROM qrtz_triggers t WHERE t.SCHED_NAME = ? AND t.TRIGGER_NAME = ? AND t.TRIGGER_GROUP = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            stmt.setString(3, group);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) + ":" + rs.getInt(2) + ":" + rs.getInt(3) : null;
+            }
+        }
+    }
+
+    private void execute(String sql, String schedulerName) throws SQLException {
+        try (Connection conn = getConnection()) {
+            update(conn, sql, schedulerName);
+        }
+    }
+
+    private void update(Connection conn, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; ++i) {
+                stmt.setObject(i + 1, parameters[i]);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DBConnectionManager.getInstance().getConnection(DATA_SOURCE);
+    }
+}
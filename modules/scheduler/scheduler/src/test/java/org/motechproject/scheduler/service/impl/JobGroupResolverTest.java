@@ -0,0 +1,120 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.Test;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.quartz.Trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JobGroupResolverTest {
+
+    @Test
+    public void shouldGroupJobsByModule() {
+        JobGroupResolver resolver = new JobGroupResolver(new Properties());
+
+        assertEquals("messagecampaign", resolver.getGroup("org.motechproject.messagecampaign.fired-campaign-message-123"));
+        assertEquals("sms", resolver.getGroup("org.motechproject.sms.send-abc"));
+        assertEquals(JobGroupResolver.DEFAULT_GROUP, resolver.getGroup("org.motechproject.job"));
+        assertEquals(JobGroupResolver.DEFAULT_GROUP, resolver.getGroup("test_event-job_id1"));
+    }
+
+    @Test
+    public void shouldNotGroupJobsByModuleIfDisabled() {
+        JobGroupResolver resolver = new JobGroupResolver(properties("false", null, null));
+
+        assertEquals(JobGroupResolver.DEFAULT_GROUP, resolver.getGroup("org.motechproject.sms.send-abc"));
+    }
+
+    @Test
+    public void shouldGroupJobsByTheLongestConfiguredPrefix() {
+        JobGroupResolver resolver = new JobGroupResolver(properties(null,
+                "org.motechproject.sms=messaging, org.motechproject.sms.urgent=critical, reminder-=reminders", null));
+
+        assertEquals("critical", resolver.getGroup("org.motechproject.sms.urgent-123"));
+        assertEquals("messaging", resolver.getGroup("org.motechproject.sms.send-abc"));
+        assertEquals("reminders", resolver.getGroup("reminder-123"));
+        assertEquals("ivr", resolver.getGroup("org.motechproject.ivr.call-123"));
+    }
+
+    @Test
+    public void shouldTellTheGroupOfPrefix() {
+        JobGroupResolver resolver = new JobGroupResolver(properties(null, "org.motechproject.sms.urgent=critical", null));
+
+        assertEquals("critical", resolver.getGroupOfPrefix("org.motechproject.sms.urgent-1"));
+        assertEquals("ivr", resolver.getGroupOfPrefix("org.motechproject.ivr.call"));
+        assertEquals(JobGroupResolver.DEFAULT_GROUP, resolver.getGroupOfPrefix("test_event-"));
+        // some of the jobs are kept in the critical group
+        assertNull(resolver.getGroupOfPrefix("org.motechproject.sms."));
+        // the module is not known yet
+        assertNull(resolver.getGroupOfPrefix("org.motechproject.iv"));
+        assertNull(resolver.getGroupOfPrefix("org.mot"));
+        assertNull(resolver.getGroupOfPrefix(""));
+    }
+
+    @Test
+    public void shouldTellThePrefixesOfRegroupedJobs() {
+        JobGroupResolver resolver = new JobGroupResolver(properties(null,
+                "org.motechproject.sms.urgent=critical, reminder-=reminders", null));
+
+        assertEquals(asList("org.motechproject.sms.urgent", "reminder-", "org.motechproject."),
+                resolver.getRegroupedPrefixes(JobGroupResolver.DEFAULT_GROUP));
+        assertEquals(Collections.singletonList("reminder-"), resolver.getRegroupedPrefixes("critical"));
+        assertEquals(asList("org.motechproject.sms.urgent", "reminder-"), resolver.getRegroupedPrefixes("sms"));
+    }
+
+    @Test
+    public void shouldRegroupAllJobsOfGroupsNoLongerConfigured() {
+        JobGroupResolver resolver = new JobGroupResolver(properties("false", "reminder-=reminders", null));
+
+        assertEquals(Collections.singletonList(""), resolver.getRegroupedPrefixes("sms"));
+        assertEquals(Collections.<String>emptyList(), resolver.getRegroupedPrefixes("reminders"));
+        assertEquals(Collections.singletonList("reminder-"), resolver.getRegroupedPrefixes(JobGroupResolver.DEFAULT_GROUP));
+    }
+
+    @Test
+    public void shouldTellThePriorityOfGroup() {
+        JobGroupResolver resolver = new JobGroupResolver(properties(null, null, "critical=10, sms=1"));
+
+        assertEquals(10, resolver.getPriority("critical"));
+        assertEquals(1, resolver.getPriority("sms"));
+        assertEquals(Trigger.DEFAULT_PRIORITY, resolver.getPriority(JobGroupResolver.DEFAULT_GROUP));
+    }
+
+    @Test
+    public void shouldTellTheConfiguredPriorities() {
+        assertEquals(asList(1, 5, 10), new ArrayList<>(new JobGroupResolver(properties(null, null, "critical=10, sms=1"))
+                .getPriorities()));
+        assertTrue(new JobGroupResolver(properties(null, null, null)).getPriorities().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidGroupSetting() {
+        new JobGroupResolver(properties(null, "org.motechproject.sms", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPriority() {
+        new JobGroupResolver(properties(null, null, "critical=high"));
+    }
+
+    private Properties properties(String byModule, String groups, String priorities) {
+        Properties properties = new Properties();
+        if (byModule != null) {
+            properties.setProperty(SchedulerConstants.JOB_GROUPS_BY_MODULE, byModule);
+        }
+        if (groups != null) {
+            properties.setProperty(SchedulerConstants.JOB_GROUPS, groups);
+        }
+        if (priorities != null) {
+            properties.setProperty(SchedulerConstants.JOB_GROUP_PRIORITIES, priorities);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,116 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.quartz.TriggerKey;
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class TriggerKeyQueryTest {
+
+    private static final String DATA_SOURCE = "triggerKeyQueryDS";
+    private static final String SCHEDULER_NAME = "TriggerKeyQueryScheduler";
+
+    private TriggerKeyQuery triggerKeyQuery;
+
+    @Before
+    public void setUp() throws SQLException {
+        EmbeddedQuartzDatabase.addConnectionProvider("triggerkeyquery", DATA_SOURCE);
+
+        Properties sqlProperties = new Properties();
+        sqlProperties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE);
+        sqlProperties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        sqlProperties.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+        sqlProperties.setProperty("org.quartz.dataSource.motechDS.driver", "org.h2.Driver");
+        triggerKeyQuery = new TriggerKeyQuery(sqlProperties);
+
+        execute("INSERT INTO qrtz_job_details (SCHED_NAME, JOB_NAME, JOB_GROUP, JOB_CLASS_NAME, IS_DURABLE, " +
+                "IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY) VALUES (?, 'job', 'default', 'Job', FALSE, " +
+                "FALSE, FALSE, FALSE)", SCHEDULER_NAME);
+        for (String name : asList("sms-3", "sms-1", "sms_2", "sms-2", "ivr-1", "sms!1")) {
+            addTrigger(name, "default");
+        }
+        addTrigger("sms-4", "sms");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DELETE FROM qrtz_triggers WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+        execute("DELETE FROM qrtz_job_details WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+    }
+
+    @Test
+    public void shouldEscapeLikeWildcards() {
+        assertEquals("sms-", TriggerKeyQuery.escapeLike("sms-"));
+        assertEquals("100!%!_done", TriggerKeyQuery.escapeLike("100%_done"));
+        assertEquals("wow!!", TriggerKeyQuery.escapeLike("wow!"));
+        assertEquals("", TriggerKeyQuery.escapeLike(""));
+    }
+
+    @Test
+    public void shouldFindTriggersOfGroupByNamePrefix() throws SQLException {
+        assertEquals(asList("sms-1", "sms-2", "sms-3"), names(triggerKeyQuery.findByNamePrefix("default", "sms-", null, 10)));
+        assertEquals(Collections.singletonList("sms_2"), names(triggerKeyQuery.findByNamePrefix("default", "sms_", null, 10)));
+        assertEquals(Collections.singletonList("sms!1"), names(triggerKeyQuery.findByNamePrefix("default", "sms!", null, 10)));
+        assertEquals(Collections.singletonList("sms-4"), names(triggerKeyQuery.findByNamePrefix("sms", "sms-", null, 10)));
+    }
+
+    @Test
+    public void shouldPageThroughTriggersByName() throws SQLException {
+        List<TriggerKey> firstPage = triggerKeyQuery.findByNamePrefix("default", "sms-", null, 2);
+        assertEquals(asList("sms-1", "sms-2"), names(firstPage));
+
+        List<TriggerKey> secondPage = triggerKeyQuery.findByNamePrefix("default", "sms-", "sms-2", 2);
+        assertEquals(Collections.singletonList("sms-3"), names(secondPage));
+
+        assertEquals(Collections.<String>emptyList(), names(triggerKeyQuery.findByNamePrefix("default", "sms-", "sms-3", 2)));
+    }
+
+    @Test
+    public void shouldCountTriggersByGroup() throws SQLException {
+        assertEquals(6, triggerKeyQuery.countInGroup("default"));
+        assertEquals(0, triggerKeyQuery.countInGroup("ivr"));
+        assertEquals(asList("default", "sms"), new ArrayList<>(triggerKeyQuery.countByGroup().keySet()));
+        assertEquals(Integer.valueOf(1), triggerKeyQuery.countByGroup().get("sms"));
+    }
+
+    private void addTrigger(String name, String group) throws SQLException {
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(DATA_SOURCE);
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO qrtz_triggers (SCHED_NAME, TRIGGER_NAME, " +
+                        "TRIGGER_GROUP, JOB_NAME, JOB_GROUP, TRIGGER_STATE, TRIGGER_TYPE, START_TIME) " +
+                        "VALUES (?, ?, ?, 'job', 'default', 'WAITING', 'SIMPLE', 0)")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            stmt.setString(3, group);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void execute(String sql, String schedulerName) throws SQLException {
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(DATA_SOURCE);
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, schedulerName);
+            stmt.executeUpdate();
+        }
+    }
+
+    private List<String> names(List<TriggerKey> keys) {
+        List<String> names = new ArrayList<>(keys.size());
+        for (TriggerKey key : keys) {
+            names.add(key.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,103 @@
+package org.motechproject.scheduler.tasks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.jobstore.CompactJobDataSerializer;
+import org.motechproject.scheduler.util.EmbeddedQuartzDatabase;
+import org.motechproject.tasks.domain.mds.channel.TriggerEvent;
+import org.motechproject.tasks.domain.mds.task.TaskTriggerInformation;
+import org.quartz.JobDataMap;
+import org.quartz.utils.DBConnectionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+public class SchedulerChannelProviderTest {
+
+    private static final String DATA_SOURCE = "schedulerChannelProviderDS";
+    private static final String SCHEDULER_NAME = "SchedulerChannelProviderScheduler";
+
+    private SchedulerChannelProvider channelProvider;
+
+    @Before
+    public void setUp() {
+        EmbeddedQuartzDatabase.addConnectionProvider("schedulerchannelprovider", DATA_SOURCE);
+
+        Properties sqlProperties = new Properties();
+        sqlProperties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE);
+        sqlProperties.setProperty("org.quartz.dataSource.motechDS.driver", "org.h2.Driver");
+        channelProvider = new SchedulerChannelProvider(sqlProperties);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(DATA_SOURCE);
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM qrtz_job_details WHERE SCHED_NAME = ?")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    public void shouldListTriggersOfJobsWithCompactAndSerializedJobData() throws Exception {
+        addJob("compact-job", CompactJobDataSerializer.serialize(jobData("compact_event")).toByteArray());
+        addJob("serialized-job", serialized(jobData("serialized_event")));
+
+        List<TriggerEvent> triggers = channelProvider.getTriggers(1, 10);
+
+        assertEquals(2, triggers.size());
+        assertEquals(2, channelProvider.countTriggers());
+        for (TriggerEvent trigger : triggers) {
+            assertEquals(trigger.getSubject().startsWith("compact") ? "compact_event" : "serialized_event",
+                    trigger.getTriggerListenerSubject());
+        }
+    }
+
+    @Test
+    public void shouldGetTriggerOfJobWithCompactJobData() throws Exception {
+        addJob("compact-job", CompactJobDataSerializer.serialize(jobData("compact_event")).toByteArray());
+
+        TriggerEvent trigger = channelProvider.getTrigger(new TaskTriggerInformation("Job: compact-job",
+                "scheduler", "motech-scheduler", "0.27", "compact-job", null));
+
+        assertEquals("compact-job", trigger.getSubject());
+        assertEquals("compact_event", trigger.getTriggerListenerSubject());
+    }
+
+    private void addJob(String name, byte[] data) throws SQLException {
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(DATA_SOURCE);
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO qrtz_job_details (SCHED_NAME, JOB_NAME, " +
+                        "JOB_GROUP, JOB_CLASS_NAME, IS_DURABLE, IS_NONCONCURRENT, IS_UPDATE_DATA, REQUESTS_RECOVERY, " +
+                        "JOB_DATA) VALUES (?, ?, 'default', 'Job', FALSE, FALSE, FALSE, FALSE, ?)")) {
+            stmt.setString(1, SCHEDULER_NAME);
+            stmt.setString(2, name);
+            stmt.setBytes(3, data);
+            stmt.executeUpdate();
+        }
+    }
+
+    private JobDataMap jobData(String eventType) {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(SchedulerConstants.EVENT_TYPE_KEY_NAME, eventType);
+        jobDataMap.put("JobID", "job-1");
+        return jobDataMap;
+    }
+
+    private byte[] serialized(JobDataMap jobDataMap) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(jobDataMap);
+        }
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+package org.motechproject.scheduler.util;
+
+import com.googlecode.flyway.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.quartz.utils.ConnectionProvider;
+import org.quartz.utils.DBConnectionManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates in-memory H2 databases, run in the PostgreSQL mode, with the Quartz tables of the scheduler. The tables are
+ * created by running the default Flyway migrations of the scheduler. H2 does not support operator classes, so the
+ * <code>varchar_pattern_ops</code> of the trigger name prefix index is dropped from the statements, every other
+ * statement is run as it is.
+ */
+public final class EmbeddedQuartzDatabase {
+
+    public static final String USER = "sa";
+    public static final String PASSWORD = "";
+
+    private static final String MIGRATIONS = "db/migration/scheduler/default";
+    private static final String PATTERN_OPS = " varchar_pattern_ops";
+    private static final List<String> SQL_METHODS = Arrays.asList("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "addBatch", "prepareStatement", "prepareCall");
+
+    private static final Set<String> MIGRATED = new HashSet<>();
+
+    /**
+     * Returns the URL of the database with the given name, the database is created and migrated on the first call.
+     *
+     * @param name the name of the database
+     * @return the JDBC URL of the database
+     */
+    public static synchronized String getUrl(String name) {
+        String url = "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+        if (MIGRATED.add(url)) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL(url);
+            dataSource.setUser(USER);
+            dataSource.setPassword(PASSWORD);
+
+            Flyway flyway = new Flyway();
+            flyway.setDataSource(withoutPatternOps(dataSource));
+            flyway.setLocations(MIGRATIONS);
+            flyway.migrate();
+        }
+
+        return url;
+    }
+
+    /**
+     * Registers a Quartz connection provider for the database with the given name, the database is created and
+     * migrated if it does not exist yet.
+     *
+     * @param name the name of the database
+     * @param dataSource the name of the Quartz data source
+     */
+    public static void addConnectionProvider(String name, String dataSource) {
+        final String url = getUrl(name);
+
+        DBConnectionManager.getInstance().addConnectionProvider(dataSource, new ConnectionProvider() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return DriverManager.getConnection(url, USER, PASSWORD);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public void initialize() {
+            }
+        });
+    }
+
+    private static DataSource withoutPatternOps(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(EmbeddedQuartzDatabase.class.getClassLoader(),
+                new Class<?>[] {DataSource.class}, new PatternOpsRemover(dataSource));
+    }
+
+    private static final class PatternOpsRemover implements InvocationHandler {
+        private final Object target;
+
+        private PatternOpsRemover(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] instanceof String && SQL_METHODS.contains(method.getName())) {
+                args[0] = ((String) args[0]).replace(PATTERN_OPS, "");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            // the statements are run through the connections and statements created by the data source
+            Class<?> type = method.getReturnType();
+            if (result != null && (Connection.class.isAssignableFrom(type) || Statement.class.isAssignableFrom(type))) {
+                return Proxy.newProxyInstance(EmbeddedQuartzDatabase.class.getClassLoader(), new Class<?>[] {type},
+                        new PatternOpsRemover(result));
+            }
+            return result;
+        }
+    }
+
+    private EmbeddedQuartzDatabase() {
+    }
+}
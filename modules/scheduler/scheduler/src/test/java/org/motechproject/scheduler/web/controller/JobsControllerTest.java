@@ -5,6 +5,8 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.JobGroupInfo;
+import org.motechproject.scheduler.contract.SchedulerMetrics;
 import org.motechproject.scheduler.service.MotechSchedulerDatabaseService;
 import org.motechproject.scheduler.service.MotechSchedulerService;
 import org.motechproject.scheduler.contract.JobsSearchSettings;
@@ -13,6 +15,7 @@ import org.quartz.SchedulerException;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -105,6 +108,36 @@ public class JobsControllerTest {
         verify(motechSchedulerDatabaseService).getScheduledJobDetailedInfo(testJobBasicInfo3);
     }
 
+    @Test
+    public void shouldGetSchedulerMetrics() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        when(motechSchedulerService.getSchedulerMetrics()).thenReturn(metrics);
+
+        assertEquals(metrics, jobsController.getSchedulerMetrics());
+        verify(motechSchedulerService).getSchedulerMetrics();
+    }
+
+    @Test
+    public void shouldGetJobGroups() {
+        List<JobGroupInfo> groups = Arrays.asList(new JobGroupInfo("default", 3, false, 5),
+                new JobGroupInfo("messagecampaign", 120, true, 1));
+        when(motechSchedulerService.getJobGroups()).thenReturn(groups);
+
+        assertEquals(groups, jobsController.getJobGroups());
+    }
+
+    @Test
+    public void shouldPauseResumeAndDeleteJobGroup() {
+        jobsController.pauseJobGroup("messagecampaign");
+        verify(motechSchedulerService).pauseJobGroup("messagecampaign");
+
+        jobsController.resumeJobGroup("messagecampaign");
+        verify(motechSchedulerService).resumeJobGroup("messagecampaign");
+
+        jobsController.deleteJobGroup("messagecampaign");
+        verify(motechSchedulerService).unscheduleJobGroup("messagecampaign");
+    }
+
     private JobsSearchSettings getDefaultGridSettings() {
         JobsSearchSettings jobsSearchSettings = new JobsSearchSettings();
 
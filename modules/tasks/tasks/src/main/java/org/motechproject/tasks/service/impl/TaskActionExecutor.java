@@ -2,8 +2,11 @@ package org.motechproject.tasks.service.impl;
 
 import com.google.common.collect.Multimap;
 import org.motechproject.commons.api.MotechException;
+import org.motechproject.config.SettingsFacade;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
 import org.motechproject.tasks.domain.KeyInformation;
 import org.motechproject.tasks.domain.mds.ParameterType;
 import org.motechproject.tasks.domain.mds.channel.ActionEvent;
@@ -21,6 +24,7 @@ import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.InvocationTargetException;
@@ -40,13 +44,19 @@ import static org.motechproject.tasks.domain.mds.ParameterType.MAP;
 
 /**
  * Builds action parameters from  {@link TaskContext} and executes the action by invoking its service or raising its event.
+ * Events are raised asynchronously if the {@code task.action.publish.async} setting is enabled, so that the task
+ * handler does not wait for the broker.
  */
 @Component
 public class TaskActionExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskActionExecutor.class);
 
+    private static final String ACTION_PUBLISH_ASYNC_KEY = "task.action.publish.async";
+
     private BundleContext bundleContext;
     private EventRelay eventRelay;
+    private TraceService traceService;
+    private SettingsFacade settings;
 
     private TaskService taskService;
     private TaskActivityService activityService;
@@ -73,6 +83,20 @@ public class TaskActionExecutor {
      */
     public void execute(Task task, TaskActionInformation actionInformation, Integer actionIndex, TaskContext taskContext, long activityId) throws TaskHandlerException {
         LOGGER.info("Executing task action: {} from task: {}", actionInformation.getName(), task.getName());
+        Span span = startActionSpan(task, actionInformation);
+        boolean failed = true;
+
+        try {
+            executeAction(task, actionInformation, actionIndex, taskContext, activityId);
+            failed = false;
+        } finally {
+            if (traceService != null) {
+                traceService.endSpan(span, failed);
+            }
+        }
+    }
+
+    private void executeAction(Task task, TaskActionInformation actionInformation, Integer actionIndex, TaskContext taskContext, long activityId) throws TaskHandlerException {
         KeyEvaluator keyEvaluator = new KeyEvaluator(taskContext);
 
         ActionEvent action = getActionEvent(actionInformation);
@@ -93,7 +117,12 @@ public class TaskActionExecutor {
         if (!action.hasSubject()) {
             throw new TaskHandlerException(ACTION, "task.error.cantExecuteAction");
         } else {
-            eventRelay.sendEventMessage(new MotechEvent(action.getSubject(), parameters, TasksEventCallbackService.TASKS_EVENT_CALLBACK_NAME, taskContext.getMetadata()));
+            MotechEvent event = new MotechEvent(action.getSubject(), parameters, TasksEventCallbackService.TASKS_EVENT_CALLBACK_NAME, taskContext.getMetadata());
+            if (isPublishAsync()) {
+                eventRelay.sendEventMessageAsync(event);
+            } else {
+                eventRelay.sendEventMessage(event);
+            }
             LOGGER.info("Event: {} was sent", action.getSubject());
         }
     }
@@ -278,7 +307,29 @@ public class TaskActionExecutor {
         }
     }
 
+    private Span startActionSpan(Task task, TaskActionInformation actionInformation) {
+        Span span = traceService == null ? null : traceService.startSpan(TraceService.TASK_ACTION, actionInformation.getName());
+        if (span != null) {
+            span.addAttribute("task", task.getName());
+        }
+        return span;
+    }
+
+    private boolean isPublishAsync() {
+        return settings != null && Boolean.parseBoolean(settings.getProperty(ACTION_PUBLISH_ASYNC_KEY));
+    }
+
     void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
     }
+
+    @Autowired(required = false)
+    public void setTraceService(TraceService traceService) {
+        this.traceService = traceService;
+    }
+
+    @Autowired(required = false)
+    public void setSettings(@Qualifier("tasksSettings") SettingsFacade settings) {
+        this.settings = settings;
+    }
 }
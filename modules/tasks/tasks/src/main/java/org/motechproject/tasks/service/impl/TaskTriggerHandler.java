@@ -4,10 +4,13 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.motechproject.commons.api.DataProvider;
 import org.motechproject.commons.api.TasksEventParser;
+import org.motechproject.commons.api.TraceContext;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.EventListenerRegistryService;
 import org.motechproject.event.listener.annotations.MotechListenerEventProxy;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
 import org.motechproject.tasks.constants.EventDataKeys;
 import org.motechproject.tasks.domain.mds.task.Task;
 import org.motechproject.tasks.domain.mds.task.TaskActivity;
@@ -65,6 +68,9 @@ public class TaskTriggerHandler implements TriggerHandler {
     @Autowired
     private TasksPostExecutionHandler postExecutionHandler;
 
+    @Autowired(required = false)
+    private TraceService traceService;
+
     private Map<String, DataProvider> dataProviders;
 
     @PostConstruct
@@ -119,7 +125,7 @@ public class TaskTriggerHandler implements TriggerHandler {
 
         // Look for custom event parser
         Map<String, Object> eventParams = event.getParameters();
-        eventParams.putAll(event.getMetadata());
+        addMetadata(eventParams, event.getMetadata());
 
         TasksEventParser parser = null;
         if (eventParams != null) {
@@ -168,18 +174,56 @@ public class TaskTriggerHandler implements TriggerHandler {
         TaskContext taskContext = new TaskContext(task, parameters, metadata, activityService);
         TaskInitializer initializer = new TaskInitializer(taskContext);
 
+        Span span = startSpan(TraceService.TASK, task.getName());
+        boolean failed = true;
+
         try {
             LOGGER.info("Executing all actions from task: {}", task.getName());
-            if (initializer.evalConfigSteps(dataProviders)) {
+            if (evalConfigSteps(task, initializer)) {
                 for (int i = 0; i < task.getActions().size(); i++) {
                     executor.execute(task, task.getActions().get(i), i, taskContext, activityId);
                 }
             }
+            failed = false;
             LOGGER.warn("Actions from task: {} weren't executed, because config steps didn't pass the evaluation", task.getName());
         } catch (TaskHandlerException e) {
             postExecutionHandler.handleError(parameters, metadata, task, e, activityId);
         } catch (RuntimeException e) {
             postExecutionHandler.handleError(parameters, metadata, task, new TaskHandlerException(TRIGGER, "task.error.unrecognizedError", e), activityId);
+        } finally {
+            endSpan(span, failed);
+        }
+    }
+
+    private boolean evalConfigSteps(Task task, TaskInitializer initializer) throws TaskHandlerException {
+        Span span = startSpan(TraceService.TASK_DATA_SOURCES, task.getName());
+        boolean failed = true;
+
+        try {
+            boolean passed = initializer.evalConfigSteps(dataProviders);
+            failed = false;
+            return passed;
+        } finally {
+            endSpan(span, failed);
+        }
+    }
+
+    private Span startSpan(String stage, String name) {
+        return traceService == null ? null : traceService.startSpan(stage, name);
+    }
+
+    private void endSpan(Span span, boolean failed) {
+        if (traceService != null) {
+            traceService.endSpan(span, failed);
+        }
+    }
+
+    private void addMetadata(Map<String, Object> eventParams, Map<String, Object> metadata) {
+        // the trace context is not a parameter of the trigger, it is carried by the thread handling the event
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            if (!TraceContext.isTraceKey(entry.getKey())) {
+                eventParams.put(entry.getKey(), entry.getValue());
+            }
         }
     }
 
@@ -4,8 +4,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.config.SettingsFacade;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
 import org.motechproject.tasks.constants.EventDataKeys;
 import org.motechproject.tasks.domain.ObjectTest;
 import org.motechproject.tasks.domain.mds.channel.ActionEvent;
@@ -53,6 +56,10 @@ public class TaskActionExecutorTest {
     private BundleContext bundleContext;
     @Mock
     private TasksPostExecutionHandler postExecutionHandler;
+    @Mock
+    private TraceService traceService;
+    @Mock
+    private SettingsFacade settings;
 
     @Test
     public void shouldRaiseEventIfActionHasSubject() throws ActionNotFoundException, TaskHandlerException {
@@ -78,6 +85,47 @@ public class TaskActionExecutorTest {
         verify(eventRelay).sendEventMessage(raisedEvent);
     }
 
+    @Test
+    public void shouldRecordSpanOfAction() throws ActionNotFoundException, TaskHandlerException {
+        TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "actionSubject");
+        ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action").setSubject("actionSubject")
+                .setDescription("").setActionParameters(new TreeSet<>()).build();
+        when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
+
+        Span span = new Span();
+        when(traceService.startSpan(TraceService.TASK_ACTION, "action")).thenReturn(span);
+
+        Task task = new TaskBuilder().withName("task").addAction(actionInformation).build();
+
+        TaskActionExecutor taskActionExecutor = new TaskActionExecutor(taskService, activityService, eventRelay, postExecutionHandler);
+        taskActionExecutor.setTraceService(traceService);
+
+        taskActionExecutor.execute(task, actionInformation, 0, new TaskContext(task, new HashMap<>(), new HashMap<>(), activityService), TASK_ACTIVITY_ID);
+
+        verify(eventRelay).sendEventMessage(any(MotechEvent.class));
+        verify(traceService).endSpan(span, false);
+        assertEquals("task", span.getAttributes().get("task"));
+    }
+
+    @Test
+    public void shouldRaiseEventAsynchronouslyIfEnabled() throws ActionNotFoundException, TaskHandlerException {
+        TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "actionSubject");
+        ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action").setSubject("actionSubject")
+                .setDescription("").setActionParameters(new TreeSet<>()).build();
+        when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
+        when(settings.getProperty("task.action.publish.async")).thenReturn("true");
+
+        Task task = new TaskBuilder().addAction(actionInformation).build();
+
+        TaskActionExecutor taskActionExecutor = new TaskActionExecutor(taskService, activityService, eventRelay, postExecutionHandler);
+        taskActionExecutor.setSettings(settings);
+
+        taskActionExecutor.execute(task, actionInformation, 0, new TaskContext(task, new HashMap<>(), new HashMap<>(), activityService), TASK_ACTIVITY_ID);
+
+        verify(eventRelay).sendEventMessageAsync(any(MotechEvent.class));
+        verify(eventRelay, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
     @Test
     public void shouldRaiseEventWhenActionHasSubjectAndService_IfServiceIsNotAvailable() throws TaskHandlerException, ActionNotFoundException {
         TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
@@ -0,0 +1,174 @@
+package org.motechproject.commons.api;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifies the span of work being done by the current thread within a trace. A trace follows a unit of work, such
+ * as a job fired by the scheduler, through the events, tasks and actions it causes. The context travels between
+ * threads and MOTECH instances in the metadata of events, under the {@link #TRACE_ID} and {@link #SPAN_ID} keys.
+ * <p>
+ * Modules that cannot depend on the event module, such as MDS, can read the context of the current thread in order
+ * to pass it along with the events they publish.
+ */
+public final class TraceContext {
+
+    /**
+     * The metadata key of the id of the trace.
+     */
+    public static final String TRACE_ID = "motech.trace.id";
+
+    /**
+     * The metadata key of the id of the span which published the event.
+     */
+    public static final String SPAN_ID = "motech.trace.span.id";
+
+    /**
+     * The metadata key of the time at which the event was published, in milliseconds since the epoch.
+     */
+    public static final String SENT_TIME = "motech.trace.sent.time";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final String spanId;
+
+    public TraceContext(String traceId, String spanId) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+    }
+
+    /**
+     * Creates the context of the first span of a new trace.
+     *
+     * @return the new context
+     */
+    public static TraceContext newTrace() {
+        return new TraceContext(newId(), newId());
+    }
+
+    /**
+     * Creates the context of a span nested in the given one, or of the first span of a new trace if there is
+     * no parent.
+     *
+     * @param parent the context of the parent span, may be null
+     * @return the new context
+     */
+    public static TraceContext child(TraceContext parent) {
+        return parent == null ? newTrace() : new TraceContext(parent.traceId, newId());
+    }
+
+    /**
+     * @return the context of the current thread, null if the thread is not doing traced work
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the given context the context of the current thread.
+     *
+     * @param context the context to activate, null clears the context
+     * @return the previous context of the thread, to be passed to {@link #restore(TraceContext)}
+     */
+    public static TraceContext activate(TraceContext context) {
+        TraceContext previous = CURRENT.get();
+        set(context);
+        return previous;
+    }
+
+    /**
+     * Restores the context which was active before {@link #activate(TraceContext)} was called.
+     *
+     * @param previous the context returned by {@link #activate(TraceContext)}
+     */
+    public static void restore(TraceContext previous) {
+        set(previous);
+    }
+
+    /**
+     * Reads the context from the metadata of an event.
+     *
+     * @param metadata the metadata, may be null
+     * @return the context, null if the metadata does not carry one
+     */
+    public static TraceContext fromMetadata(Map<String, Object> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+
+        Object traceId = metadata.get(TRACE_ID);
+        if (!(traceId instanceof String) || StringUtils.isBlank((String) traceId)) {
+            return null;
+        }
+
+        Object spanId = metadata.get(SPAN_ID);
+        return new TraceContext((String) traceId, spanId instanceof String ? (String) spanId : null);
+    }
+
+    /**
+     * Writes this context to the metadata of an event.
+     *
+     * @param metadata the metadata to write to
+     */
+    public void writeTo(Map<String, Object> metadata) {
+        metadata.put(TRACE_ID, traceId);
+        if (spanId != null) {
+            metadata.put(SPAN_ID, spanId);
+        }
+    }
+
+    /**
+     * @param key the metadata key
+     * @return true if the key is one of the keys used for tracing
+     */
+    public static boolean isTraceKey(String key) {
+        return TRACE_ID.equals(key) || SPAN_ID.equals(key) || SENT_TIME.equals(key);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    private static void set(TraceContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    private static String newId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        TraceContext that = (TraceContext) o;
+        return Objects.equals(traceId, that.traceId) && Objects.equals(spanId, that.spanId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(traceId, spanId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TraceContext{traceId='%s', spanId='%s'}", traceId, spanId);
+    }
+}
@@ -0,0 +1,57 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.MotechEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the events and subjects used by the benchmarks.
+ */
+public final class BenchmarkEvents {
+
+    public static final String SUBJECT_PREFIX = "org.motechproject.benchmark";
+
+    /**
+     * Returns a subject with the given number of path elements after the common prefix.
+     *
+     * @param index distinguishes subjects of the same depth
+     * @param depth the number of path elements after the prefix, at least 1
+     * @return the subject
+     */
+    public static String subject(int index, int depth) {
+        StringBuilder subject = new StringBuilder(SUBJECT_PREFIX);
+        for (int level = 0; level < depth - 1; level++) {
+            subject.append(".level").append(level);
+        }
+        return subject.append(".subject").append(index).toString();
+    }
+
+    /**
+     * Returns an event with parameters of the usual types.
+     *
+     * @param subject the subject of the event
+     * @param parameterCount the number of parameters
+     * @return the event
+     */
+    public static MotechEvent event(String subject, int parameterCount) {
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < parameterCount; i++) {
+            switch (i % 3) {
+                case 0:
+                    parameters.put("param" + i, "value" + i);
+                    break;
+                case 1:
+                    parameters.put("param" + i, i);
+                    break;
+                default:
+                    parameters.put("param" + i, (long) i);
+                    break;
+            }
+        }
+        return new MotechEvent(subject, parameters);
+    }
+
+    private BenchmarkEvents() {
+    }
+}
@@ -0,0 +1,37 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A listener doing no work, so that benchmarks measure the event pipeline only. Each handled event releases a permit
+ * of the semaphore, if given, so that benchmarks can wait for events handled on other threads.
+ */
+public class BenchmarkListener implements EventListener {
+
+    private final String identifier;
+    private final Semaphore handled;
+
+    public BenchmarkListener(String identifier) {
+        this(identifier, null);
+    }
+
+    public BenchmarkListener(String identifier, Semaphore handled) {
+        this.identifier = identifier;
+        this.handled = handled;
+    }
+
+    @Override
+    public void handle(MotechEvent event) {
+        if (handled != null) {
+            handled.release();
+        }
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+}
@@ -0,0 +1,209 @@
+package org.motechproject.event.benchmark;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.impl.EventListenerRegistry;
+import org.motechproject.event.listener.impl.ListenerExecutor;
+import org.motechproject.event.listener.impl.ServerEventRelay;
+import org.motechproject.event.messaging.MotechEventCodec;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.messaging.OutboundEventGateway;
+import org.motechproject.event.messaging.impl.BinaryMotechEventCodec;
+import org.motechproject.event.messaging.impl.EmbeddedBroker;
+import org.motechproject.event.metrics.impl.EventMetricsServiceImpl;
+import org.motechproject.event.trace.impl.TraceServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing an event and waiting until its listener handled it, through an embedded broker reached with the
+ * in-VM transport. Events are encoded in the same formats as in the event module, and relayed to the listener by
+ * the {@link ServerEventRelay} on the consumer thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    /**
+     * The format of the messages carrying events.
+     */
+    public enum MessageFormat {
+        SERIALIZED, BINARY
+    }
+
+    private static final String SUBJECT = BenchmarkEvents.subject(0, 3);
+    private static final String QUEUE = "BenchmarkQueueForEvents";
+
+    @Param({ "SERIALIZED", "BINARY" })
+    private MessageFormat format;
+
+    @Param({ "false", "true" })
+    private boolean persistent;
+
+    @Param({ "5" })
+    private int parameterCount;
+
+    private File dataDirectory;
+    private EmbeddedBroker broker;
+    private Connection connection;
+    private JmsEventGateway gateway;
+    private ServerEventRelay serverEventRelay;
+    private MotechEvent event;
+
+    private final Semaphore handled = new Semaphore(0);
+    private final MotechEventCodec codec = new BinaryMotechEventCodec();
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDirectory = Files.createTempDirectory("motech-event-benchmark").toFile();
+
+        broker = new EmbeddedBroker();
+        broker.setEnabled(true);
+        broker.setBrokerName("motech-benchmark");
+        broker.setPersistent(persistent);
+        broker.setDataDirectory(dataDirectory.getAbsolutePath());
+        broker.start();
+
+        connection = new ActiveMQConnectionFactory(broker.getBrokerUrl(null)).createConnection();
+        connection.start();
+
+        EventListenerRegistry registry = new EventListenerRegistry();
+        registry.registerListener(new BenchmarkListener("listener", handled), SUBJECT);
+
+        gateway = new JmsEventGateway(connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+        MotechEventConfig motechEventConfig = new MotechEventConfig();
+        serverEventRelay = new ServerEventRelay(gateway, registry, motechEventConfig, null, null, null,
+                new EventMetricsServiceImpl(), null, null, null, new TraceServiceImpl(motechEventConfig), null,
+                new ListenerExecutor(motechEventConfig));
+
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = consumerSession.createConsumer(new ActiveMQQueue(QUEUE));
+        consumer.setMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+                serverEventRelay.relayQueueEvent(decode(message));
+            }
+        });
+
+        event = BenchmarkEvents.event(SUBJECT, parameterCount);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+        delete(dataDirectory);
+    }
+
+    @Benchmark
+    public void publishAndHandle() throws InterruptedException {
+        serverEventRelay.sendEventMessage(event);
+        handled.acquire();
+    }
+
+    private MotechEvent decode(Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                BytesMessage bytesMessage = (BytesMessage) message;
+                byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(bytes);
+                return codec.decode(bytes);
+            }
+            return (MotechEvent) ((ObjectMessage) message).getObject();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Unable to decode the event", e);
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Sends events to the benchmark queue, in the way the event module does.
+     */
+    private class JmsEventGateway implements OutboundEventGateway {
+
+        private final Session session;
+        private final MessageProducer producer;
+
+        JmsEventGateway(Session session) throws JMSException {
+            this.session = session;
+            this.producer = session.createProducer(new ActiveMQQueue(QUEUE));
+            this.producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        }
+
+        @Override
+        public void sendEventMessage(MotechEvent motechEvent) {
+            try {
+                producer.send(encode(motechEvent));
+            } catch (JMSException e) {
+                throw new IllegalStateException("Unable to send the event", e);
+            }
+        }
+
+        @Override
+        public void broadcastEventMessage(MotechEvent motechEvent) {
+            sendEventMessage(motechEvent);
+        }
+
+        @Override
+        public void sendEventMessages(Collection<MotechEvent> motechEvents) {
+            for (MotechEvent motechEvent : motechEvents) {
+                sendEventMessage(motechEvent);
+            }
+        }
+
+        @Override
+        public void broadcastEventMessages(Collection<MotechEvent> motechEvents) {
+            sendEventMessages(motechEvents);
+        }
+
+        private Message encode(MotechEvent motechEvent) throws JMSException {
+            if (format == MessageFormat.BINARY) {
+                BytesMessage message = session.createBytesMessage();
+                message.writeBytes(codec.encode(motechEvent));
+                return message;
+            }
+            return session.createObjectMessage(motechEvent);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.impl.EventListenerRegistry;
+import org.motechproject.event.listener.impl.EventListenerTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration and lookup of listeners in the {@link EventListenerTree}, for subjects of different depths and
+ * different mixes of exact and wildcard registrations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventListenerTreeBenchmark {
+
+    /**
+     * How listeners are registered: all for exact subjects, every fourth for a wildcard subject, or all for
+     * wildcard subjects.
+     */
+    public enum SubjectMix {
+        EXACT, MIXED, WILDCARD
+    }
+
+    @Param({ "2", "4", "8" })
+    private int depth;
+
+    @Param({ "EXACT", "MIXED", "WILDCARD" })
+    private SubjectMix mix;
+
+    @Param({ "1000" })
+    private int subjectCount;
+
+    private String[] subjects;
+    private EventListenerTree tree;
+    private EventListenerRegistry registry;
+    private EventListener listener;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        subjects = new String[subjectCount];
+        tree = new EventListenerTree();
+        registry = new EventListenerRegistry();
+
+        for (int i = 0; i < subjectCount; i++) {
+            subjects[i] = BenchmarkEvents.subject(i, depth);
+
+            EventListener subjectListener = new BenchmarkListener("listener" + i);
+            String registeredSubject = isWildcard(i) ? wildcard(subjects[i]) : subjects[i];
+
+            tree.addListener(subjectListener, registeredSubject);
+            registry.registerListener(subjectListener, registeredSubject);
+        }
+
+        listener = new BenchmarkListener("registered");
+    }
+
+    @Benchmark
+    public Set<EventListener> lookup() {
+        return tree.getListeners(nextSubject());
+    }
+
+    @Benchmark
+    public Set<EventListener> cachedLookup() {
+        return registry.getListeners(nextSubject());
+    }
+
+    @Benchmark
+    public EventListenerTree register() {
+        // the registry never modifies a published tree, listeners are added to a copy of it
+        EventListenerTree copy = tree.copy();
+        copy.addListener(listener, nextSubject());
+        return copy;
+    }
+
+    private String nextSubject() {
+        next = (next + 1) % subjects.length;
+        return subjects[next];
+    }
+
+    private boolean isWildcard(int index) {
+        switch (mix) {
+            case WILDCARD:
+                return true;
+            case MIXED:
+                return index % 4 == 0;
+            default:
+                return false;
+        }
+    }
+
+    private static String wildcard(String subject) {
+        return subject.substring(0, subject.lastIndexOf('.')) + ".*";
+    }
+}
@@ -0,0 +1,88 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.annotations.MotechListenerEventProxy;
+import org.motechproject.event.listener.annotations.MotechListenerNamedParametersProxy;
+import org.motechproject.event.listener.annotations.MotechParam;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invocation of annotated listener methods through the listener proxies, compared with calling the method directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerProxyBenchmark {
+
+    private Handler handler;
+    private EventListener eventProxy;
+    private EventListener namedParametersProxy;
+    private MotechEvent event;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new Handler();
+
+        eventProxy = new MotechListenerEventProxy("eventProxy", handler,
+                Handler.class.getMethod("handle", MotechEvent.class));
+        namedParametersProxy = new MotechListenerNamedParametersProxy("namedParametersProxy", handler,
+                Handler.class.getMethod("handle", String.class, Integer.class, Long.class));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", "value");
+        parameters.put("count", 1);
+        parameters.put("id", 2L);
+        event = new MotechEvent(BenchmarkEvents.subject(0, 3), parameters);
+    }
+
+    @Benchmark
+    public long direct() {
+        handler.handle(event);
+        return handler.handled;
+    }
+
+    @Benchmark
+    public long eventProxy() {
+        eventProxy.handle(event);
+        return handler.handled;
+    }
+
+    @Benchmark
+    public long namedParametersProxy() {
+        namedParametersProxy.handle(event);
+        return handler.handled;
+    }
+
+    /**
+     * The listener bean, its methods have the signatures supported by the proxies.
+     */
+    public static class Handler {
+        private long handled;
+
+        public void handle(MotechEvent event) {
+            handled++;
+        }
+
+        public void handle(@MotechParam("name") String name, @MotechParam("count") Integer count,
+                           @MotechParam("id") Long id) {
+            handled++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.impl.EventListenerRegistry;
+import org.motechproject.event.listener.impl.ListenerExecutor;
+import org.motechproject.event.listener.impl.ServerEventRelay;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.metrics.impl.EventMetricsServiceImpl;
+import org.motechproject.event.trace.impl.TraceServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting events for their listeners and relaying them, with a stub gateway in place of the broker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerEventRelayBenchmark {
+
+    private static final String SUBJECT = BenchmarkEvents.subject(0, 3);
+    private static final int BATCH_SIZE = 100;
+
+    @Param({ "1", "5", "20" })
+    private int listenerCount;
+
+    @Param({ "2", "20" })
+    private int parameterCount;
+
+    private ServerEventRelay serverEventRelay;
+    private StubEventGateway gateway;
+    private MotechEvent event;
+    private MotechEvent queueEvent;
+    private List<MotechEvent> batch;
+
+    @Setup
+    public void setUp() {
+        EventListenerRegistry registry = new EventListenerRegistry();
+        for (int i = 0; i < listenerCount; i++) {
+            registry.registerListener(new BenchmarkListener("listener" + i), SUBJECT);
+        }
+
+        gateway = new StubEventGateway();
+        MotechEventConfig motechEventConfig = new MotechEventConfig();
+        serverEventRelay = new ServerEventRelay(gateway, registry, motechEventConfig, null, null, null,
+                new EventMetricsServiceImpl(), null, null, null, new TraceServiceImpl(motechEventConfig), null,
+                new ListenerExecutor(motechEventConfig));
+
+        event = BenchmarkEvents.event(SUBJECT, parameterCount);
+
+        queueEvent = BenchmarkEvents.event(SUBJECT, parameterCount);
+        queueEvent.setMessageDestination("listener0");
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchmarkEvents.event(SUBJECT, parameterCount));
+        }
+    }
+
+    @Benchmark
+    public long send() {
+        serverEventRelay.sendEventMessage(event);
+        return gateway.getSent();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long sendBatch() {
+        serverEventRelay.sendEventMessages(batch);
+        return gateway.getSent();
+    }
+
+    @Benchmark
+    public void relayQueueEvent() {
+        serverEventRelay.relayQueueEvent(queueEvent);
+    }
+}
@@ -0,0 +1,39 @@
+package org.motechproject.event.benchmark;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.OutboundEventGateway;
+
+import java.util.Collection;
+
+/**
+ * An outbound gateway that only counts the events it receives, so that relaying events can be measured without
+ * a broker.
+ */
+public class StubEventGateway implements OutboundEventGateway {
+
+    private long sent;
+
+    @Override
+    public void sendEventMessage(MotechEvent motechEvent) {
+        sent++;
+    }
+
+    @Override
+    public void broadcastEventMessage(MotechEvent motechEvent) {
+        sent++;
+    }
+
+    @Override
+    public void sendEventMessages(Collection<MotechEvent> motechEvents) {
+        sent += motechEvents.size();
+    }
+
+    @Override
+    public void broadcastEventMessages(Collection<MotechEvent> motechEvents) {
+        sent += motechEvents.size();
+    }
+
+    public long getSent() {
+        return sent;
+    }
+}
@@ -0,0 +1,213 @@
+package org.motechproject.event;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map that shares its contents with other copy-on-write maps until it is modified. Used for parameters and
+ * metadata of events that are handed to many listeners, so that the maps are only copied for listeners that modify
+ * them. The shared contents are never modified, so maps sharing them can be used by different threads. A map
+ * copies the contents on its first modification and modifies its own copy afterwards, which is never shared. A single
+ * map is not thread safe, just like a <code>HashMap</code>.
+ * <p>
+ * The map is serialized as a <code>HashMap</code>.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class CopyOnWriteMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 3870235429117626403L;
+
+    private Map<K, V> map;
+    private boolean owned;
+
+    private CopyOnWriteMap(Map<K, V> map, boolean owned) {
+        this.map = map;
+        this.owned = owned;
+    }
+
+    /**
+     * Returns a copy-on-write map with the contents of the given map. If the given map is a copy-on-write map,
+     * the returned map shares its contents. Otherwise the contents are copied once, so that later changes to the
+     * given map are not visible in the returned map or maps sharing its contents.
+     *
+     * @param map the map to share, may be null
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the copy-on-write map
+     */
+    public static <K, V> CopyOnWriteMap<K, V> share(Map<K, V> map) {
+        if (map instanceof CopyOnWriteMap) {
+            return ((CopyOnWriteMap<K, V>) map).share();
+        }
+        return new CopyOnWriteMap<>(map == null ? new HashMap<K, V>() : new HashMap<>(map), false);
+    }
+
+    /**
+     * Returns a copy-on-write map backed by the given map, without copying it. The given map must not be modified
+     * afterwards.
+     *
+     * @param map the map to wrap
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the copy-on-write map
+     */
+    public static <K, V> CopyOnWriteMap<K, V> wrap(Map<K, V> map) {
+        if (map instanceof CopyOnWriteMap) {
+            return ((CopyOnWriteMap<K, V>) map).share();
+        }
+        return new CopyOnWriteMap<>(map, false);
+    }
+
+    /**
+     * Returns a new map with the contents of this map. The contents are shared if this map was not modified yet,
+     * otherwise they are copied once, since this map keeps modifying its own copy in place. Sharing never changes
+     * this map.
+     *
+     * @return the new map
+     */
+    public CopyOnWriteMap<K, V> share() {
+        return new CopyOnWriteMap<>(owned ? new HashMap<>(map) : map, false);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return map.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return own().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!owned && !map.containsKey(key)) {
+            return null;
+        }
+        return own().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if (!m.isEmpty()) {
+            own().putAll(m);
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (owned) {
+            map.clear();
+        } else {
+            map = new HashMap<>();
+            owned = true;
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private Map<K, V> own() {
+        if (!owned) {
+            map = new HashMap<>(map);
+            owned = true;
+        }
+        return map;
+    }
+
+    private Object writeReplace() {
+        return new HashMap<>(map);
+    }
+
+    /**
+     * Iterates over the current contents. Changes made through the iterator or its entries are applied to this map,
+     * copying the contents first if they are shared.
+     */
+    private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            if (owned) {
+                return map.entrySet().iterator();
+            }
+
+            final Iterator<Entry<K, V>> iterator = Collections.unmodifiableMap(map).entrySet().iterator();
+
+            return new Iterator<Entry<K, V>>() {
+                private Entry<K, V> last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<K, V> next() {
+                    last = new SharedEntry(iterator.next());
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    // the shared contents being iterated are not modified
+                    own().remove(last.getKey());
+                    last = null;
+                }
+            };
+        }
+    }
+
+    /**
+     * An entry of the shared contents, setting its value modifies this map.
+     */
+    private class SharedEntry extends SimpleEntry<K, V> {
+        private static final long serialVersionUID = -4186257335398785217L;
+
+        SharedEntry(Entry<K, V> entry) {
+            super(entry);
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return own().put(getKey(), value);
+        }
+    }
+}
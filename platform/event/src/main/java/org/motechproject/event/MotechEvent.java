@@ -231,6 +231,24 @@ public class MotechEvent implements Serializable {
         this.metadata = metadata;
     }
 
+    /**
+     * Returns a copy of this event. The copy gets its parameters and metadata as {@link CopyOnWriteMap}s. If the maps
+     * of this event are copy-on-write maps, their contents are shared with the copy, otherwise they are copied once.
+     *
+     * @return the copy of this event
+     */
+    public MotechEvent copy() {
+        MotechEvent copy = new MotechEvent(subject, CopyOnWriteMap.share(parameters), callbackName,
+                CopyOnWriteMap.share(metadata));
+        copy.setId(id);
+        copy.setMessageRedeliveryCount(redeliveryCount);
+        copy.setInvalid(invalid);
+        copy.setDiscarded(discarded);
+        copy.setBroadcast(broadcast);
+        copy.setMessageDestination(messageDestination);
+        return copy;
+    }
+
     @Override //NO CHECKSTYLE CyclomaticComplexity
     public boolean equals(Object o) {
         if (this == o) {
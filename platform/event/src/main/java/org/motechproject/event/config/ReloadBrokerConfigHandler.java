@@ -1,6 +1,7 @@
 package org.motechproject.event.config;
 
 import org.motechproject.event.messaging.MotechCachingConnectionFactory;
+import org.motechproject.event.messaging.impl.EmbeddedBroker;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -17,6 +18,9 @@ public class ReloadBrokerConfigHandler implements EventHandler {
 
     private MotechCachingConnectionFactory connectionFactory;
 
+    @Autowired(required = false)
+    private EmbeddedBroker embeddedBroker;
+
     /**
      * @param connectionFactory the factory which inits connection to ActiveMQ.
      */
@@ -26,7 +30,7 @@ public class ReloadBrokerConfigHandler implements EventHandler {
     }
 
     /**
-     * Handles changes in the ActiveMQ broker.url variable.
+     * Handles changes in the ActiveMQ broker.url variable. Ignored when the embedded broker is used.
      *
      * @param event the event that occurred.
      */
@@ -35,7 +39,9 @@ public class ReloadBrokerConfigHandler implements EventHandler {
         try {
             Object brokerURL = event.getProperty("jms.broker.url");
 
-            if (brokerURL != null) {
+            if (brokerURL != null && embeddedBroker != null && embeddedBroker.isEnabled()) {
+                LOGGER.info("The embedded broker is used, ignoring the change of the broker URL to {}", brokerURL);
+            } else if (brokerURL != null) {
                 connectionFactory.setBrokerUrl(brokerURL.toString());
                 connectionFactory.initConnection();
             }
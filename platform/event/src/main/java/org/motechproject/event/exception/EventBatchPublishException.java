@@ -0,0 +1,44 @@
+package org.motechproject.event.exception;
+
+/**
+ * Signals that publishing a batch of events to the broker failed. Events are committed to the broker in chunks,
+ * events from chunks committed before the failure were published, all remaining events were not.
+ */
+public class EventBatchPublishException extends RuntimeException {
+
+    private static final long serialVersionUID = 3518295742307615409L;
+
+    private final int publishedCount;
+    private final int totalCount;
+
+    /**
+     * @param publishedCount the number of events that were committed to the broker before the failure
+     * @param totalCount the number of events in the batch
+     * @param cause the cause of the failure
+     */
+    public EventBatchPublishException(int publishedCount, int totalCount, Throwable cause) {
+        super(String.format("Failed to publish event batch, %d out of %d events were published", publishedCount, totalCount),
+                cause);
+        this.publishedCount = publishedCount;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Returns the number of events that were committed to the broker before the failure. These are always
+     * the first events of the batch, in the order they were passed.
+     *
+     * @return the number of published events
+     */
+    public int getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * Returns the number of events in the batch.
+     *
+     * @return the number of events in the batch
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+}
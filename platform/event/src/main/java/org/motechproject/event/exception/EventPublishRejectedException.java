@@ -0,0 +1,43 @@
+package org.motechproject.event.exception;
+
+/**
+ * Signals that events published asynchronously were rejected, because the outbound buffer was full and the overflow
+ * policy did not allow waiting, or waiting for space timed out. Events of the publish that were accepted before the
+ * rejection are still sent.
+ */
+public class EventPublishRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = -2405738163295307462L;
+
+    private final int acceptedCount;
+    private final int totalCount;
+
+    /**
+     * @param acceptedCount the number of events that were accepted by the buffer before the rejection
+     * @param totalCount the number of events that were published
+     */
+    public EventPublishRejectedException(int acceptedCount, int totalCount) {
+        super(String.format("Outbound event buffer is full, %d out of %d events were accepted", acceptedCount, totalCount));
+        this.acceptedCount = acceptedCount;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Returns the number of events that were accepted by the buffer before the rejection. These are always the first
+     * events, in the order they were published.
+     *
+     * @return the number of accepted events
+     */
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * Returns the number of events that were published.
+     *
+     * @return the number of published events
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+}
@@ -0,0 +1,36 @@
+package org.motechproject.event.exception;
+
+/**
+ * Signals that a listener did not handle an event within its timeout, and was interrupted.
+ */
+public class ListenerTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 7150231683920534412L;
+
+    private final String listenerIdentifier;
+    private final long timeout;
+
+    /**
+     * @param listenerIdentifier the identifier of the listener
+     * @param timeout the timeout of the listener, in milliseconds
+     */
+    public ListenerTimeoutException(String listenerIdentifier, long timeout) {
+        super(String.format("Listener %s did not handle the event within %d ms", listenerIdentifier, timeout));
+        this.listenerIdentifier = listenerIdentifier;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the identifier of the listener
+     */
+    public String getListenerIdentifier() {
+        return listenerIdentifier;
+    }
+
+    /**
+     * @return the timeout of the listener, in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+}
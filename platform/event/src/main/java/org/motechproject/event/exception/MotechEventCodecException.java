@@ -0,0 +1,24 @@
+package org.motechproject.event.exception;
+
+/**
+ * Signals that a <code>MotechEvent</code> could not be encoded or decoded by a {@link org.motechproject.event.messaging.MotechEventCodec}.
+ */
+public class MotechEventCodecException extends RuntimeException {
+
+    private static final long serialVersionUID = 1865079207616430318L;
+
+    /**
+     * @param message the description of the problem
+     */
+    public MotechEventCodecException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message the description of the problem
+     * @param cause the cause of the problem
+     */
+    public MotechEventCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -9,6 +9,11 @@ import org.motechproject.event.MotechEvent;
  */
 public interface EventListener {
 
+    /**
+     * Returned by {@link #getTimeout()} by listeners that use the configured default timeout.
+     */
+    long DEFAULT_TIMEOUT = -1;
+
     /**
      * Handles the particular event that has been received
      *
@@ -23,4 +28,14 @@ public interface EventListener {
      * @return the unique listener identifier/key
      */
     String getIdentifier();
+
+    /**
+     * Returns how long the listener may take to handle an event. If it takes longer, it is interrupted and the event
+     * is treated as failed, so that a hanging listener does not hold up the thread consuming events.
+     *
+     * @return the timeout in milliseconds, 0 for no timeout, {@link #DEFAULT_TIMEOUT} for the configured default
+     */
+    default long getTimeout() {
+        return DEFAULT_TIMEOUT;
+    }
 }
@@ -1,6 +1,12 @@
 package org.motechproject.event.listener;
 
+import org.joda.time.DateTime;
 import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.exception.EventPublishRejectedException;
+
+import java.util.Collection;
+import java.util.UUID;
 
 /**
  * The <code>EventRelay</code> interface provides methods that allow sending {@link org.motechproject.event.MotechEvent}
@@ -22,6 +28,19 @@ public interface EventRelay {
      */
     void sendEventMessage(MotechEvent motechEvent);
 
+    /**
+     * Publishes the event message in a queue, without waiting for the broker. Works like
+     * {@link #sendEventMessage(MotechEvent)}, but the messages are placed in a bounded outbound buffer and sent to
+     * ActiveMQ in batches by a background thread, so a slow broker does not hold up the calling thread. When the
+     * buffer is full, the configured overflow policy decides whether the call waits for space, fails, or writes
+     * the messages to disk. Messages that can't be sent to ActiveMQ are written to disk and retried, but messages
+     * published this way can reach ActiveMQ in a different order than they were published.
+     *
+     * @param motechEvent the event to be sent
+     * @throws EventPublishRejectedException if the buffer is full and the overflow policy rejected the messages
+     */
+    void sendEventMessageAsync(MotechEvent motechEvent);
+
     /**
      * Publishes the event message in a topic. The message goes to a JMS topic, so if you have multiple Motech instances, they will
      * all receive the event. This allows broadcasting administration-type events that should be handled by each node separately.
@@ -34,4 +53,69 @@ public interface EventRelay {
      * @param motechEvent the event to be broadcast
      */
     void broadcastEventMessage(MotechEvent motechEvent);
+
+    /**
+     * Publishes multiple event messages in a queue. Works like {@link #sendEventMessage(MotechEvent)} called for each
+     * of the events, but all messages are sent to ActiveMQ using a single session and producer, with one commit per
+     * batch of events instead of one per message. Use this method when publishing many events at once.
+     *
+     * @param motechEvents the events to be sent
+     * @throws EventBatchPublishException if publishing failed, it holds the number of messages that were published
+     */
+    void sendEventMessages(Collection<MotechEvent> motechEvents);
+
+    /**
+     * Publishes multiple event messages in a topic. Works like {@link #broadcastEventMessage(MotechEvent)} called for each
+     * of the events, but all messages are sent to ActiveMQ using a single session and producer, with one commit per
+     * batch of events instead of one per message.
+     *
+     * @param motechEvents the events to be broadcast
+     * @throws EventBatchPublishException if publishing failed, it holds the number of messages that were published
+     */
+    void broadcastEventMessages(Collection<MotechEvent> motechEvents);
+
+    /**
+     * Publishes the event message in a queue, to be delivered after the given delay. Works like
+     * {@link #sendEventMessage(MotechEvent)}, but the message is held back by the scheduler of the ActiveMQ broker
+     * until the delay passes. Use this method instead of scheduling a run-once job for timers that are short-lived,
+     * since it does not write to the scheduler database. In the local dispatch mode the message is held back in
+     * this instance, so it will be lost if this instance stops.
+     *
+     * @param motechEvent the event to be sent
+     * @param delayMillis the delay in milliseconds
+     * @return the id of the event, it can be used to cancel the delivery
+     */
+    UUID sendEventMessage(MotechEvent motechEvent, long delayMillis);
+
+    /**
+     * Publishes the event message in a queue, to be delivered at the given time. Works like
+     * {@link #sendEventMessage(MotechEvent, long)}. The event is delivered right away if the time has passed.
+     *
+     * @param motechEvent the event to be sent
+     * @param deliveryTime the time of delivery
+     * @return the id of the event, it can be used to cancel the delivery
+     */
+    UUID sendEventMessageAt(MotechEvent motechEvent, DateTime deliveryTime);
+
+    /**
+     * Cancels the delivery of an event sent by {@link #sendEventMessage(MotechEvent, long)} or
+     * {@link #sendEventMessageAt(MotechEvent, DateTime)}. Delivery to listeners that already received the event
+     * is not undone. Only events sent by this instance since it was started can be cancelled by their id alone,
+     * other events have to be cancelled with {@link #cancelEventMessage(UUID, DateTime)}.
+     *
+     * @param eventId the id of the event, as returned when it was sent
+     * @return {@code true} if the delivery was cancelled for at least one listener, {@code false} otherwise
+     */
+    boolean cancelEventMessage(UUID eventId);
+
+    /**
+     * Cancels the delivery of an event sent by {@link #sendEventMessage(MotechEvent, long)} or
+     * {@link #sendEventMessageAt(MotechEvent, DateTime)}, which was to be delivered around the given time. Unlike
+     * {@link #cancelEventMessage(UUID)}, this also cancels events sent by other instances or before a restart.
+     *
+     * @param eventId the id of the event, as returned when it was sent
+     * @param deliveryTime the time the event was to be delivered at, not null
+     * @return {@code true} if the delivery was cancelled for at least one listener, {@code false} otherwise
+     */
+    boolean cancelEventMessage(UUID eventId, DateTime deliveryTime);
 }
@@ -0,0 +1,53 @@
+package org.motechproject.event.listener.annotations;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Invokes a listener method through a <code>MethodHandle</code> bound to the listener bean. The handle is resolved
+ * once, when the listener proxy is created, so that handling events does not go through reflection.
+ * Exceptions are propagated in the same way {@link ReflectionUtils#invokeMethod(Method, Object, Object...)} does.
+ */
+final class ListenerMethodInvoker {
+
+    private final MethodHandle handle;
+
+    ListenerMethodInvoker(Object bean, Method method) {
+        ReflectionUtils.makeAccessible(method);
+
+        MethodHandle methodHandle;
+        try {
+            methodHandle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not access method: " + e.getMessage(), e);
+        }
+
+        if (!Modifier.isStatic(method.getModifiers())) {
+            methodHandle = methodHandle.bindTo(bean);
+        }
+
+        this.handle = methodHandle.asSpreader(Object[].class, method.getParameterTypes().length)
+                .asType(MethodType.methodType(void.class, Object[].class));
+    }
+
+    /**
+     * Invokes the listener method with the given arguments.
+     *
+     * @param args the arguments, must match the parameter types of the method
+     */
+    void invoke(Object[] args) {
+        try {
+            handle.invokeExact(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.motechproject.event.listener.annotations;
 
+import org.motechproject.event.listener.EventListener;
+
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -36,4 +38,13 @@ public @interface MotechListener {
      * @return the value of a {@link MotechListenerType}
      */
     MotechListenerType type() default MotechListenerType.MOTECH_EVENT;
+
+    /**
+     * Sets how long, in milliseconds, the listener may take to handle an event, 0 for no timeout.
+     * By default the timeout configured for all listeners is used.
+     *
+     * @return the timeout in milliseconds
+     * @see EventListener#getTimeout()
+     */
+    long timeout() default EventListener.DEFAULT_TIMEOUT;
 }
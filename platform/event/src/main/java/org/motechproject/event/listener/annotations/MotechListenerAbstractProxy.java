@@ -2,6 +2,7 @@ package org.motechproject.event.listener.annotations;
 
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventListener;
+import org.springframework.aop.support.AopUtils;
 
 import java.lang.reflect.Method;
 
@@ -16,6 +17,8 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
     private final String name;
     private final Object bean;
     private final Method method;
+    private final long timeout;
+    private final ListenerMethodInvoker invoker;
 
     /**
      *
@@ -27,6 +30,12 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
         this.name = name;
         this.bean = bean;
         this.method = method;
+
+        // the method of a proxied bean is the one of the proxy class, which is not annotated
+        MotechListener annotation = (method == null) ? null :
+                AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(bean)).getAnnotation(MotechListener.class);
+        this.timeout = annotation == null ? DEFAULT_TIMEOUT : annotation.timeout();
+        this.invoker = (method == null) ? null : new ListenerMethodInvoker(bean, method);
     }
 
     /**
@@ -36,6 +45,15 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
      */
     public abstract void callHandler(MotechEvent event);
 
+    /**
+     * Invokes the handler method with the given arguments, through the invoker built when the proxy was created.
+     *
+     * @param args the arguments, must match the parameter types of the handler method
+     */
+    protected void invokeHandler(Object[] args) {
+        invoker.invoke(args);
+    }
+
     @Override
     public void handle(MotechEvent event) {
         callHandler(event);
@@ -46,6 +64,11 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
         return this.name;
     }
 
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
     /**
      * Returns the bean where handler exists.
      *
@@ -1,7 +1,6 @@
 package org.motechproject.event.listener.annotations;
 
 import org.motechproject.event.MotechEvent;
-import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
 
@@ -22,7 +21,6 @@ public class MotechListenerEventProxy extends MotechListenerAbstractProxy {
 
     @Override
     public void callHandler(MotechEvent event) {
-        ReflectionUtils.invokeMethod(getMethod(), getBean(), event);
+        invokeHandler(new Object[] {event});
     }
-
 }
@@ -1,51 +1,86 @@
 package org.motechproject.event.listener.annotations;
 
 import org.motechproject.event.MotechEvent;
-import org.springframework.util.Assert;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ClassUtils;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the type of <code>MotechListener</code> proxy where handler is a method with
  * parameters defined by the {@link org.motechproject.event.listener.annotations.MotechParam}
- * annotation.
+ * annotation. The names and types of the parameters are read once, when the proxy is created.
  *
  * @author yyonkov
  */
 public class MotechListenerNamedParametersProxy extends MotechListenerAbstractProxy {
 
+    private final String[] paramNames;
+    private final Class<?>[] paramTypes;
+    private final String bindingError;
+
     /**
       * @see org.motechproject.event.listener.annotations.MotechListenerAbstractProxy#MotechListenerAbstractProxy(String, Object, java.lang.reflect.Method)
       */
     public MotechListenerNamedParametersProxy(String name, Object bean, Method method) {
         super(name, bean, method);
+
+        Class<?>[] methodParamTypes = (method == null) ? new Class<?>[0] : method.getParameterTypes();
+        Annotation[][] paramAnnotations = (method == null) ? new Annotation[0][] : method.getParameterAnnotations();
+
+        this.paramNames = new String[methodParamTypes.length];
+        this.paramTypes = new Class<?>[methodParamTypes.length];
+
+        String error = null;
+        for (int i = 0; i < methodParamTypes.length; i++) {
+            MotechParam annotation = findMotechParam(paramAnnotations[i]);
+            if (annotation == null) {
+                // reported when handling events, so that a misconfigured listener does not prevent others from registering
+                error = "MotechParam(name) annotation is required for each parameter.";
+                break;
+            }
+            paramNames[i] = annotation.value();
+            paramTypes[i] = ClassUtils.resolvePrimitiveIfNecessary(methodParamTypes[i]);
+        }
+
+        this.bindingError = error;
     }
 
     @Override
     public void callHandler(MotechEvent event) {
-        ReflectionUtils.invokeMethod(getMethod(), getBean(), getParameters(event).toArray());
+        invokeHandler(getParameters(event));
     }
 
-    private List<Object> getParameters(MotechEvent event) {
-        List<Object> args = new ArrayList<Object>();
-        Class<?>[] paramTypes = getMethod().getParameterTypes();
-        Annotation[][] paramAnnotations = getMethod().getParameterAnnotations();
-        Assert.isTrue(paramTypes.length == paramAnnotations.length);
-        for (int i = 0; i < paramTypes.length; i++) {
-            Class<?> t = paramTypes[i];
-            Assert.notEmpty(paramAnnotations[i], "MotechParam(name) annotation is required for each parameter.");
-            //TODO now assuming only MotechParam annotation is present...
-            Assert.isAssignable(MotechParam.class, paramAnnotations[i][0].getClass());
-            MotechParam annotation = (MotechParam) paramAnnotations[i][0];
-            Object arg = event.getParameters().get(annotation.value());
-            Assert.notNull(arg, String.format("parameter #%d with name:\"%s\" not found or null parameter passed.", i, annotation.value()));
-            Assert.isAssignable(t, arg.getClass(), String.format("Parameter #%d expected subtypes of %s passed %s.", i, t.getName(), arg.getClass().getName()));
-            args.add(arg);
+    private Object[] getParameters(MotechEvent event) {
+        if (bindingError != null) {
+            throw new IllegalArgumentException(bindingError);
+        }
+
+        Map<String, Object> eventParams = event.getParameters();
+        Object[] args = new Object[paramNames.length];
+
+        for (int i = 0; i < paramNames.length; i++) {
+            Object arg = eventParams.get(paramNames[i]);
+            if (arg == null) {
+                throw new IllegalArgumentException(String.format("parameter #%d with name:\"%s\" not found or null parameter passed.",
+                        i, paramNames[i]));
+            }
+            if (!paramTypes[i].isInstance(arg)) {
+                throw new IllegalArgumentException(String.format("Parameter #%d expected subtypes of %s passed %s.",
+                        i, paramTypes[i].getName(), arg.getClass().getName()));
+            }
+            args[i] = arg;
         }
         return args;
     }
+
+    private static MotechParam findMotechParam(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof MotechParam) {
+                return (MotechParam) annotation;
+            }
+        }
+        return null;
+    }
 }
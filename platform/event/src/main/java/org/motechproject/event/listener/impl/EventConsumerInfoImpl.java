@@ -14,10 +14,11 @@ public class EventConsumerInfoImpl implements EventConsumerInfo {
 
     private JmsMessageDrivenEndpoint queueEndpoint;
     private JmsMessageDrivenEndpoint topicEndpoint;
+    private EventLaneConsumers laneConsumers;
 
     @Override
     public boolean isRunning() {
-        return queueEndpoint.isRunning() && topicEndpoint.isRunning();
+        return queueEndpoint.isRunning() && topicEndpoint.isRunning() && laneConsumers.isRunning();
     }
 
     @Autowired
@@ -31,4 +32,9 @@ public class EventConsumerInfoImpl implements EventConsumerInfo {
     public void setTopicEndpoint(JmsMessageDrivenEndpoint topicEndpoint) {
         this.topicEndpoint = topicEndpoint;
     }
+
+    @Autowired
+    public void setLaneConsumers(EventLaneConsumers laneConsumers) {
+        this.laneConsumers = laneConsumers;
+    }
 }
@@ -0,0 +1,143 @@
+package org.motechproject.event.listener.impl;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.EventLane;
+import org.motechproject.event.messaging.EventLanes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumes the events of the {@link EventLanes}, each lane with a pool of consumers of its own. Events are
+ * relayed to the {@link ServerEventRelay} in the same way the default event queue consumers relay them. The
+ * consumers are started together with the default consumers, by the
+ * {@link org.motechproject.event.listener.starter.EventConsumerStarter}.
+ */
+@Component
+public class EventLaneConsumers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLaneConsumers.class);
+
+    private EventLanes eventLanes;
+    private ConnectionFactory connectionFactory;
+    private MessageConverter messageConverter;
+    private ServerEventRelay eventRelay;
+
+    private List<DefaultMessageListenerContainer> containers;
+
+    @Autowired
+    public EventLaneConsumers(EventLanes eventLanes, ConnectionFactory connectionFactory,
+                              @Qualifier("eventMessageConverter") MessageConverter messageConverter,
+                              ServerEventRelay eventRelay) {
+        this.eventLanes = eventLanes;
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.eventRelay = eventRelay;
+    }
+
+    /**
+     * Starts the consumers of all lanes. The consumers are created on first start.
+     */
+    public synchronized void start() {
+        if (containers == null) {
+            containers = new ArrayList<>(eventLanes.getLanes().size());
+            for (EventLane lane : eventLanes.getLanes()) {
+                containers.add(createContainer(lane));
+            }
+        }
+
+        for (DefaultMessageListenerContainer container : containers) {
+            if (!container.isRunning()) {
+                container.start();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the consumers of all lanes are running
+     */
+    public synchronized boolean isRunning() {
+        if (containers == null) {
+            return eventLanes.getLanes().isEmpty();
+        }
+
+        for (DefaultMessageListenerContainer container : containers) {
+            if (!container.isRunning()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the consumers of all lanes.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (containers != null) {
+            for (DefaultMessageListenerContainer container : containers) {
+                container.shutdown();
+            }
+            containers = null;
+        }
+    }
+
+    private DefaultMessageListenerContainer createContainer(EventLane lane) {
+        String queueName = lane.hasDedicatedQueue() ? lane.getQueueName() : eventLanes.getEventQueueName();
+        if (lane.getPrefetch() > 0) {
+            queueName += "?consumer.prefetchSize=" + lane.getPrefetch();
+        }
+
+        DefaultMessageListenerContainer container = new DefaultMessageListenerContainer();
+        container.setBeanName("eventLane-" + lane.getName());
+        container.setConnectionFactory(connectionFactory);
+        container.setDestination(new ActiveMQQueue(queueName));
+        container.setMessageSelector(eventLanes.getLaneSelector(lane));
+        container.setSessionTransacted(true);
+        container.setConcurrentConsumers(lane.getConcurrentConsumers());
+        container.setMaxConcurrentConsumers(lane.getMaxConcurrentConsumers());
+        container.setMessageListener(new LaneMessageListener());
+        container.setAutoStartup(false);
+        container.afterPropertiesSet();
+
+        LOGGER.info("Created consumers of event lane {} for queue {}", lane.getName(), queueName);
+
+        return container;
+    }
+
+    /**
+     * Relays events consumed in a lane. Exceptions are propagated, so that the transaction is rolled back.
+     */
+    private class LaneMessageListener implements MessageListener {
+
+        @Override
+        public void onMessage(Message message) {
+            Object payload;
+            try {
+                payload = messageConverter.fromMessage(message);
+            } catch (JMSException e) {
+                throw JmsUtils.convertJmsAccessException(e);
+            }
+
+            if (!(payload instanceof MotechEvent)) {
+                throw new MessageConversionException("Unexpected payload in the event queue: " + payload);
+            }
+
+            eventRelay.relayQueueEvent((MotechEvent) payload);
+        }
+    }
+}
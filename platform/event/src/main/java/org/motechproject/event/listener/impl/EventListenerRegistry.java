@@ -4,22 +4,37 @@ import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.EventListenerRegistryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
- import org.springframework.stereotype.Service;
+import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of the {@link EventListenerRegistryService} interface.
  * Acts as a registry for all scheduled event listeners.
+ * <p>
+ * Listeners are kept in an {@link EventListenerTree} that is never modified once published. Registration and
+ * removal of listeners modify a copy of the current tree, which then replaces it. Lookups therefore do not
+ * require any locking. Resolved listeners are cached per subject, the cache is cleared whenever the tree changes.
  */
 @Service
 public class EventListenerRegistry implements EventListenerRegistryService {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventListenerRegistry.class);
 
-    private EventListenerTree listenerTree = new EventListenerTree();
+    /**
+     * The maximum number of subjects for which resolved listeners are cached. Once reached, the cache is cleared,
+     * so that events with generated subjects can't make it grow indefinitely.
+     */
+    private static final int MAX_CACHED_SUBJECTS = 10000;
 
-    public void registerListener(EventListener listener, List<String> subjects) {
+    private volatile EventListenerTree listenerTree = new EventListenerTree();
+
+    private final ConcurrentMap<String, Set<EventListener>> listenersCache = new ConcurrentHashMap<>();
+
+    public synchronized void registerListener(EventListener listener, List<String> subjects) {
 
         if (listener == null) {
             throw new IllegalArgumentException("Invalid attempt to register a null EventListener");
@@ -29,13 +44,29 @@ public class EventListenerRegistry implements EventListenerRegistryService {
             throw new IllegalArgumentException("Invalid attempt to register for null subjects");
         }
 
+        if (subjects.isEmpty()) {
+            return;
+        }
+
+        EventListenerTree tree = listenerTree.copy();
+
         // Add the listener to the list of those interested in each event type
         for (String subject : subjects) {
-            registerListener(listener, subject);
+            if (subject == null) {
+                throw new IllegalArgumentException("Invalid attempt to register for null subject");
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("registering handler for {} to {}", subject, this.toString());
+            }
+
+            tree.addListener(listener, subject);
         }
+
+        publish(tree);
     }
 
-    public void registerListener(EventListener listener, String subject) {
+    public synchronized void registerListener(EventListener listener, String subject) {
         if (listener == null) {
             throw new IllegalArgumentException("Invalid attempt to register a null EventListener");
         }
@@ -48,11 +79,32 @@ public class EventListenerRegistry implements EventListenerRegistryService {
             LOGGER.debug("registering handler for {} to {}", subject, this.toString());
         }
 
-        listenerTree.addListener(listener, subject);
+        EventListenerTree tree = listenerTree.copy();
+        tree.addListener(listener, subject);
+
+        publish(tree);
     }
 
     public Set<EventListener> getListeners(String subject) {
-        return listenerTree.getListeners(subject);
+        Set<EventListener> listeners = listenersCache.get(subject);
+
+        if (listeners == null) {
+            EventListenerTree tree = listenerTree;
+            listeners = Collections.unmodifiableSet(tree.getListeners(subject));
+
+            if (listenersCache.size() >= MAX_CACHED_SUBJECTS) {
+                listenersCache.clear();
+            }
+            listenersCache.put(subject, listeners);
+
+            // a new tree might have been published while we were resolving, in which case
+            // the entry we just cached could have missed the cache clear
+            if (tree != listenerTree) {
+                listenersCache.remove(subject, listeners);
+            }
+        }
+
+        return listeners;
     }
 
     public boolean hasListener(String subject) {
@@ -63,8 +115,17 @@ public class EventListenerRegistry implements EventListenerRegistryService {
         return listenerTree.getListenerCount(subject);
     }
 
-    public void clearListenersForBean(String beanName) {
+    public synchronized void clearListenersForBean(String beanName) {
         LOGGER.debug("Clearing listeners for bean: {}", beanName);
-        listenerTree.removeAllListeners(beanName);
+
+        EventListenerTree tree = listenerTree.copy();
+        tree.removeAllListeners(beanName);
+
+        publish(tree);
+    }
+
+    private void publish(EventListenerTree tree) {
+        listenerTree = tree;
+        listenersCache.clear();
     }
 }
@@ -5,23 +5,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 /**
  * Implementation of the {@link org.motechproject.event.listener.impl.EventListenerRegistry} interface.
- * Listeners are stored as a tree.
+ * Listeners are stored as a tree, children of a node are indexed by their path element.
+ * The tree itself is not thread-safe, the {@link EventListenerRegistry} never modifies a tree
+ * that was already published to readers, instead it modifies a {@link #copy()} of it.
  */
 public class EventListenerTree {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventListenerTree.class);
 
-    private static final String SPLIT_REGEX = "\\.";
+    private static final char PATH_SEPARATOR = '.';
+    private static final String[] EMPTY_PATH = new String[0];
 
-    private List<EventListenerTree> children = new ArrayList<>();
+    private Map<String, EventListenerTree> children = new HashMap<>();
     private EventListenerTree parent;
 
     private String pathElement;
@@ -66,6 +71,32 @@ public class EventListenerTree {
         }
     }
 
+    /**
+     * Creates a deep copy of this tree. The listeners themselves are shared, the nodes and
+     * listener sets are not, so the copy can be modified without affecting this tree.
+     *
+     * @return the copy of this tree
+     */
+    public EventListenerTree copy() {
+        return copy(parent);
+    }
+
+    private EventListenerTree copy(EventListenerTree newParent) {
+        EventListenerTree copy = new EventListenerTree(pathElement, newParent);
+
+        if (listeners != null) {
+            copy.listeners = new HashSet<>(listeners);
+        }
+        if (wildcardListeners != null) {
+            copy.wildcardListeners = new HashSet<>(wildcardListeners);
+        }
+        for (EventListenerTree child : children.values()) {
+            copy.addChild(child.copy(copy));
+        }
+
+        return copy;
+    }
+
     /**
      * @see org.motechproject.event.listener.EventListenerRegistryService#registerListener(org.motechproject.event.listener.EventListener, String)
      */
@@ -84,7 +115,10 @@ public class EventListenerTree {
         }
 
         // Split the subject into it's path components
-        String[] path = subject.split(SPLIT_REGEX);
+        String[] path = splitSubject(subject);
+        if (path.length == 0) {
+            throw new IllegalArgumentException("Subject can not consist of empty path segments only: " + subject);
+        }
 
         if (path[path.length - 1].contains("*") && path[path.length - 1].length() > 1) {
             throw new IllegalArgumentException("Wildcard can not be mixed with characters");
@@ -131,18 +165,18 @@ public class EventListenerTree {
      */
     public Set<EventListener> getListeners(String subject) {
         // Split the subject into it's path components
-        String[] path = subject.split(SPLIT_REGEX);
+        String[] path = splitSubject(subject);
 
         Set<EventListener> allListeners = new HashSet<>();
         if (isRootNode() && listeners != null) {
             allListeners.addAll(listeners);
         }
-        EventListenerTree child = getChild(path[0]);
-        if (child == null) {
-            return allListeners;
+
+        EventListenerTree child = (path.length == 0) ? null : getChild(path[0]);
+        if (child != null) {
+            child.collectListeners(path, 0, allListeners);
         }
 
-        allListeners.addAll(child.getListeners(path, 0));
         return allListeners;
     }
 
@@ -150,22 +184,22 @@ public class EventListenerTree {
         return "*".equals(pathElement);
     }
 
-    private Set<EventListener> getListeners(String[] path, int pathLevel) {
-        Set<EventListener> ret;
+    private void collectListeners(String[] path, int pathLevel, Set<EventListener> result) {
+        if (wildcardListeners != null) {
+            result.addAll(wildcardListeners);
+        }
 
         if ((pathLevel + 1) == path.length) {
-            return getAllListeners();
+            if (listeners != null) {
+                result.addAll(listeners);
+            }
+            return;
         }
 
         EventListenerTree child = getChild(path[pathLevel + 1]);
-        if (child == null) {
-            return getWildcardListeners();
+        if (child != null) {
+            child.collectListeners(path, (pathLevel + 1), result);
         }
-
-        ret = child.getListeners(path, (pathLevel + 1));
-        ret.addAll(getWildcardListeners());
-
-        return ret;
     }
 
     /**
@@ -173,12 +207,12 @@ public class EventListenerTree {
      */
     public boolean hasListener(String subject) {
         // Split the subject into it's path components
-        String[] path = subject.split(SPLIT_REGEX);
+        String[] path = splitSubject(subject);
 
         if (isRootNode() && listeners != null && !listeners.isEmpty()) {
             return true;
         }
-        EventListenerTree child = getChild(path[0]);
+        EventListenerTree child = (path.length == 0) ? null : getChild(path[0]);
         return child != null && child.hasListener(path, 0);
 
     }
@@ -202,9 +236,9 @@ public class EventListenerTree {
      */
     public int getListenerCount(String subject) {
         // Split the subject into it's path components
-        String[] path = subject.split(SPLIT_REGEX);
+        String[] path = splitSubject(subject);
 
-        EventListenerTree child = getChild(path[0]);
+        EventListenerTree child = (path.length == 0) ? null : getChild(path[0]);
         if (child == null) {
             return 0;
         }
@@ -213,51 +247,32 @@ public class EventListenerTree {
     }
 
     private int getListenerCount(String[] path, int pathLevel) {
-        int ret = 0;
-
         if ((pathLevel + 1) == path.length) {
             return getAllListeners().size();
         }
 
+        int ret = (wildcardListeners == null) ? 0 : wildcardListeners.size();
+
         EventListenerTree child = getChild(path[pathLevel + 1]);
         if (child == null) {
-            return getWildcardListeners().size();
-        }
-
-        ret = getWildcardListeners().size();
-
-        return ret + child.getListeners(path, (pathLevel + 1)).size();
-    }
-
-    private Set<EventListener> getListeners() {
-        Set<EventListener> ret = new HashSet<EventListener>();
-
-        if (listeners == null) {
-            listeners = new HashSet<EventListener>();
+            return ret;
         }
 
-        ret.addAll(listeners);
+        Set<EventListener> childListeners = new HashSet<>();
+        child.collectListeners(path, (pathLevel + 1), childListeners);
 
-        return ret;
+        return ret + childListeners.size();
     }
 
     private Set<EventListener> getAllListeners() {
-        Set<EventListener> ret = new HashSet<EventListener>();
-
-        ret.addAll(getListeners());
-        ret.addAll(getWildcardListeners());
-
-        return ret;
-    }
-
-    private Set<EventListener> getWildcardListeners() {
-        Set<EventListener> ret = new HashSet<EventListener>();
+        Set<EventListener> ret = new HashSet<>();
 
-        if (wildcardListeners == null) {
-            wildcardListeners = new HashSet<EventListener>();
+        if (listeners != null) {
+            ret.addAll(listeners);
+        }
+        if (wildcardListeners != null) {
+            ret.addAll(wildcardListeners);
         }
-
-        ret.addAll(wildcardListeners);
 
         return ret;
     }
@@ -295,26 +310,11 @@ public class EventListenerTree {
     }
 
     private EventListenerTree getChild(String pathElement) {
-        EventListenerTree ret = null;
-
-        if (children != null) {
-            for (EventListenerTree n : children) {
-                if (n.getPathElement().equals(pathElement)) {
-                    ret = n;
-                    break;
-                }
-            }
-        }
-
-        return ret;
+        return children.get(pathElement);
     }
 
     private void addChild(EventListenerTree child) {
-        if (children == null) {
-            children = new ArrayList<EventListenerTree>();
-        }
-
-        children.add(child);
+        children.put(child.getPathElement(), child);
     }
 
     /**
@@ -322,7 +322,7 @@ public class EventListenerTree {
      */
     public void removeAllListeners(String beanName) {
 
-        for (Iterator<EventListenerTree> listenerIterator = children.iterator(); listenerIterator.hasNext();) {
+        for (Iterator<EventListenerTree> listenerIterator = children.values().iterator(); listenerIterator.hasNext();) {
             EventListenerTree child = listenerIterator.next();
             if (child.removeListeners(beanName) && child.removeEmptyChildWithWildcardListeners()) {
                 listenerIterator.remove();
@@ -335,7 +335,7 @@ public class EventListenerTree {
         if (children.size() == 0) {
             return this.getAllListeners().size() == 0;
         } else {
-            for (Iterator<EventListenerTree> listenerIterator = children.iterator(); listenerIterator.hasNext();) {
+            for (Iterator<EventListenerTree> listenerIterator = children.values().iterator(); listenerIterator.hasNext();) {
                 EventListenerTree child = listenerIterator.next();
                 if (!child.removeEmptyChildWithWildcardListeners() || isEmpty(wildcardListeners)) {
                     return false;
@@ -369,11 +369,46 @@ public class EventListenerTree {
                 }
             }
         }
-        for (EventListenerTree childTree : children) {
+        for (EventListenerTree childTree : children.values()) {
             if (childTree.removeListeners(beanName)) {
                 removed = true;
             }
         }
         return removed;
     }
+
+    /**
+     * Splits the subject into its path elements. Behaves like {@code subject.split("\\.")}, meaning
+     * trailing empty elements are dropped, but does not go through the regex engine.
+     *
+     * @param subject the subject to split
+     * @return the path elements of the subject
+     */
+    static String[] splitSubject(String subject) {
+        int length = subject.length();
+        if (length == 0) {
+            return new String[] {subject};
+        }
+
+        // trailing separators do not produce path elements
+        int end = length;
+        while (end > 0 && subject.charAt(end - 1) == PATH_SEPARATOR) {
+            end--;
+        }
+        if (end == 0) {
+            return EMPTY_PATH;
+        }
+
+        List<String> path = new ArrayList<>();
+        int start = 0;
+        int separator = subject.indexOf(PATH_SEPARATOR, start);
+        while (separator != -1 && separator < end) {
+            path.add(subject.substring(start, separator));
+            start = separator + 1;
+            separator = subject.indexOf(PATH_SEPARATOR, start);
+        }
+        path.add(subject.substring(start, end));
+
+        return path.toArray(new String[path.size()]);
+    }
 }
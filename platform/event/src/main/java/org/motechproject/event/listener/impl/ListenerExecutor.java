@@ -0,0 +1,250 @@
+package org.motechproject.event.listener.impl;
+
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.ListenerTimeoutException;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.utils.MotechProxyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Calls listeners to handle events. Listeners without a timeout are called by the calling thread. Listeners with
+ * a timeout are called on a bounded pool of threads, the calling thread waits for them until the timeout passes.
+ * A listener that times out is interrupted and a {@link ListenerTimeoutException} is thrown, so that the thread
+ * consuming events is freed even if the listener hangs. A watchdog periodically logs the stack traces of listeners
+ * that are still running after timing out, since they keep a thread of the pool busy.
+ */
+@Component
+public class ListenerExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerExecutor.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private MotechEventConfig motechEventConfig;
+
+    private final Set<Handling> stuck = Collections.newSetFromMap(new ConcurrentHashMap<Handling, Boolean>());
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService watchdog;
+
+    @Autowired
+    public ListenerExecutor(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
+
+    /**
+     * Calls the listener to handle the event, with the class loader of the listener as the context class loader.
+     *
+     * @param listener the listener
+     * @param event the event to handle
+     * @throws ListenerTimeoutException if the listener did not handle the event within its timeout
+     */
+    public void handle(EventListener listener, MotechEvent event) {
+        long timeout = getTimeout(listener);
+        if (timeout <= 0) {
+            invoke(listener, event);
+            return;
+        }
+
+        Handling handling = new Handling(listener, event, TraceContext.current());
+        Future<?> future = getExecutor().submit(handling);
+
+        try {
+            future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut(handling, timeout);
+            future.cancel(true);
+            throw new ListenerTimeoutException(listener.getIdentifier(), timeout);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // listeners can only throw unchecked exceptions
+            throw (RuntimeException) cause;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for listener " + listener.getIdentifier(), e);
+        }
+    }
+
+    /**
+     * @return the number of listeners that are still running after timing out
+     */
+    public int getStuckCount() {
+        return stuck.size();
+    }
+
+    /**
+     * Stops the executors. Listeners that are running are interrupted.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Listener executor did not terminate in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+
+        stuck.clear();
+    }
+
+    private long getTimeout(EventListener listener) {
+        long timeout = listener.getTimeout();
+        return timeout < 0 ? motechEventConfig.getListenerTimeout() : timeout;
+    }
+
+    private void invoke(EventListener listener, MotechEvent event) {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Object target = MotechProxyUtils.getTargetIfProxied(listener);
+            Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
+            listener.handle(event);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private void timedOut(Handling handling, long timeout) {
+        Thread thread = handling.thread;
+        if (thread == null) {
+            LOGGER.error("Listener {} did not start handling event {} within {} ms, all listener threads are busy",
+                    handling.listener.getIdentifier(), handling.event.getSubject(), timeout);
+            return;
+        }
+
+        LOGGER.error("Listener {} did not handle event {} within {} ms, interrupting it. Stack trace:{}",
+                handling.listener.getIdentifier(), handling.event.getSubject(), timeout, stackTrace(thread));
+
+        handling.timedOutAt = System.nanoTime();
+        stuck.add(handling);
+
+        // the listener might have finished in the meantime
+        if (handling.thread == null) {
+            stuck.remove(handling);
+        } else {
+            startWatchdog();
+        }
+    }
+
+    private void checkStuck() {
+        long now = System.nanoTime();
+        for (Handling handling : stuck) {
+            Thread thread = handling.thread;
+            if (thread != null) {
+                LOGGER.warn("Listener {} is still handling event {}, {} seconds after timing out. Stack trace:{}",
+                        handling.listener.getIdentifier(), handling.event.getSubject(),
+                        TimeUnit.NANOSECONDS.toSeconds(now - handling.timedOutAt), stackTrace(thread));
+            }
+        }
+    }
+
+    private static String stackTrace(Thread thread) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.lineSeparator()).append('"').append(thread.getName()).append("\" ").append(thread.getState());
+        for (StackTraceElement element : thread.getStackTrace()) {
+            sb.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+        return sb.toString();
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int poolSize = Math.max(1, motechEventConfig.getListenerPoolSize());
+
+            LOGGER.info("Starting listener executor with {} threads", poolSize);
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-listener-");
+            threadFactory.setDaemon(true);
+
+            // the queue is bounded by the threads waiting for listeners
+            executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private synchronized void startWatchdog() {
+        if (watchdog == null) {
+            long interval = Math.max(1, motechEventConfig.getListenerWatchdogInterval());
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-listener-watchdog-");
+            threadFactory.setDaemon(true);
+
+            watchdog = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            watchdog.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkStuck();
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * A listener handling an event on a thread of the pool.
+     */
+    private class Handling implements Runnable {
+        private final EventListener listener;
+        private final MotechEvent event;
+        private final TraceContext traceContext;
+        private volatile Thread thread;
+        private volatile long timedOutAt;
+
+        Handling(EventListener listener, MotechEvent event, TraceContext traceContext) {
+            this.listener = listener;
+            this.event = event;
+            this.traceContext = traceContext;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            TraceContext previous = TraceContext.activate(traceContext);
+            try {
+                invoke(listener, event);
+            } finally {
+                TraceContext.restore(previous);
+                thread = null;
+
+                if (stuck.remove(this)) {
+                    LOGGER.info("Listener {} finished handling event {}, {} ms after timing out",
+                            listener.getIdentifier(), event.getSubject(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timedOutAt));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.motechproject.event.listener.impl;
+
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs event handling tasks in this MOTECH instance, without going through the broker. Used by the
+ * {@link ServerEventRelay} when the dispatch mode is either {@link org.motechproject.event.messaging.EventDispatchMode#LOCAL}
+ * or {@link org.motechproject.event.messaging.EventDispatchMode#HYBRID}. The executors are created on first use,
+ * so that instances dispatching through the broker don't start any threads.
+ */
+@Component
+public class LocalEventDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalEventDispatcher.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private MotechEventConfig motechEventConfig;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService delayedExecutor;
+
+    @Autowired
+    public LocalEventDispatcher(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
+
+    /**
+     * Submits the task for execution if the local executor has free capacity.
+     *
+     * @param task the task to execute
+     * @return {@code true} if the task was accepted, {@code false} if the executor is saturated
+     */
+    public boolean tryDispatch(Runnable task) {
+        try {
+            getExecutor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Local event executor saturated, rejecting task");
+            return false;
+        }
+    }
+
+    /**
+     * Submits the task for execution. If the local executor is saturated, the task is run by the calling thread,
+     * which slows down the publisher instead of dropping the event.
+     *
+     * @param task the task to execute
+     */
+    public void dispatch(Runnable task) {
+        if (!tryDispatch(task)) {
+            task.run();
+        }
+    }
+
+    /**
+     * Submits the task for execution after the given delay.
+     *
+     * @param task the task to execute
+     * @param delayMillis the delay in milliseconds
+     * @return the future of the delayed submission, it can be used to cancel it
+     */
+    public ScheduledFuture<?> dispatchLater(final Runnable task, long delayMillis) {
+        return getDelayedExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                dispatch(task);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the executors. Tasks that were already submitted are given a chance to finish.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (delayedExecutor != null) {
+            delayedExecutor.shutdownNow();
+            delayedExecutor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Local event executor did not terminate in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int poolSize = Math.max(1, motechEventConfig.getLocalPoolSize());
+            int queueCapacity = Math.max(1, motechEventConfig.getLocalQueueCapacity());
+
+            LOGGER.info("Starting local event executor with {} threads and queue capacity {}", poolSize, queueCapacity);
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-local-event-");
+            threadFactory.setDaemon(true);
+
+            executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private synchronized ScheduledExecutorService getDelayedExecutor() {
+        if (delayedExecutor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-local-event-redelivery-");
+            threadFactory.setDaemon(true);
+
+            delayedExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        }
+        return delayedExecutor;
+    }
+}
@@ -1,14 +1,24 @@
 package org.motechproject.event.listener.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.CopyOnWriteMap;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.exception.CallbackServiceNotFoundException;
+import org.motechproject.event.exception.ListenerTimeoutException;
 import org.motechproject.event.listener.EventCallbackService;
 import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.messaging.EventDispatchMode;
+import org.motechproject.event.messaging.EventLanes;
 import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.event.messaging.OutboundEventGateway;
-import org.motechproject.event.utils.MotechProxyUtils;
+import org.motechproject.event.messaging.impl.DelayedEventSender;
+import org.motechproject.event.messaging.impl.OutboundEventBuffer;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
 import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
@@ -21,10 +31,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Handles incoming scheduled events and relays those events to the appropriate event listeners.
@@ -35,50 +56,167 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerEventRelay.class);
 
     private static final String PROXY_IN_OSGI = "proxy-in-osgi";
+    private static final long MILLIS_PER_SEC = 1000L;
 
     private EventListenerRegistry eventListenerRegistry;
     private OutboundEventGateway outboundEventGateway;
     private MotechEventConfig motechEventConfig;
     private EventAdmin osgiEventAdmin;
     private BundleContext bundleContext;
+    private LocalEventDispatcher localEventDispatcher;
+    private EventMetricsService eventMetricsService;
+    private EventLanes eventLanes;
+    private TopicEventDispatcher topicEventDispatcher;
+    private DelayedEventSender delayedEventSender;
+    private TraceService traceService;
+    private OutboundEventBuffer outboundEventBuffer;
+    private ListenerExecutor listenerExecutor;
+
+    private final ConcurrentMap<UUID, LocalDelayedEvent> localDelayedEvents = new ConcurrentHashMap<>();
 
     @Autowired
     public ServerEventRelay(OutboundEventGateway outboundEventGateway, EventListenerRegistry eventListenerRegistry, MotechEventConfig motechEventConfig,
-                            EventAdmin osgiEventAdmin, BundleContext bundleContext) {
+                            EventAdmin osgiEventAdmin, BundleContext bundleContext, LocalEventDispatcher localEventDispatcher,
+                            EventMetricsService eventMetricsService, EventLanes eventLanes,
+                            TopicEventDispatcher topicEventDispatcher, DelayedEventSender delayedEventSender,
+                            TraceService traceService, OutboundEventBuffer outboundEventBuffer,
+                            ListenerExecutor listenerExecutor) {
         this.outboundEventGateway = outboundEventGateway;
         this.eventListenerRegistry = eventListenerRegistry;
         this.motechEventConfig = motechEventConfig;
         this.osgiEventAdmin = osgiEventAdmin;
         this.bundleContext = bundleContext;
+        this.localEventDispatcher = localEventDispatcher;
+        this.eventMetricsService = eventMetricsService;
+        this.eventLanes = eventLanes;
+        this.topicEventDispatcher = topicEventDispatcher;
+        this.delayedEventSender = delayedEventSender;
+        this.traceService = traceService;
+        this.outboundEventBuffer = outboundEventBuffer;
+        this.listenerExecutor = listenerExecutor;
     }
 
     // @TODO either relayQueueEvent should be made private, or this method moved out to it's own class.
     @Override
     public void sendEventMessage(MotechEvent event) {
-        verifyEventNotNull(event);
-        Set<EventListener> listeners = getEventListeners(event);
+        sendEvent(event, false);
+    }
 
-        if (!listeners.isEmpty()) {
-            // We need to split the message for each listener to ensure the work units
-            // are completed individually. Therefore, if a message fails it will be
-            // re-distributed to another server without being lost
-            splitEvent(event, listeners);
+    @Override
+    public void sendEventMessageAsync(MotechEvent event) {
+        sendEvent(event, true);
+    }
+
+    @Override
+    public void sendEventMessages(Collection<MotechEvent> events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Invalid request to relay null events");
+        }
+
+        List<MotechEvent> brokerEvents = new ArrayList<>(events.size());
+        for (MotechEvent event : events) {
+            verifyEventNotNull(event);
+            traceService.propagate(event);
+            eventMetricsService.published(event.getSubject());
+            Set<EventListener> listeners = getEventListeners(event);
+
+            if (!listeners.isEmpty()) {
+                splitEvent(event, listeners, brokerEvents);
+            }
+        }
+
+        if (!brokerEvents.isEmpty()) {
+            outboundEventGateway.sendEventMessages(brokerEvents);
         }
     }
 
     @Override
     public void broadcastEventMessage(MotechEvent event) {
         verifyEventNotNull(event);
-        Set<EventListener> listeners = getEventListeners(event);
+        traceService.propagate(event);
+        eventMetricsService.published(event.getSubject());
 
-        // broadcast the event if there are listeners for it, or if it should get proxied as an OSGi event,
-        // since we don't keep track of OSGi listeners
-        if (!listeners.isEmpty() || proxyInOsgi(event)) {
-            event.setBroadcast(true);
+        if (prepareBroadcast(event)) {
             outboundEventGateway.broadcastEventMessage(event);
         }
     }
 
+    @Override
+    public void broadcastEventMessages(Collection<MotechEvent> events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Invalid request to relay null events");
+        }
+
+        List<MotechEvent> brokerEvents = new ArrayList<>(events.size());
+        for (MotechEvent event : events) {
+            verifyEventNotNull(event);
+            traceService.propagate(event);
+            eventMetricsService.published(event.getSubject());
+
+            if (prepareBroadcast(event)) {
+                brokerEvents.add(event);
+            }
+        }
+
+        if (!brokerEvents.isEmpty()) {
+            outboundEventGateway.broadcastEventMessages(brokerEvents);
+        }
+    }
+
+    @Override
+    public UUID sendEventMessage(MotechEvent event, long delayMillis) {
+        return sendDelayed(event, System.currentTimeMillis() + Math.max(0, delayMillis));
+    }
+
+    @Override
+    public UUID sendEventMessageAt(MotechEvent event, DateTime deliveryTime) {
+        if (deliveryTime == null) {
+            throw new IllegalArgumentException("Invalid request to relay event with null delivery time");
+        }
+        return sendDelayed(event, deliveryTime.getMillis());
+    }
+
+    @Override
+    public boolean cancelEventMessage(UUID eventId) {
+        return cancel(eventId, null);
+    }
+
+    @Override
+    public boolean cancelEventMessage(UUID eventId, DateTime deliveryTime) {
+        if (deliveryTime == null) {
+            throw new IllegalArgumentException("Invalid request to cancel event with null delivery time");
+        }
+        return cancel(eventId, deliveryTime);
+    }
+
+    private boolean cancel(UUID eventId, DateTime deliveryTime) {
+        if (eventId == null) {
+            throw new IllegalArgumentException("Invalid request to cancel event with null id");
+        }
+
+        String subject = null;
+        boolean cancelled = false;
+
+        LocalDelayedEvent localDelayedEvent = localDelayedEvents.remove(eventId);
+        if (localDelayedEvent != null) {
+            subject = localDelayedEvent.subject;
+            cancelled = localDelayedEvent.cancel();
+        } else if (getDispatchMode() != EventDispatchMode.LOCAL) {
+            List<MotechEvent> cancelledEvents = deliveryTime == null ? delayedEventSender.cancel(eventId) :
+                    delayedEventSender.cancel(eventId, deliveryTime.getMillis());
+            if (!cancelledEvents.isEmpty()) {
+                subject = cancelledEvents.get(0).getSubject();
+                cancelled = true;
+            }
+        }
+
+        if (cancelled) {
+            eventMetricsService.cancelled(subject);
+            LOGGER.debug("Cancelled delivery of event {}", eventId);
+        }
+        return cancelled;
+    }
+
     /**
      * Relays the event that were published in the message queue to all listeners of that event.
      *
@@ -101,15 +239,18 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     }
 
     /**
-     * Relays the event that were published in the message topic to all listeners of that event.
+     * Relays the event that were published in the message topic to all listeners of that event. The event is handed
+     * to the listeners by the {@link TopicEventDispatcher}, so this method returns before the listeners handle it.
      *
      * @param event the event being relayed
      */
     public void relayTopicEvent(MotechEvent event) {
         verifyEventNotNull(event);
         Set<EventListener> listeners = getEventListeners(event);
+        // listeners run on different threads, so each gets its own copy; the copies share the maps until modified
+        MotechEvent shared = event.copy();
         for (EventListener listener : listeners) {
-            handleTopicEvent(listener, event);
+            topicEventDispatcher.dispatch(listener.getIdentifier(), new TopicEventDelivery(listener, shared.copy()));
         }
 
         // broadcast events can be also be additionally sent as OSGi events upon being received
@@ -127,6 +268,25 @@ public class ServerEventRelay implements EventRelay, EventHandler {
      */
     @Override
     public void handleEvent(Event osgiEvent) {
+        List<Map<String, Object>> events = (List<Map<String, Object>>) osgiEvent.getProperty(OsgiEventProxy.EVENTS_PARAM);
+        if (events != null) {
+            AtomicReference<Object> acknowledgement =
+                    (AtomicReference<Object>) osgiEvent.getProperty(OsgiEventProxy.ACKNOWLEDGEMENT_PARAM);
+            try {
+                relayOsgiEvents(events);
+            } catch (RuntimeException e) {
+                // the EventAdmin would only log the exception, the sender learns about it through the acknowledgement
+                if (acknowledgement != null) {
+                    acknowledgement.set(e);
+                }
+                throw e;
+            }
+            if (acknowledgement != null) {
+                acknowledgement.set(Boolean.TRUE);
+            }
+            return;
+        }
+
         String subject = (String) osgiEvent.getProperty(OsgiEventProxy.SUBJECT_PARAM);
         Map<String, Object> parameters = (Map<String, Object>) osgiEvent.getProperty(OsgiEventProxy.PARAMETERS_PARAM);
         Boolean broadcast = (Boolean) osgiEvent.getProperty(OsgiEventProxy.BROADCAST_PARAM);
@@ -135,9 +295,8 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         LOGGER.debug("Relying OSGi event - subject: {}, broadcast: {}, proxyWhenReceiving: {}",
                 subject, broadcast, proxyOnReceivingEnd);
 
-        if (parameters == null) {
-            parameters = new HashMap<>();
-        }
+        // the parameters of the OSGi event are not modified, a copy is made only when the proxy parameter is added
+        parameters = parameters == null ? new HashMap<String, Object>() : CopyOnWriteMap.wrap(parameters);
 
         // decide whether to send this event as an OSGi event as well, after it gets received
         // OSGi events are local to their OSGi framework (MOTECH instance)
@@ -154,39 +313,92 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         }
     }
 
+    /**
+     * Sends the events carried by a single OSGi event through the event queue, as one batch. The time events spent
+     * waiting to be relayed, for example in the MDS event outbox, is recorded as a span of their trace.
+     *
+     * @param events the events, each one a map holding the subject, parameters and metadata of the event
+     */
+    private void relayOsgiEvents(List<Map<String, Object>> events) {
+        LOGGER.debug("Relaying {} events from a single OSGi event", events.size());
+
+        List<MotechEvent> motechEvents = new ArrayList<>(events.size());
+        for (Map<String, Object> event : events) {
+            String subject = (String) event.get(OsgiEventProxy.SUBJECT_PARAM);
+            Map<String, Object> parameters = (Map<String, Object>) event.get(OsgiEventProxy.PARAMETERS_PARAM);
+            Map<String, Object> metadata = (Map<String, Object>) event.get(OsgiEventProxy.METADATA_PARAM);
+
+            MotechEvent motechEvent = new MotechEvent(subject,
+                    parameters == null ? new HashMap<String, Object>() : CopyOnWriteMap.wrap(parameters));
+            if (metadata != null) {
+                motechEvent.setMetadata(new HashMap<>(metadata));
+                recordProxyTime(motechEvent);
+            }
+            motechEvents.add(motechEvent);
+        }
+
+        sendEventMessages(motechEvents);
+    }
+
     private void handleQueueEvent(EventListener listener, MotechEvent event) {
         EventCallbackService callbackService = findCallbackService(event.getCallbackName());
-        ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+        long start = System.nanoTime();
+
+        // the wait of redelivered events includes the redelivery delay
+        if (event.getMessageRedeliveryCount() == 0) {
+            recordQueueTime(event, listener);
+        }
+        Span span = startHandleSpan(event, listener);
+        boolean failed = true;
 
         try {
-            Object target = MotechProxyUtils.getTargetIfProxied(listener);
-            Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
-            listener.handle(event);
+            listenerExecutor.handle(listener, event);
+            failed = false;
+            eventMetricsService.handled(event.getSubject(), listener.getIdentifier(), microsSince(start));
             if (callbackService != null) {
                 callbackService.successCallback(event);
             }
         } catch (RuntimeException e) {
             LOGGER.error("Handling error for event with subject {}", event.getSubject(), e);
+            eventMetricsService.failed(event.getSubject(), listener.getIdentifier(), microsSince(start));
+
+            // a timeout has no cause, the callback gets the timeout itself
+            boolean timedOut = e instanceof ListenerTimeoutException;
+            Throwable cause = timedOut ? e : e.getCause();
+
+            if (timedOut) {
+                eventMetricsService.timedOut(event.getSubject(), listener.getIdentifier());
+                if (!motechEventConfig.isListenerTimeoutRedelivery()) {
+                    LOGGER.warn("Dropping event {} which timed out in listener {}, timeout redelivery is disabled",
+                            event, listener.getIdentifier());
+                    if (callbackService != null) {
+                        callbackService.failureCallback(event, cause);
+                    }
+                    return;
+                }
+            }
 
-            if (callbackService == null || callbackService.failureCallback(event, e.getCause())) {
+            if (callbackService == null || callbackService.failureCallback(event, cause)) {
                 event.setInvalid(true);
                 event.setMessageDestination(listener.getIdentifier());
 
                 if (event.getMessageRedeliveryCount() == motechEventConfig.getMessageMaxRedeliveryCount()) {
                     event.setDiscarded(true);
+                    eventMetricsService.discarded(event.getSubject(), listener.getIdentifier());
                     LOGGER.error("Discarding Motech event {}. Max retry count reached.", event);
                     throw e;
                 }
 
                 event.incrementMessageRedeliveryCount();
-                outboundEventGateway.sendEventMessage(event);
+                eventMetricsService.redelivered(event.getSubject(), listener.getIdentifier());
+                redeliver(event);
             } else {
                 LOGGER.info("Event failure callback service {} has prevented redelivery of failed event with subject {}.",
                         callbackService.getName(), event.getSubject());
             }
             return;
         } finally {
-            Thread.currentThread().setContextClassLoader(oldClassLoader);
+            traceService.endSpan(span, failed);
         }
     }
 
@@ -214,30 +426,98 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         throw new CallbackServiceNotFoundException(callbackName);
     }
 
-    private void handleTopicEvent(EventListener listener, MotechEvent event) {
-        int retryCount = 0;
-        int maxRetryCount = motechEventConfig.getMessageMaxRedeliveryCount();
-        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    /**
+     * Hands the broadcast event to the listener once.
+     *
+     * @param listener the listener
+     * @param event the broadcast event
+     * @return {@code true} if the listener handled the event, {@code false} if it failed
+     */
+    private boolean handleTopicEvent(EventListener listener, MotechEvent event) {
+        long start = System.nanoTime();
+        Span span = startHandleSpan(event, listener);
+        boolean failed = true;
 
-        do {
-            try {
-                Object target = MotechProxyUtils.getTargetIfProxied(listener);
-                Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
-                listener.handle(event);
-                break;
-            } catch (RuntimeException e) {
-                if (retryCount < maxRetryCount) {
-                    LOGGER.warn(String.format("An exception occurred when handling topic event %s by listener %s.",
-                            event.toString(), listener.getIdentifier()), e);
-                } else {
-                    LOGGER.error(String.format("Discarding topic event %s for listener %s. Max retry count reached.",
-                            event.toString(), listener.getIdentifier()), e);
-                    break;
-                }
-            } finally {
-                Thread.currentThread().setContextClassLoader(contextClassLoader);
+        try {
+            listenerExecutor.handle(listener, event);
+            failed = false;
+            eventMetricsService.handled(event.getSubject(), listener.getIdentifier(), microsSince(start));
+            return true;
+        } catch (RuntimeException e) {
+            eventMetricsService.failed(event.getSubject(), listener.getIdentifier(), microsSince(start));
+            if (e instanceof ListenerTimeoutException) {
+                eventMetricsService.timedOut(event.getSubject(), listener.getIdentifier());
+            }
+            LOGGER.warn(String.format("An exception occurred when handling topic event %s by listener %s.",
+                    event.toString(), listener.getIdentifier()), e);
+            return false;
+        } finally {
+            traceService.endSpan(span, failed);
+        }
+    }
+
+    /**
+     * Starts the span of the listener handling the event, nested in the span which published the event. Events
+     * published by the listener meanwhile continue its trace.
+     *
+     * @param event the event
+     * @param listener the listener handling the event
+     * @return the started span, null if tracing is disabled
+     */
+    private Span startHandleSpan(MotechEvent event, EventListener listener) {
+        if (!traceService.isEnabled()) {
+            return null;
+        }
+
+        Span span = traceService.startSpan(TraceService.EVENT_HANDLE, listener.getIdentifier(),
+                TraceContext.fromMetadata(event.getMetadata()), System.currentTimeMillis());
+        if (span != null) {
+            span.addAttribute("subject", event.getSubject());
+            if (event.getMessageRedeliveryCount() > 0) {
+                span.addAttribute("redelivery", event.getMessageRedeliveryCount());
             }
-        } while (retryCount++ < maxRetryCount);
+        }
+        return span;
+    }
+
+    /**
+     * Records the time the event spent between being published and reaching the listener.
+     *
+     * @param event the event
+     * @param listener the listener about to handle the event
+     */
+    private void recordQueueTime(MotechEvent event, EventListener listener) {
+        Long sentTime = getSentTime(event);
+        if (sentTime != null) {
+            traceService.recordSpan(TraceService.EVENT_QUEUE, listener.getIdentifier(),
+                    TraceContext.fromMetadata(event.getMetadata()), sentTime);
+        }
+    }
+
+    /**
+     * Records the time an event received through the OSGi proxy spent waiting to be relayed. Further spans of
+     * the event are nested in the recorded span.
+     *
+     * @param event the event, with the metadata it was proxied with
+     */
+    private void recordProxyTime(MotechEvent event) {
+        Long sentTime = getSentTime(event);
+        if (sentTime != null) {
+            TraceContext context = traceService.recordSpan(TraceService.EVENT_PROXY, event.getSubject(),
+                    TraceContext.fromMetadata(event.getMetadata()), sentTime);
+            if (context != null) {
+                context.writeTo(event.getMetadata());
+            }
+        }
+    }
+
+    private Long getSentTime(MotechEvent event) {
+        if (!traceService.isEnabled()) {
+            return null;
+        }
+
+        Object sentTime = event.getMetadata().get(TraceContext.SENT_TIME);
+        return sentTime instanceof Number ? ((Number) sentTime).longValue() : null;
     }
 
     /**
@@ -247,18 +527,206 @@ public class ServerEventRelay implements EventRelay, EventHandler {
      *
      * @param event     Event message to be split
      * @param listeners A list of listeners for this given message that will be used as message destinations
+     * @param brokerEvents the collection to which split messages that have to be sent through the broker are added
      */
-    private void splitEvent(MotechEvent event, Set<EventListener> listeners) {
+    private void splitEvent(MotechEvent event, Set<EventListener> listeners, Collection<MotechEvent> brokerEvents) {
         MotechEvent enrichedEventMessage;
-        Map<String, Object> parameters;
 
+        // the maps are copied at most once, split messages share them until a listener modifies them
+        CopyOnWriteMap<String, Object> parameters = CopyOnWriteMap.share(event.getParameters());
+        CopyOnWriteMap<String, Object> metadata = CopyOnWriteMap.share(event.getMetadata());
+
+        for (EventListener listener : listeners) {
+            enrichedEventMessage = new MotechEvent(event.getSubject(), parameters.share(), event.getCallbackName(),
+                    metadata.share());
+            enrichedEventMessage.setMessageDestination(listener.getIdentifier());
+            if (!dispatchLocally(enrichedEventMessage)) {
+                brokerEvents.add(enrichedEventMessage);
+            }
+        }
+    }
+
+    /**
+     * Splits the event for each listener and sends the split messages, that are not dispatched locally, to the
+     * event queue. Asynchronous messages are sent through the outbound buffer.
+     *
+     * @param event the event to send
+     * @param async {@code true} if the messages should be sent without waiting for the broker
+     */
+    private void sendEvent(MotechEvent event, boolean async) {
+        verifyEventNotNull(event);
+        traceService.propagate(event);
+        eventMetricsService.published(event.getSubject());
+        Set<EventListener> listeners = getEventListeners(event);
+
+        if (!listeners.isEmpty()) {
+            // We need to split the message for each listener to ensure the work units
+            // are completed individually. Therefore, if a message fails it will be
+            // re-distributed to another server without being lost
+            List<MotechEvent> brokerEvents = new ArrayList<>(listeners.size());
+            splitEvent(event, listeners, brokerEvents);
+
+            if (brokerEvents.isEmpty()) {
+                return;
+            }
+
+            if (async) {
+                outboundEventBuffer.add(brokerEvents);
+            } else {
+                sendToQueue(brokerEvents);
+            }
+        }
+    }
+
+    /**
+     * Sends the event for delivery at the given time. The event is split for each listener, all split messages
+     * carry the id of the event, so that they can be cancelled together. In the local dispatch mode the messages
+     * are held back in this instance, otherwise by the scheduler of the broker.
+     *
+     * @param event the event to send
+     * @param deliveryTime the delivery time, in milliseconds since the epoch
+     * @return the id of the event
+     */
+    private UUID sendDelayed(MotechEvent event, long deliveryTime) {
+        verifyEventNotNull(event);
+        assignId(event);
+        traceService.propagate(event);
+        if (traceService.isEnabled()) {
+            // delayed events wait from their delivery time
+            event.getMetadata().put(TraceContext.SENT_TIME, deliveryTime);
+        }
+        eventMetricsService.scheduled(event.getSubject());
+
+        Set<EventListener> listeners = getEventListeners(event);
+        if (listeners.isEmpty()) {
+            return event.getId();
+        }
+
+        CopyOnWriteMap<String, Object> parameters = CopyOnWriteMap.share(event.getParameters());
+        CopyOnWriteMap<String, Object> metadata = CopyOnWriteMap.share(event.getMetadata());
+
+        List<MotechEvent> events = new ArrayList<>(listeners.size());
         for (EventListener listener : listeners) {
-            parameters = new HashMap<>();
-            parameters.putAll(event.getParameters());
-            enrichedEventMessage = new MotechEvent(event.getSubject(), parameters, event.getCallbackName());
-            enrichedEventMessage.setMetadata(event.getMetadata());
+            MotechEvent enrichedEventMessage = new MotechEvent(event.getSubject(), parameters.share(),
+                    event.getCallbackName(), metadata.share());
+            enrichedEventMessage.setId(event.getId());
             enrichedEventMessage.setMessageDestination(listener.getIdentifier());
-            outboundEventGateway.sendEventMessage(enrichedEventMessage);
+            events.add(enrichedEventMessage);
+        }
+
+        if (getDispatchMode() == EventDispatchMode.LOCAL) {
+            long delay = Math.max(0, deliveryTime - System.currentTimeMillis());
+            LocalDelayedEvent localDelayedEvent = new LocalDelayedEvent(event.getId(), event.getSubject(), events.size());
+
+            // registered first, so that a delivery that happens right away can unregister it
+            localDelayedEvents.put(event.getId(), localDelayedEvent);
+            for (MotechEvent delayedEvent : events) {
+                localDelayedEvent.futures.add(localEventDispatcher.dispatchLater(
+                        new LocalQueueEventTask(delayedEvent, delay, localDelayedEvent), delay));
+            }
+        } else {
+            delayedEventSender.send(events, deliveryTime);
+        }
+
+        return event.getId();
+    }
+
+    /**
+     * Dispatches the event, that already has its message destination set, to the listener in this instance,
+     * if the dispatch mode allows it.
+     *
+     * @param event the event to dispatch
+     * @return {@code true} if the event was dispatched locally, {@code false} if it has to be sent to the event queue
+     */
+    private boolean dispatchLocally(MotechEvent event) {
+        EventDispatchMode dispatchMode = getDispatchMode();
+
+        if (dispatchMode == EventDispatchMode.LOCAL) {
+            assignId(event);
+            localEventDispatcher.dispatch(new LocalQueueEventTask(event));
+            return true;
+        } else if (dispatchMode == EventDispatchMode.HYBRID) {
+            assignId(event);
+            if (localEventDispatcher.tryDispatch(new LocalQueueEventTask(event))) {
+                return true;
+            }
+            LOGGER.debug("Local dispatch saturated, sending event {} through the broker", event.getId());
+        }
+        return false;
+    }
+
+    /**
+     * Marks the event as a broadcast event, if it should be broadcast. In the local dispatch mode the event is
+     * dispatched to listeners in this instance right away.
+     *
+     * @param event the event to broadcast
+     * @return {@code true} if the event has to be sent to the event topic, {@code false} otherwise
+     */
+    private boolean prepareBroadcast(MotechEvent event) {
+        Set<EventListener> listeners = getEventListeners(event);
+
+        // broadcast the event if there are listeners for it, or if it should get proxied as an OSGi event,
+        // since we don't keep track of OSGi listeners
+        if (listeners.isEmpty() && !proxyInOsgi(event)) {
+            return false;
+        }
+
+        event.setBroadcast(true);
+
+        if (getDispatchMode() == EventDispatchMode.LOCAL) {
+            // there are no other instances, so the topic can be skipped
+            assignId(event);
+            localEventDispatcher.dispatch(new LocalTopicEventTask(event));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Schedules redelivery of a failed event. In the local dispatch mode, the delay between redeliveries is the same
+     * as the one used by the broker.
+     *
+     * @param event the failed event
+     */
+    private void redeliver(MotechEvent event) {
+        if (getDispatchMode() == EventDispatchMode.LOCAL) {
+            long delay = getRedeliveryDelay(event.getMessageRedeliveryCount());
+            LOGGER.debug("Redelivering {} locally after {} millis.", event, delay);
+            localEventDispatcher.dispatchLater(new LocalQueueEventTask(event), delay);
+        } else {
+            sendToQueue(Collections.singletonList(event));
+        }
+    }
+
+    /**
+     * Sends the events to the event queue, one by one. Events of lanes with a queue of their own are sent through
+     * the batch sender, which routes them to the queue of their lane.
+     *
+     * @param events the events to send, all of the same subject
+     */
+    private void sendToQueue(List<MotechEvent> events) {
+        if (eventLanes != null && eventLanes.hasDedicatedQueue(events.get(0).getSubject())) {
+            outboundEventGateway.sendEventMessages(events);
+        } else {
+            for (MotechEvent event : events) {
+                outboundEventGateway.sendEventMessage(event);
+            }
+        }
+    }
+
+    private long getRedeliveryDelay(int redeliveryCount) {
+        return (long) (motechEventConfig.getMessageRedeliveryDelay() * MILLIS_PER_SEC * Math.pow(2, redeliveryCount - 1));
+    }
+
+    private EventDispatchMode getDispatchMode() {
+        EventDispatchMode dispatchMode = motechEventConfig.getDispatchMode();
+        return (dispatchMode == null || localEventDispatcher == null) ? EventDispatchMode.BROKER : dispatchMode;
+    }
+
+    private void assignId(MotechEvent event) {
+        // events dispatched locally do not pass through the MotechEventTransformer
+        if (event.getId() == null) {
+            event.setId(UUID.randomUUID());
         }
     }
 
@@ -295,7 +763,8 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     }
 
     private MotechEvent copyMotechEvent(MotechEvent event) {
-        MotechEvent copy = new MotechEvent(event.getSubject(), event.getParameters());
+        // the relayed event is not used afterwards, so its maps can be shared without copying them
+        MotechEvent copy = new MotechEvent(event.getSubject(), CopyOnWriteMap.wrap(event.getParameters()));
         copy.setId(event.getId());
         copy.setMessageRedeliveryCount(event.getMessageRedeliveryCount());
         copy.setInvalid(event.isInvalid());
@@ -303,13 +772,147 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         copy.setBroadcast(event.isBroadcast());
         copy.setMessageDestination(event.getMessageDestination());
         copy.setCallbackName(event.getCallbackName());
-        copy.setMetadata(event.getMetadata());
+        copy.setMetadata(CopyOnWriteMap.wrap(event.getMetadata()));
         return copy;
     }
 
+    private long microsSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
     private void verifyEventNotNull(MotechEvent event) {
         if (event == null) {
             throw new IllegalArgumentException("Invalid request to relay null event");
         }
     }
+
+    /**
+     * Handles a queue event that was dispatched locally, in the same way events received from the queue are handled.
+     */
+    private class LocalQueueEventTask implements Runnable {
+        private final MotechEvent event;
+        private final long enqueuedAt;
+        private final LocalDelayedEvent delayedEvent;
+
+        LocalQueueEventTask(MotechEvent event) {
+            this(event, 0, null);
+        }
+
+        LocalQueueEventTask(MotechEvent event, long delayMillis, LocalDelayedEvent delayedEvent) {
+            this.event = event;
+            // delayed events wait from their delivery time
+            this.enqueuedAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            this.delayedEvent = delayedEvent;
+        }
+
+        @Override
+        public void run() {
+            if (delayedEvent != null) {
+                delayedEvent.delivered();
+            }
+
+            // the wait of redelivered events includes the redelivery delay
+            if (event.getMessageRedeliveryCount() == 0) {
+                eventMetricsService.enqueueToHandle(event.getSubject(), event.getMessageDestination(),
+                        Math.max(0, microsSince(enqueuedAt)));
+            }
+
+            try {
+                relayQueueEvent(event);
+            } catch (RuntimeException e) {
+                // discarded events are already logged, there is no transaction to roll back
+                LOGGER.debug("Local handling of event {} failed", event.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Delivers a broadcast event to a single listener. Failed deliveries are retried with the same delays as
+     * redeliveries of queue events, until the maximum redelivery count is reached.
+     */
+    private class TopicEventDelivery implements TopicEventDispatcher.Delivery {
+        private final EventListener listener;
+        private final MotechEvent event;
+        private int retryCount;
+
+        TopicEventDelivery(EventListener listener, MotechEvent event) {
+            this.listener = listener;
+            this.event = event;
+        }
+
+        @Override
+        public long attempt() {
+            if (retryCount == 0) {
+                recordQueueTime(event, listener);
+            }
+
+            if (handleTopicEvent(listener, event)) {
+                return DONE;
+            }
+
+            if (retryCount >= motechEventConfig.getMessageMaxRedeliveryCount()) {
+                LOGGER.error("Discarding topic event {} for listener {}. Max retry count reached.",
+                        event, listener.getIdentifier());
+                eventMetricsService.discarded(event.getSubject(), listener.getIdentifier());
+                return DONE;
+            }
+
+            retryCount++;
+            eventMetricsService.redelivered(event.getSubject(), listener.getIdentifier());
+            return getRedeliveryDelay(retryCount);
+        }
+    }
+
+    /**
+     * Handles a broadcast event that was dispatched locally, in the same way events received from the topic are handled.
+     */
+    private class LocalTopicEventTask implements Runnable {
+        private final MotechEvent event;
+        private final long enqueuedAt = System.nanoTime();
+
+        LocalTopicEventTask(MotechEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            eventMetricsService.enqueueToHandle(event.getSubject(), null, microsSince(enqueuedAt));
+
+            try {
+                relayTopicEvent(event);
+            } catch (RuntimeException e) {
+                LOGGER.error("Local handling of broadcast event {} failed", event.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * The messages of a delayed event that are held back in this instance, one for each listener.
+     */
+    private class LocalDelayedEvent {
+        private final UUID eventId;
+        private final String subject;
+        private final List<ScheduledFuture<?>> futures = new CopyOnWriteArrayList<>();
+        private final AtomicInteger pending;
+
+        LocalDelayedEvent(UUID eventId, String subject, int count) {
+            this.eventId = eventId;
+            this.subject = subject;
+            this.pending = new AtomicInteger(count);
+        }
+
+        void delivered() {
+            if (pending.decrementAndGet() == 0) {
+                localDelayedEvents.remove(eventId, this);
+            }
+        }
+
+        boolean cancel() {
+            boolean cancelled = false;
+            for (ScheduledFuture<?> future : futures) {
+                cancelled |= future.cancel(false);
+            }
+            return cancelled;
+        }
+    }
 }
@@ -0,0 +1,310 @@
+package org.motechproject.event.listener.impl;
+
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands broadcast events to their listeners on a bounded pool of threads, so that a slow listener does not hold up
+ * the delivery of broadcast events to other listeners. Failed deliveries are retried after a delay, without
+ * occupying a thread while waiting. If ordered dispatch is enabled, each listener receives events one at a time,
+ * in the order they were dispatched. The number of pending deliveries is limited, dispatching waits when the limit
+ * is reached.
+ */
+@Component
+public class TopicEventDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicEventDispatcher.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private static final ThreadLocal<Boolean> WORKER_THREAD = new ThreadLocal<>();
+
+    /**
+     * A single delivery of an event to a listener.
+     */
+    public interface Delivery {
+
+        /**
+         * Returned by {@link #attempt()} when the delivery is complete, either because it succeeded or because
+         * it should not be retried anymore.
+         */
+        long DONE = -1;
+
+        /**
+         * Attempts the delivery.
+         *
+         * @return the delay in milliseconds after which the delivery should be attempted again, or {@link #DONE}
+         */
+        long attempt();
+    }
+
+    private MotechEventConfig motechEventConfig;
+
+    private final ConcurrentMap<String, ListenerQueue> listenerQueues = new ConcurrentHashMap<>();
+    private final Set<PendingDelivery> pending = Collections.newSetFromMap(new ConcurrentHashMap<PendingDelivery, Boolean>());
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService retryExecutor;
+    private Semaphore permits;
+
+    @Autowired
+    public TopicEventDispatcher(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
+
+    /**
+     * Dispatches the delivery of an event to a listener. Waits if the maximum number of pending deliveries has been
+     * reached, unless called from a thread of this dispatcher.
+     *
+     * @param listenerIdentifier the identifier of the listener
+     * @param delivery the delivery
+     */
+    public void dispatch(String listenerIdentifier, Delivery delivery) {
+        boolean permitted = acquirePermit();
+
+        PendingDelivery pendingDelivery;
+        if (motechEventConfig.isTopicDispatchOrdered()) {
+            ListenerQueue queue = getListenerQueue(listenerIdentifier);
+            pendingDelivery = new PendingDelivery(delivery, queue, permitted);
+            pending.add(pendingDelivery);
+            queue.add(pendingDelivery);
+        } else {
+            pendingDelivery = new PendingDelivery(delivery, null, permitted);
+            pending.add(pendingDelivery);
+            execute(pendingDelivery);
+        }
+    }
+
+    /**
+     * @return the number of deliveries that are waiting, being attempted or waiting for a retry
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns how long the oldest delivery, that was not yet attempted, has been waiting.
+     *
+     * @return the time in milliseconds, 0 if no delivery is waiting
+     */
+    public long getLagMillis() {
+        long now = System.nanoTime();
+        long lag = 0;
+        for (PendingDelivery pendingDelivery : pending) {
+            if (!pendingDelivery.attempted) {
+                lag = Math.max(lag, now - pendingDelivery.dispatchedAt);
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(lag);
+    }
+
+    /**
+     * Stops the executors. Deliveries that are in progress are given a chance to finish, pending retries are dropped.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
+            retryExecutor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Topic event executor did not terminate in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+
+        pending.clear();
+        listenerQueues.clear();
+    }
+
+    private boolean acquirePermit() {
+        Semaphore semaphore = getPermits();
+
+        // deliveries dispatched by listeners must not wait for deliveries of this dispatcher to complete
+        if (Boolean.TRUE.equals(WORKER_THREAD.get())) {
+            return semaphore.tryAcquire();
+        }
+
+        try {
+            semaphore.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void execute(PendingDelivery pendingDelivery) {
+        try {
+            getExecutor().execute(pendingDelivery);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Topic event executor is shut down, dropping delivery");
+            pendingDelivery.complete();
+        }
+    }
+
+    private void retryLater(final PendingDelivery pendingDelivery, long delayMillis) {
+        try {
+            getRetryExecutor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    execute(pendingDelivery);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Topic event retry executor is shut down, dropping delivery");
+            pendingDelivery.complete();
+        }
+    }
+
+    private ListenerQueue getListenerQueue(String listenerIdentifier) {
+        ListenerQueue queue = listenerQueues.get(listenerIdentifier);
+        if (queue == null) {
+            queue = listenerQueues.computeIfAbsent(listenerIdentifier, id -> new ListenerQueue());
+        }
+        return queue;
+    }
+
+    private synchronized Semaphore getPermits() {
+        if (permits == null) {
+            permits = new Semaphore(Math.max(1, motechEventConfig.getTopicMaxPending()));
+        }
+        return permits;
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int poolSize = Math.max(1, motechEventConfig.getTopicPoolSize());
+
+            LOGGER.info("Starting topic event executor with {} threads", poolSize);
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-topic-event-");
+            threadFactory.setDaemon(true);
+
+            // the queue is bounded by the permits
+            executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private synchronized ScheduledExecutorService getRetryExecutor() {
+        if (retryExecutor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-topic-event-retry-");
+            threadFactory.setDaemon(true);
+
+            retryExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        }
+        return retryExecutor;
+    }
+
+    /**
+     * A delivery that was dispatched and did not complete yet.
+     */
+    private class PendingDelivery implements Runnable {
+        private final Delivery delivery;
+        private final ListenerQueue queue;
+        private final boolean permitted;
+        private final long dispatchedAt = System.nanoTime();
+        private volatile boolean attempted;
+
+        PendingDelivery(Delivery delivery, ListenerQueue queue, boolean permitted) {
+            this.delivery = delivery;
+            this.queue = queue;
+            this.permitted = permitted;
+        }
+
+        @Override
+        public void run() {
+            attempted = true;
+            WORKER_THREAD.set(true);
+
+            long retryDelay;
+            try {
+                retryDelay = delivery.attempt();
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error while delivering a broadcast event", e);
+                retryDelay = Delivery.DONE;
+            } finally {
+                WORKER_THREAD.remove();
+            }
+
+            if (retryDelay >= 0) {
+                // an ordered listener queue stays blocked until the retry
+                retryLater(this, retryDelay);
+            } else {
+                complete();
+            }
+        }
+
+        void complete() {
+            pending.remove(this);
+            if (permitted) {
+                getPermits().release();
+            }
+            if (queue != null) {
+                queue.next();
+            }
+        }
+    }
+
+    /**
+     * Deliveries to a single listener, attempted one at a time in the order of dispatch.
+     */
+    private class ListenerQueue {
+        private final Queue<PendingDelivery> deliveries = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean active = new AtomicBoolean();
+
+        void add(PendingDelivery pendingDelivery) {
+            deliveries.add(pendingDelivery);
+            startNext();
+        }
+
+        void next() {
+            deliveries.poll();
+            active.set(false);
+            startNext();
+        }
+
+        private void startNext() {
+            while (!deliveries.isEmpty() && active.compareAndSet(false, true)) {
+                PendingDelivery head = deliveries.peek();
+                if (head != null) {
+                    execute(head);
+                    return;
+                }
+                active.set(false);
+            }
+        }
+    }
+}
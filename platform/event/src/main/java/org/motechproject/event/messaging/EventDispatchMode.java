@@ -0,0 +1,44 @@
+package org.motechproject.event.messaging;
+
+/**
+ * Decides how events published through the {@link org.motechproject.event.listener.EventRelay} reach their listeners.
+ */
+public enum EventDispatchMode {
+
+    /**
+     * Every event goes through the ActiveMQ broker. This is the default and the only mode that should be used
+     * when more than one MOTECH instance is connected to the broker.
+     */
+    BROKER,
+
+    /**
+     * Events never go through the broker, they are handled by listeners registered in this MOTECH instance,
+     * using a bounded in-process executor. Redelivery of failed events is also done locally. Meant for
+     * single-node deployments.
+     */
+    LOCAL,
+
+    /**
+     * Queue events with listeners registered in this MOTECH instance are handled locally, as long as the local
+     * executor has free capacity. Broadcast events, redeliveries and events that the local executor can't accept
+     * go through the broker.
+     */
+    HYBRID;
+
+    /**
+     * Parses the dispatch mode from its name, ignoring case. Blank or unknown values result in {@link #BROKER}.
+     *
+     * @param value the name of the dispatch mode
+     * @return the matching dispatch mode, {@link #BROKER} if there is no match
+     */
+    public static EventDispatchMode fromString(String value) {
+        if (value != null) {
+            for (EventDispatchMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return BROKER;
+    }
+}
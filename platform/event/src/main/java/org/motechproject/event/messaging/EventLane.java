@@ -0,0 +1,105 @@
+package org.motechproject.event.messaging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A consumer lane of the event queue. Queue events with subjects starting with one of the lane's subject prefixes
+ * are consumed by a dedicated pool of consumers, so that slow listeners of these subjects cannot starve the
+ * handling of other events. A lane either shares the event queue, in which case its events are selected using the
+ * {@link EventLanes#LANE_PROPERTY} message property, or uses a queue of its own.
+ */
+public class EventLane {
+
+    private final String name;
+    private final List<String> subjectPrefixes;
+    private final int concurrentConsumers;
+    private final int maxConcurrentConsumers;
+    private final int prefetch;
+    private final String queueName;
+
+    public EventLane(String name, List<String> subjectPrefixes, int concurrentConsumers, int maxConcurrentConsumers,
+                     int prefetch, String queueName) {
+        this.name = name;
+        this.subjectPrefixes = Collections.unmodifiableList(new ArrayList<>(subjectPrefixes));
+        this.concurrentConsumers = concurrentConsumers;
+        this.maxConcurrentConsumers = Math.max(concurrentConsumers, maxConcurrentConsumers);
+        this.prefetch = prefetch;
+        this.queueName = queueName;
+    }
+
+    /**
+     * @return the name of the lane
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the prefixes of subjects handled in this lane
+     */
+    public List<String> getSubjectPrefixes() {
+        return subjectPrefixes;
+    }
+
+    /**
+     * @return the number of consumers started for this lane
+     */
+    public int getConcurrentConsumers() {
+        return concurrentConsumers;
+    }
+
+    /**
+     * @return the number of consumers this lane can grow to under load
+     */
+    public int getMaxConcurrentConsumers() {
+        return maxConcurrentConsumers;
+    }
+
+    /**
+     * @return the number of messages the broker pushes to each consumer ahead of time, a non-positive value means
+     * the broker default
+     */
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * @return the name of the queue of this lane, or {@code null} if the lane shares the event queue
+     */
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * @return {@code true} if this lane uses a queue of its own
+     */
+    public boolean hasDedicatedQueue() {
+        return queueName != null;
+    }
+
+    /**
+     * Returns the length of the longest subject prefix of this lane matching the given subject. A prefix matches
+     * the subject if it is equal to it, or if the subject continues with a dot after the prefix.
+     *
+     * @param subject the subject to match
+     * @return the length of the matching prefix, -1 if no prefix matches
+     */
+    public int match(String subject) {
+        int longest = -1;
+        for (String prefix : subjectPrefixes) {
+            if (prefix.length() > longest && subject.startsWith(prefix) &&
+                    (subject.length() == prefix.length() || subject.charAt(prefix.length()) == '.')) {
+                longest = prefix.length();
+            }
+        }
+        return longest;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventLane{name=%s, subjectPrefixes=%s, consumers=%d-%d, prefetch=%d, queue=%s}",
+                name, subjectPrefixes, concurrentConsumers, maxConcurrentConsumers, prefetch, queueName);
+    }
+}
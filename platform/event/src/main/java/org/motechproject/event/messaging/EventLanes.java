@@ -0,0 +1,234 @@
+package org.motechproject.event.messaging;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.config.core.service.CoreConfigurationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.jms.Destination;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the consumer lanes of the event queue, configured in the ActiveMQ configuration:
+ * <pre>
+ * motech.message.lanes=sms
+ * motech.message.lane.sms.subjects=org.motechproject.sms
+ * motech.message.lane.sms.concurrent.consumers=1
+ * motech.message.lane.sms.max.concurrent.consumers=5
+ * motech.message.lane.sms.prefetch=1
+ * motech.message.lane.sms.queue=QueueForEvents.sms
+ * </pre>
+ * Only the subjects are required, a lane without a queue shares the event queue. Queue events whose subjects
+ * don't belong to any lane are consumed by the default event queue consumers.
+ */
+@Component
+public class EventLanes {
+
+    /**
+     * The message property holding the name of the lane of a queue event.
+     */
+    public static final String LANE_PROPERTY = "motechEventLane";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLanes.class);
+
+    private static final String LANES = "motech.message.lanes";
+    private static final String LANE_PREFIX = "motech.message.lane.";
+    private static final String SUBJECTS = ".subjects";
+    private static final String CONCURRENT_CONSUMERS = ".concurrent.consumers";
+    private static final String MAX_CONCURRENT_CONSUMERS = ".max.concurrent.consumers";
+    private static final String PREFETCH = ".prefetch";
+    private static final String QUEUE = ".queue";
+    private static final String EVENT_QUEUE = "jms.queue.for.events";
+
+    private static final Pattern LANE_NAME = Pattern.compile("[A-Za-z0-9_\\-]+");
+
+    /**
+     * The maximum number of subjects for which the lane is cached. Once reached, the cache is cleared, so that events
+     * with generated subjects can't make it grow indefinitely.
+     */
+    static final int MAX_CACHED_SUBJECTS = 10000;
+
+    private final List<EventLane> lanes;
+    private final String eventQueueName;
+    private final Map<String, Destination> dedicatedQueues = new HashMap<>();
+    private final ConcurrentMap<String, String> laneNamesBySubject = new ConcurrentHashMap<>();
+    private final Map<String, EventLane> lanesByName = new HashMap<>();
+
+    @Autowired
+    public EventLanes(CoreConfigurationService coreConfigurationService) {
+        this(coreConfigurationService.getActiveMqConfig());
+    }
+
+    public EventLanes(Properties activeMqConfig) {
+        this.eventQueueName = activeMqConfig.getProperty(EVENT_QUEUE);
+        this.lanes = Collections.unmodifiableList(parseLanes(activeMqConfig));
+
+        for (EventLane lane : lanes) {
+            lanesByName.put(lane.getName(), lane);
+            if (lane.hasDedicatedQueue()) {
+                dedicatedQueues.put(lane.getName(), new ActiveMQQueue(lane.getQueueName()));
+            }
+            LOGGER.info("Configured {}", lane);
+        }
+    }
+
+    /**
+     * @return all configured lanes
+     */
+    public List<EventLane> getLanes() {
+        return lanes;
+    }
+
+    /**
+     * @return the name of the event queue
+     */
+    public String getEventQueueName() {
+        return eventQueueName;
+    }
+
+    /**
+     * Returns the lane of the given subject. If more than one lane matches the subject, the one with the longest
+     * matching prefix is used.
+     *
+     * @param subject the subject of an event
+     * @return the lane, or {@code null} if the subject is handled by the default consumers
+     */
+    public EventLane getLane(String subject) {
+        if (lanes.isEmpty() || subject == null) {
+            return null;
+        }
+
+        String laneName = laneNamesBySubject.get(subject);
+        if (laneName == null) {
+            laneName = findLane(subject);
+
+            if (laneNamesBySubject.size() >= MAX_CACHED_SUBJECTS) {
+                laneNamesBySubject.clear();
+            }
+            laneNamesBySubject.putIfAbsent(subject, laneName);
+        }
+        return lanesByName.get(laneName);
+    }
+
+    /**
+     * Returns the queue to which events of the given subject have to be sent, if their lane uses its own queue.
+     *
+     * @param subject the subject of an event
+     * @return the queue of the lane, or {@code null} if events of the subject are sent to the event queue
+     */
+    public Destination getDedicatedQueue(String subject) {
+        EventLane lane = getLane(subject);
+        return lane == null ? null : dedicatedQueues.get(lane.getName());
+    }
+
+    /**
+     * @param subject the subject of an event
+     * @return {@code true} if events of the subject are sent to a queue of their lane, instead of the event queue
+     */
+    public boolean hasDedicatedQueue(String subject) {
+        return getDedicatedQueue(subject) != null;
+    }
+
+    /**
+     * Returns the message selector of the default event queue consumers, which excludes events of lanes sharing
+     * the event queue.
+     *
+     * @return the selector, or {@code null} if no lane shares the event queue
+     */
+    public String getDefaultQueueSelector() {
+        List<String> sharedLanes = new ArrayList<>();
+        for (EventLane lane : lanes) {
+            if (!lane.hasDedicatedQueue()) {
+                sharedLanes.add("'" + lane.getName() + "'");
+            }
+        }
+
+        if (sharedLanes.isEmpty()) {
+            return null;
+        }
+
+        // events of lanes that were removed from the configuration are still picked up by the default consumers
+        return String.format("%s IS NULL OR %s NOT IN (%s)", LANE_PROPERTY, LANE_PROPERTY,
+                StringUtils.join(sharedLanes, ", "));
+    }
+
+    /**
+     * Returns the message selector of the consumers of the given lane.
+     *
+     * @param lane the lane
+     * @return the selector, or {@code null} if the lane uses its own queue
+     */
+    public String getLaneSelector(EventLane lane) {
+        return lane.hasDedicatedQueue() ? null : String.format("%s = '%s'", LANE_PROPERTY, lane.getName());
+    }
+
+    private String findLane(String subject) {
+        String laneName = "";
+        int longest = -1;
+        for (EventLane lane : lanes) {
+            int match = lane.match(subject);
+            if (match > longest) {
+                longest = match;
+                laneName = lane.getName();
+            }
+        }
+        return laneName;
+    }
+
+    private List<EventLane> parseLanes(Properties config) {
+        List<EventLane> result = new ArrayList<>();
+
+        for (String name : split(config.getProperty(LANES))) {
+            if (!LANE_NAME.matcher(name).matches()) {
+                LOGGER.error("Ignoring event lane {}, lane names can only contain letters, digits, '-' and '_'", name);
+                continue;
+            }
+
+            List<String> subjects = split(config.getProperty(LANE_PREFIX + name + SUBJECTS));
+            if (subjects.isEmpty()) {
+                LOGGER.error("Ignoring event lane {}, no subjects were configured", name);
+                continue;
+            }
+
+            try {
+                int concurrentConsumers = getInt(config, name, CONCURRENT_CONSUMERS, 1);
+                int maxConcurrentConsumers = getInt(config, name, MAX_CONCURRENT_CONSUMERS, concurrentConsumers);
+                int prefetch = getInt(config, name, PREFETCH, 0);
+                String queue = StringUtils.trimToNull(config.getProperty(LANE_PREFIX + name + QUEUE));
+
+                result.add(new EventLane(name, subjects, Math.max(1, concurrentConsumers), maxConcurrentConsumers,
+                        prefetch, queue));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Ignoring event lane {}, invalid number in its configuration", name, e);
+            }
+        }
+
+        return result;
+    }
+
+    private int getInt(Properties config, String name, String key, int defaultValue) {
+        String value = StringUtils.trimToNull(config.getProperty(LANE_PREFIX + name + key));
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private List<String> split(String value) {
+        List<String> result = new ArrayList<>();
+        for (String part : StringUtils.split(StringUtils.defaultString(value), ',')) {
+            if (StringUtils.isNotBlank(part)) {
+                result.add(part.trim());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package org.motechproject.event.messaging;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.MotechEventCodecException;
+
+/**
+ * Encodes <code>MotechEvent</code>s into bytes sent to the broker and decodes them back. Every codec writes its own
+ * version into the encoded form, so that events encoded by an older version of the codec can still be decoded.
+ */
+public interface MotechEventCodec {
+
+    /**
+     * Returns the name of the format produced by this codec, including its version. It is sent as a message property
+     * along with the encoded event, so that the receiving side can pick the matching codec.
+     *
+     * @return the name of the format
+     */
+    String getFormat();
+
+    /**
+     * Encodes the event.
+     *
+     * @param motechEvent the event to encode
+     * @return the encoded event
+     * @throws MotechEventCodecException if the event can't be encoded
+     */
+    byte[] encode(MotechEvent motechEvent);
+
+    /**
+     * Decodes the event.
+     *
+     * @param bytes the encoded event
+     * @return the decoded event
+     * @throws MotechEventCodecException if the bytes are not a valid encoded event
+     */
+    MotechEvent decode(byte[] bytes);
+}
@@ -15,6 +15,63 @@ public class MotechEventConfig {
     @Value("${motech.message.redelivery.delay:1}")
     private long messageRedeliveryDelay;
 
+    @Value("${motech.message.dispatch.mode:BROKER}")
+    private String dispatchMode;
+
+    @Value("${motech.message.local.pool.size:10}")
+    private int localPoolSize;
+
+    @Value("${motech.message.local.queue.capacity:1000}")
+    private int localQueueCapacity;
+
+    @Value("${motech.message.batch.size:1000}")
+    private int batchSize;
+
+    @Value("${motech.message.binary.format:false}")
+    private boolean binaryMessageFormat;
+
+    @Value("${motech.message.topic.pool.size:10}")
+    private int topicPoolSize;
+
+    @Value("${motech.message.topic.max.pending:1000}")
+    private int topicMaxPending;
+
+    @Value("${motech.message.topic.ordered:true}")
+    private boolean topicDispatchOrdered;
+
+    @Value("${motech.message.trace.enabled:false}")
+    private boolean traceEnabled;
+
+    @Value("${motech.message.trace.buffer.size:10000}")
+    private int traceBufferSize;
+
+    @Value("${motech.message.outbound.capacity:10000}")
+    private int outboundCapacity;
+
+    @Value("${motech.message.outbound.overflow.policy:BLOCK}")
+    private String outboundOverflowPolicy;
+
+    @Value("${motech.message.outbound.block.timeout:5000}")
+    private long outboundBlockTimeout;
+
+    @Value("${motech.message.outbound.flush.interval:50}")
+    private long outboundFlushInterval;
+
+    @Value("${motech.message.outbound.spill.directory:}")
+    private String outboundSpillDirectory;
+
+    @Value("${motech.message.listener.timeout:0}")
+    private long listenerTimeout;
+
+    @Value("${motech.message.listener.timeout.redelivery:true}")
+    private boolean listenerTimeoutRedelivery;
+
+    @Value("${motech.message.listener.pool.size:50}")
+    private int listenerPoolSize;
+
+    @Value("${motech.message.listener.watchdog.interval:60}")
+    private long listenerWatchdogInterval;
+
     /**
      * Returns maximum number of times a message would be re-delivered
      * in case of any exception.
@@ -36,4 +93,187 @@ public class MotechEventConfig {
     public long getMessageRedeliveryDelay() {
         return messageRedeliveryDelay;
     }
+
+    /**
+     * Returns the mode in which events are dispatched to their listeners.
+     *
+     * @return the event dispatch mode, {@link EventDispatchMode#BROKER} if not configured
+     */
+    public EventDispatchMode getDispatchMode() {
+        return EventDispatchMode.fromString(dispatchMode);
+    }
+
+    /**
+     * Returns the number of threads handling events dispatched locally, without going through the broker.
+     *
+     * @return the size of the local dispatch thread pool
+     */
+    public int getLocalPoolSize() {
+        return localPoolSize;
+    }
+
+    /**
+     * Returns the maximum number of events waiting to be handled locally. When reached, events are either sent
+     * through the broker (hybrid mode) or handled by the publishing thread (local mode).
+     *
+     * @return the capacity of the local dispatch queue
+     */
+    public int getLocalQueueCapacity() {
+        return localQueueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of events sent to the broker in a single transaction, when events are
+     * published in batches.
+     *
+     * @return the number of events per broker commit
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns whether events should be sent to the broker in the compact binary format. If not, they are sent as
+     * Java serialized objects. Events in both formats are always accepted when receiving, the binary format should
+     * only be enabled once all MOTECH instances connected to the broker are able to read it.
+     *
+     * @return {@code true} if events should be sent in the binary format
+     */
+    public boolean isBinaryMessageFormat() {
+        return binaryMessageFormat;
+    }
+
+    /**
+     * Returns the number of threads handing broadcast events to their listeners.
+     *
+     * @return the size of the topic dispatch thread pool
+     */
+    public int getTopicPoolSize() {
+        return topicPoolSize;
+    }
+
+    /**
+     * Returns the maximum number of broadcast event deliveries, one for each listener, that can be waiting or
+     * in progress. When reached, consuming further broadcast events waits until some deliveries complete.
+     *
+     * @return the maximum number of pending topic deliveries
+     */
+    public int getTopicMaxPending() {
+        return topicMaxPending;
+    }
+
+    /**
+     * Returns whether each listener receives broadcast events in the order they were received from the topic.
+     * If so, a listener retrying an event receives no further events until the retry completes.
+     *
+     * @return {@code true} if broadcast events are delivered in order to each listener
+     */
+    public boolean isTopicDispatchOrdered() {
+        return topicDispatchOrdered;
+    }
+
+    /**
+     * Returns whether traces of the work caused by events are recorded. The trace context is carried in the
+     * metadata of events, and the time spent in each stage of the work is recorded as a span.
+     *
+     * @return {@code true} if traces are recorded
+     */
+    public boolean isTraceEnabled() {
+        return traceEnabled;
+    }
+
+    /**
+     * Returns the number of most recent spans kept in memory, for viewing traces.
+     *
+     * @return the size of the span ring buffer
+     */
+    public int getTraceBufferSize() {
+        return traceBufferSize;
+    }
+
+    /**
+     * Returns the maximum number of events published asynchronously that can wait in memory to be sent to
+     * the broker.
+     *
+     * @return the capacity of the outbound buffer
+     */
+    public int getOutboundCapacity() {
+        return outboundCapacity;
+    }
+
+    /**
+     * Returns what happens to events published asynchronously when the outbound buffer is full.
+     *
+     * @return the overflow policy, {@link OutboundOverflowPolicy#BLOCK} if not configured
+     */
+    public OutboundOverflowPolicy getOutboundOverflowPolicy() {
+        return OutboundOverflowPolicy.fromString(outboundOverflowPolicy);
+    }
+
+    /**
+     * Returns how long a thread publishing asynchronously waits for space in the full outbound buffer, when
+     * the {@link OutboundOverflowPolicy#BLOCK} policy is used.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getOutboundBlockTimeout() {
+        return outboundBlockTimeout;
+    }
+
+    /**
+     * Returns how long the outbound buffer waits for more events before sending an incomplete batch to the broker.
+     *
+     * @return the flush interval in milliseconds
+     */
+    public long getOutboundFlushInterval() {
+        return outboundFlushInterval;
+    }
+
+    /**
+     * Returns the directory to which events that could not be kept in the outbound buffer, or could not be sent
+     * to the broker, are written.
+     *
+     * @return the spill directory, blank for the default one
+     */
+    public String getOutboundSpillDirectory() {
+        return outboundSpillDirectory;
+    }
+
+    /**
+     * Returns how long listeners may take to handle an event, unless they set a timeout of their own.
+     *
+     * @return the default listener timeout in milliseconds, 0 for no timeout
+     */
+    public long getListenerTimeout() {
+        return listenerTimeout;
+    }
+
+    /**
+     * Returns whether queue events that timed out in their listener are redelivered, like events whose handling
+     * failed. If not, they are dropped.
+     *
+     * @return {@code true} if timed out events are redelivered
+     */
+    public boolean isListenerTimeoutRedelivery() {
+        return listenerTimeoutRedelivery;
+    }
+
+    /**
+     * Returns the number of threads running the listeners that have a timeout. It should be greater than the number
+     * of threads consuming events, since threads of listeners that ignore being interrupted stay busy.
+     *
+     * @return the size of the listener thread pool
+     */
+    public int getListenerPoolSize() {
+        return listenerPoolSize;
+    }
+
+    /**
+     * Returns how often the stack traces of listeners, that are still running after timing out, are logged.
+     *
+     * @return the watchdog interval in seconds
+     */
+    public long getListenerWatchdogInterval() {
+        return listenerWatchdogInterval;
+    }
 }
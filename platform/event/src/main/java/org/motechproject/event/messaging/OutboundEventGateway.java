@@ -1,6 +1,9 @@
 package org.motechproject.event.messaging;
 
 import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+
+import java.util.Collection;
 
 /**
  * Sends <code>MotechEvent</code> to the ActiveMQ broker, the implementation is generated by Spring Integration.
@@ -26,4 +29,22 @@ public interface OutboundEventGateway {
      * @param motechEvent the event to be broadcast
      */
     void broadcastEventMessage(MotechEvent motechEvent);
+
+    /**
+     *  Sends all events to the event queue, using a single transacted session and message producer.
+     *  Events are committed in chunks of {@link MotechEventConfig#getBatchSize()}.
+     *
+     * @param motechEvents the events to be sent
+     * @throws EventBatchPublishException if sending the events failed, it holds the number of events that were published
+     */
+    void sendEventMessages(Collection<MotechEvent> motechEvents) throws EventBatchPublishException;
+
+    /**
+     *  Broadcasts all events to the event topic, using a single transacted session and message producer.
+     *  Events are committed in chunks of {@link MotechEventConfig#getBatchSize()}.
+     *
+     * @param motechEvents the events to be broadcast
+     * @throws EventBatchPublishException if sending the events failed, it holds the number of events that were published
+     */
+    void broadcastEventMessages(Collection<MotechEvent> motechEvents) throws EventBatchPublishException;
 }
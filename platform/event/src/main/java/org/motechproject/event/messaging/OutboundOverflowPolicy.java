@@ -0,0 +1,43 @@
+package org.motechproject.event.messaging;
+
+/**
+ * Decides what happens to an event published asynchronously, through
+ * {@link org.motechproject.event.listener.EventRelay#sendEventMessageAsync(org.motechproject.event.MotechEvent)},
+ * when the outbound buffer is full because the broker does not keep up.
+ */
+public enum OutboundOverflowPolicy {
+
+    /**
+     * The publishing thread waits for space in the buffer, up to the configured timeout. If there is still no space,
+     * publishing fails. This is the default.
+     */
+    BLOCK,
+
+    /**
+     * Publishing fails right away.
+     */
+    FAIL,
+
+    /**
+     * The event is written to a file in the spill directory, and sent to the broker once the buffer drains. Events
+     * spilled to disk can reach the broker after events published later.
+     */
+    SPILL;
+
+    /**
+     * Parses the overflow policy from its name, ignoring case. Blank or unknown values result in {@link #BLOCK}.
+     *
+     * @param value the name of the overflow policy
+     * @return the matching overflow policy, {@link #BLOCK} if there is no match
+     */
+    public static OutboundOverflowPolicy fromString(String value) {
+        if (value != null) {
+            for (OutboundOverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return BLOCK;
+    }
+}
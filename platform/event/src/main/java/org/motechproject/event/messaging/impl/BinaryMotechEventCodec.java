@@ -0,0 +1,375 @@
+package org.motechproject.event.messaging.impl;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.motechproject.event.CopyOnWriteMap;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.MotechEventCodecException;
+import org.motechproject.event.messaging.MotechEventCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary {@link MotechEventCodec}. Common parameter types (strings, numbers, booleans, Joda
+ * <code>DateTime</code>, dates, UUIDs, lists, sets and maps) are written with a one byte type tag followed by their
+ * value. Values of any other type are written using Java serialization, so they must be {@link Serializable}.
+ * <p>
+ * The encoded event starts with a magic number and the version of the format.
+ */
+public class BinaryMotechEventCodec implements MotechEventCodec {
+
+    public static final String FORMAT = "motech-binary-1";
+
+    private static final short MAGIC = (short) 0x4D45;
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_INVALID = 1;
+    private static final int FLAG_DISCARDED = 1 << 1;
+    private static final int FLAG_BROADCAST = 1 << 2;
+    private static final int FLAG_ID = 1 << 3;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_SHORT = 6;
+    private static final byte TYPE_BYTE = 7;
+    private static final byte TYPE_BOOLEAN = 8;
+    private static final byte TYPE_CHARACTER = 9;
+    private static final byte TYPE_DATE_TIME = 10;
+    private static final byte TYPE_DATE = 11;
+    private static final byte TYPE_UUID = 12;
+    private static final byte TYPE_BIG_DECIMAL = 13;
+    private static final byte TYPE_BIG_INTEGER = 14;
+    private static final byte TYPE_LIST = 15;
+    private static final byte TYPE_SET = 16;
+    private static final byte TYPE_MAP = 17;
+    private static final byte TYPE_BYTES = 18;
+    private static final byte TYPE_SERIALIZED = 19;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] encode(MotechEvent motechEvent) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(MAGIC);
+            out.writeByte(VERSION);
+
+            UUID id = motechEvent.getId();
+            int flags = (motechEvent.isInvalid() ? FLAG_INVALID : 0)
+                    | (motechEvent.isDiscarded() ? FLAG_DISCARDED : 0)
+                    | (motechEvent.isBroadcast() ? FLAG_BROADCAST : 0)
+                    | (id != null ? FLAG_ID : 0);
+            out.writeByte(flags);
+
+            if (id != null) {
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+
+            out.writeInt(motechEvent.getMessageRedeliveryCount());
+            writeString(out, motechEvent.getSubject());
+            writeNullableString(out, motechEvent.getMessageDestination());
+            writeNullableString(out, motechEvent.getCallbackName());
+            writeValue(out, motechEvent.getMetadata());
+            writeValue(out, motechEvent.getParameters());
+        } catch (IOException e) {
+            throw new MotechEventCodecException("Unable to encode event with subject " + motechEvent.getSubject(), e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public MotechEvent decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readShort() != MAGIC) {
+                throw new MotechEventCodecException("Not a binary encoded Motech event");
+            }
+
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new MotechEventCodecException("Unsupported binary event format version: " + version);
+            }
+
+            int flags = in.readByte();
+            UUID id = ((flags & FLAG_ID) != 0) ? new UUID(in.readLong(), in.readLong()) : null;
+            int redeliveryCount = in.readInt();
+            String subject = readString(in);
+            String messageDestination = readNullableString(in);
+            String callbackName = readNullableString(in);
+            Map<String, Object> metadata = (Map<String, Object>) readValue(in);
+            Map<String, Object> parameters = (Map<String, Object>) readValue(in);
+
+            MotechEvent motechEvent = new MotechEvent(subject, parameters, callbackName, metadata);
+            motechEvent.setId(id);
+            motechEvent.setInvalid((flags & FLAG_INVALID) != 0);
+            motechEvent.setDiscarded((flags & FLAG_DISCARDED) != 0);
+            motechEvent.setBroadcast((flags & FLAG_BROADCAST) != 0);
+            motechEvent.setMessageRedeliveryCount(redeliveryCount);
+            motechEvent.setMessageDestination(messageDestination);
+
+            return motechEvent;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new MotechEventCodecException("Unable to decode binary event", e);
+        }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException { //NO CHECKSTYLE CyclomaticComplexity
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value.getClass() == DateTime.class) {
+            DateTime dateTime = (DateTime) value;
+            out.writeByte(TYPE_DATE_TIME);
+            out.writeLong(dateTime.getMillis());
+            writeString(out, dateTime.getZone().getID());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            out.writeByte(TYPE_UUID);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value.getClass() == BigDecimal.class) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value.getClass() == BigInteger.class) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value.getClass() == ArrayList.class) {
+            out.writeByte(TYPE_LIST);
+            writeCollection(out, (Collection<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            out.writeByte(TYPE_SET);
+            writeCollection(out, (Collection<?>) value);
+        } else if (isPlainMap(value)) {
+            out.writeByte(TYPE_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof Serializable) {
+            out.writeByte(TYPE_SERIALIZED);
+            writeBytes(out, serialize(value));
+        } else {
+            throw new MotechEventCodecException("Unable to encode value of type " + value.getClass().getName()
+                    + ", it is not serializable");
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException, ClassNotFoundException { //NO CHECKSTYLE CyclomaticComplexity
+        byte type = in.readByte();
+
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_SHORT:
+                return in.readShort();
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_CHARACTER:
+                return in.readChar();
+            case TYPE_DATE_TIME:
+                long millis = in.readLong();
+                return new DateTime(millis, DateTimeZone.forID(readString(in)));
+            case TYPE_DATE:
+                return new Date(in.readLong());
+            case TYPE_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case TYPE_BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case TYPE_BYTES:
+                return readBytes(in);
+            case TYPE_LIST:
+                int listSize = in.readInt();
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; ++i) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case TYPE_SET:
+                int setSize = in.readInt();
+                Set<Object> set = new HashSet<>();
+                for (int i = 0; i < setSize; ++i) {
+                    set.add(readValue(in));
+                }
+                return set;
+            case TYPE_MAP:
+                int mapSize = in.readInt();
+                Map<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < mapSize; ++i) {
+                    Object key = readValue(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            case TYPE_SERIALIZED:
+                return deserialize(readBytes(in));
+            default:
+                throw new MotechEventCodecException("Unknown value type: " + type);
+        }
+    }
+
+    /**
+     * Only the maps decoded as a <code>HashMap</code> are encoded entry by entry, other implementations, such as
+     * sorted or linked maps, are serialized so that their type and order are preserved. The same goes for lists and
+     * sets, which are encoded element by element only if they are an <code>ArrayList</code> or a
+     * <code>HashSet</code>.
+     */
+    private boolean isPlainMap(Object value) {
+        return value.getClass() == HashMap.class || value instanceof CopyOnWriteMap;
+    }
+
+    private void writeCollection(DataOutputStream out, Collection<?> collection) throws IOException {
+        out.writeInt(collection.size());
+        for (Object element : collection) {
+            writeValue(out, element);
+        }
+    }
+
+    private void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(byte[] value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(value))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Resolves classes of serialized values using the context class loader, which is set to the class loader
+     * of the bundle handling the event, same as it is done for Java serialized events.
+     */
+    private static class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution below
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
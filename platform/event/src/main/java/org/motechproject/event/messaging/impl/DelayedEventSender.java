@@ -0,0 +1,242 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.ScheduledMessage;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.EventLanes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sends <code>MotechEvent</code>s to the event queue for delayed delivery, using the scheduler of the ActiveMQ
+ * broker, and cancels them. For this to work, set attribute schedulerSupport="true" in the broker element of the
+ * activemq.xml. Ref: http://activemq.apache.org/delay-and-schedule-message-delivery.html
+ * <p>
+ * Cancelling browses the messages scheduled in the broker around the delivery time of the given event and removes
+ * the ones carrying the event. The delivery time is tracked for events scheduled by this instance, other events can
+ * only be cancelled along with their delivery time, so that cancelling never browses every scheduled message.
+ * All messages are sent in transacted sessions.
+ */
+public class DelayedEventSender {
+
+    /**
+     * The message property holding the id of a delayed event.
+     */
+    public static final String EVENT_ID_PROPERTY = "motechEventId";
+
+    /**
+     * The message property holding the requested delivery time of a delayed event, in milliseconds since the epoch.
+     */
+    public static final String DELIVERY_TIME_PROPERTY = "motechDeliveryTime";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DelayedEventSender.class);
+
+    private static final long BROWSE_RECEIVE_TIMEOUT_MILLIS = 1000L;
+    // allows for clock differences between this instance and the broker
+    private static final long BROWSE_WINDOW_MILLIS = 60000L;
+    private static final int MAX_TRACKED_EVENTS = 10000;
+
+    private JmsTemplate jmsTemplate;
+    private Destination eventQueue;
+    private MotechEventTransformer eventTransformer;
+    private MessageConverter messageConverter;
+
+    private final ConcurrentMap<UUID, Long> deliveryTimes = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private EventLanes eventLanes;
+
+    public DelayedEventSender(ConnectionFactory connectionFactory, Destination eventQueue,
+                              MotechEventTransformer eventTransformer, MessageConverter messageConverter) {
+        this.jmsTemplate = new JmsTemplate(connectionFactory);
+        this.jmsTemplate.setSessionTransacted(true);
+        this.eventQueue = eventQueue;
+        this.eventTransformer = eventTransformer;
+        this.messageConverter = messageConverter;
+    }
+
+    /**
+     * Sends the events to the event queue, or to the queues of their lanes, to be delivered at the given time.
+     * All events are sent in a single transaction.
+     *
+     * @param motechEvents the events to send
+     * @param deliveryTime the delivery time, in milliseconds since the epoch
+     */
+    public void send(final Collection<MotechEvent> motechEvents, final long deliveryTime) {
+        if (motechEvents == null || motechEvents.isEmpty()) {
+            return;
+        }
+
+        final long delay = Math.max(0, deliveryTime - System.currentTimeMillis());
+
+        jmsTemplate.execute(new SessionCallback<Void>() {
+            @Override
+            public Void doInJms(Session session) throws JMSException {
+                // unidentified producer, events of lanes can go to different queues
+                MessageProducer producer = session.createProducer(null);
+                try {
+                    for (MotechEvent motechEvent : motechEvents) {
+                        Message message = messageConverter.toMessage(eventTransformer.transform(motechEvent), session);
+                        message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, delay);
+                        message.setStringProperty(EVENT_ID_PROPERTY, motechEvent.getId().toString());
+                        message.setLongProperty(DELIVERY_TIME_PROPERTY, deliveryTime);
+
+                        producer.send(getQueue(motechEvent), message);
+                    }
+                    session.commit();
+                } catch (JMSException | RuntimeException e) {
+                    session.rollback();
+                    throw e;
+                } finally {
+                    producer.close();
+                }
+                return null;
+            }
+        }, false);
+
+        track(motechEvents, deliveryTime);
+
+        LOGGER.debug("Scheduled {} events for delivery in {} millis", motechEvents.size(), delay);
+    }
+
+    /**
+     * Cancels the delivery of the event with the given id, scheduled by this instance.
+     *
+     * @param eventId the id of the event
+     * @return the cancelled messages of the event, one for each listener, empty if no messages of the event
+     * were scheduled or the delivery time of the event is not known
+     */
+    public List<MotechEvent> cancel(UUID eventId) {
+        Long deliveryTime = deliveryTimes.get(eventId);
+        if (deliveryTime == null) {
+            LOGGER.warn("Delivery time of event {} is unknown, it can only be cancelled along with its delivery time",
+                    eventId);
+            return Collections.emptyList();
+        }
+        return cancel(eventId, deliveryTime);
+    }
+
+    /**
+     * Cancels the delivery of the event with the given id, which was scheduled for delivery around the given time.
+     *
+     * @param eventId the id of the event
+     * @param deliveryTime the delivery time, in milliseconds since the epoch
+     * @return the cancelled messages of the event, one for each listener, empty if no messages of the event
+     * were scheduled
+     */
+    public List<MotechEvent> cancel(final UUID eventId, final long deliveryTime) {
+        deliveryTimes.remove(eventId);
+
+        List<MotechEvent> cancelled = jmsTemplate.execute(new SessionCallback<List<MotechEvent>>() {
+            @Override
+            public List<MotechEvent> doInJms(Session session) throws JMSException {
+                Destination management = session.createTopic(ScheduledMessage.AMQ_SCHEDULER_MANAGEMENT_DESTINATION);
+                TemporaryQueue browseQueue = session.createTemporaryQueue();
+
+                MessageConsumer consumer = session.createConsumer(browseQueue);
+                MessageProducer producer = session.createProducer(management);
+                try {
+                    Message browse = session.createMessage();
+                    browse.setStringProperty(ScheduledMessage.AMQ_SCHEDULER_ACTION,
+                            ScheduledMessage.AMQ_SCHEDULER_ACTION_BROWSE);
+                    browse.setLongProperty(ScheduledMessage.AMQ_SCHEDULER_ACTION_START_TIME,
+                            deliveryTime - BROWSE_WINDOW_MILLIS);
+                    browse.setLongProperty(ScheduledMessage.AMQ_SCHEDULER_ACTION_END_TIME,
+                            deliveryTime + BROWSE_WINDOW_MILLIS);
+                    browse.setJMSReplyTo(browseQueue);
+                    producer.send(browse);
+                    session.commit();
+
+                    List<MotechEvent> removed = removeScheduled(session, consumer, producer, eventId.toString());
+                    session.commit();
+                    return removed;
+                } catch (JMSException | RuntimeException e) {
+                    session.rollback();
+                    throw e;
+                } finally {
+                    producer.close();
+                    consumer.close();
+                    browseQueue.delete();
+                }
+            }
+        }, true);
+
+        LOGGER.debug("Cancelled {} scheduled messages of event {}", cancelled.size(), eventId);
+
+        return cancelled;
+    }
+
+    private List<MotechEvent> removeScheduled(Session session, MessageConsumer consumer, MessageProducer producer,
+                                              String eventId) throws JMSException {
+        List<MotechEvent> removed = new ArrayList<>();
+
+        Message scheduled;
+        while ((scheduled = consumer.receive(BROWSE_RECEIVE_TIMEOUT_MILLIS)) != null) {
+            if (!eventId.equals(scheduled.getStringProperty(EVENT_ID_PROPERTY))) {
+                continue;
+            }
+
+            Message remove = session.createMessage();
+            remove.setStringProperty(ScheduledMessage.AMQ_SCHEDULER_ACTION, ScheduledMessage.AMQ_SCHEDULER_ACTION_REMOVE);
+            remove.setStringProperty(ScheduledMessage.AMQ_SCHEDULED_ID,
+                    scheduled.getStringProperty(ScheduledMessage.AMQ_SCHEDULED_ID));
+            producer.send(remove);
+
+            Object payload = messageConverter.fromMessage(scheduled);
+            if (payload instanceof MotechEvent) {
+                removed.add((MotechEvent) payload);
+            }
+        }
+
+        return removed;
+    }
+
+    private Destination getQueue(MotechEvent motechEvent) {
+        Destination queue = eventLanes == null ? null : eventLanes.getDedicatedQueue(motechEvent.getSubject());
+        return queue == null ? eventQueue : queue;
+    }
+
+    private void track(Collection<MotechEvent> motechEvents, long deliveryTime) {
+        if (deliveryTimes.size() >= MAX_TRACKED_EVENTS) {
+            removeDelivered();
+        }
+
+        // events that are not tracked can still be cancelled along with their delivery time
+        if (deliveryTimes.size() < MAX_TRACKED_EVENTS) {
+            for (MotechEvent motechEvent : motechEvents) {
+                deliveryTimes.put(motechEvent.getId(), deliveryTime);
+            }
+        }
+    }
+
+    private void removeDelivered() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<UUID, Long>> iterator = deliveryTimes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() + BROWSE_WINDOW_MILLIS < now) {
+                iterator.remove();
+            }
+        }
+    }
+}
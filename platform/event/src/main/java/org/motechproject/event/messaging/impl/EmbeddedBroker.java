@@ -0,0 +1,183 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.store.PersistenceAdapter;
+import org.apache.activemq.store.kahadb.KahaDBPersistenceAdapter;
+import org.apache.activemq.store.memory.MemoryPersistenceAdapter;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ActiveMQ broker running inside the event bundle, for single server deployments that do not want to operate
+ * an external broker. Clients connect to it through the in-VM transport, so events are not serialized to the wire
+ * format and no TCP connection is used. Messages are stored in KahaDB, or only kept in memory if the broker is not
+ * persistent. Messages sent to the non-persistent destinations are never stored, whatever their delivery mode.
+ * The broker registers its MBeans in the platform MBean server, under the configured broker name.
+ * <p>
+ * If the embedded broker is not enabled, this bean does nothing and clients connect to the configured broker URL.
+ */
+public class EmbeddedBroker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedBroker.class);
+
+    private static final String VM_URL = "vm://%s?create=false";
+
+    private boolean enabled;
+    private String brokerName = "localhost";
+    private boolean persistent = true;
+    private String dataDirectory;
+    private String nonPersistentDestinations;
+    private boolean journalDiskSyncs = true;
+    private int journalMaxFileLength;
+    private int indexWriteBatchSize;
+
+    private BrokerService brokerService;
+
+    /**
+     * Starts the broker, if enabled.
+     *
+     * @throws Exception if the broker could not be started
+     */
+    public synchronized void start() throws Exception {
+        if (!enabled || brokerService != null) {
+            return;
+        }
+
+        BrokerService broker = new BrokerService();
+        broker.setBrokerName(brokerName);
+        broker.setUseJmx(true);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.setUseShutdownHook(false);
+        broker.setSchedulerSupport(true);
+
+        File directory = getDataDirectoryFile();
+        broker.setDataDirectoryFile(directory);
+        broker.setSchedulerDirectoryFile(new File(directory, "scheduler"));
+        broker.setTmpDataDirectory(new File(directory, "tmp"));
+
+        broker.setPersistent(persistent);
+        broker.setPersistenceAdapter(createPersistenceAdapter(directory));
+
+        List<ActiveMQDestination> destinations = parseDestinations(nonPersistentDestinations);
+        if (!destinations.isEmpty()) {
+            broker.setPlugins(new BrokerPlugin[] { new NonPersistentDestinationsPlugin(destinations) });
+        }
+
+        broker.start();
+        broker.waitUntilStarted();
+        brokerService = broker;
+
+        LOGGER.info("Started embedded broker {}, persistent: {}, data directory: {}", brokerName, persistent,
+                directory);
+    }
+
+    /**
+     * Stops the broker, if it was started.
+     *
+     * @throws Exception if the broker could not be stopped
+     */
+    public synchronized void stop() throws Exception {
+        if (brokerService != null) {
+            brokerService.stop();
+            brokerService.waitUntilStopped();
+            brokerService = null;
+
+            LOGGER.info("Stopped embedded broker {}", brokerName);
+        }
+    }
+
+    /**
+     * Returns the URL clients should connect to.
+     *
+     * @param externalBrokerUrl the URL of the external broker
+     * @return the in-VM URL of this broker if enabled, the URL of the external broker otherwise
+     */
+    public String getBrokerUrl(String externalBrokerUrl) {
+        return enabled ? String.format(VM_URL, brokerName) : externalBrokerUrl;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setBrokerName(String brokerName) {
+        this.brokerName = brokerName;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    public void setDataDirectory(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * @param nonPersistentDestinations comma separated destinations, with the queue:// or topic:// prefix,
+     *                                  wildcards are allowed
+     */
+    public void setNonPersistentDestinations(String nonPersistentDestinations) {
+        this.nonPersistentDestinations = nonPersistentDestinations;
+    }
+
+    public void setJournalDiskSyncs(boolean journalDiskSyncs) {
+        this.journalDiskSyncs = journalDiskSyncs;
+    }
+
+    public void setJournalMaxFileLength(int journalMaxFileLength) {
+        this.journalMaxFileLength = journalMaxFileLength;
+    }
+
+    public void setIndexWriteBatchSize(int indexWriteBatchSize) {
+        this.indexWriteBatchSize = indexWriteBatchSize;
+    }
+
+    static List<ActiveMQDestination> parseDestinations(String destinations) {
+        List<ActiveMQDestination> result = new ArrayList<>();
+
+        for (String destination : StringUtils.split(StringUtils.defaultString(destinations), ',')) {
+            if (StringUtils.isNotBlank(destination)) {
+                result.add(ActiveMQDestination.createDestination(destination.trim(),
+                        ActiveMQDestination.QUEUE_TYPE));
+            }
+        }
+
+        return result;
+    }
+
+    private PersistenceAdapter createPersistenceAdapter(File directory) {
+        if (!persistent) {
+            return new MemoryPersistenceAdapter();
+        }
+
+        KahaDBPersistenceAdapter kahaDB = new KahaDBPersistenceAdapter();
+        kahaDB.setDirectory(new File(directory, "kahadb"));
+        kahaDB.setEnableJournalDiskSyncs(journalDiskSyncs);
+        if (journalMaxFileLength > 0) {
+            kahaDB.setJournalMaxFileLength(journalMaxFileLength);
+        }
+        if (indexWriteBatchSize > 0) {
+            kahaDB.setIndexWriteBatchSize(indexWriteBatchSize);
+        }
+
+        return kahaDB;
+    }
+
+    private File getDataDirectoryFile() {
+        if (StringUtils.isNotBlank(dataDirectory)) {
+            return new File(dataDirectory.trim());
+        }
+        return new File(System.getProperty("user.home"), ".motech/activemq-data/" + brokerName);
+    }
+}
@@ -0,0 +1,163 @@
+package org.motechproject.event.messaging.impl;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.messaging.EventLanes;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends batches of <code>MotechEvent</code>s to the ActiveMQ broker. Serves the batch methods of the
+ * {@link org.motechproject.event.messaging.OutboundEventGateway}. All events of a batch are sent using a single
+ * transacted session and a single message producer, the session is committed once per
+ * {@link MotechEventConfig#getBatchSize()} events. Events of {@link org.motechproject.event.messaging.EventLane}s
+ * with a queue of their own are sent to that queue, in a separate session.
+ */
+public class MotechEventBatchSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotechEventBatchSender.class);
+
+    private JmsTemplate jmsTemplate;
+    private Destination eventQueue;
+    private Destination eventTopic;
+    private MotechEventTransformer eventTransformer;
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private MotechEventConfig motechEventConfig;
+
+    @Autowired(required = false)
+    private EventLanes eventLanes;
+
+    public MotechEventBatchSender(ConnectionFactory connectionFactory, Destination eventQueue, Destination eventTopic,
+                                  MotechEventTransformer eventTransformer, MessageConverter messageConverter) {
+        this.jmsTemplate = new JmsTemplate(connectionFactory);
+        this.jmsTemplate.setSessionTransacted(true);
+        this.eventQueue = eventQueue;
+        this.eventTopic = eventTopic;
+        this.eventTransformer = eventTransformer;
+        this.messageConverter = messageConverter;
+    }
+
+    /**
+     * Sends the events to the event queue.
+     *
+     * @param motechEvents the events to send
+     * @throws EventBatchPublishException if sending failed
+     */
+    public void sendToQueue(Collection<MotechEvent> motechEvents) {
+        if (motechEvents == null || motechEvents.isEmpty()) {
+            return;
+        }
+
+        Map<Destination, List<MotechEvent>> eventsByQueue = groupByQueue(motechEvents);
+        int sent = 0;
+
+        for (Map.Entry<Destination, List<MotechEvent>> entry : eventsByQueue.entrySet()) {
+            try {
+                send(entry.getKey(), entry.getValue());
+                sent += entry.getValue().size();
+            } catch (EventBatchPublishException e) {
+                throw new EventBatchPublishException(sent + e.getPublishedCount(), motechEvents.size(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Sends the events to the event topic.
+     *
+     * @param motechEvents the events to send
+     * @throws EventBatchPublishException if sending failed
+     */
+    public void sendToTopic(Collection<MotechEvent> motechEvents) {
+        send(eventTopic, motechEvents);
+    }
+
+    private void send(final Destination destination, final Collection<MotechEvent> motechEvents) {
+        if (motechEvents == null || motechEvents.isEmpty()) {
+            return;
+        }
+
+        final int batchSize = Math.max(1, motechEventConfig.getBatchSize());
+        final int[] committed = new int[1];
+
+        try {
+            jmsTemplate.execute(new SessionCallback<Void>() {
+                @Override
+                public Void doInJms(Session session) throws JMSException {
+                    MessageProducer producer = session.createProducer(destination);
+                    try {
+                        int pending = 0;
+                        for (MotechEvent motechEvent : motechEvents) {
+                            producer.send(createMessage(session, motechEvent));
+
+                            if (++pending == batchSize) {
+                                session.commit();
+                                committed[0] += pending;
+                                pending = 0;
+                            }
+                        }
+
+                        if (pending > 0) {
+                            session.commit();
+                            committed[0] += pending;
+                        }
+                    } catch (JMSException | RuntimeException e) {
+                        session.rollback();
+                        throw e;
+                    } finally {
+                        producer.close();
+                    }
+                    return null;
+                }
+            }, false);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to publish event batch to {}, {} out of {} events were published",
+                    destination, committed[0], motechEvents.size(), e);
+            throw new EventBatchPublishException(committed[0], motechEvents.size(), e);
+        }
+
+        LOGGER.debug("Published {} events to {}", committed[0], destination);
+    }
+
+    private Map<Destination, List<MotechEvent>> groupByQueue(Collection<MotechEvent> motechEvents) {
+        Map<Destination, List<MotechEvent>> eventsByQueue = new LinkedHashMap<>();
+
+        for (MotechEvent motechEvent : motechEvents) {
+            Destination queue = eventLanes == null ? null : eventLanes.getDedicatedQueue(motechEvent.getSubject());
+            if (queue == null) {
+                queue = eventQueue;
+            }
+
+            List<MotechEvent> events = eventsByQueue.get(queue);
+            if (events == null) {
+                events = new ArrayList<>();
+                eventsByQueue.put(queue, events);
+            }
+            events.add(motechEvent);
+        }
+
+        return eventsByQueue;
+    }
+
+    private Message createMessage(Session session, MotechEvent motechEvent) throws JMSException {
+        return messageConverter.toMessage(eventTransformer.transform(motechEvent), session);
+    }
+}
@@ -0,0 +1,140 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.ScheduledMessage;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.EventLane;
+import org.motechproject.event.messaging.EventLanes;
+import org.motechproject.event.messaging.MotechEventCodec;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts <code>MotechEvent</code>s to JMS messages and back. Depending on the <code>MotechEventConfig</code>, events
+ * are either sent as <code>BytesMessage</code>s encoded with the {@link MotechEventCodec}, or as Java serialized
+ * <code>ObjectMessage</code>s, which older MOTECH versions expect. Both formats are always accepted when receiving,
+ * so nodes of a cluster can be switched to the binary format one by one, once all of them are able to read it.
+ * <p>
+ * It also sets the <code>AMQ_SCHEDULED_DELAY</code> of messages carrying events that are being redelivered.
+ * For the delay to work, set attribute schedulerSupport="true" in the broker element of the activemq.xml
+ * Ref: http://activemq.apache.org/delay-and-schedule-message-delivery.html
+ * <p>
+ * Messages carrying events of an {@link EventLane} are marked with the {@link EventLanes#LANE_PROPERTY}, so that
+ * lanes sharing the event queue can select their events.
+ * <p>
+ * When a message is received, the time it spent in the broker is recorded in the event metrics. The time is
+ * measured against the timestamp set by the sending instance, so it is only as accurate as the clock synchronization
+ * between instances.
+ */
+public class MotechEventMessageConverter implements MessageConverter {
+
+    /**
+     * The message property holding the format of the encoded event.
+     */
+    public static final String FORMAT_PROPERTY = "motechEventFormat";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotechEventMessageConverter.class);
+    private static final long MILLIS_PER_SEC = 1000L;
+
+    private MotechEventCodec codec;
+    private SimpleMessageConverter legacyConverter = new SimpleMessageConverter();
+
+    @Autowired
+    private MotechEventConfig motechEventConfig;
+
+    @Autowired(required = false)
+    private EventMetricsService eventMetricsService;
+
+    @Autowired(required = false)
+    private EventLanes eventLanes;
+
+    public MotechEventMessageConverter(MotechEventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        if (!(object instanceof MotechEvent)) {
+            return legacyConverter.toMessage(object, session);
+        }
+
+        MotechEvent motechEvent = (MotechEvent) object;
+        Message message;
+
+        if (motechEventConfig.isBinaryMessageFormat()) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.writeBytes(codec.encode(motechEvent));
+            bytesMessage.setStringProperty(FORMAT_PROPERTY, codec.getFormat());
+            message = bytesMessage;
+        } else {
+            message = session.createObjectMessage(motechEvent);
+        }
+
+        EventLane lane = eventLanes == null ? null : eventLanes.getLane(motechEvent.getSubject());
+        if (lane != null) {
+            message.setStringProperty(EventLanes.LANE_PROPERTY, lane.getName());
+        }
+
+        if (motechEvent.isInvalid()) {
+            long redeliveryCount = motechEvent.getMessageRedeliveryCount();
+            Double delay = motechEventConfig.getMessageRedeliveryDelay() * MILLIS_PER_SEC *
+                    ((Math.pow(2, redeliveryCount - 1)));
+            LOGGER.debug("Redelivering {} after {} millis.", motechEvent, delay);
+            message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, delay.longValue());
+        }
+
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        Object object = decode(message);
+
+        if (object instanceof MotechEvent) {
+            recordEnqueueToHandle((MotechEvent) object, message);
+        }
+
+        return object;
+    }
+
+    private Object decode(Message message) throws JMSException {
+        if (message instanceof BytesMessage && message.propertyExists(FORMAT_PROPERTY)) {
+            String format = message.getStringProperty(FORMAT_PROPERTY);
+            if (!codec.getFormat().equals(format)) {
+                throw new MessageConversionException("Unsupported event format: " + format);
+            }
+
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+
+            return codec.decode(bytes);
+        }
+
+        return legacyConverter.fromMessage(message);
+    }
+
+    private void recordEnqueueToHandle(MotechEvent motechEvent, Message message) throws JMSException {
+        // the timestamp of redelivered events includes the redelivery delay
+        if (eventMetricsService != null && message.getJMSTimestamp() > 0 && !motechEvent.isInvalid()) {
+            // delayed events wait from their delivery time
+            long enqueuedAt = message.propertyExists(DelayedEventSender.DELIVERY_TIME_PROPERTY) ?
+                    Math.max(message.getJMSTimestamp(), message.getLongProperty(DelayedEventSender.DELIVERY_TIME_PROPERTY)) :
+                    message.getJMSTimestamp();
+            long millis = Math.max(0, System.currentTimeMillis() - enqueuedAt);
+            eventMetricsService.enqueueToHandle(motechEvent.getSubject(), motechEvent.getMessageDestination(),
+                    TimeUnit.MILLISECONDS.toMicros(millis));
+        }
+    }
+}
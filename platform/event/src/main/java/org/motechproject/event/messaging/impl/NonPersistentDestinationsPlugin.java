@@ -0,0 +1,47 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.filter.DestinationMap;
+
+import java.util.Collection;
+
+/**
+ * Broker plugin delivering the messages sent to the given destinations as non-persistent messages, so that the
+ * broker never writes them to its store. Used by the {@link EmbeddedBroker} for destinations, like the broadcast
+ * topic, whose messages do not have to survive a restart.
+ */
+public class NonPersistentDestinationsPlugin implements BrokerPlugin {
+
+    private final DestinationMap destinations = new DestinationMap();
+
+    /**
+     * @param destinations the non-persistent destinations, wildcards are allowed
+     */
+    public NonPersistentDestinationsPlugin(Collection<ActiveMQDestination> destinations) {
+        for (ActiveMQDestination destination : destinations) {
+            this.destinations.put(destination, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public Broker installPlugin(Broker broker) {
+        return new BrokerFilter(broker) {
+            @Override
+            public void send(ProducerBrokerExchange producerExchange, Message messageSend) throws Exception {
+                if (messageSend.isPersistent() && isNonPersistent(messageSend.getDestination())) {
+                    messageSend.setPersistent(false);
+                }
+                super.send(producerExchange, messageSend);
+            }
+        };
+    }
+
+    boolean isNonPersistent(ActiveMQDestination destination) {
+        return !destinations.get(destination).isEmpty();
+    }
+}
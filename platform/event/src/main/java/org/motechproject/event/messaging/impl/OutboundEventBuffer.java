@@ -0,0 +1,488 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.exception.EventPublishRejectedException;
+import org.motechproject.event.exception.MotechEventCodecException;
+import org.motechproject.event.messaging.MotechEventCodec;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.messaging.OutboundOverflowPolicy;
+import org.motechproject.event.metrics.OutboundEventMetrics;
+import org.motechproject.event.metrics.impl.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds events published asynchronously until they are sent to the event queue. Events wait in a bounded buffer,
+ * a background thread sends them to the broker in batches, through the {@link MotechEventBatchSender}. When the
+ * buffer is full, the {@link OutboundOverflowPolicy} decides whether the publishing thread waits, fails or writes
+ * the events to the spill directory. Batches that can't be sent to the broker are written to the spill directory
+ * as well, and retried after the redelivery delay. Spilled events are sent once the buffer is at most half full,
+ * including events spilled before a restart, so the spill directory must not be shared between MOTECH instances.
+ * Events that are still in the buffer when it is shut down are spilled.
+ */
+public class OutboundEventBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundEventBuffer.class);
+
+    private static final String SPILL_FILE_SUFFIX = ".spill";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String CORRUPT_FILE_SUFFIX = ".corrupt";
+    private static final String DEFAULT_SPILL_DIRECTORY = ".motech/event-spill";
+
+    private static final long IDLE_POLL_MILLIS = 500L;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000L;
+    private static final long MILLIS_PER_SEC = 1000L;
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final MotechEventBatchSender batchSender;
+    private final MotechEventCodec eventCodec;
+
+    @Autowired
+    private MotechEventConfig motechEventConfig;
+
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram bufferTime = new LatencyHistogram();
+    private final LatencyHistogram sendTime = new LatencyHistogram();
+
+    private final AtomicInteger spillFileCount = new AtomicInteger();
+    private final AtomicLong spillSequence = new AtomicLong();
+
+    private volatile BlockingQueue<BufferedEvent> queue;
+    private volatile boolean running;
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private volatile File spillDirectory;
+    private CountDownLatch stopped;
+    private Thread flusher;
+
+    public OutboundEventBuffer(MotechEventBatchSender batchSender, MotechEventCodec eventCodec) {
+        this.batchSender = batchSender;
+        this.eventCodec = eventCodec;
+    }
+
+    /**
+     * Adds the events to the buffer. Once the buffer is shut down, the events are sent to the broker right away,
+     * by the calling thread.
+     *
+     * @param events the events to send, with their message destinations set
+     * @throws EventPublishRejectedException if the buffer is full and the events could not be buffered or spilled
+     */
+    public void add(List<MotechEvent> events) {
+        // held while buffering, so that the buffer is not drained by shutdown() until the events are in it
+        shutdownLock.readLock().lock();
+        try {
+            if (running) {
+                buffer(events);
+                return;
+            }
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+
+        batchSender.sendToQueue(events);
+    }
+
+    private void buffer(List<MotechEvent> events) {
+        OutboundOverflowPolicy overflowPolicy = motechEventConfig.getOutboundOverflowPolicy();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, motechEventConfig.getOutboundBlockTimeout()));
+
+        for (int i = 0; i < events.size(); i++) {
+            BufferedEvent bufferedEvent = new BufferedEvent(events.get(i));
+
+            if (queue.offer(bufferedEvent)) {
+                buffered.increment();
+            } else if (overflowPolicy == OutboundOverflowPolicy.SPILL && writeSpillFile(events.subList(i, events.size()))) {
+                spilled.add(events.size() - i);
+                return;
+            } else if (overflowPolicy == OutboundOverflowPolicy.BLOCK && offer(bufferedEvent, deadline)) {
+                buffered.increment();
+            } else {
+                rejected.add(events.size() - i);
+                throw new EventPublishRejectedException(i, events.size());
+            }
+        }
+    }
+
+    /**
+     * @return the number of events waiting in the buffer
+     */
+    public int getDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return the current state and counters of the buffer
+     */
+    public OutboundEventMetrics getMetrics() {
+        OutboundEventMetrics metrics = new OutboundEventMetrics();
+        metrics.setDepth(getDepth());
+        metrics.setCapacity(queue == null ? 0 : queue.size() + queue.remainingCapacity());
+        metrics.setSpillFileCount(spillFileCount.get());
+        metrics.setBufferedCount(buffered.sum());
+        metrics.setSentCount(sent.sum());
+        metrics.setRejectedCount(rejected.sum());
+        metrics.setSpilledCount(spilled.sum());
+        metrics.setFailedCount(failed.sum());
+        metrics.setBufferTime(bufferTime.getStatistics());
+        metrics.setSendTime(sendTime.getStatistics());
+        return metrics;
+    }
+
+    /**
+     * Clears the counters of the buffer.
+     */
+    public void resetMetrics() {
+        buffered.reset();
+        sent.reset();
+        rejected.reset();
+        spilled.reset();
+        failed.reset();
+        bufferTime.reset();
+        sendTime.reset();
+    }
+
+    /**
+     * Creates the buffer and starts the thread sending its events, along with the events spilled before.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(Math.max(1, motechEventConfig.getOutboundCapacity()));
+        spillDirectory = getSpillDirectoryFile();
+        spillFileCount.set(listSpillFiles().length);
+        if (spillFileCount.get() > 0) {
+            LOGGER.info("Found {} files with spilled events in {}, they will be sent to the broker",
+                    spillFileCount.get(), spillDirectory);
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("motech-outbound-event-");
+        threadFactory.setDaemon(true);
+
+        stopped = new CountDownLatch(1);
+        running = true;
+        flusher = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        });
+        flusher.start();
+    }
+
+    /**
+     * Stops the thread sending events, after it sends the batch in progress. Events remaining in the buffer are
+     * spilled, so that they are sent after a restart.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        shutdownLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+
+        stopped.countDown();
+        try {
+            flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            LOGGER.warn("Outbound event thread did not stop in {} millis", SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        flusher = null;
+
+        List<BufferedEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            LOGGER.info("Spilling {} outbound events remaining in the buffer", remaining.size());
+            spillUnsent(toEvents(remaining));
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                boolean ok = true;
+
+                List<BufferedEvent> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    ok = send(batch);
+                }
+
+                // spilled events are only sent while the buffer has room, so that they do not add to the backlog
+                if (ok && spillFileCount.get() > 0 && queue.size() <= queue.remainingCapacity()) {
+                    ok = sendSpillFile();
+                }
+
+                if (!ok) {
+                    long retryDelay = motechEventConfig.getMessageRedeliveryDelay() * MILLIS_PER_SEC;
+                    stopped.await(Math.max(IDLE_POLL_MILLIS, retryDelay), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error while sending outbound events", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the first event, then takes the events that arrive within the flush interval, up to the batch size.
+     */
+    private List<BufferedEvent> takeBatch() throws InterruptedException {
+        List<BufferedEvent> batch = new ArrayList<>();
+
+        BufferedEvent first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        int batchSize = Math.max(1, motechEventConfig.getBatchSize());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, motechEventConfig.getOutboundFlushInterval()));
+
+        queue.drainTo(batch, batchSize - batch.size());
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            BufferedEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+
+        return batch;
+    }
+
+    private boolean send(List<BufferedEvent> batch) {
+        List<MotechEvent> events = toEvents(batch);
+        int published = sendToBroker(events);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < published; i++) {
+            bufferTime.record((now - batch.get(i).bufferedAt) / NANOS_PER_MICRO);
+        }
+
+        if (published < events.size()) {
+            spillUnsent(events.subList(published, events.size()));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean sendSpillFile() {
+        File[] files = listSpillFiles();
+        if (files.length == 0) {
+            spillFileCount.set(0);
+            return true;
+        }
+        File file = files[0];
+
+        List<MotechEvent> events;
+        try {
+            events = readSpillFile(file);
+        } catch (IOException | MotechEventCodecException e) {
+            LOGGER.error("Unable to read spilled events from {}, moving it aside", file, e);
+            if (!file.renameTo(new File(file.getPath() + CORRUPT_FILE_SUFFIX))) {
+                LOGGER.error("Unable to rename {}, deleting it", file);
+                deleteSpillFile(file);
+            }
+            spillFileCount.decrementAndGet();
+            return true;
+        }
+
+        int published = sendToBroker(events);
+        if (published == 0) {
+            return false;
+        }
+
+        // the events that were sent must not be sent again, the remaining ones are spilled again
+        if (published < events.size() && !writeSpillFile(events.subList(published, events.size()))) {
+            LOGGER.error("Lost {} spilled events from {}", events.size() - published, file);
+        }
+        deleteSpillFile(file);
+        spillFileCount.decrementAndGet();
+
+        LOGGER.debug("Sent {} spilled events from {}", published, file);
+        return published == events.size();
+    }
+
+    private int sendToBroker(List<MotechEvent> events) {
+        long start = System.nanoTime();
+        int published;
+
+        try {
+            batchSender.sendToQueue(events);
+            published = events.size();
+        } catch (EventBatchPublishException e) {
+            published = e.getPublishedCount();
+        }
+
+        sendTime.record((System.nanoTime() - start) / NANOS_PER_MICRO);
+        sent.add(published);
+        failed.add(events.size() - published);
+        return published;
+    }
+
+    private void spillUnsent(List<MotechEvent> events) {
+        if (writeSpillFile(events)) {
+            spilled.add(events.size());
+        } else {
+            LOGGER.error("Lost {} outbound events, they could not be sent nor spilled", events.size());
+        }
+    }
+
+    private boolean writeSpillFile(List<MotechEvent> events) {
+        File directory = spillDirectory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.error("Unable to create the event spill directory {}", directory);
+            return false;
+        }
+
+        // names sort in the order the files were written
+        String name = String.format("%013d-%06d", System.currentTimeMillis(), spillSequence.incrementAndGet() % 1000000);
+        File tempFile = new File(directory, name + TEMP_FILE_SUFFIX);
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(events.size());
+                for (MotechEvent event : events) {
+                    byte[] bytes = eventCodec.encode(event);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+
+            // the file is only picked up for sending once it is complete
+            File spillFile = new File(directory, name + SPILL_FILE_SUFFIX);
+            if (!tempFile.renameTo(spillFile)) {
+                throw new IOException("Unable to rename " + tempFile + " to " + spillFile);
+            }
+        } catch (IOException | MotechEventCodecException e) {
+            LOGGER.error("Unable to spill {} events to {}", events.size(), directory, e);
+            deleteSpillFile(tempFile);
+            return false;
+        }
+
+        spillFileCount.incrementAndGet();
+        return true;
+    }
+
+    private List<MotechEvent> readSpillFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            List<MotechEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                events.add(eventCodec.decode(bytes));
+            }
+            return events;
+        }
+    }
+
+    private File[] listSpillFiles() {
+        File[] files = spillDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SPILL_FILE_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void deleteSpillFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Unable to delete {}", file);
+        }
+    }
+
+    private boolean offer(BufferedEvent bufferedEvent, long deadline) {
+        try {
+            return queue.offer(bufferedEvent, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private File getSpillDirectoryFile() {
+        String directory = motechEventConfig.getOutboundSpillDirectory();
+        if (StringUtils.isNotBlank(directory)) {
+            return new File(directory.trim());
+        }
+        return new File(System.getProperty("user.home"), DEFAULT_SPILL_DIRECTORY);
+    }
+
+    private static List<MotechEvent> toEvents(List<BufferedEvent> bufferedEvents) {
+        List<MotechEvent> events = new ArrayList<>(bufferedEvents.size());
+        for (BufferedEvent bufferedEvent : bufferedEvents) {
+            events.add(bufferedEvent.event);
+        }
+        return events;
+    }
+
+    /**
+     * An event waiting in the buffer.
+     */
+    private static final class BufferedEvent {
+        private final MotechEvent event;
+        private final long bufferedAt = System.nanoTime();
+
+        BufferedEvent(MotechEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.motechproject.event.metrics;
+
+/**
+ * Counters and latencies of events, either for a single subject or a single listener.
+ */
+public class EventMetrics {
+
+    private String name;
+    private long publishedCount;
+    private long handledCount;
+    private long failedCount;
+    private long redeliveredCount;
+    private long discardedCount;
+    private long scheduledCount;
+    private long cancelledCount;
+    private long timedOutCount;
+    private LatencyStatistics enqueueToHandleTime;
+    private LatencyStatistics handlingTime;
+
+    public EventMetrics() {
+    }
+
+    public EventMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the subject or the identifier of the listener these metrics are for
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the number of published events, always 0 for listeners
+     */
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public void setPublishedCount(long publishedCount) {
+        this.publishedCount = publishedCount;
+    }
+
+    /**
+     * @return the number of events published for delayed delivery, always 0 for listeners
+     */
+    public long getScheduledCount() {
+        return scheduledCount;
+    }
+
+    public void setScheduledCount(long scheduledCount) {
+        this.scheduledCount = scheduledCount;
+    }
+
+    /**
+     * @return the number of delayed events cancelled before their delivery, always 0 for listeners
+     */
+    public long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public void setCancelledCount(long cancelledCount) {
+        this.cancelledCount = cancelledCount;
+    }
+
+    /**
+     * @return the number of events handled successfully
+     */
+    public long getHandledCount() {
+        return handledCount;
+    }
+
+    public void setHandledCount(long handledCount) {
+        this.handledCount = handledCount;
+    }
+
+    /**
+     * @return the number of times handling an event failed
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    /**
+     * @return the number of times a failed event was scheduled for another delivery
+     */
+    public long getRedeliveredCount() {
+        return redeliveredCount;
+    }
+
+    public void setRedeliveredCount(long redeliveredCount) {
+        this.redeliveredCount = redeliveredCount;
+    }
+
+    /**
+     * @return the number of events discarded after reaching the maximum redelivery count
+     */
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    public void setDiscardedCount(long discardedCount) {
+        this.discardedCount = discardedCount;
+    }
+
+    /**
+     * @return the number of events whose handling timed out
+     */
+    public long getTimedOutCount() {
+        return timedOutCount;
+    }
+
+    public void setTimedOutCount(long timedOutCount) {
+        this.timedOutCount = timedOutCount;
+    }
+
+    /**
+     * @return the time between publishing an event and its listener starting to handle it
+     */
+    public LatencyStatistics getEnqueueToHandleTime() {
+        return enqueueToHandleTime;
+    }
+
+    public void setEnqueueToHandleTime(LatencyStatistics enqueueToHandleTime) {
+        this.enqueueToHandleTime = enqueueToHandleTime;
+    }
+
+    /**
+     * @return the time spent by listeners handling events
+     */
+    public LatencyStatistics getHandlingTime() {
+        return handlingTime;
+    }
+
+    public void setHandlingTime(LatencyStatistics handlingTime) {
+        this.handlingTime = handlingTime;
+    }
+}
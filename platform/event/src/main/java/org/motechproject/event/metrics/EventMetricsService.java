@@ -0,0 +1,142 @@
+package org.motechproject.event.metrics;
+
+import javax.management.MXBean;
+import java.util.List;
+
+/**
+ * Gives access to throughput and latency metrics of events relayed by this MOTECH instance. Metrics are kept
+ * per subject and per listener, since the instance was started or the metrics were last reset. The service is
+ * also registered as an MXBean, under the {@link #OBJECT_NAME} name. Metrics are recorded by the event relay,
+ * through the methods of this interface.
+ */
+@MXBean
+public interface EventMetricsService {
+
+    /**
+     * The JMX object name under which the metrics are available.
+     */
+    String OBJECT_NAME = "org.motechproject.event:type=EventMetrics";
+
+    /**
+     * Returns the metrics of all subjects for which events were published or handled.
+     *
+     * @return the metrics, one for each subject
+     */
+    List<EventMetrics> getSubjectMetrics();
+
+    /**
+     * Returns the metrics of all listeners which handled events.
+     *
+     * @return the metrics, one for each listener
+     */
+    List<EventMetrics> getListenerMetrics();
+
+    /**
+     * Returns the number of broadcast event deliveries to listeners that did not complete yet, including deliveries
+     * waiting for a retry.
+     *
+     * @return the number of pending broadcast deliveries
+     */
+    int getPendingBroadcastCount();
+
+    /**
+     * Returns how far the delivery of broadcast events lags behind, that is how long the oldest broadcast delivery
+     * that was not attempted yet has been waiting.
+     *
+     * @return the lag in milliseconds
+     */
+    long getBroadcastLag();
+
+    /**
+     * Returns the state and counters of the buffer holding events published asynchronously, until they are sent
+     * to the broker.
+     *
+     * @return the metrics of the outbound buffer
+     */
+    OutboundEventMetrics getOutboundMetrics();
+
+    /**
+     * Returns the number of listeners that are still handling an event after timing out. Each of them keeps
+     * a thread of the listener thread pool busy.
+     *
+     * @return the number of stuck listeners
+     */
+    int getStuckListenerCount();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+
+    /**
+     * Records an event with the given subject being published.
+     *
+     * @param subject the subject of the event
+     */
+    void published(String subject);
+
+    /**
+     * Records an event with the given subject being published for delayed delivery.
+     *
+     * @param subject the subject of the event
+     */
+    void scheduled(String subject);
+
+    /**
+     * Records a delayed event with the given subject being cancelled before its delivery.
+     *
+     * @param subject the subject of the event
+     */
+    void cancelled(String subject);
+
+    /**
+     * Records the time an event spent between being published and reaching its listener.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener, null for broadcast events
+     * @param micros the time in microseconds
+     */
+    void enqueueToHandle(String subject, String listener, long micros);
+
+    /**
+     * Records an event being handled successfully by a listener.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener
+     * @param handlingMicros the time spent in the listener, in microseconds
+     */
+    void handled(String subject, String listener, long handlingMicros);
+
+    /**
+     * Records a listener failing to handle an event.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener
+     * @param handlingMicros the time spent in the listener, in microseconds
+     */
+    void failed(String subject, String listener, long handlingMicros);
+
+    /**
+     * Records a listener not handling an event within its timeout. The event is also recorded as failed.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener
+     */
+    void timedOut(String subject, String listener);
+
+    /**
+     * Records a failed event being scheduled for redelivery.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener
+     */
+    void redelivered(String subject, String listener);
+
+    /**
+     * Records an event being discarded after reaching the maximum number of redeliveries.
+     *
+     * @param subject the subject of the event
+     * @param listener the identifier of the listener
+     */
+    void discarded(String subject, String listener);
+}
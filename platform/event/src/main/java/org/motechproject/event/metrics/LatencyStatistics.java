@@ -0,0 +1,93 @@
+package org.motechproject.event.metrics;
+
+/**
+ * Summary of a latency histogram. All times are in milliseconds. Percentiles are estimates, they are the upper bounds
+ * of the histogram buckets the percentiles fall into.
+ */
+public class LatencyStatistics {
+
+    private long count;
+    private double mean;
+    private double max;
+    private double median;
+    private double percentile90;
+    private double percentile99;
+
+    public LatencyStatistics() {
+    }
+
+    public LatencyStatistics(long count, double mean, double max, double median, double percentile90, double percentile99) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.median = median;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+    }
+
+    /**
+     * @return the number of recorded samples
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * @return the mean of the recorded samples
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    /**
+     * @return the largest recorded sample
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    /**
+     * @return the estimated median of the recorded samples
+     */
+    public double getMedian() {
+        return median;
+    }
+
+    public void setMedian(double median) {
+        this.median = median;
+    }
+
+    /**
+     * @return the estimated 90th percentile of the recorded samples
+     */
+    public double getPercentile90() {
+        return percentile90;
+    }
+
+    public void setPercentile90(double percentile90) {
+        this.percentile90 = percentile90;
+    }
+
+    /**
+     * @return the estimated 99th percentile of the recorded samples
+     */
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public void setPercentile99(double percentile99) {
+        this.percentile99 = percentile99;
+    }
+}
@@ -0,0 +1,128 @@
+package org.motechproject.event.metrics;
+
+/**
+ * State and counters of the buffer holding events published asynchronously, until they are sent to the broker.
+ */
+public class OutboundEventMetrics {
+
+    private int depth;
+    private int capacity;
+    private int spillFileCount;
+    private long bufferedCount;
+    private long sentCount;
+    private long rejectedCount;
+    private long spilledCount;
+    private long failedCount;
+    private LatencyStatistics bufferTime;
+    private LatencyStatistics sendTime;
+
+    /**
+     * @return the number of events waiting in the buffer
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @return the maximum number of events that can wait in the buffer
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the number of files with spilled events that were not sent yet
+     */
+    public int getSpillFileCount() {
+        return spillFileCount;
+    }
+
+    public void setSpillFileCount(int spillFileCount) {
+        this.spillFileCount = spillFileCount;
+    }
+
+    /**
+     * @return the number of events accepted by the buffer
+     */
+    public long getBufferedCount() {
+        return bufferedCount;
+    }
+
+    public void setBufferedCount(long bufferedCount) {
+        this.bufferedCount = bufferedCount;
+    }
+
+    /**
+     * @return the number of events sent to the broker, including spilled ones
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    public void setSentCount(long sentCount) {
+        this.sentCount = sentCount;
+    }
+
+    /**
+     * @return the number of events rejected because the buffer was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public void setRejectedCount(long rejectedCount) {
+        this.rejectedCount = rejectedCount;
+    }
+
+    /**
+     * @return the number of events written to the spill directory, because the buffer was full or sending failed
+     */
+    public long getSpilledCount() {
+        return spilledCount;
+    }
+
+    public void setSpilledCount(long spilledCount) {
+        this.spilledCount = spilledCount;
+    }
+
+    /**
+     * @return the number of events whose sending to the broker failed
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    /**
+     * @return the time between an event being accepted by the buffer and being sent to the broker
+     */
+    public LatencyStatistics getBufferTime() {
+        return bufferTime;
+    }
+
+    public void setBufferTime(LatencyStatistics bufferTime) {
+        this.bufferTime = bufferTime;
+    }
+
+    /**
+     * @return the time spent sending a batch of events to the broker
+     */
+    public LatencyStatistics getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(LatencyStatistics sendTime) {
+        this.sendTime = sendTime;
+    }
+}
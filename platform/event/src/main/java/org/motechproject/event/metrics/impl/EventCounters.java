@@ -0,0 +1,89 @@
+package org.motechproject.event.metrics.impl;
+
+import org.motechproject.event.metrics.EventMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for a single subject or listener.
+ */
+public class EventCounters {
+
+    private final String name;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    private final LatencyHistogram enqueueToHandleTime = new LatencyHistogram();
+    private final LatencyHistogram handlingTime = new LatencyHistogram();
+
+    public EventCounters(String name) {
+        this.name = name;
+    }
+
+    public void published() {
+        published.increment();
+    }
+
+    public void handled(long handlingMicros) {
+        handled.increment();
+        handlingTime.record(handlingMicros);
+    }
+
+    public void failed(long handlingMicros) {
+        failed.increment();
+        handlingTime.record(handlingMicros);
+    }
+
+    public void redelivered() {
+        redelivered.increment();
+    }
+
+    public void discarded() {
+        discarded.increment();
+    }
+
+    public void scheduled() {
+        scheduled.increment();
+    }
+
+    public void cancelled() {
+        cancelled.increment();
+    }
+
+    public void timedOut() {
+        timedOut.increment();
+    }
+
+    public void enqueueToHandle(long micros) {
+        enqueueToHandleTime.record(micros);
+    }
+
+    /**
+     * Returns a snapshot of the counters.
+     *
+     * @return the metrics
+     */
+    public EventMetrics toMetrics() {
+        EventMetrics metrics = new EventMetrics(name);
+
+        metrics.setPublishedCount(published.sum());
+        metrics.setHandledCount(handled.sum());
+        metrics.setFailedCount(failed.sum());
+        metrics.setRedeliveredCount(redelivered.sum());
+        metrics.setDiscardedCount(discarded.sum());
+        metrics.setScheduledCount(scheduled.sum());
+        metrics.setCancelledCount(cancelled.sum());
+        metrics.setTimedOutCount(timedOut.sum());
+        metrics.setEnqueueToHandleTime(enqueueToHandleTime.getStatistics());
+        metrics.setHandlingTime(handlingTime.getStatistics());
+
+        return metrics;
+    }
+}
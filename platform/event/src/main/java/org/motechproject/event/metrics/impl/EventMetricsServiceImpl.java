@@ -0,0 +1,205 @@
+package org.motechproject.event.metrics.impl;
+
+import org.motechproject.event.listener.impl.ListenerExecutor;
+import org.motechproject.event.listener.impl.TopicEventDispatcher;
+import org.motechproject.event.messaging.impl.OutboundEventBuffer;
+import org.motechproject.event.metrics.EventMetrics;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.motechproject.event.metrics.OutboundEventMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the metrics of events relayed by the {@link org.motechproject.event.listener.impl.ServerEventRelay}.
+ * Recording a metric never blocks, so that it can be done on the event handling path.
+ */
+@Service("eventMetricsService")
+public class EventMetricsServiceImpl implements EventMetricsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventMetricsServiceImpl.class);
+
+    /**
+     * The maximum number of subjects, and separately of listeners, for which metrics are kept. Once reached, events
+     * of any other subject or listener are counted under {@link #OTHER}, so that events with generated subjects
+     * can't make the metrics grow indefinitely.
+     */
+    static final int MAX_TRACKED_NAMES = 10000;
+
+    /**
+     * The name under which the metrics of subjects and listeners over the limit are kept.
+     */
+    static final String OTHER = "other";
+
+    private final ConcurrentMap<String, EventCounters> subjectCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, EventCounters> listenerCounters = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private TopicEventDispatcher topicEventDispatcher;
+
+    @Autowired(required = false)
+    private OutboundEventBuffer outboundEventBuffer;
+
+    @Autowired(required = false)
+    private ListenerExecutor listenerExecutor;
+
+    @Override
+    public List<EventMetrics> getSubjectMetrics() {
+        return toMetrics(subjectCounters);
+    }
+
+    @Override
+    public List<EventMetrics> getListenerMetrics() {
+        return toMetrics(listenerCounters);
+    }
+
+    @Override
+    public int getPendingBroadcastCount() {
+        return topicEventDispatcher == null ? 0 : topicEventDispatcher.getPendingCount();
+    }
+
+    @Override
+    public long getBroadcastLag() {
+        return topicEventDispatcher == null ? 0 : topicEventDispatcher.getLagMillis();
+    }
+
+    @Override
+    public OutboundEventMetrics getOutboundMetrics() {
+        return outboundEventBuffer == null ? new OutboundEventMetrics() : outboundEventBuffer.getMetrics();
+    }
+
+    @Override
+    public int getStuckListenerCount() {
+        return listenerExecutor == null ? 0 : listenerExecutor.getStuckCount();
+    }
+
+    @Override
+    public void reset() {
+        subjectCounters.clear();
+        listenerCounters.clear();
+        if (outboundEventBuffer != null) {
+            outboundEventBuffer.resetMetrics();
+        }
+    }
+
+    @Override
+    public void published(String subject) {
+        forSubject(subject).published();
+    }
+
+    @Override
+    public void scheduled(String subject) {
+        forSubject(subject).scheduled();
+    }
+
+    @Override
+    public void cancelled(String subject) {
+        forSubject(subject).cancelled();
+    }
+
+    @Override
+    public void enqueueToHandle(String subject, String listener, long micros) {
+        forSubject(subject).enqueueToHandle(micros);
+        if (listener != null) {
+            forListener(listener).enqueueToHandle(micros);
+        }
+    }
+
+    @Override
+    public void handled(String subject, String listener, long handlingMicros) {
+        forSubject(subject).handled(handlingMicros);
+        forListener(listener).handled(handlingMicros);
+    }
+
+    @Override
+    public void failed(String subject, String listener, long handlingMicros) {
+        forSubject(subject).failed(handlingMicros);
+        forListener(listener).failed(handlingMicros);
+    }
+
+    @Override
+    public void timedOut(String subject, String listener) {
+        forSubject(subject).timedOut();
+        forListener(listener).timedOut();
+    }
+
+    @Override
+    public void redelivered(String subject, String listener) {
+        forSubject(subject).redelivered();
+        forListener(listener).redelivered();
+    }
+
+    @Override
+    public void discarded(String subject, String listener) {
+        forSubject(subject).discarded();
+        forListener(listener).discarded();
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            // a previous instance of the bundle might not have been cleaned up
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register event metrics MBean", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister event metrics MBean", e);
+        }
+    }
+
+    private EventCounters forSubject(String subject) {
+        return counters(subjectCounters, subject);
+    }
+
+    private EventCounters forListener(String listener) {
+        return counters(listenerCounters, listener);
+    }
+
+    private EventCounters counters(ConcurrentMap<String, EventCounters> map, String name) {
+        EventCounters counters = map.get(name);
+        if (counters == null) {
+            // the limit can be exceeded by a few entries when racing, which is harmless
+            String key = map.size() < MAX_TRACKED_NAMES ? name : OTHER;
+            counters = map.computeIfAbsent(key, EventCounters::new);
+        }
+        return counters;
+    }
+
+    private List<EventMetrics> toMetrics(ConcurrentMap<String, EventCounters> map) {
+        List<EventMetrics> metrics = new ArrayList<>(map.size());
+        for (EventCounters counters : map.values()) {
+            metrics.add(counters.toMetrics());
+        }
+        return metrics;
+    }
+}
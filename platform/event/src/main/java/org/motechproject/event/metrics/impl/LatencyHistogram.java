@@ -0,0 +1,102 @@
+package org.motechproject.event.metrics.impl;
+
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram. Samples are recorded in microseconds into buckets whose upper bounds are powers
+ * of two, so recording a sample is a few atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40;
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double MEDIAN = 0.5;
+    private static final double PERCENTILE_90 = 0.9;
+    private static final double PERCENTILE_99 = 0.99;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a sample.
+     *
+     * @param micros the sample, in microseconds
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the summary of the recorded samples. Concurrent recording can make the summary slightly inconsistent,
+     * which is acceptable for monitoring purposes.
+     *
+     * @return the summary of the histogram
+     */
+    public LatencyStatistics getStatistics() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return new LatencyStatistics();
+        }
+
+        double mean = sum.sum() / (double) count.sum() / MICROS_PER_MILLI;
+
+        return new LatencyStatistics(total, mean, max.get() / MICROS_PER_MILLI,
+                percentile(snapshot, total, MEDIAN), percentile(snapshot, total, PERCENTILE_90),
+                percentile(snapshot, total, PERCENTILE_99));
+    }
+
+    /**
+     * Clears all recorded samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private double percentile(long[] snapshot, long total, double percentile) {
+        long threshold = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += snapshot[i];
+            if (seen >= threshold) {
+                return Math.min(upperBound(i), max.get()) / MICROS_PER_MILLI;
+            }
+        }
+        return max.get() / MICROS_PER_MILLI;
+    }
+
+    private static int bucketOf(long micros) {
+        // bucket i holds values from 2^(i-1) to 2^i - 1, bucket 0 holds zeros
+        int bucket = Long.SIZE - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,149 @@
+package org.motechproject.event.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed stage of the work done within a trace, such as a scheduler job publishing an event, an event waiting in
+ * the queue, or a listener handling an event. Spans of a trace share its id and refer to the span they were caused
+ * by through the parent span id.
+ */
+public class Span {
+
+    private String traceId;
+    private String spanId;
+    private String parentSpanId;
+    private String stage;
+    private String name;
+    private long startTime;
+    private long duration;
+    private boolean failed;
+    private Map<String, String> attributes = new LinkedHashMap<>();
+
+    public Span() {
+    }
+
+    public Span(String traceId, String spanId, String parentSpanId, String stage, String name, long startTime) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.stage = stage;
+        this.name = name;
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return the id of the trace this span belongs to
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public void setTraceId(String traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * @return the id of this span
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public void setSpanId(String spanId) {
+        this.spanId = spanId;
+    }
+
+    /**
+     * @return the id of the span which caused this span, null for the first span of a trace
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public void setParentSpanId(String parentSpanId) {
+        this.parentSpanId = parentSpanId;
+    }
+
+    /**
+     * @return the stage of the work, for example {@link TraceService#EVENT_HANDLE}
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * @return what was being done, for example the subject of the event or the identifier of the listener
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the time the span started, in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return the duration of the span, in microseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return true if the work done in the span failed
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * @return additional information about the span
+     */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Adds an attribute to the span.
+     *
+     * @param key the key of the attribute
+     * @param value the value of the attribute
+     */
+    public void addAttribute(String key, Object value) {
+        attributes.put(key, String.valueOf(value));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Span{traceId='%s', spanId='%s', parentSpanId='%s', stage='%s', name='%s', duration=%d}",
+                traceId, spanId, parentSpanId, stage, name, duration);
+    }
+}
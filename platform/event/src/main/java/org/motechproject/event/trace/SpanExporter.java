@@ -0,0 +1,18 @@
+package org.motechproject.event.trace;
+
+/**
+ * Receives the spans recorded by the {@link TraceService}. Spans are always kept in an in-memory ring buffer,
+ * additional exporters, for example sending spans to an external tracing system, can be plugged in by registering
+ * them as OSGi services under this interface.
+ * <p>
+ * Spans are exported on the threads doing the traced work, so exporters should return quickly and must not throw.
+ */
+public interface SpanExporter {
+
+    /**
+     * Exports a finished span.
+     *
+     * @param span the span
+     */
+    void export(Span span);
+}
@@ -0,0 +1,144 @@
+package org.motechproject.event.trace;
+
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the spans of traces followed through the scheduler, events, tasks and actions, so that the latency of
+ * a unit of work can be attributed to each of its stages. The context of the current span is kept in the
+ * {@link TraceContext} of the thread doing the work, and is carried to listeners in the metadata of the events
+ * published meanwhile.
+ * <p>
+ * Spans are kept in an in-memory ring buffer and handed to the {@link SpanExporter}s registered as OSGi services.
+ * When tracing is disabled, no spans are started and {@code null} is returned instead, all methods accepting spans
+ * accept {@code null}.
+ */
+public interface TraceService {
+
+    /**
+     * The stage of a scheduler job publishing its event, starting at the scheduled fire time of the job.
+     */
+    String SCHEDULER_JOB = "scheduler.job";
+
+    /**
+     * The stage of an event published through the OSGi proxy waiting to be relayed, for example in the MDS
+     * event outbox.
+     */
+    String EVENT_PROXY = "event.proxy";
+
+    /**
+     * The stage of an event waiting between being published and reaching its listener.
+     */
+    String EVENT_QUEUE = "event.queue";
+
+    /**
+     * The stage of a listener handling an event.
+     */
+    String EVENT_HANDLE = "event.handle";
+
+    /**
+     * The stage of a task being executed, from its trigger to its last action.
+     */
+    String TASK = "tasks.task";
+
+    /**
+     * The stage of the data sources of a task being evaluated.
+     */
+    String TASK_DATA_SOURCES = "tasks.dataSources";
+
+    /**
+     * The stage of a task action being executed.
+     */
+    String TASK_ACTION = "tasks.action";
+
+    /**
+     * @return true if spans are recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts a span nested in the span of the current thread, or a new trace if the thread is not doing traced
+     * work. The context of the new span becomes the context of the current thread until the span is ended.
+     *
+     * @param stage the stage of the span
+     * @param name the name of the span
+     * @return the started span, null if tracing is disabled
+     */
+    Span startSpan(String stage, String name);
+
+    /**
+     * Starts a span nested in the given span. The context of the new span becomes the context of the current
+     * thread until the span is ended.
+     *
+     * @param stage the stage of the span
+     * @param name the name of the span
+     * @param parent the context of the parent span, null to start a new trace
+     * @param startTime the time the span started, in milliseconds since the epoch
+     * @return the started span, null if tracing is disabled
+     */
+    Span startSpan(String stage, String name, TraceContext parent, long startTime);
+
+    /**
+     * Ends the span, restores the context the current thread had before it was started and exports the span.
+     * Must be called by the thread which started the span.
+     *
+     * @param span the span to end, may be null
+     * @param failed true if the work done in the span failed
+     */
+    void endSpan(Span span, boolean failed);
+
+    /**
+     * Records a span which started at the given time and ends now, without changing the context of the current
+     * thread. Used for time spent waiting, for example in a queue.
+     *
+     * @param stage the stage of the span
+     * @param name the name of the span
+     * @param parent the context of the parent span, null to start a new trace
+     * @param startTime the time the span started, in milliseconds since the epoch
+     * @return the context of the recorded span, null if tracing is disabled
+     */
+    TraceContext recordSpan(String stage, String name, TraceContext parent, long startTime);
+
+    /**
+     * Prepares an event for publishing by writing the trace context and the time it is sent to its metadata.
+     * The context of the current thread is used, or the context already present in the metadata if the thread
+     * is not doing traced work, or else a new trace is started. The metadata map is replaced, not modified, since
+     * it may be shared.
+     *
+     * @param event the event to be published
+     */
+    void propagate(MotechEvent event);
+
+    /**
+     * Returns the most recently recorded spans, newest first.
+     *
+     * @param maxCount the maximum number of spans to return
+     * @return the spans
+     */
+    List<Span> getRecentSpans(int maxCount);
+
+    /**
+     * Returns the recorded spans of a trace, in the order they started. Spans which were already pushed out of
+     * the ring buffer are not returned.
+     *
+     * @param traceId the id of the trace
+     * @return the spans of the trace
+     */
+    List<Span> getTrace(String traceId);
+
+    /**
+     * Returns the latency of the spans recorded for each stage.
+     *
+     * @return the latency statistics, keyed by stage
+     */
+    Map<String, LatencyStatistics> getStageStatistics();
+
+    /**
+     * Clears all recorded spans and statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,38 @@
+package org.motechproject.event.trace.impl;
+
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.trace.Span;
+
+/**
+ * A span that was started and not ended yet. Keeps what is needed to end it, but is never exported.
+ */
+class ActiveSpan extends Span {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final TraceContext context;
+    private final TraceContext previousContext;
+    private final long startNanos;
+
+    ActiveSpan(TraceContext context, TraceContext parent, String stage, String name, long startTime,
+               TraceContext previousContext) {
+        super(context.getTraceId(), context.getSpanId(), parent == null ? null : parent.getSpanId(), stage, name,
+                startTime);
+        this.context = context;
+        this.previousContext = previousContext;
+        // spans starting in the past are timed with the wall clock
+        this.startNanos = System.nanoTime() - Math.max(0, System.currentTimeMillis() - startTime) * NANOS_PER_MILLI;
+    }
+
+    TraceContext getContext() {
+        return context;
+    }
+
+    TraceContext getPreviousContext() {
+        return previousContext;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+}
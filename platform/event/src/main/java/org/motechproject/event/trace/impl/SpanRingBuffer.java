@@ -0,0 +1,87 @@
+package org.motechproject.event.trace.impl;
+
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recently exported spans in memory. Once full, each new span replaces the oldest one. Exporting
+ * a span never blocks.
+ */
+public class SpanRingBuffer implements SpanExporter {
+
+    private final AtomicReferenceArray<Span> spans;
+    private final AtomicLong next = new AtomicLong();
+
+    public SpanRingBuffer(int capacity) {
+        this.spans = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void export(Span span) {
+        spans.set(index(next.getAndIncrement()), span);
+    }
+
+    /**
+     * Returns the most recent spans, newest first.
+     *
+     * @param maxCount the maximum number of spans to return
+     * @return the spans
+     */
+    public List<Span> getRecent(int maxCount) {
+        long last = next.get();
+        int count = (int) Math.min(Math.min(last, spans.length()), Math.max(0, maxCount));
+
+        List<Span> recent = new ArrayList<>(count);
+        for (long i = last - 1; i >= last - count; --i) {
+            Span span = spans.get(index(i));
+            if (span != null) {
+                recent.add(span);
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * Returns the spans of the given trace, in the order they started.
+     *
+     * @param traceId the id of the trace
+     * @return the spans of the trace
+     */
+    public List<Span> getTrace(String traceId) {
+        List<Span> trace = new ArrayList<>();
+        for (int i = 0; i < spans.length(); ++i) {
+            Span span = spans.get(i);
+            if (span != null && span.getTraceId().equals(traceId)) {
+                trace.add(span);
+            }
+        }
+
+        Collections.sort(trace, new Comparator<Span>() {
+            @Override
+            public int compare(Span s1, Span s2) {
+                return Long.compare(s1.getStartTime(), s2.getStartTime());
+            }
+        });
+        return trace;
+    }
+
+    /**
+     * Removes all spans.
+     */
+    public void clear() {
+        for (int i = 0; i < spans.length(); ++i) {
+            spans.set(i, null);
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % spans.length());
+    }
+}
@@ -0,0 +1,210 @@
+package org.motechproject.event.trace.impl;
+
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.metrics.LatencyStatistics;
+import org.motechproject.event.metrics.impl.LatencyHistogram;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.SpanExporter;
+import org.motechproject.event.trace.TraceService;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records spans in a {@link SpanRingBuffer} and hands them to the {@link SpanExporter} services registered in
+ * the OSGi framework. Latency histograms are kept for each stage.
+ */
+@Service("traceService")
+public class TraceServiceImpl implements TraceService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceServiceImpl.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 10000;
+
+    private final ConcurrentMap<String, LatencyHistogram> stageHistograms = new ConcurrentHashMap<>();
+    private final List<SpanExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private boolean enabled;
+    private SpanRingBuffer ringBuffer;
+    private ServiceTracker exporterTracker;
+
+    @Autowired
+    private MotechEventConfig motechEventConfig;
+
+    @Autowired(required = false)
+    private BundleContext bundleContext;
+
+    public TraceServiceImpl() {
+    }
+
+    public TraceServiceImpl(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        enabled = motechEventConfig.isTraceEnabled();
+        int bufferSize = motechEventConfig.getTraceBufferSize();
+        ringBuffer = new SpanRingBuffer(bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE);
+
+        if (bundleContext != null) {
+            exporterTracker = new ServiceTracker(bundleContext, SpanExporter.class.getName(), null) {
+                @Override
+                public Object addingService(ServiceReference reference) {
+                    Object service = super.addingService(reference);
+                    if (service instanceof SpanExporter) {
+                        exporters.add((SpanExporter) service);
+                    }
+                    return service;
+                }
+
+                @Override
+                public void removedService(ServiceReference reference, Object service) {
+                    exporters.remove(service);
+                    super.removedService(reference, service);
+                }
+            };
+            exporterTracker.open();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (exporterTracker != null) {
+            exporterTracker.close();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Span startSpan(String stage, String name) {
+        return startSpan(stage, name, TraceContext.current(), System.currentTimeMillis());
+    }
+
+    @Override
+    public Span startSpan(String stage, String name, TraceContext parent, long startTime) {
+        if (!enabled) {
+            return null;
+        }
+
+        TraceContext context = TraceContext.child(parent);
+        return new ActiveSpan(context, parent, stage, name, startTime, TraceContext.activate(context));
+    }
+
+    @Override
+    public void endSpan(Span span, boolean failed) {
+        if (!(span instanceof ActiveSpan)) {
+            return;
+        }
+
+        ActiveSpan activeSpan = (ActiveSpan) span;
+        TraceContext.restore(activeSpan.getPreviousContext());
+
+        activeSpan.setDuration(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - activeSpan.getStartNanos()));
+        activeSpan.setFailed(failed);
+        export(activeSpan);
+    }
+
+    @Override
+    public TraceContext recordSpan(String stage, String name, TraceContext parent, long startTime) {
+        if (!enabled) {
+            return null;
+        }
+
+        TraceContext context = TraceContext.child(parent);
+        Span span = new Span(context.getTraceId(), context.getSpanId(), parent == null ? null : parent.getSpanId(),
+                stage, name, startTime);
+        span.setDuration(TimeUnit.MILLISECONDS.toMicros(Math.max(0, System.currentTimeMillis() - startTime)));
+        export(span);
+
+        return context;
+    }
+
+    @Override
+    public void propagate(MotechEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        Map<String, Object> metadata = new HashMap<>(event.getMetadata());
+
+        TraceContext context = TraceContext.current();
+        if (context != null) {
+            context.writeTo(metadata);
+        } else if (TraceContext.fromMetadata(metadata) == null) {
+            TraceContext.newTrace().writeTo(metadata);
+        }
+        metadata.put(TraceContext.SENT_TIME, System.currentTimeMillis());
+
+        event.setMetadata(metadata);
+    }
+
+    @Override
+    public List<Span> getRecentSpans(int maxCount) {
+        return ringBuffer.getRecent(maxCount);
+    }
+
+    @Override
+    public List<Span> getTrace(String traceId) {
+        return traceId == null ? Collections.<Span>emptyList() : ringBuffer.getTrace(traceId);
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getStageStatistics() {
+        Map<String, LatencyStatistics> statistics = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : stageHistograms.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        ringBuffer.clear();
+        stageHistograms.clear();
+    }
+
+    private void export(Span span) {
+        histogram(span.getStage()).record(span.getDuration());
+        ringBuffer.export(span);
+
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(span);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Span exporter {} failed to export {}", exporter, span, e);
+            }
+        }
+    }
+
+    private LatencyHistogram histogram(String stage) {
+        LatencyHistogram histogram = stageHistograms.get(stage);
+        if (histogram == null) {
+            histogram = stageHistograms.computeIfAbsent(stage, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+}
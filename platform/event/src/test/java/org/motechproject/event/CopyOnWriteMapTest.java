@@ -0,0 +1,134 @@
+package org.motechproject.event;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CopyOnWriteMapTest {
+
+    @Test
+    public void shouldNotSeeChangesOfSharedMap() {
+        Map<String, Object> original = new HashMap<>();
+        original.put("key", "value");
+
+        CopyOnWriteMap<String, Object> shared = CopyOnWriteMap.share(original);
+        original.put("key", "changed");
+
+        assertEquals("value", shared.get("key"));
+    }
+
+    @Test
+    public void shouldCopyOnlyTheModifiedMap() {
+        Map<String, Object> original = new HashMap<>();
+        original.put("key", "value");
+
+        CopyOnWriteMap<String, Object> first = CopyOnWriteMap.share(original);
+        CopyOnWriteMap<String, Object> second = first.share();
+        CopyOnWriteMap<String, Object> third = second.share();
+
+        second.put("key", "second");
+        third.remove("key");
+
+        assertEquals("value", first.get("key"));
+        assertEquals("second", second.get("key"));
+        assertFalse(third.containsKey("key"));
+        assertTrue(first.containsKey("key"));
+    }
+
+    @Test
+    public void shouldCopyModifiedMapWhenSharingIt() {
+        CopyOnWriteMap<String, Object> first = CopyOnWriteMap.share(new HashMap<String, Object>());
+        first.put("key", "value");
+
+        CopyOnWriteMap<String, Object> second = first.share();
+        first.put("key", "changed");
+        first.put("other", "value");
+
+        assertEquals("value", second.get("key"));
+        assertFalse(second.containsKey("other"));
+    }
+
+    @Test
+    public void shouldNotModifySharedContentsThroughIterator() {
+        Map<String, Object> original = new HashMap<>();
+        original.put("a", 1);
+        original.put("b", 2);
+
+        CopyOnWriteMap<String, Object> first = CopyOnWriteMap.wrap(original);
+        CopyOnWriteMap<String, Object> second = first.share();
+
+        Iterator<Map.Entry<String, Object>> iterator = second.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if ("a".equals(entry.getKey())) {
+                iterator.remove();
+            } else {
+                entry.setValue(3);
+            }
+        }
+
+        assertEquals(1, second.size());
+        assertEquals(3, second.get("b"));
+        assertEquals(2, first.size());
+        assertEquals(2, first.get("b"));
+        assertEquals(2, original.size());
+    }
+
+    @Test
+    public void shouldShareCopyOnWriteMapWithoutCopying() {
+        Map<String, Object> original = new HashMap<>();
+        original.put("key", "value");
+
+        CopyOnWriteMap<String, Object> first = CopyOnWriteMap.wrap(original);
+        CopyOnWriteMap<String, Object> second = CopyOnWriteMap.share(first);
+
+        assertEquals(first, second);
+        second.clear();
+        assertTrue(second.isEmpty());
+        assertEquals("value", original.get("key"));
+    }
+
+    @Test
+    public void shouldBeEqualToHashMapWithSameContents() {
+        Map<String, Object> original = new HashMap<>();
+        original.put("key", "value");
+
+        CopyOnWriteMap<String, Object> shared = CopyOnWriteMap.share(original);
+
+        assertEquals(original, shared);
+        assertEquals(shared, original);
+        assertEquals(original.hashCode(), shared.hashCode());
+        assertNull(shared.remove("missing"));
+    }
+
+    @Test
+    public void shouldSerializeAsHashMap() throws Exception {
+        Map<String, Object> original = new HashMap<>();
+        original.put("key", "value");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(CopyOnWriteMap.share(original));
+        }
+
+        Object deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = in.readObject();
+        }
+
+        assertSame(HashMap.class, deserialized.getClass());
+        assertEquals(original, deserialized);
+    }
+}
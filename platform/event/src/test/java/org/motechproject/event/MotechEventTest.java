@@ -2,6 +2,11 @@ package org.motechproject.event;
 
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * MotechEvent Tester.
  */
@@ -20,4 +25,19 @@ public class MotechEventTest {
     public void testConstructor_EmptyPathSubject() throws Exception {
         new MotechEvent("org.motechproject..event", null);
     }
+
+    @Test
+    public void shouldShareMapsWithCopiedEvent() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("key", "value");
+        MotechEvent event = new MotechEvent("subject", parameters);
+        event.setMessageDestination("listener");
+
+        MotechEvent copy = event.copy();
+        copy.getParameters().put("key", "changed");
+
+        assertEquals("value", event.getParameters().get("key"));
+        assertEquals("changed", copy.getParameters().get("key"));
+        assertEquals("listener", copy.getMessageDestination());
+    }
 }
@@ -0,0 +1,164 @@
+package org.motechproject.event.listener.annotations;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.EventListenerRegistryService;
+import org.motechproject.event.listener.proxy.EventAnnotationBeanPostProcessor;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class MotechListenerProxyTest {
+
+    private static final String SUBJECT = "org.motechproject.test";
+
+    @Test
+    public void shouldCallEventHandler() throws NoSuchMethodException {
+        Handler handler = new Handler();
+        MotechEvent event = new MotechEvent(SUBJECT);
+
+        new MotechListenerEventProxy("handler", handler, Handler.class.getMethod("handle", MotechEvent.class))
+                .handle(event);
+
+        assertSame(event, handler.event);
+    }
+
+    @Test
+    public void shouldCallNamedParametersHandler() throws NoSuchMethodException {
+        Handler handler = new Handler();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", "John");
+        params.put("age", 42);
+
+        new MotechListenerNamedParametersProxy("handler", handler, getNamedMethod()).handle(new MotechEvent(SUBJECT, params));
+
+        assertEquals("John", handler.name);
+        assertEquals(42, handler.age);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailForMissingParameter() throws NoSuchMethodException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", "John");
+
+        new MotechListenerNamedParametersProxy("handler", new Handler(), getNamedMethod()).handle(new MotechEvent(SUBJECT, params));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailForParameterOfWrongType() throws NoSuchMethodException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", "John");
+        params.put("age", "42");
+
+        new MotechListenerNamedParametersProxy("handler", new Handler(), getNamedMethod()).handle(new MotechEvent(SUBJECT, params));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailForParameterWithoutAnnotation() throws NoSuchMethodException {
+        Method method = Handler.class.getMethod("notAnnotated", String.class);
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", "John");
+
+        new MotechListenerNamedParametersProxy("handler", new Handler(), method).handle(new MotechEvent(SUBJECT, params));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateRuntimeExceptions() throws NoSuchMethodException {
+        new MotechListenerEventProxy("handler", new Handler(), Handler.class.getMethod("fail", MotechEvent.class))
+                .handle(new MotechEvent(SUBJECT));
+    }
+
+    @Test(expected = UndeclaredThrowableException.class)
+    public void shouldWrapCheckedExceptions() throws NoSuchMethodException {
+        new MotechListenerEventProxy("handler", new Handler(), Handler.class.getMethod("failChecked", MotechEvent.class))
+                .handle(new MotechEvent(SUBJECT));
+    }
+
+    @Test
+    public void shouldReadTimeoutOfListener() throws NoSuchMethodException {
+        assertEquals(500, new MotechListenerEventProxy("handler", new TimedHandler(),
+                TimedHandler.class.getMethod("handleTimed", MotechEvent.class)).getTimeout());
+        assertEquals(EventListener.DEFAULT_TIMEOUT, new MotechListenerEventProxy("handler", new Handler(),
+                Handler.class.getMethod("handle", MotechEvent.class)).getTimeout());
+    }
+
+    @Test
+    public void shouldReadTimeoutOfListenerOfClassProxiedBean() {
+        ProxyFactory proxyFactory = new ProxyFactory(new TimedHandler());
+        proxyFactory.setProxyTargetClass(true);
+
+        assertEquals(500, registerListener(proxyFactory.getProxy()).getTimeout());
+    }
+
+    @Test
+    public void shouldReadTimeoutOfListenerOfInterfaceProxiedBean() {
+        ProxyFactory proxyFactory = new ProxyFactory(new TimedHandler());
+        proxyFactory.setInterfaces(new Class<?>[] {TimedListener.class});
+
+        assertEquals(500, registerListener(proxyFactory.getProxy()).getTimeout());
+    }
+
+    private EventListener registerListener(Object bean) {
+        EventListenerRegistryService registry = mock(EventListenerRegistryService.class);
+        new EventAnnotationBeanPostProcessor(registry).postProcessAfterInitialization(bean, "timedHandler");
+
+        ArgumentCaptor<EventListener> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(registry).registerListener(captor.capture(), Collections.singletonList(SUBJECT));
+        return captor.getValue();
+    }
+
+    private Method getNamedMethod() throws NoSuchMethodException {
+        return Handler.class.getMethod("handleNamed", String.class, int.class);
+    }
+
+    public static class Handler {
+        private MotechEvent event;
+        private String name;
+        private int age;
+
+        public void handle(MotechEvent event) {
+            this.event = event;
+        }
+
+        public void handleNamed(@MotechParam("name") String name, @MotechParam("age") int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public void notAnnotated(String name) {
+            this.name = name;
+        }
+
+        public void fail(MotechEvent event) {
+            throw new IllegalStateException();
+        }
+
+        public void failChecked(MotechEvent event) throws Exception {
+            throw new Exception();
+        }
+    }
+
+    public interface TimedListener {
+        void handleTimed(MotechEvent event);
+    }
+
+    public static class TimedHandler implements TimedListener {
+
+        @Override
+        @MotechListener(subjects = SUBJECT, timeout = 500)
+        public void handleTimed(MotechEvent event) {
+        }
+    }
+}
@@ -249,6 +249,38 @@ public class EventListenerRegistryTest {
         assertEquals(0, el.size());
     }
 
+    @Test
+    public void testListenersResolvedBeforeRegistrationAreRefreshed() {
+        EventListener sel = new SampleEventListener();
+        EventListener sel2 = new FooEventListener();
+
+        registry.registerListener(sel, "org.motechproject.server.someevent");
+        assertEquals(1, registry.getListeners("org.motechproject.server.someevent").size());
+
+        registry.registerListener(sel2, "org.motechproject.server.*");
+
+        Set<EventListener> el = registry.getListeners("org.motechproject.server.someevent");
+        assertEquals(2, el.size());
+        assertTrue(el.contains(sel2));
+
+        registry.clearListenersForBean("FooEventListener");
+
+        el = registry.getListeners("org.motechproject.server.someevent");
+        assertEquals(1, el.size());
+        assertTrue(el.contains(sel));
+    }
+
+    @Test
+    public void testPreviouslyReturnedListenersNotAffectedByRegistration() {
+        registry.registerListener(new SampleEventListener(), "org.motechproject.server.someevent");
+        Set<EventListener> el = registry.getListeners("org.motechproject.server.someevent");
+
+        registry.registerListener(new FooEventListener(), "org.motechproject.server.someevent");
+
+        assertEquals(1, el.size());
+        assertEquals(2, registry.getListeners("org.motechproject.server.someevent").size());
+    }
+
     class FooEventListener implements EventListener {
 
         @Override
@@ -9,6 +9,7 @@ import org.motechproject.event.listener.impl.EventListenerTree;
 
 import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -172,6 +173,35 @@ public class EventListenerTreeTest {
         assertEquals(1, tree.getListenerCount(SUBJECT_2));
     }
 
+    @Test
+    public void testCopyIsIndependent() {
+        tree.addListener(listener, SUBJECT_1);
+
+        EventListenerTree copy = tree.copy();
+        copy.addListener(new FooEventListener(), SUBJECT_1);
+        copy.addListener(new FooEventListener(), SUBJECT_2);
+
+        assertEquals(1, tree.getListenerCount(SUBJECT_1));
+        assertFalse(tree.hasListener(SUBJECT_2));
+        assertEquals(2, copy.getListenerCount(SUBJECT_1));
+        assertTrue(copy.hasListener(SUBJECT_2));
+
+        copy.removeAllListeners(listener.getIdentifier());
+
+        assertEquals(1, tree.getListenerCount(SUBJECT_1));
+        assertEquals(1, copy.getListenerCount(SUBJECT_1));
+    }
+
+    @Test
+    public void testSplitSubject() {
+        assertArrayEquals(SUBJECT_1.split("\\."), EventListenerTree.splitSubject(SUBJECT_1));
+        assertArrayEquals("org".split("\\."), EventListenerTree.splitSubject("org"));
+        assertArrayEquals("".split("\\."), EventListenerTree.splitSubject(""));
+        assertArrayEquals(".org.test".split("\\."), EventListenerTree.splitSubject(".org.test"));
+        assertArrayEquals("org.test..".split("\\."), EventListenerTree.splitSubject("org.test.."));
+        assertArrayEquals("...".split("\\."), EventListenerTree.splitSubject("..."));
+    }
+
     class FooEventListener implements EventListener {
 
         @Override
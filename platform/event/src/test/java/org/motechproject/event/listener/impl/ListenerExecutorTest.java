@@ -0,0 +1,161 @@
+package org.motechproject.event.listener.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.ListenerTimeoutException;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.messaging.MotechEventConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ListenerExecutorTest {
+
+    private static final long TIMEOUT_MILLIS = 5000L;
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    @Mock
+    private EventListener listener;
+
+    private final MotechEvent event = new MotechEvent("subject");
+
+    private ListenerExecutor listenerExecutor;
+
+    @Before
+    public void setUp() {
+        when(listener.getIdentifier()).thenReturn("listener");
+        when(listener.getTimeout()).thenReturn(EventListener.DEFAULT_TIMEOUT);
+        when(motechEventConfig.getListenerPoolSize()).thenReturn(2);
+        when(motechEventConfig.getListenerWatchdogInterval()).thenReturn(60L);
+
+        listenerExecutor = new ListenerExecutor(motechEventConfig);
+    }
+
+    @After
+    public void tearDown() {
+        listenerExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldCallListenerOnCallingThreadWhenThereIsNoTimeout() {
+        final AtomicReference<Thread> handlingThread = new AtomicReference<>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                handlingThread.set(Thread.currentThread());
+                return null;
+            }
+        }).when(listener).handle(event);
+
+        listenerExecutor.handle(listener, event);
+
+        assertSame(Thread.currentThread(), handlingThread.get());
+    }
+
+    @Test
+    public void shouldInterruptListenerThatTimedOut() throws InterruptedException {
+        when(motechEventConfig.getListenerTimeout()).thenReturn(50L);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                try {
+                    Thread.sleep(TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        }).when(listener).handle(event);
+
+        try {
+            listenerExecutor.handle(listener, event);
+            fail("Expected timeout");
+        } catch (ListenerTimeoutException e) {
+            assertEquals("listener", e.getListenerIdentifier());
+            assertEquals(50L, e.getTimeout());
+        }
+
+        assertTrue(interrupted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldPreferTimeoutOfListenerOverDefault() {
+        when(motechEventConfig.getListenerTimeout()).thenReturn(TIMEOUT_MILLIS);
+        when(listener.getTimeout()).thenReturn(0L);
+        final AtomicReference<Thread> handlingThread = new AtomicReference<>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                handlingThread.set(Thread.currentThread());
+                return null;
+            }
+        }).when(listener).handle(event);
+
+        listenerExecutor.handle(listener, event);
+
+        assertSame(Thread.currentThread(), handlingThread.get());
+    }
+
+    @Test
+    public void shouldCountListenersThatIgnoreInterruption() throws InterruptedException {
+        when(listener.getTimeout()).thenReturn(50L);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        // keep waiting, like a listener stuck in a call that cannot be interrupted
+                    }
+                }
+                return null;
+            }
+        }).when(listener).handle(event);
+
+        try {
+            listenerExecutor.handle(listener, event);
+            fail("Expected timeout");
+        } catch (ListenerTimeoutException e) {
+            assertEquals(1, listenerExecutor.getStuckCount());
+        }
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (listenerExecutor.getStuckCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, listenerExecutor.getStuckCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRethrowExceptionOfListenerWithTimeout() {
+        when(listener.getTimeout()).thenReturn(TIMEOUT_MILLIS);
+        doThrow(new IllegalArgumentException()).when(listener).handle(any(MotechEvent.class));
+
+        listenerExecutor.handle(listener, event);
+    }
+}
@@ -1,5 +1,6 @@
 package org.motechproject.event.listener.impl;
 
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,30 +9,55 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.motechproject.commons.api.TraceContext;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.domain.BuggyListener;
 import org.motechproject.event.exception.CallbackServiceNotFoundException;
+import org.motechproject.event.exception.ListenerTimeoutException;
 import org.motechproject.event.listener.EventCallbackService;
 import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.messaging.EventDispatchMode;
+import org.motechproject.event.messaging.EventLanes;
 import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.event.messaging.OutboundEventGateway;
+import org.motechproject.event.messaging.impl.DelayedEventSender;
+import org.motechproject.event.messaging.impl.OutboundEventBuffer;
+import org.motechproject.event.metrics.EventMetricsService;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
+import org.motechproject.event.trace.impl.TraceServiceImpl;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -74,11 +100,39 @@ public class ServerEventRelayTest {
     @Mock
     private EventCallbackService callbackService;
 
+    @Mock
+    private LocalEventDispatcher localEventDispatcher;
+
+    @Mock
+    private EventMetricsService eventMetricsService;
+
+    @Mock
+    private EventLanes eventLanes;
+
+    @Mock
+    private TopicEventDispatcher topicEventDispatcher;
+
+    @Mock
+    private DelayedEventSender delayedEventSender;
+
+    @Mock
+    private TraceService traceService;
+
+    @Mock
+    private OutboundEventBuffer outboundEventBuffer;
+
+    @Mock
+    private ScheduledFuture scheduledFuture;
+
     private ServerEventRelay eventRelay;
 
     @Before
     public void setUp() throws Exception {
-        eventRelay = new ServerEventRelay(outboundEventGateway, registry, motechEventConfig, eventAdmin, bundleContext);
+        eventRelay = new ServerEventRelay(outboundEventGateway, registry, motechEventConfig, eventAdmin, bundleContext, localEventDispatcher,
+                eventMetricsService, eventLanes, topicEventDispatcher, delayedEventSender, traceService, outboundEventBuffer,
+                new ListenerExecutor(motechEventConfig));
+        doAnswer(new AttemptDeliveryAnswer()).when(topicEventDispatcher)
+                .dispatch(anyString(), any(TopicEventDispatcher.Delivery.class));
 
         when(eventListener.getIdentifier()).thenReturn(LISTENER_IDENTIFIER);
         when(secondaryEventListener.getIdentifier()).thenReturn(SECONDARY_LISTENER_IDENTIFIER);
@@ -242,6 +296,31 @@ public class ServerEventRelayTest {
         eventRelay.relayTopicEvent(new MotechEvent(SUBJECT));
         verify(eventListener, times(3)).handle(any(MotechEvent.class));
         assertFalse(handled.getValue());
+        verify(eventMetricsService, times(2)).redelivered(SUBJECT, "retrying");
+        verify(eventMetricsService).discarded(SUBJECT, "retrying");
+    }
+
+    @Test
+    public void shouldHandEachListenerItsOwnCopyOfBroadcastEvent() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+        Map<String, Object> params = new HashMap<>();
+        params.put("key", "value");
+        MotechEvent event = new MotechEvent(SUBJECT, params);
+
+        eventRelay.relayTopicEvent(event);
+
+        ArgumentCaptor<MotechEvent> first = ArgumentCaptor.forClass(MotechEvent.class);
+        ArgumentCaptor<MotechEvent> second = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventListener).handle(first.capture());
+        verify(secondaryEventListener).handle(second.capture());
+
+        assertNotSame(event, first.getValue());
+        assertNotSame(first.getValue(), second.getValue());
+        assertEquals(params, first.getValue().getParameters());
+
+        first.getValue().getParameters().put("key", "changed");
+        assertEquals("value", second.getValue().getParameters().get("key"));
+        assertEquals("value", event.getParameters().get("key"));
     }
 
     @Test
@@ -258,6 +337,435 @@ public class ServerEventRelayTest {
         assertEquals("subject", captor.getValue().getTopic());
     }
 
+    @Test
+    public void shouldSendSplitEventsAsSingleBatch() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessages(Arrays.asList(createEvent(), createEvent()));
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(outboundEventGateway).sendEventMessages(captor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+
+        List<MotechEvent> sent = new ArrayList<>(captor.getValue());
+        assertEquals(4, sent.size());
+        assertEquals(LISTENER_IDENTIFIER, sent.get(0).getMessageDestination());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, sent.get(1).getMessageDestination());
+    }
+
+    @Test
+    public void shouldNotSendBatchWithoutListeners() {
+        eventRelay.sendEventMessages(Arrays.asList(createEvent(), createEvent()));
+        eventRelay.broadcastEventMessages(Arrays.asList(createEvent(), createEvent()));
+
+        verify(outboundEventGateway, never()).sendEventMessages(any(Collection.class));
+        verify(outboundEventGateway, never()).broadcastEventMessages(any(Collection.class));
+    }
+
+    @Test
+    public void shouldBroadcastEventsAsSingleBatch() {
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.broadcastEventMessages(Arrays.asList(createEvent(), createEvent()));
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(outboundEventGateway).broadcastEventMessages(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        for (Object event : captor.getValue()) {
+            assertTrue(((MotechEvent) event).isBroadcast());
+        }
+    }
+
+    @Test
+    public void shouldDispatchSplitEventsLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doAnswer(new RunTaskAnswer()).when(localEventDispatcher).dispatch(any(Runnable.class));
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessage(createEvent());
+
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+        verify(localEventDispatcher, times(2)).dispatch(any(Runnable.class));
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventListener).handle(captor.capture());
+        assertEquals(LISTENER_IDENTIFIER, captor.getValue().getMessageDestination());
+        assertNotNull(captor.getValue().getId());
+        verify(secondaryEventListener).handle(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldRedeliverLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+        when(motechEventConfig.getMessageRedeliveryDelay()).thenReturn(1L);
+        doThrow(new RuntimeException()).when(eventListener).handle(any(MotechEvent.class));
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.relayQueueEvent(createEvent(LISTENER_IDENTIFIER));
+
+        verify(localEventDispatcher).dispatchLater(any(Runnable.class), eq(1000L));
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldRedeliverEventThatTimedOutInListener() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+        when(motechEventConfig.getMessageRedeliveryDelay()).thenReturn(1L);
+        when(motechEventConfig.isListenerTimeoutRedelivery()).thenReturn(true);
+        when(motechEventConfig.getListenerPoolSize()).thenReturn(1);
+        setUpHangingListener();
+
+        eventRelay.relayQueueEvent(createEvent(LISTENER_IDENTIFIER));
+
+        verify(eventMetricsService).timedOut(SUBJECT, LISTENER_IDENTIFIER);
+        verify(localEventDispatcher).dispatchLater(any(Runnable.class), eq(1000L));
+    }
+
+    @Test
+    public void shouldNotRedeliverEventThatTimedOutIfTimeoutRedeliveryIsDisabled() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+        when(motechEventConfig.isListenerTimeoutRedelivery()).thenReturn(false);
+        when(motechEventConfig.getListenerPoolSize()).thenReturn(1);
+        setUpHangingListener();
+
+        eventRelay.relayQueueEvent(createEvent(LISTENER_IDENTIFIER));
+
+        verify(eventMetricsService).timedOut(SUBJECT, LISTENER_IDENTIFIER);
+        verify(eventMetricsService, never()).redelivered(anyString(), anyString());
+        verify(localEventDispatcher, never()).dispatchLater(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void shouldNotifyCallbackServiceOfEventThatTimedOutIfTimeoutRedeliveryIsDisabled() throws Exception {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+        when(motechEventConfig.isListenerTimeoutRedelivery()).thenReturn(false);
+        when(motechEventConfig.getListenerPoolSize()).thenReturn(1);
+        when(bundleContext.getServiceReferences(EventCallbackService.class, null)).thenReturn(Arrays.asList(serviceReference));
+        when(bundleContext.getService(serviceReference)).thenReturn(callbackService);
+        when(callbackService.getName()).thenReturn(TEST_SERVICE_CALLBACK);
+        setUpHangingListener();
+
+        MotechEvent motechEvent = createEvent(LISTENER_IDENTIFIER);
+        motechEvent.setCallbackName(TEST_SERVICE_CALLBACK);
+        eventRelay.relayQueueEvent(motechEvent);
+
+        verify(callbackService).failureCallback(eq(motechEvent), any(ListenerTimeoutException.class));
+        verify(eventMetricsService, never()).redelivered(anyString(), anyString());
+        verify(localEventDispatcher, never()).dispatchLater(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void shouldFallBackToBrokerWhenLocalDispatchIsSaturatedInHybridMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.HYBRID);
+        when(localEventDispatcher.tryDispatch(any(Runnable.class))).thenReturn(true, false);
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessage(createEvent());
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(outboundEventGateway).sendEventMessage(captor.capture());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, captor.getValue().getMessageDestination());
+    }
+
+    @Test
+    public void shouldBroadcastThroughBrokerInHybridMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.HYBRID);
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.broadcastEventMessage(createEvent());
+
+        verify(outboundEventGateway).broadcastEventMessage(any(MotechEvent.class));
+        verify(localEventDispatcher, never()).dispatch(any(Runnable.class));
+    }
+
+    @Test
+    public void shouldBroadcastLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doAnswer(new RunTaskAnswer()).when(localEventDispatcher).dispatch(any(Runnable.class));
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.broadcastEventMessage(createEvent());
+
+        verify(outboundEventGateway, never()).broadcastEventMessage(any(MotechEvent.class));
+        verify(eventListener).handle(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldSendEventsOfLaneWithDedicatedQueueThroughBatchSender() {
+        when(eventLanes.hasDedicatedQueue(SUBJECT)).thenReturn(true);
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessage(createEvent());
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(outboundEventGateway).sendEventMessages(captor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+        assertEquals(2, captor.getValue().size());
+    }
+
+    @Test
+    public void shouldSendSplitEventsThroughOutboundBufferWhenAsync() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessageAsync(createEvent());
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboundEventBuffer).add(captor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+
+        List<MotechEvent> buffered = captor.getValue();
+        assertEquals(2, buffered.size());
+        assertEquals(LISTENER_IDENTIFIER, buffered.get(0).getMessageDestination());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, buffered.get(1).getMessageDestination());
+    }
+
+    @Test
+    public void shouldDispatchAsyncEventsLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.sendEventMessageAsync(createEvent());
+
+        verify(localEventDispatcher).dispatch(any(Runnable.class));
+        verify(outboundEventBuffer, never()).add(any(List.class));
+    }
+
+    @Test
+    public void shouldRecordMetricsOfQueueEvents() {
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(1);
+        doThrow(new RuntimeException()).when(secondaryEventListener).handle(any(MotechEvent.class));
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        eventRelay.sendEventMessage(createEvent());
+        eventRelay.relayQueueEvent(createEvent(LISTENER_IDENTIFIER));
+        eventRelay.relayQueueEvent(createEvent(SECONDARY_LISTENER_IDENTIFIER));
+
+        verify(eventMetricsService).published(SUBJECT);
+        verify(eventMetricsService).handled(eq(SUBJECT), eq(LISTENER_IDENTIFIER), anyLong());
+        verify(eventMetricsService).failed(eq(SUBJECT), eq(SECONDARY_LISTENER_IDENTIFIER), anyLong());
+        verify(eventMetricsService).redelivered(SUBJECT, SECONDARY_LISTENER_IDENTIFIER);
+        verify(eventMetricsService, never()).discarded(SUBJECT, SECONDARY_LISTENER_IDENTIFIER);
+    }
+
+    @Test
+    public void shouldRecordWaitOfLocallyDispatchedEvents() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doAnswer(new RunTaskAnswer()).when(localEventDispatcher).dispatch(any(Runnable.class));
+        setUpListeners(SUBJECT, eventListener);
+
+        eventRelay.sendEventMessage(createEvent());
+
+        verify(eventMetricsService).enqueueToHandle(eq(SUBJECT), eq(LISTENER_IDENTIFIER), anyLong());
+        verify(eventMetricsService).handled(eq(SUBJECT), eq(LISTENER_IDENTIFIER), anyLong());
+    }
+
+    @Test
+    public void shouldSendEventsOfSingleOsgiEventAsSingleBatch() {
+        setUpListeners(SUBJECT, eventListener);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("test", "value");
+
+        Map<String, Object> first = new HashMap<>();
+        first.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        first.put(OsgiEventProxy.PARAMETERS_PARAM, parameters);
+        Map<String, Object> second = new HashMap<>();
+        second.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+
+        AtomicReference<Object> acknowledgement = new AtomicReference<>();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.EVENTS_PARAM, Arrays.asList(first, second));
+        properties.put(OsgiEventProxy.ACKNOWLEDGEMENT_PARAM, acknowledgement);
+
+        eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(outboundEventGateway).sendEventMessages(captor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+
+        List<MotechEvent> events = new ArrayList<>(captor.getValue());
+        assertEquals(2, events.size());
+        assertEquals("value", events.get(0).getParameters().get("test"));
+        assertTrue(events.get(1).getParameters().isEmpty());
+        assertEquals(Boolean.TRUE, acknowledgement.get());
+    }
+
+    @Test
+    public void shouldAcknowledgeFailureToRelayEventsOfOsgiEvent() {
+        setUpListeners(SUBJECT, eventListener);
+        IllegalStateException failure = new IllegalStateException("broker down");
+        doThrow(failure).when(outboundEventGateway).sendEventMessages(any(Collection.class));
+
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+
+        AtomicReference<Object> acknowledgement = new AtomicReference<>();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.EVENTS_PARAM, Arrays.asList(event));
+        properties.put(OsgiEventProxy.ACKNOWLEDGEMENT_PARAM, acknowledgement);
+
+        try {
+            eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals(failure, e);
+        }
+
+        assertEquals(failure, acknowledgement.get());
+    }
+
+    @Test
+    public void shouldSendDelayedEventsThroughBrokerScheduler() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+        long before = System.currentTimeMillis();
+
+        UUID eventId = eventRelay.sendEventMessage(createEvent(), 90000L);
+
+        ArgumentCaptor<Collection> eventsCaptor = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Long> timeCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(delayedEventSender).send(eventsCaptor.capture(), timeCaptor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+        verify(eventMetricsService).scheduled(SUBJECT);
+
+        List<MotechEvent> events = new ArrayList<>(eventsCaptor.getValue());
+        assertEquals(2, events.size());
+        assertEquals(LISTENER_IDENTIFIER, events.get(0).getMessageDestination());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, events.get(1).getMessageDestination());
+        assertEquals(eventId, events.get(0).getId());
+        assertEquals(eventId, events.get(1).getId());
+        assertTrue(timeCaptor.getValue() >= before + 90000L);
+    }
+
+    @Test
+    public void shouldCancelDelayedEventsThroughBrokerScheduler() {
+        UUID eventId = UUID.randomUUID();
+        when(delayedEventSender.cancel(eventId)).thenReturn(Arrays.asList(createEvent(LISTENER_IDENTIFIER)));
+
+        assertTrue(eventRelay.cancelEventMessage(eventId));
+        verify(eventMetricsService).cancelled(SUBJECT);
+
+        assertFalse(eventRelay.cancelEventMessage(UUID.randomUUID()));
+        verify(eventMetricsService, times(1)).cancelled(anyString());
+    }
+
+    @Test
+    public void shouldCancelDelayedEventsAroundTheirDeliveryTime() {
+        UUID eventId = UUID.randomUUID();
+        DateTime deliveryTime = new DateTime().plusHours(1);
+        when(delayedEventSender.cancel(eventId, deliveryTime.getMillis()))
+                .thenReturn(Arrays.asList(createEvent(LISTENER_IDENTIFIER)));
+
+        assertTrue(eventRelay.cancelEventMessage(eventId, deliveryTime));
+        verify(delayedEventSender, never()).cancel(eventId);
+        verify(eventMetricsService).cancelled(SUBJECT);
+    }
+
+    @Test
+    public void shouldHoldBackDelayedEventsLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doReturn(scheduledFuture).when(localEventDispatcher).dispatchLater(any(Runnable.class), anyLong());
+        when(scheduledFuture.cancel(false)).thenReturn(true);
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        UUID eventId = eventRelay.sendEventMessageAt(createEvent(), new DateTime().plusMinutes(1));
+
+        verify(localEventDispatcher, times(2)).dispatchLater(any(Runnable.class), anyLong());
+        verify(delayedEventSender, never()).send(any(Collection.class), anyLong());
+
+        assertTrue(eventRelay.cancelEventMessage(eventId));
+        verify(scheduledFuture, times(2)).cancel(false);
+        verify(delayedEventSender, never()).cancel(any(UUID.class));
+        verify(eventMetricsService).cancelled(SUBJECT);
+    }
+
+    @Test
+    public void shouldDeliverDelayedEventsLocallyInLocalMode() {
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doAnswer(new RunTaskAnswer()).when(localEventDispatcher).dispatchLater(any(Runnable.class), anyLong());
+        setUpListeners(SUBJECT, eventListener);
+
+        UUID eventId = eventRelay.sendEventMessage(createEvent(), 0L);
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventListener).handle(captor.capture());
+        assertEquals(eventId, captor.getValue().getId());
+
+        // delivered events can no longer be cancelled
+        assertFalse(eventRelay.cancelEventMessage(eventId));
+    }
+
+    @Test
+    public void shouldContinueTraceOfPublisherInSplitEvents() {
+        TraceService tracer = enableTracing();
+        when(motechEventConfig.getDispatchMode()).thenReturn(EventDispatchMode.LOCAL);
+        doAnswer(new RunTaskAnswer()).when(localEventDispatcher).dispatch(any(Runnable.class));
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        Span publisher = tracer.startSpan("test", "publisher");
+        eventRelay.sendEventMessage(createEvent());
+        tracer.endSpan(publisher, false);
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventListener).handle(captor.capture());
+        verify(secondaryEventListener).handle(captor.capture());
+        for (MotechEvent event : captor.getAllValues()) {
+            assertEquals(new TraceContext(publisher.getTraceId(), publisher.getSpanId()),
+                    TraceContext.fromMetadata(event.getMetadata()));
+        }
+
+        List<Span> trace = tracer.getTrace(publisher.getTraceId());
+        assertEquals(5, trace.size());
+        int handleSpans = 0;
+        for (Span span : trace) {
+            if (TraceService.EVENT_HANDLE.equals(span.getStage())) {
+                assertEquals(publisher.getSpanId(), span.getParentSpanId());
+                assertFalse(span.isFailed());
+                handleSpans++;
+            }
+        }
+        assertEquals(2, handleSpans);
+        assertNull(TraceContext.current());
+    }
+
+    @Test
+    public void shouldKeepTraceOfRedeliveredEvents() {
+        TraceService tracer = enableTracing();
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(1);
+        doThrow(new RuntimeException()).when(eventListener).handle(any(MotechEvent.class));
+        setUpListeners(SUBJECT, eventListener);
+
+        TraceContext context = TraceContext.newTrace();
+        MotechEvent event = createEvent(LISTENER_IDENTIFIER);
+        context.writeTo(event.getMetadata());
+
+        eventRelay.relayQueueEvent(event);
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(outboundEventGateway).sendEventMessage(captor.capture());
+        assertEquals(context, TraceContext.fromMetadata(captor.getValue().getMetadata()));
+
+        List<Span> trace = tracer.getTrace(context.getTraceId());
+        assertEquals(1, trace.size());
+        assertEquals(TraceService.EVENT_HANDLE, trace.get(0).getStage());
+        assertEquals(context.getSpanId(), trace.get(0).getParentSpanId());
+        assertTrue(trace.get(0).isFailed());
+    }
+
+    private TraceService enableTracing() {
+        when(motechEventConfig.isTraceEnabled()).thenReturn(true);
+        when(motechEventConfig.getTraceBufferSize()).thenReturn(100);
+        TraceService tracer = new TraceServiceImpl(motechEventConfig);
+
+        eventRelay = new ServerEventRelay(outboundEventGateway, registry, motechEventConfig, eventAdmin, bundleContext, localEventDispatcher,
+                eventMetricsService, eventLanes, topicEventDispatcher, delayedEventSender, tracer, outboundEventBuffer,
+                new ListenerExecutor(motechEventConfig));
+        return tracer;
+    }
+
     private MotechEvent createEvent(String messageDestination) {
         MotechEvent event = createEvent();
         event.setMessageDestination(messageDestination);
@@ -270,10 +778,42 @@ public class ServerEventRelayTest {
         return new MotechEvent(SUBJECT, parameters);
     }
 
+    private void setUpHangingListener() {
+        when(eventListener.getTimeout()).thenReturn(50L);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(10000);
+                return null;
+            }
+        }).when(eventListener).handle(any(MotechEvent.class));
+        setUpListeners(SUBJECT, eventListener);
+    }
+
     private void setUpListeners(String subject, EventListener... listeners) {
         when(registry.getListeners(eq(subject))).thenReturn(new LinkedHashSet<>(Arrays.asList(listeners)));
     }
 
+    private static class RunTaskAnswer implements Answer<Void> {
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }
+    }
+
+    private static class AttemptDeliveryAnswer implements Answer<Void> {
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+            TopicEventDispatcher.Delivery delivery = (TopicEventDispatcher.Delivery) invocation.getArguments()[1];
+            // retries are attempted right away
+            while (delivery.attempt() != TopicEventDispatcher.Delivery.DONE) {
+                continue;
+            }
+            return null;
+        }
+    }
+
     private class BooleanValue {
         private Boolean value;
 
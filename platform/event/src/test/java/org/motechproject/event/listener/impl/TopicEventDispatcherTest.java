@@ -0,0 +1,161 @@
+package org.motechproject.event.listener.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.event.messaging.MotechEventConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TopicEventDispatcherTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    private TopicEventDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        when(motechEventConfig.getTopicPoolSize()).thenReturn(4);
+        when(motechEventConfig.getTopicMaxPending()).thenReturn(100);
+        when(motechEventConfig.isTopicDispatchOrdered()).thenReturn(true);
+
+        dispatcher = new TopicEventDispatcher(motechEventConfig);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void shouldNotBlockOtherListenersOnSlowListener() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastHandled = new CountDownLatch(1);
+
+        dispatcher.dispatch("slow", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                await(release);
+                return DONE;
+            }
+        });
+        dispatcher.dispatch("fast", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                fastHandled.countDown();
+                return DONE;
+            }
+        });
+
+        assertTrue(fastHandled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(dispatcher.getPendingCount() >= 1);
+
+        release.countDown();
+    }
+
+    @Test
+    public void shouldDeliverInOrderToEachListener() throws InterruptedException {
+        final List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            final int number = i;
+            dispatcher.dispatch("listener", new TopicEventDispatcher.Delivery() {
+                @Override
+                public long attempt() {
+                    delivered.add(number);
+                    done.countDown();
+                    return DONE;
+                }
+            });
+        }
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), delivered.get(i));
+        }
+    }
+
+    @Test
+    public void shouldHoldListenerUntilRetrySucceeds() throws InterruptedException {
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(2);
+
+        dispatcher.dispatch("listener", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                if (attempts.incrementAndGet() < 3) {
+                    return 10;
+                }
+                delivered.add("first");
+                done.countDown();
+                return DONE;
+            }
+        });
+        dispatcher.dispatch("listener", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                delivered.add("second");
+                done.countDown();
+                return DONE;
+            }
+        });
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertEquals("first", delivered.get(0));
+        assertEquals("second", delivered.get(1));
+    }
+
+    @Test
+    public void shouldDeliverWithoutOrderingWhenDisabled() throws InterruptedException {
+        when(motechEventConfig.isTopicDispatchOrdered()).thenReturn(false);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch secondHandled = new CountDownLatch(1);
+
+        dispatcher.dispatch("listener", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                await(release);
+                return DONE;
+            }
+        });
+        dispatcher.dispatch("listener", new TopicEventDispatcher.Delivery() {
+            @Override
+            public long attempt() {
+                secondHandled.countDown();
+                return DONE;
+            }
+        });
+
+        assertTrue(secondHandled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
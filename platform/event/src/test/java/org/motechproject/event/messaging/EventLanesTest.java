@@ -0,0 +1,110 @@
+package org.motechproject.event.messaging;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventLanesTest {
+
+    private Properties config;
+
+    @Before
+    public void setUp() {
+        config = new Properties();
+        config.setProperty("jms.queue.for.events", "QueueForEvents");
+        config.setProperty("motech.message.lanes", "sms, ivr");
+        config.setProperty("motech.message.lane.sms.subjects", "org.motechproject.sms");
+        config.setProperty("motech.message.lane.sms.concurrent.consumers", "2");
+        config.setProperty("motech.message.lane.sms.max.concurrent.consumers", "5");
+        config.setProperty("motech.message.lane.sms.prefetch", "1");
+        config.setProperty("motech.message.lane.ivr.subjects", "org.motechproject.ivr, org.motechproject.sms.ivr");
+        config.setProperty("motech.message.lane.ivr.queue", "QueueForEvents.ivr");
+    }
+
+    @Test
+    public void shouldParseLanes() {
+        EventLanes eventLanes = new EventLanes(config);
+
+        assertEquals(2, eventLanes.getLanes().size());
+
+        EventLane sms = eventLanes.getLanes().get(0);
+        assertEquals("sms", sms.getName());
+        assertEquals(2, sms.getConcurrentConsumers());
+        assertEquals(5, sms.getMaxConcurrentConsumers());
+        assertEquals(1, sms.getPrefetch());
+        assertFalse(sms.hasDedicatedQueue());
+
+        EventLane ivr = eventLanes.getLanes().get(1);
+        assertEquals(1, ivr.getConcurrentConsumers());
+        assertEquals(1, ivr.getMaxConcurrentConsumers());
+        assertEquals("QueueForEvents.ivr", ivr.getQueueName());
+    }
+
+    @Test
+    public void shouldMatchLongestSubjectPrefix() {
+        EventLanes eventLanes = new EventLanes(config);
+
+        assertEquals("sms", eventLanes.getLane("org.motechproject.sms").getName());
+        assertEquals("sms", eventLanes.getLane("org.motechproject.sms.send").getName());
+        assertEquals("ivr", eventLanes.getLane("org.motechproject.sms.ivr.call").getName());
+        assertNull(eventLanes.getLane("org.motechproject.smsother"));
+        assertNull(eventLanes.getLane("org.motechproject.scheduler"));
+    }
+
+    @Test
+    public void shouldResolveLanesPastTheCachedSubjectLimit() {
+        EventLanes eventLanes = new EventLanes(config);
+
+        for (int i = 0; i < EventLanes.MAX_CACHED_SUBJECTS + 10; i++) {
+            assertEquals("sms", eventLanes.getLane("org.motechproject.sms." + i).getName());
+            assertNull(eventLanes.getLane("org.motechproject.scheduler." + i));
+        }
+        assertEquals("ivr", eventLanes.getLane("org.motechproject.sms.ivr.call").getName());
+    }
+
+    @Test
+    public void shouldReturnDedicatedQueues() {
+        EventLanes eventLanes = new EventLanes(config);
+
+        assertTrue(eventLanes.hasDedicatedQueue("org.motechproject.ivr.call"));
+        assertEquals(new ActiveMQQueue("QueueForEvents.ivr"), eventLanes.getDedicatedQueue("org.motechproject.ivr.call"));
+        assertFalse(eventLanes.hasDedicatedQueue("org.motechproject.sms.send"));
+        assertFalse(eventLanes.hasDedicatedQueue("org.motechproject.scheduler"));
+    }
+
+    @Test
+    public void shouldBuildSelectorsForLanesSharingTheEventQueue() {
+        EventLanes eventLanes = new EventLanes(config);
+
+        assertEquals("motechEventLane IS NULL OR motechEventLane NOT IN ('sms')", eventLanes.getDefaultQueueSelector());
+        assertEquals("motechEventLane = 'sms'", eventLanes.getLaneSelector(eventLanes.getLanes().get(0)));
+        assertNull(eventLanes.getLaneSelector(eventLanes.getLanes().get(1)));
+    }
+
+    @Test
+    public void shouldIgnoreInvalidLanes() {
+        config.setProperty("motech.message.lanes", "sms, ivr, no-subjects, in'valid");
+        config.setProperty("motech.message.lane.ivr.prefetch", "many");
+
+        EventLanes eventLanes = new EventLanes(config);
+
+        assertEquals(1, eventLanes.getLanes().size());
+        assertEquals("sms", eventLanes.getLanes().get(0).getName());
+    }
+
+    @Test
+    public void shouldNotSelectWithoutLanes() {
+        EventLanes eventLanes = new EventLanes(new Properties());
+
+        assertTrue(eventLanes.getLanes().isEmpty());
+        assertNull(eventLanes.getDefaultQueueSelector());
+        assertNull(eventLanes.getLane("org.motechproject.sms"));
+    }
+}
@@ -0,0 +1,149 @@
+package org.motechproject.event.messaging.impl;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.domain.TestEventPayload;
+import org.motechproject.event.exception.MotechEventCodecException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryMotechEventCodecTest {
+
+    private BinaryMotechEventCodec codec = new BinaryMotechEventCodec();
+
+    @Test
+    public void shouldEncodeAndDecodeEvent() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("count", 3);
+        nested.put("names", Arrays.asList("a", "b"));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("string", "value");
+        parameters.put("int", 42);
+        parameters.put("long", 42L);
+        parameters.put("double", 4.2);
+        parameters.put("boolean", true);
+        parameters.put("null", null);
+        parameters.put("dateTime", new DateTime(2015, 3, 12, 10, 30, DateTimeZone.forID("Europe/Warsaw")));
+        parameters.put("date", new Date(1000L));
+        parameters.put("uuid", UUID.randomUUID());
+        parameters.put("decimal", new BigDecimal("12.345"));
+        parameters.put("list", new ArrayList<>(Arrays.asList(1, "two", 3.0)));
+        parameters.put("set", new HashSet<>(Arrays.asList("x", "y")));
+        parameters.put("map", nested);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("key", "metadata");
+
+        MotechEvent event = new MotechEvent("org.motechproject.test.subject", parameters, "callback", metadata);
+        event.setId(UUID.randomUUID());
+        event.setInvalid(true);
+        event.setBroadcast(true);
+        event.setMessageRedeliveryCount(2);
+        event.setMessageDestination("listener");
+
+        MotechEvent decoded = codec.decode(codec.encode(event));
+
+        assertEquals(event, decoded);
+        assertEquals(event.getId(), decoded.getId());
+        assertEquals(((DateTime) parameters.get("dateTime")).getZone(), ((DateTime) decoded.getParameters().get("dateTime")).getZone());
+        assertTrue(decoded.getParameters().containsKey("null"));
+    }
+
+    @Test
+    public void shouldEncodeEventWithoutOptionalFields() {
+        MotechEvent event = new MotechEvent("org.motechproject.test.subject");
+
+        MotechEvent decoded = codec.decode(codec.encode(event));
+
+        assertEquals("org.motechproject.test.subject", decoded.getSubject());
+        assertNull(decoded.getId());
+        assertNull(decoded.getMessageDestination());
+        assertNull(decoded.getCallbackName());
+        assertTrue(decoded.getParameters().isEmpty());
+    }
+
+    @Test
+    public void shouldPreserveListOrder() {
+        List<Object> list = Arrays.<Object>asList(5, 4, 3, 2, 1);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("list", list);
+
+        MotechEvent decoded = codec.decode(codec.encode(new MotechEvent("subject", parameters)));
+
+        assertEquals(list, decoded.getParameters().get("list"));
+    }
+
+    @Test
+    public void shouldPreserveTypeAndOrderOfOtherCollections() {
+        Map<String, Object> linkedMap = new LinkedHashMap<>();
+        linkedMap.put("z", 1);
+        linkedMap.put("a", 2);
+        linkedMap.put("m", 3);
+        Map<String, Object> treeMap = new TreeMap<>(Collections.reverseOrder());
+        treeMap.putAll(linkedMap);
+        List<Object> linkedList = new LinkedList<>(Arrays.<Object>asList(3, 1, 2));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("linkedMap", linkedMap);
+        parameters.put("treeMap", treeMap);
+        parameters.put("linkedList", linkedList);
+
+        MotechEvent decoded = codec.decode(codec.encode(new MotechEvent("subject", parameters)));
+
+        Object decodedLinkedMap = decoded.getParameters().get("linkedMap");
+        assertEquals(LinkedHashMap.class, decodedLinkedMap.getClass());
+        assertEquals(Arrays.asList("z", "a", "m"), new ArrayList<>(((Map<?, ?>) decodedLinkedMap).keySet()));
+
+        Object decodedTreeMap = decoded.getParameters().get("treeMap");
+        assertEquals(TreeMap.class, decodedTreeMap.getClass());
+        assertEquals(Arrays.asList("z", "m", "a"), new ArrayList<>(((Map<?, ?>) decodedTreeMap).keySet()));
+
+        assertEquals(LinkedList.class, decoded.getParameters().get("linkedList").getClass());
+        assertEquals(linkedList, decoded.getParameters().get("linkedList"));
+    }
+
+    @Test
+    public void shouldDecodeLinkedParametersInOrder() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("second", 2);
+        parameters.put("first", 1);
+
+        MotechEvent decoded = codec.decode(codec.encode(new MotechEvent("subject", parameters)));
+
+        assertEquals(Arrays.asList("second", "first"), new ArrayList<>(decoded.getParameters().keySet()));
+    }
+
+    @Test
+    public void shouldSerializeOtherTypes() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("payload", new TestEventPayload());
+
+        MotechEvent decoded = codec.decode(codec.encode(new MotechEvent("subject", parameters)));
+
+        assertTrue(decoded.getParameters().get("payload") instanceof TestEventPayload);
+    }
+
+    @Test(expected = MotechEventCodecException.class)
+    public void shouldRejectUnknownData() {
+        codec.decode(new byte[] {1, 2, 3, 4});
+    }
+}
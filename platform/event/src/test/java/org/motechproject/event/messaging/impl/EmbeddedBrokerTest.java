@@ -0,0 +1,107 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EmbeddedBrokerTest {
+
+    private static final String BROKER_NAME = "embedded-broker-test";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldUseExternalBrokerUrlWhenNotEnabled() {
+        EmbeddedBroker embeddedBroker = new EmbeddedBroker();
+
+        assertEquals("tcp://localhost:61616", embeddedBroker.getBrokerUrl("tcp://localhost:61616"));
+    }
+
+    @Test
+    public void shouldUseInVmBrokerUrlWhenEnabled() {
+        EmbeddedBroker embeddedBroker = new EmbeddedBroker();
+        embeddedBroker.setEnabled(true);
+        embeddedBroker.setBrokerName("motech");
+
+        assertEquals("vm://motech?create=false", embeddedBroker.getBrokerUrl("tcp://localhost:61616"));
+    }
+
+    @Test
+    public void shouldDeliverMessagesThroughStartedBroker() throws Exception {
+        EmbeddedBroker embeddedBroker = new EmbeddedBroker();
+        embeddedBroker.setEnabled(true);
+        embeddedBroker.setBrokerName(BROKER_NAME);
+        embeddedBroker.setPersistent(false);
+        embeddedBroker.setDataDirectory(folder.getRoot().getAbsolutePath());
+        embeddedBroker.setNonPersistentDestinations("queue://Lane.*");
+        embeddedBroker.start();
+
+        Connection connection = null;
+        try {
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                    new ObjectName("org.apache.activemq:type=Broker,brokerName=" + BROKER_NAME)));
+
+            connection = new ActiveMQConnectionFactory(embeddedBroker.getBrokerUrl(null)).createConnection();
+            connection.start();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("Lane.sms");
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            producer.send(session.createTextMessage("test"));
+
+            Message message = session.createConsumer(queue).receive(5000);
+
+            assertNotNull(message);
+            assertEquals("test", ((TextMessage) message).getText());
+            // made non-persistent by the plugin
+            assertEquals(DeliveryMode.NON_PERSISTENT, message.getJMSDeliveryMode());
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+            embeddedBroker.stop();
+        }
+    }
+
+    @Test
+    public void shouldParseNonPersistentDestinations() {
+        List<ActiveMQDestination> destinations = EmbeddedBroker.parseDestinations(" topic://>, QueueForEvents ,");
+
+        assertEquals(asList(new ActiveMQTopic(">"), new ActiveMQQueue("QueueForEvents")), destinations);
+        assertTrue(EmbeddedBroker.parseDestinations("").isEmpty());
+        assertTrue(EmbeddedBroker.parseDestinations(null).isEmpty());
+    }
+
+    @Test
+    public void shouldMatchNonPersistentDestinationsWithWildcards() {
+        NonPersistentDestinationsPlugin plugin = new NonPersistentDestinationsPlugin(
+                EmbeddedBroker.parseDestinations("topic://>,queue://Lane.*"));
+
+        assertTrue(plugin.isNonPersistent(new ActiveMQTopic("TopicForEvents")));
+        assertTrue(plugin.isNonPersistent(new ActiveMQQueue("Lane.sms")));
+        assertFalse(plugin.isNonPersistent(new ActiveMQQueue("QueueForEvents")));
+    }
+}
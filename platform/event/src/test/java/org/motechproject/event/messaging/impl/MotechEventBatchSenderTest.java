@@ -0,0 +1,132 @@
+package org.motechproject.event.messaging.impl;
+
+import junitx.util.PrivateAccessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MotechEventBatchSenderTest {
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private MessageProducer producer;
+
+    @Mock
+    private ObjectMessage message;
+
+    @Mock
+    private Queue eventQueue;
+
+    @Mock
+    private Topic eventTopic;
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    private MotechEventBatchSender batchSender;
+
+    @Before
+    public void setUp() throws Exception {
+        batchSender = new MotechEventBatchSender(connectionFactory, eventQueue, eventTopic, new MotechEventTransformer(),
+                new SimpleMessageConverter());
+        PrivateAccessor.setField(batchSender, "motechEventConfig", motechEventConfig);
+
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.getTransacted()).thenReturn(true);
+        when(session.createProducer(eventQueue)).thenReturn(producer);
+        when(session.createProducer(eventTopic)).thenReturn(producer);
+        when(session.createObjectMessage(any(Serializable.class))).thenReturn(message);
+        when(motechEventConfig.getBatchSize()).thenReturn(2);
+    }
+
+    @Test
+    public void shouldSendAllEventsWithOneProducerCommittingPerBatch() throws JMSException {
+        batchSender.sendToQueue(createEvents(5));
+
+        verify(session, times(1)).createProducer(eventQueue);
+        verify(producer, times(5)).send(any(Message.class));
+        verify(session, times(3)).commit();
+        verify(session, never()).rollback();
+    }
+
+    @Test
+    public void shouldBroadcastToTopic() throws JMSException {
+        batchSender.sendToTopic(createEvents(2));
+
+        verify(session).createProducer(eventTopic);
+        verify(producer, times(2)).send(any(Message.class));
+        verify(session, times(1)).commit();
+    }
+
+    @Test
+    public void shouldReportPublishedEventsOnFailure() throws JMSException {
+        doNothing().doNothing().doThrow(new JMSException("broker down")).when(producer).send(any(Message.class));
+
+        try {
+            batchSender.sendToQueue(createEvents(5));
+            fail("Expected EventBatchPublishException");
+        } catch (EventBatchPublishException e) {
+            assertEquals(2, e.getPublishedCount());
+            assertEquals(5, e.getTotalCount());
+        }
+
+        verify(session, times(1)).commit();
+        verify(session).rollback();
+    }
+
+    @Test
+    public void shouldDoNothingForEmptyBatch() throws JMSException {
+        batchSender.sendToQueue(new ArrayList<MotechEvent>());
+
+        verify(connectionFactory, never()).createConnection();
+    }
+
+    private List<MotechEvent> createEvents(int count) {
+        List<MotechEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            events.add(new MotechEvent("org.motechproject.test.subject"));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,225 @@
+package org.motechproject.event.messaging.impl;
+
+import junitx.util.PrivateAccessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.exception.EventBatchPublishException;
+import org.motechproject.event.exception.EventPublishRejectedException;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.messaging.OutboundOverflowPolicy;
+import org.motechproject.event.metrics.OutboundEventMetrics;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboundEventBufferTest {
+
+    private static final long TIMEOUT_MILLIS = 5000L;
+
+    @Rule
+    public TemporaryFolder spillFolder = new TemporaryFolder();
+
+    @Mock
+    private MotechEventBatchSender batchSender;
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    private final List<String> sentSubjects = new CopyOnWriteArrayList<>();
+
+    private OutboundEventBuffer buffer;
+
+    @Before
+    public void setUp() throws Exception {
+        when(motechEventConfig.getOutboundCapacity()).thenReturn(1);
+        when(motechEventConfig.getOutboundSpillDirectory()).thenReturn(spillFolder.getRoot().getAbsolutePath());
+        when(motechEventConfig.getBatchSize()).thenReturn(10);
+
+        buffer = new OutboundEventBuffer(batchSender, new BinaryMotechEventCodec());
+        PrivateAccessor.setField(buffer, "motechEventConfig", motechEventConfig);
+    }
+
+    @After
+    public void tearDown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    public void shouldSendBufferedEvents() throws Exception {
+        doAnswer(new RecordingAnswer(null)).when(batchSender).sendToQueue(anyCollectionOf(MotechEvent.class));
+        when(motechEventConfig.getOutboundCapacity()).thenReturn(10);
+        buffer.start();
+
+        buffer.add(events("first", "second"));
+
+        awaitSent(2);
+        assertEquals(2, sentSubjects.size());
+        assertEquals(2, buffer.getMetrics().getBufferedCount());
+        assertEquals(2, buffer.getMetrics().getBufferTime().getCount());
+    }
+
+    @Test
+    public void shouldRejectEventsWhenFullAndPolicyIsFail() throws Exception {
+        when(motechEventConfig.getOutboundOverflowPolicy()).thenReturn(OutboundOverflowPolicy.FAIL);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingAnswer answer = new RecordingAnswer(release);
+        doAnswer(answer).when(batchSender).sendToQueue(anyCollectionOf(MotechEvent.class));
+        buffer.start();
+
+        buffer.add(events("sending"));
+        assertTrue(answer.sending.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        buffer.add(events("buffered"));
+
+        try {
+            buffer.add(events("rejected", "also rejected"));
+            fail("Expected rejection");
+        } catch (EventPublishRejectedException e) {
+            assertEquals(0, e.getAcceptedCount());
+            assertEquals(2, e.getTotalCount());
+        }
+
+        release.countDown();
+        awaitSent(2);
+        assertEquals(2, buffer.getMetrics().getRejectedCount());
+    }
+
+    @Test
+    public void shouldSpillEventsWhenFullAndSendThemLater() throws Exception {
+        when(motechEventConfig.getOutboundOverflowPolicy()).thenReturn(OutboundOverflowPolicy.SPILL);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingAnswer answer = new RecordingAnswer(release);
+        doAnswer(answer).when(batchSender).sendToQueue(anyCollectionOf(MotechEvent.class));
+        buffer.start();
+
+        buffer.add(events("sending"));
+        assertTrue(answer.sending.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        buffer.add(events("buffered", "spilled"));
+
+        assertEquals(1, spillFiles().length);
+        assertEquals(1, buffer.getMetrics().getSpilledCount());
+
+        release.countDown();
+        awaitSent(3);
+        assertTrue(sentSubjects.contains("spilled"));
+        assertEquals(0, spillFiles().length);
+    }
+
+    @Test
+    public void shouldSpillBatchThatFailedToSendAndRetryIt() throws Exception {
+        final RecordingAnswer answer = new RecordingAnswer(null);
+        doAnswer(new Answer<Void>() {
+            private boolean failed;
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                if (!failed) {
+                    failed = true;
+                    throw new EventBatchPublishException(0, 1, new IllegalStateException("Broker down"));
+                }
+                return answer.answer(invocation);
+            }
+        }).when(batchSender).sendToQueue(anyCollectionOf(MotechEvent.class));
+        buffer.start();
+
+        buffer.add(events("retried"));
+
+        awaitSent(1);
+        assertEquals(Collections.singletonList("retried"), sentSubjects);
+
+        OutboundEventMetrics metrics = buffer.getMetrics();
+        assertEquals(1, metrics.getFailedCount());
+        assertEquals(1, metrics.getSpilledCount());
+        assertEquals(0, metrics.getSpillFileCount());
+    }
+
+    @Test
+    public void shouldSpillBufferedEventsOnShutdownAndSendLaterEventsDirectly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingAnswer answer = new RecordingAnswer(release);
+        doAnswer(answer).when(batchSender).sendToQueue(anyCollectionOf(MotechEvent.class));
+        buffer.start();
+
+        buffer.add(events("sending"));
+        assertTrue(answer.sending.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        buffer.add(events("buffered"));
+
+        release.countDown();
+        buffer.shutdown();
+        buffer.add(events("direct"));
+
+        assertTrue(sentSubjects.contains("direct"));
+        assertEquals(sentSubjects.contains("buffered") ? 0 : 1, spillFiles().length);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (buffer.getMetrics().getSentCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, buffer.getMetrics().getSentCount());
+    }
+
+    private File[] spillFiles() {
+        return spillFolder.getRoot().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".spill");
+            }
+        });
+    }
+
+    private List<MotechEvent> events(String... subjects) {
+        List<MotechEvent> events = new ArrayList<>(subjects.length);
+        for (String subject : subjects) {
+            MotechEvent event = new MotechEvent(subject);
+            event.setMessageDestination("listener");
+            events.add(event);
+        }
+        return events;
+    }
+
+    private class RecordingAnswer implements Answer<Void> {
+        private final CountDownLatch release;
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        RecordingAnswer(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+            sending.countDown();
+            if (release != null) {
+                release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            for (MotechEvent event : (Collection<MotechEvent>) invocation.getArguments()[0]) {
+                sentSubjects.add(event.getSubject());
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.motechproject.event.metrics.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.event.metrics.EventMetrics;
+import org.motechproject.event.metrics.LatencyStatistics;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventMetricsServiceImplTest {
+
+    private static final String SUBJECT = "org.motechproject.test.subject";
+    private static final String LISTENER = "test-listener";
+    private static final String OTHER_LISTENER = "other-listener";
+
+    private EventMetricsServiceImpl eventMetricsService;
+
+    @Before
+    public void setUp() {
+        eventMetricsService = new EventMetricsServiceImpl();
+    }
+
+    @Test
+    public void shouldCountEventsPerSubjectAndListener() {
+        eventMetricsService.published(SUBJECT);
+        eventMetricsService.published(SUBJECT);
+        eventMetricsService.handled(SUBJECT, LISTENER, 100);
+        eventMetricsService.failed(SUBJECT, OTHER_LISTENER, 100);
+        eventMetricsService.redelivered(SUBJECT, OTHER_LISTENER);
+        eventMetricsService.failed(SUBJECT, OTHER_LISTENER, 100);
+        eventMetricsService.discarded(SUBJECT, OTHER_LISTENER);
+
+        List<EventMetrics> subjectMetrics = eventMetricsService.getSubjectMetrics();
+        assertEquals(1, subjectMetrics.size());
+
+        EventMetrics subject = subjectMetrics.get(0);
+        assertEquals(SUBJECT, subject.getName());
+        assertEquals(2, subject.getPublishedCount());
+        assertEquals(1, subject.getHandledCount());
+        assertEquals(2, subject.getFailedCount());
+        assertEquals(1, subject.getRedeliveredCount());
+        assertEquals(1, subject.getDiscardedCount());
+        assertEquals(3, subject.getHandlingTime().getCount());
+
+        assertEquals(2, eventMetricsService.getListenerMetrics().size());
+        EventMetrics listener = findMetrics(eventMetricsService.getListenerMetrics(), LISTENER);
+        assertEquals(1, listener.getHandledCount());
+        assertEquals(0, listener.getFailedCount());
+
+        EventMetrics otherListener = findMetrics(eventMetricsService.getListenerMetrics(), OTHER_LISTENER);
+        assertEquals(0, otherListener.getHandledCount());
+        assertEquals(2, otherListener.getFailedCount());
+        assertEquals(1, otherListener.getDiscardedCount());
+    }
+
+    @Test
+    public void shouldNotTrackListenerForBroadcastWait() {
+        eventMetricsService.enqueueToHandle(SUBJECT, null, 1000);
+
+        assertEquals(1, eventMetricsService.getSubjectMetrics().get(0).getEnqueueToHandleTime().getCount());
+        assertTrue(eventMetricsService.getListenerMetrics().isEmpty());
+    }
+
+    @Test
+    public void shouldClearMetricsOnReset() {
+        eventMetricsService.published(SUBJECT);
+        eventMetricsService.handled(SUBJECT, LISTENER, 100);
+
+        eventMetricsService.reset();
+
+        assertTrue(eventMetricsService.getSubjectMetrics().isEmpty());
+        assertTrue(eventMetricsService.getListenerMetrics().isEmpty());
+    }
+
+    @Test
+    public void shouldCountSubjectsOverTheLimitAsOther() {
+        for (int i = 0; i < EventMetricsServiceImpl.MAX_TRACKED_NAMES + 5; i++) {
+            eventMetricsService.published(SUBJECT + i);
+        }
+
+        List<EventMetrics> subjectMetrics = eventMetricsService.getSubjectMetrics();
+        assertEquals(EventMetricsServiceImpl.MAX_TRACKED_NAMES + 1, subjectMetrics.size());
+        assertEquals(5, findMetrics(subjectMetrics, EventMetricsServiceImpl.OTHER).getPublishedCount());
+    }
+
+    @Test
+    public void shouldComputeLatencyStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyStatistics statistics = histogram.getStatistics();
+
+        assertEquals(100, statistics.getCount());
+        assertEquals(50.5, statistics.getMean(), 0.001);
+        assertEquals(100.0, statistics.getMax(), 0.001);
+        // percentiles are bounded by the power of two buckets
+        assertTrue(statistics.getMedian() >= 50.0 && statistics.getMedian() <= 65.535);
+        assertTrue(statistics.getPercentile90() >= 90.0 && statistics.getPercentile90() <= 100.0);
+        assertEquals(100.0, statistics.getPercentile99(), 0.001);
+    }
+
+    @Test
+    public void shouldReturnEmptyStatisticsWithoutSamples() {
+        LatencyStatistics statistics = new LatencyHistogram().getStatistics();
+
+        assertEquals(0, statistics.getCount());
+        assertEquals(0.0, statistics.getMax(), 0.001);
+    }
+
+    private EventMetrics findMetrics(List<EventMetrics> metrics, String name) {
+        for (EventMetrics eventMetrics : metrics) {
+            if (name.equals(eventMetrics.getName())) {
+                return eventMetrics;
+            }
+        }
+        throw new AssertionError("No metrics for " + name);
+    }
+}
@@ -0,0 +1,111 @@
+package org.motechproject.event.trace.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.commons.api.TraceContext;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.trace.Span;
+import org.motechproject.event.trace.TraceService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TraceServiceImplTest {
+
+    private static final String SUBJECT = "org.motechproject.test.subject";
+
+    private TraceService traceService;
+
+    @Before
+    public void setUp() {
+        MotechEventConfig motechEventConfig = mock(MotechEventConfig.class);
+        when(motechEventConfig.isTraceEnabled()).thenReturn(true);
+        when(motechEventConfig.getTraceBufferSize()).thenReturn(3);
+
+        traceService = new TraceServiceImpl(motechEventConfig);
+    }
+
+    @After
+    public void tearDown() {
+        TraceContext.restore(null);
+    }
+
+    @Test
+    public void shouldNestSpansAndRestoreContext() {
+        Span outer = traceService.startSpan(TraceService.SCHEDULER_JOB, "job");
+        TraceContext outerContext = TraceContext.current();
+        assertEquals(outer.getSpanId(), outerContext.getSpanId());
+        assertNull(outer.getParentSpanId());
+
+        Span inner = traceService.startSpan(TraceService.TASK, "task");
+        assertEquals(outer.getTraceId(), inner.getTraceId());
+        assertEquals(outer.getSpanId(), inner.getParentSpanId());
+
+        traceService.endSpan(inner, true);
+        assertEquals(outerContext, TraceContext.current());
+
+        traceService.endSpan(outer, false);
+        assertNull(TraceContext.current());
+
+        List<Span> trace = traceService.getTrace(outer.getTraceId());
+        assertEquals(2, trace.size());
+        for (Span span : trace) {
+            assertEquals(span.getSpanId().equals(inner.getSpanId()), span.isFailed());
+        }
+        assertEquals(1, traceService.getStageStatistics().get(TraceService.TASK).getCount());
+    }
+
+    @Test
+    public void shouldPropagateCurrentContextWithoutModifyingMetadata() {
+        Map<String, Object> metadata = new HashMap<>();
+        MotechEvent event = new MotechEvent(SUBJECT, new HashMap<String, Object>(), null, metadata);
+
+        Span span = traceService.startSpan(TraceService.EVENT_HANDLE, "listener");
+        traceService.propagate(event);
+        traceService.endSpan(span, false);
+
+        assertTrue(metadata.isEmpty());
+        assertNotSame(metadata, event.getMetadata());
+        assertEquals(new TraceContext(span.getTraceId(), span.getSpanId()),
+                TraceContext.fromMetadata(event.getMetadata()));
+        assertNotNull(event.getMetadata().get(TraceContext.SENT_TIME));
+    }
+
+    @Test
+    public void shouldKeepContextOfEventWhenNoWorkIsTraced() {
+        TraceContext context = TraceContext.newTrace();
+        MotechEvent event = new MotechEvent(SUBJECT);
+        context.writeTo(event.getMetadata());
+
+        traceService.propagate(event);
+
+        assertEquals(context, TraceContext.fromMetadata(event.getMetadata()));
+    }
+
+    @Test
+    public void shouldKeepMostRecentSpans() {
+        for (int i = 0; i < 5; ++i) {
+            traceService.recordSpan(TraceService.EVENT_QUEUE, "span" + i, null, System.currentTimeMillis());
+        }
+
+        List<Span> spans = traceService.getRecentSpans(10);
+        assertEquals(3, spans.size());
+        assertEquals("span4", spans.get(0).getName());
+        assertEquals("span2", spans.get(2).getName());
+
+        traceService.reset();
+        assertTrue(traceService.getRecentSpans(10).isEmpty());
+        assertTrue(traceService.getStageStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package org.motechproject.mds.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drops CRUD events that carry no information for listeners, because an earlier event for the same instance, that
+ * is published together with them, already covers them. Listeners load the instance when handling the event, so
+ * an update following the creation of an instance, or a repeated update, can be dropped. The order of the remaining
+ * events of an instance is preserved.
+ */
+public class CrudEventCoalescer {
+
+    private final Map<String, CrudEventType> lastActions = new HashMap<>();
+
+    /**
+     * Coalesces the given entries, in the order in which they were written.
+     *
+     * @param entries the entries to coalesce
+     * @return the entries that should be published
+     */
+    public static List<CrudEventOutboxEntry> coalesce(List<CrudEventOutboxEntry> entries) {
+        CrudEventCoalescer coalescer = new CrudEventCoalescer();
+        List<CrudEventOutboxEntry> result = new ArrayList<>(entries.size());
+
+        for (CrudEventOutboxEntry entry : entries) {
+            if (coalescer.accept(entry)) {
+                result.add(entry);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks whether the entry should be published, given the entries accepted before it.
+     *
+     * @param entry the next entry
+     * @return true if the entry should be published, false if it can be dropped
+     */
+    public boolean accept(CrudEventOutboxEntry entry) {
+        CrudEventType previous = lastActions.get(entry.getInstanceKey());
+        CrudEventType action = entry.getAction();
+
+        if (action == previous || (action == CrudEventType.UPDATE && previous == CrudEventType.CREATE)) {
+            return false;
+        }
+
+        lastActions.put(entry.getInstanceKey(), action);
+        return true;
+    }
+}
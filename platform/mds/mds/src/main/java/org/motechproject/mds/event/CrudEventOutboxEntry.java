@@ -0,0 +1,169 @@
+package org.motechproject.mds.event;
+
+import org.motechproject.commons.api.TraceContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
+import static org.motechproject.mds.event.CrudEventBuilder.createSubject;
+
+/**
+ * A CRUD event stored in the event outbox. CRUD events are written to the outbox in the transaction that caused
+ * them, and published once that transaction commits. The entry keeps the trace context of the work which caused
+ * the event, so that the trace continues once the event is published.
+ *
+ * @see org.motechproject.mds.repository.CrudEventOutboxRepository
+ */
+public class CrudEventOutboxEntry {
+
+    private Long id;
+    private String module;
+    private String namespace;
+    private String entityName;
+    private String entityClassName;
+    private Long instanceId;
+    private CrudEventType action;
+    private long created;
+    private String traceId;
+    private String spanId;
+
+    public CrudEventOutboxEntry() {
+    }
+
+    public CrudEventOutboxEntry(String module, String namespace, String entityName, String entityClassName,
+                                Long instanceId, CrudEventType action) {
+        this.module = module;
+        this.namespace = namespace;
+        this.entityName = entityName;
+        this.entityClassName = entityClassName;
+        this.instanceId = instanceId;
+        this.action = action;
+        this.created = System.currentTimeMillis();
+
+        TraceContext traceContext = TraceContext.current();
+        if (traceContext != null) {
+            this.traceId = traceContext.getTraceId();
+            this.spanId = traceContext.getSpanId();
+        }
+    }
+
+    /**
+     * @return the subject of the CRUD event
+     */
+    public String getSubject() {
+        return createSubject(module, namespace, entityName, action);
+    }
+
+    /**
+     * @return the parameters of the CRUD event
+     */
+    public Map<String, Object> getParameters() {
+        return buildEventParams(module, namespace, entityName, entityClassName, instanceId);
+    }
+
+    /**
+     * @return the metadata of the CRUD event, carrying the trace context and the time the event was written
+     */
+    public Map<String, Object> getMetadata() {
+        Map<String, Object> metadata = new HashMap<>();
+        if (traceId != null) {
+            new TraceContext(traceId, spanId).writeTo(metadata);
+        }
+        metadata.put(TraceContext.SENT_TIME, created);
+        return metadata;
+    }
+
+    /**
+     * @return the key identifying the instance this entry concerns
+     */
+    public String getInstanceKey() {
+        return entityClassName + "#" + instanceId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public void setModule(String module) {
+        this.module = module;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(String entityName) {
+        this.entityName = entityName;
+    }
+
+    public String getEntityClassName() {
+        return entityClassName;
+    }
+
+    public void setEntityClassName(String entityClassName) {
+        this.entityClassName = entityClassName;
+    }
+
+    public Long getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(Long instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public CrudEventType getAction() {
+        return action;
+    }
+
+    public void setAction(CrudEventType action) {
+        this.action = action;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public void setTraceId(String traceId) {
+        this.traceId = traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public void setSpanId(String spanId) {
+        this.spanId = spanId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CrudEventOutboxEntry{id=%d, entityClassName='%s', instanceId=%d, action=%s}",
+                id, entityClassName, instanceId, action);
+    }
+}
@@ -7,7 +7,10 @@ import org.datanucleus.StoreNucleusContext;
 import org.datanucleus.api.jdo.JDOPersistenceManagerFactory;
 import org.datanucleus.store.rdbms.datasource.dbcp.BasicDataSource;
 import org.datanucleus.store.schema.SchemaAwareStoreManager;
+import org.motechproject.commons.sql.util.Drivers;
 import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.exception.init.MdsInitializationException;
+import org.motechproject.mds.repository.CrudEventOutboxRepository;
 import org.motechproject.mds.service.JarGeneratorService;
 import org.motechproject.mds.util.ClassName;
 import org.motechproject.mds.util.Constants;
@@ -21,6 +24,10 @@ import org.springframework.core.io.ClassPathResource;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -63,6 +70,7 @@ public class SchemaGenerator implements InitializingBean {
     public void afterPropertiesSet() throws IOException {
         runMigrations(new File(mdsConfig.getFlywayMigrationDirectory(), Constants.EntitiesMigration.PRE_SCHEMA_CREATION_DIRECTORY));
         generateSchema();
+        createEventOutbox();
         runMigrations(mdsConfig.getFlywayMigrationDirectory());
     }
 
@@ -78,6 +86,44 @@ public class SchemaGenerator implements InitializingBean {
         LOGGER.info("Entity schema generation completed.");
     }
 
+    /**
+     * Creates the table of the CRUD event outbox, if it does not exist, and adds the columns missing from tables
+     * created by earlier versions. The table is not mapped to a class, it is accessed by the
+     * {@link CrudEventOutboxRepository}.
+     */
+    public void createEventOutbox() {
+        boolean psql = Drivers.POSTGRESQL_DRIVER.equals(mdsSqlProperties.getProperty(CONNECTION_DRIVER_KEY));
+
+        BasicDataSource dataSource = createDataSource();
+        try {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(CrudEventOutboxRepository.getCreateTableStatement(psql));
+
+                for (String addColumn : CrudEventOutboxRepository.getAddMissingColumnsStatements(getEventOutboxColumns(connection))) {
+                    statement.execute(addColumn);
+                }
+            } finally {
+                dataSource.close();
+            }
+        } catch (SQLException e) {
+            throw new MdsInitializationException("Unable to create the CRUD event outbox table", e);
+        }
+
+        LOGGER.debug("CRUD event outbox is ready.");
+    }
+
+    private Set<String> getEventOutboxColumns(Connection connection) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (ResultSet resultSet = connection.getMetaData().getColumns(connection.getCatalog(), null,
+                CrudEventOutboxRepository.TABLE_NAME, null)) {
+            while (resultSet.next()) {
+                columns.add(resultSet.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+        return columns;
+    }
+
     public void runMigrations(File migrationDirectory) {
         ClassLoader cl = Thread.currentThread().getContextClassLoader();
         try {
@@ -92,15 +138,9 @@ public class SchemaGenerator implements InitializingBean {
                 return;
             }
 
-            BasicDataSource dataSource = new BasicDataSource();
-            dataSource.setDriverClassName(mdsSqlProperties.getProperty(CONNECTION_DRIVER_KEY));
-            dataSource.setUrl(mdsSqlProperties.getProperty(CONNECTION_URL_KEY));
-            dataSource.setUsername(mdsSqlProperties.getProperty(CONNECTION_USER_NAME_KEY));
-            dataSource.setPassword(mdsSqlProperties.getProperty(CONNECTION_USER_PASSWORD_KEY));
-
             Flyway flyway = new Flyway();
 
-            flyway.setDataSource(dataSource);
+            flyway.setDataSource(createDataSource());
             flyway.setLocations(Constants.EntitiesMigration.FILESYSTEM_PREFIX + migrationDirectory.getAbsolutePath());
 
             flyway.configure(flywayConfig);
@@ -113,6 +153,15 @@ public class SchemaGenerator implements InitializingBean {
 
     }
 
+    private BasicDataSource createDataSource() {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(mdsSqlProperties.getProperty(CONNECTION_DRIVER_KEY));
+        dataSource.setUrl(mdsSqlProperties.getProperty(CONNECTION_URL_KEY));
+        dataSource.setUsername(mdsSqlProperties.getProperty(CONNECTION_USER_NAME_KEY));
+        dataSource.setPassword(mdsSqlProperties.getProperty(CONNECTION_USER_PASSWORD_KEY));
+        return dataSource;
+    }
+
     private Set<String> classNames() throws IOException {
         Set<String> classNames = new HashSet<>();
         Set<String> historyClassNames = new HashSet<>();
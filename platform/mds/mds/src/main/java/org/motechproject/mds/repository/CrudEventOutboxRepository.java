@@ -0,0 +1,215 @@
+package org.motechproject.mds.repository;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.event.CrudEventCoalescer;
+import org.motechproject.mds.event.CrudEventOutboxEntry;
+import org.motechproject.mds.event.CrudEventType;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jdo.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static javax.jdo.Query.SQL;
+
+/**
+ * The <code>CrudEventOutboxRepository</code> stores CRUD events in the event outbox table of the data database.
+ * Events are added during a transaction and written to the table right before that transaction commits, so they
+ * are stored if and only if the changes that caused them are. The events are then taken from the table and
+ * published by the {@link org.motechproject.mds.service.CrudEventPublisher}.
+ */
+public class CrudEventOutboxRepository extends AbstractRepository {
+
+    public static final String TABLE_NAME = "mds_event_outbox";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (id %s, " +
+            "module VARCHAR(255) NOT NULL, namespace VARCHAR(255) NOT NULL, entity_name VARCHAR(255) NOT NULL, " +
+            "entity_class VARCHAR(255) NOT NULL, instance_id BIGINT NOT NULL, action VARCHAR(16) NOT NULL, " +
+            "created BIGINT NOT NULL, trace_id VARCHAR(32), span_id VARCHAR(32), PRIMARY KEY (id))";
+    private static final String ADD_COLUMN = "ALTER TABLE " + TABLE_NAME + " ADD COLUMN %s %s";
+    private static final String MYSQL_ID_COLUMN = "BIGINT NOT NULL AUTO_INCREMENT";
+    private static final String PSQL_ID_COLUMN = "BIGSERIAL NOT NULL";
+
+    private static final String INSERT = "INSERT INTO " + TABLE_NAME +
+            " (module, namespace, entity_name, entity_class, instance_id, action, created, trace_id, span_id) VALUES ";
+    private static final String INSERT_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int INSERT_COLUMNS = 9;
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    private static final String SELECT_FOR_UPDATE = "SELECT id, module, namespace, entity_name, entity_class, " +
+            "instance_id, action, created, trace_id, span_id FROM " + TABLE_NAME + " ORDER BY id LIMIT %d FOR UPDATE";
+    private static final String DELETE = "DELETE FROM " + TABLE_NAME + " WHERE id IN (%s)";
+    private static final String COUNT = "SELECT COUNT(*) FROM " + TABLE_NAME;
+
+    /**
+     * Returns the statement creating the outbox table, if it does not exist.
+     *
+     * @param psql true if the data database is a PostgreSQL database, false if it is a MySQL database
+     * @return the statement creating the table
+     */
+    public static String getCreateTableStatement(boolean psql) {
+        return String.format(CREATE_TABLE, psql ? PSQL_ID_COLUMN : MYSQL_ID_COLUMN);
+    }
+
+    /**
+     * Returns the statements adding the columns missing from an outbox table created by an earlier version of MDS.
+     * The trace columns were added after the table was first created.
+     *
+     * @param existingColumns the names of the columns of the table, in lower case
+     * @return the statements adding the missing columns, empty if the table has all of them
+     */
+    public static List<String> getAddMissingColumnsStatements(Set<String> existingColumns) {
+        List<String> statements = new ArrayList<>();
+        for (String column : new String[] {"trace_id", "span_id"}) {
+            if (!existingColumns.contains(column)) {
+                statements.add(String.format(ADD_COLUMN, column, "VARCHAR(32)"));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Adds the event to the outbox. The event is written to the outbox table when the current transaction commits.
+     * Events that add nothing to the events already added in the current transaction are dropped, see
+     * {@link CrudEventCoalescer}. Must be called in a transaction.
+     *
+     * @param entry the event to add
+     */
+    public void add(CrudEventOutboxEntry entry) {
+        PendingEntries pendingEntries = (PendingEntries) TransactionSynchronizationManager.getResource(this);
+
+        if (pendingEntries == null) {
+            pendingEntries = new PendingEntries();
+            TransactionSynchronizationManager.bindResource(this, pendingEntries);
+            TransactionSynchronizationManager.registerSynchronization(pendingEntries);
+        }
+
+        pendingEntries.add(entry);
+    }
+
+    /**
+     * Retrieves the oldest events from the outbox and locks them until the current transaction completes, so that
+     * they are not published by other MOTECH instances in the meantime. Must be called in a transaction.
+     *
+     * @param maxCount the maximum number of events to retrieve
+     * @return the events, in the order they were written
+     */
+    public List<CrudEventOutboxEntry> retrieveAndLock(int maxCount) {
+        Query query = getPersistenceManager().newQuery(SQL, String.format(SELECT_FOR_UPDATE, maxCount));
+        List<Object[]> rows = (List<Object[]>) query.execute();
+
+        List<CrudEventOutboxEntry> entries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            CrudEventOutboxEntry entry = new CrudEventOutboxEntry();
+            entry.setId(((Number) row[0]).longValue());
+            entry.setModule((String) row[1]);
+            entry.setNamespace((String) row[2]);
+            entry.setEntityName((String) row[3]);
+            entry.setEntityClassName((String) row[4]);
+            entry.setInstanceId(((Number) row[5]).longValue());
+            entry.setAction(CrudEventType.valueOf((String) row[6]));
+            entry.setCreated(((Number) row[7]).longValue());
+            entry.setTraceId((String) row[8]);
+            entry.setSpanId((String) row[9]);
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Removes the given events from the outbox.
+     *
+     * @param entries the events to remove
+     */
+    public void delete(Collection<CrudEventOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (CrudEventOutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+
+        getPersistenceManager().newQuery(SQL, String.format(DELETE, StringUtils.join(ids, ", "))).execute();
+    }
+
+    /**
+     * @return the number of events in the outbox
+     */
+    public long count() {
+        Query query = getPersistenceManager().newQuery(SQL, COUNT);
+        query.setUnique(true);
+        return ((Number) query.execute()).longValue();
+    }
+
+    private void insert(List<CrudEventOutboxEntry> entries) {
+        for (int from = 0; from < entries.size(); from += INSERT_BATCH_SIZE) {
+            List<CrudEventOutboxEntry> batch = entries.subList(from, Math.min(from + INSERT_BATCH_SIZE, entries.size()));
+
+            StringBuilder sql = new StringBuilder(INSERT);
+            Object[] params = new Object[batch.size() * INSERT_COLUMNS];
+            int param = 0;
+
+            for (CrudEventOutboxEntry entry : batch) {
+                if (param > 0) {
+                    sql.append(", ");
+                }
+                sql.append(INSERT_VALUES);
+
+                // blank module and namespace are treated in the same way as null ones by the CrudEventBuilder
+                params[param++] = StringUtils.defaultString(entry.getModule());
+                params[param++] = StringUtils.defaultString(entry.getNamespace());
+                params[param++] = entry.getEntityName();
+                params[param++] = entry.getEntityClassName();
+                params[param++] = entry.getInstanceId();
+                params[param++] = entry.getAction().name();
+                params[param++] = entry.getCreated();
+                params[param++] = entry.getTraceId();
+                params[param++] = entry.getSpanId();
+            }
+
+            getPersistenceManager().newQuery(SQL, sql.toString()).executeWithArray(params);
+        }
+    }
+
+    /**
+     * The events added in a transaction, written to the outbox table right before the transaction commits.
+     */
+    private class PendingEntries extends TransactionSynchronizationAdapter {
+        private final List<CrudEventOutboxEntry> entries = new ArrayList<>();
+        private final CrudEventCoalescer coalescer = new CrudEventCoalescer();
+
+        void add(CrudEventOutboxEntry entry) {
+            if (coalescer.accept(entry)) {
+                entries.add(entry);
+            }
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(CrudEventOutboxRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CrudEventOutboxRepository.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!entries.isEmpty()) {
+                insert(entries);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CrudEventOutboxRepository.this);
+        }
+    }
+}
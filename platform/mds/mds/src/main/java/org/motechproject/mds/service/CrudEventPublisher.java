@@ -0,0 +1,53 @@
+package org.motechproject.mds.service;
+
+import javax.management.MXBean;
+
+/**
+ * The <code>CrudEventPublisher</code> publishes the CRUD events stored in the event outbox, see
+ * {@link org.motechproject.mds.repository.CrudEventOutboxRepository}. Events are taken from the outbox in batches,
+ * in the order they were written, and each batch is relayed by the event module as a single batch of Motech events.
+ * Events are removed from the outbox only after they were relayed, so an event can be published more than once if
+ * a MOTECH instance stops in the meantime, but it is never lost. The publisher is also exposed through JMX, under
+ * the {@link #OBJECT_NAME} name.
+ */
+@MXBean
+public interface CrudEventPublisher {
+
+    /**
+     * The JMX object name of the publisher.
+     */
+    String OBJECT_NAME = "org.motechproject.mds:type=CrudEventPublisher";
+
+    /**
+     * Publishes all events waiting in the outbox. The outbox is also checked periodically, so calling this method
+     * is only needed when the events should be published right away.
+     *
+     * @return the number of events taken from the outbox
+     */
+    int publishPendingEvents();
+
+    /**
+     * @return the number of events waiting in the outbox
+     */
+    long getPendingCount();
+
+    /**
+     * @return the number of events published since this MOTECH instance started
+     */
+    long getPublishedCount();
+
+    /**
+     * @return the number of events that were not published, because an earlier event in the same batch covered them
+     */
+    long getCoalescedCount();
+
+    /**
+     * @return the number of batches that could not be published, their events were left in the outbox
+     */
+    long getFailedBatchCount();
+
+    /**
+     * @return how long, in milliseconds, the oldest event of the last published batch waited in the outbox
+     */
+    long getLastPublishLag();
+}
@@ -6,6 +6,7 @@ import org.motechproject.mds.domain.EntityType;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
 import org.motechproject.mds.entityinfo.FieldInfo;
+import org.motechproject.mds.event.CrudEventOutboxEntry;
 import org.motechproject.mds.event.CrudEventType;
 import org.motechproject.mds.exception.audit.HistoryInstanceNotFoundException;
 import org.motechproject.mds.exception.object.SchemaVersionException;
@@ -18,13 +19,13 @@ import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.query.SqlQueryExecution;
+import org.motechproject.mds.repository.CrudEventOutboxRepository;
 import org.motechproject.mds.repository.MotechDataRepository;
 import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
 import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.SecurityMode;
 import org.motechproject.mds.util.StateManagerUtil;
-import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,8 +36,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionCallback;
-import org.springframework.transaction.support.TransactionSynchronizationAdapter;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
@@ -51,8 +50,6 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.apache.commons.lang.StringUtils.defaultIfBlank;
-import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
-import static org.motechproject.mds.event.CrudEventBuilder.createSubject;
 import static org.motechproject.mds.event.CrudEventType.CREATE;
 import static org.motechproject.mds.event.CrudEventType.DELETE;
 import static org.motechproject.mds.event.CrudEventType.UPDATE;
@@ -81,7 +78,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     private MotechDataRepository<T> repository;
     private TrashService trashService;
     private HistoryService historyService;
-    private OsgiEventProxy osgiEventProxy;
+    private CrudEventOutboxRepository crudEventOutbox;
     private JdoTransactionManager transactionManager;
     private ApplicationContext applicationContext;
     private EntityInfoReader entityInfoReader;
@@ -132,16 +129,17 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     public T create(final T object) {
         validateCredentials();
 
-        final T createdInstance = repository.create(object);
+        T createdInstance = repository.create(object);
 
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-            @Override
-            public void afterCommit() {
-                if (allowCreateEvent) {
-                    sendEvent((Long) getId(createdInstance), CREATE);
-                }
+        if (allowCreateEvent) {
+            Long id = (Long) getId(createdInstance);
+            if (id == null) {
+                // the id is assigned when the instance is flushed
+                repository.getPersistenceManager().flush();
+                id = (Long) getId(createdInstance);
             }
-        });
+            addCrudEvent(id, CREATE);
+        }
 
         return createdInstance;
     }
@@ -178,16 +176,11 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
             validateCredentials(object);
 
             updateModificationData(object);
-            final T updatedInstance = repository.update(object);
+            T updatedInstance = repository.update(object);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(updatedInstance), UPDATE);
-                    }
-                }
-            });
+            if (allowUpdateEvent) {
+                addCrudEvent((Long) getId(updatedInstance), UPDATE);
+            }
 
             return updatedInstance;
         }
@@ -232,14 +225,9 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
 
             updateModificationData(fromDbInstance);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(fromDbInstance), UPDATE);
-                    }
-                }
-            });
+            if (allowUpdateEvent) {
+                addCrudEvent((Long) getId(fromDbInstance), UPDATE);
+            }
             result = fromDbInstance;
         }
 
@@ -275,7 +263,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         });
 
         if (allowDeleteEvent) {
-            sendEvent(deletedInstanceId, DELETE);
+            addCrudEvent(deletedInstanceId, DELETE);
         }
     }
 
@@ -532,10 +520,9 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return restriction;
     }
 
-    private void sendEvent(Long id, CrudEventType action) {
-        String subject = createSubject(module, namespace, entityName, action);
-        Map<String, Object> params = buildEventParams(module, namespace, entityName, getClassType().getName(), id);
-        osgiEventProxy.sendEvent(subject, params);
+    private void addCrudEvent(Long id, CrudEventType action) {
+        // the event is published by the CrudEventPublisher, once the transaction commits
+        crudEventOutbox.add(new CrudEventOutboxEntry(module, namespace, entityName, getClassType().getName(), id, action));
     }
 
     protected Object getId(T instance) {
@@ -568,8 +555,8 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Autowired
-    public void setOsgiEventProxy(OsgiEventProxy osgiEventProxy) {
-        this.osgiEventProxy = osgiEventProxy;
+    public void setCrudEventOutbox(CrudEventOutboxRepository crudEventOutbox) {
+        this.crudEventOutbox = crudEventOutbox;
     }
 
     @Autowired
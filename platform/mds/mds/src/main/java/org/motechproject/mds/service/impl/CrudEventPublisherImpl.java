@@ -0,0 +1,256 @@
+package org.motechproject.mds.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.event.CrudEventCoalescer;
+import org.motechproject.mds.event.CrudEventOutboxEntry;
+import org.motechproject.mds.repository.CrudEventOutboxRepository;
+import org.motechproject.mds.service.CrudEventPublisher;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.motechproject.mds.util.Constants.Config.MDS_EVENT_OUTBOX_BATCH_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MDS_EVENT_OUTBOX_POLL_INTERVAL;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+/**
+ * Default implementation of the <code>CrudEventPublisher</code>. The outbox is checked by a single background
+ * thread, every {@link org.motechproject.mds.util.Constants.Config#MDS_EVENT_OUTBOX_POLL_INTERVAL} milliseconds.
+ * Each batch is published in its own data transaction, holding the locks on its events, so that events of an
+ * instance are published in order even when several MOTECH instances share the database.
+ */
+@Service("crudEventPublisher")
+public class CrudEventPublisherImpl implements CrudEventPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrudEventPublisherImpl.class);
+
+    static final int DEFAULT_BATCH_SIZE = 500;
+    static final long DEFAULT_POLL_INTERVAL = 1000L;
+
+    private CrudEventOutboxRepository crudEventOutbox;
+    private OsgiEventProxy osgiEventProxy;
+    private TransactionTemplate transactionTemplate;
+    private MdsConfig mdsConfig;
+
+    private ScheduledExecutorService executor;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final Object publishLock = new Object();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+    private volatile long lastPublishLag;
+    private volatile boolean failureReported;
+
+    @PostConstruct
+    public void start() {
+        Properties props = mdsConfig.getProperties(MODULE_FILE);
+        batchSize = getProperty(props, MDS_EVENT_OUTBOX_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        long pollInterval = getProperty(props, MDS_EVENT_OUTBOX_POLL_INTERVAL, DEFAULT_POLL_INTERVAL);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mds-crud-event-publisher-");
+        threadFactory.setDaemon(true);
+
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                publishPendingEvents();
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+
+        registerMBean();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        unregisterMBean();
+    }
+
+    @Override
+    public int publishPendingEvents() {
+        synchronized (publishLock) {
+            int total = 0;
+            int published;
+
+            do {
+                try {
+                    published = transactionTemplate.execute(new TransactionCallback<Integer>() {
+                        @Override
+                        public Integer doInTransaction(TransactionStatus status) {
+                            return publishBatch();
+                        }
+                    });
+                    failureReported = false;
+                } catch (RuntimeException e) {
+                    failedBatchCount.incrementAndGet();
+                    // the outbox table is missing until the entities bundle is started for the first time
+                    if (failureReported) {
+                        LOGGER.debug("Unable to publish CRUD events from the outbox", e);
+                    } else {
+                        LOGGER.warn("Unable to publish CRUD events from the outbox, they will be retried", e);
+                        failureReported = true;
+                    }
+                    break;
+                }
+
+                total += published;
+            } while (published >= batchSize);
+
+            return total;
+        }
+    }
+
+    @Override
+    public long getPendingCount() {
+        return transactionTemplate.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return crudEventOutbox.count();
+            }
+        });
+    }
+
+    @Override
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    @Override
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    @Override
+    public long getLastPublishLag() {
+        return lastPublishLag;
+    }
+
+    private int publishBatch() {
+        List<CrudEventOutboxEntry> entries = crudEventOutbox.retrieveAndLock(batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        List<CrudEventOutboxEntry> coalesced = CrudEventCoalescer.coalesce(entries);
+
+        List<Map<String, Object>> events = new ArrayList<>(coalesced.size());
+        for (CrudEventOutboxEntry entry : coalesced) {
+            Map<String, Object> event = new HashMap<>();
+            event.put(OsgiEventProxy.SUBJECT_PARAM, entry.getSubject());
+            event.put(OsgiEventProxy.PARAMETERS_PARAM, entry.getParameters());
+            event.put(OsgiEventProxy.METADATA_PARAM, entry.getMetadata());
+            events.add(event);
+        }
+
+        // throws unless the event module acknowledges publishing the events, so they are only removed once published
+        osgiEventProxy.sendEvents(events);
+        crudEventOutbox.delete(entries);
+
+        publishedCount.addAndGet(coalesced.size());
+        coalescedCount.addAndGet(entries.size() - coalesced.size());
+        lastPublishLag = System.currentTimeMillis() - entries.get(0).getCreated();
+
+        LOGGER.debug("Published {} CRUD events from the outbox, {} coalesced", coalesced.size(),
+                entries.size() - coalesced.size());
+
+        return entries.size();
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            // a previous instance of the bundle might not have been cleaned up
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register CRUD event publisher MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister CRUD event publisher MBean", e);
+        }
+    }
+
+    private static int getProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return StringUtils.isNotBlank(value) ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    private static long getProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return StringUtils.isNotBlank(value) ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Autowired
+    @Qualifier("dataCrudEventOutboxRepository")
+    public void setCrudEventOutbox(CrudEventOutboxRepository crudEventOutbox) {
+        this.crudEventOutbox = crudEventOutbox;
+    }
+
+    @Autowired
+    public void setOsgiEventProxy(OsgiEventProxy osgiEventProxy) {
+        this.osgiEventProxy = osgiEventProxy;
+    }
+
+    @Autowired
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
+
+    @Autowired
+    @Qualifier("dataTransactionManager")
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+}
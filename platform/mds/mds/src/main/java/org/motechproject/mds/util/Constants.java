@@ -231,6 +231,18 @@ public final class Constants {
          */
         public static final String MDS_RESTART_BUNDLE_AFTER_TIMEOUT = "mds.restartBundle.afterTimeout";
 
+        /**
+         * The property that specifies the maximum number of CRUD events taken from the event outbox and
+         * published in a single batch.
+         */
+        public static final String MDS_EVENT_OUTBOX_BATCH_SIZE = "mds.eventOutbox.batchSize";
+
+        /**
+         * The property that specifies how often, in milliseconds, the event outbox is checked for CRUD events
+         * waiting to be published.
+         */
+        public static final String MDS_EVENT_OUTBOX_POLL_INTERVAL = "mds.eventOutbox.pollInterval";
+
         /**
          * Constant <code>EMPTY_TRASH_JOB</code> presents a name of job scheduled by scheduler
          * module.
@@ -0,0 +1,57 @@
+package org.motechproject.mds.event;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.motechproject.mds.event.CrudEventType.CREATE;
+import static org.motechproject.mds.event.CrudEventType.DELETE;
+import static org.motechproject.mds.event.CrudEventType.UPDATE;
+
+public class CrudEventCoalescerTest {
+
+    private static final String ENTITY = "TestEntity";
+    private static final String ENTITY_CLASS = "org.motechproject.test.TestEntity";
+
+    @Test
+    public void shouldDropUpdatesFollowingCreateOrUpdateOfSameInstance() {
+        CrudEventOutboxEntry create = entry(1L, CREATE);
+        CrudEventOutboxEntry update = entry(1L, UPDATE);
+        CrudEventOutboxEntry otherUpdate = entry(2L, UPDATE);
+        CrudEventOutboxEntry repeatedOtherUpdate = entry(2L, UPDATE);
+
+        List<CrudEventOutboxEntry> result = CrudEventCoalescer.coalesce(
+                asList(create, update, otherUpdate, repeatedOtherUpdate));
+
+        assertEquals(asList(create, otherUpdate), result);
+    }
+
+    @Test
+    public void shouldKeepOrderOfCreateAndDeleteEvents() {
+        CrudEventOutboxEntry create = entry(1L, CREATE);
+        CrudEventOutboxEntry delete = entry(1L, DELETE);
+        CrudEventOutboxEntry recreate = entry(1L, CREATE);
+        CrudEventOutboxEntry update = entry(1L, UPDATE);
+
+        List<CrudEventOutboxEntry> result = CrudEventCoalescer.coalesce(asList(create, delete, recreate, update));
+
+        assertEquals(asList(create, delete, recreate), result);
+    }
+
+    @Test
+    public void shouldKeepUpdateFollowingDelete() {
+        CrudEventOutboxEntry update = entry(1L, UPDATE);
+        CrudEventOutboxEntry delete = entry(1L, DELETE);
+        CrudEventOutboxEntry repeatedDelete = entry(1L, DELETE);
+
+        List<CrudEventOutboxEntry> result = CrudEventCoalescer.coalesce(asList(update, delete, repeatedDelete));
+
+        assertEquals(asList(update, delete), result);
+    }
+
+    private CrudEventOutboxEntry entry(Long instanceId, CrudEventType action) {
+        return new CrudEventOutboxEntry(null, null, ENTITY, ENTITY_CLASS, instanceId, action);
+    }
+}
@@ -0,0 +1,31 @@
+package org.motechproject.mds.repository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CrudEventOutboxRepositoryTest {
+
+    @Test
+    public void shouldAddTraceColumnsMissingFromOutboxTable() {
+        List<String> statements = CrudEventOutboxRepository.getAddMissingColumnsStatements(new HashSet<>(Arrays.asList(
+                "id", "module", "namespace", "entity_name", "entity_class", "instance_id", "action", "created")));
+
+        assertEquals(Arrays.asList("ALTER TABLE mds_event_outbox ADD COLUMN trace_id VARCHAR(32)",
+                "ALTER TABLE mds_event_outbox ADD COLUMN span_id VARCHAR(32)"), statements);
+    }
+
+    @Test
+    public void shouldNotAlterUpToDateOutboxTable() {
+        List<String> statements = CrudEventOutboxRepository.getAddMissingColumnsStatements(new HashSet<>(Arrays.asList(
+                "id", "module", "namespace", "entity_name", "entity_class", "instance_id", "action", "created",
+                "trace_id", "span_id")));
+
+        assertTrue(statements.isEmpty());
+    }
+}
@@ -0,0 +1,131 @@
+package org.motechproject.mds.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.event.CrudEventOutboxEntry;
+import org.motechproject.mds.event.CrudEventType;
+import org.motechproject.mds.repository.CrudEventOutboxRepository;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.motechproject.mds.event.CrudEventType.CREATE;
+import static org.motechproject.mds.event.CrudEventType.DELETE;
+import static org.motechproject.mds.event.CrudEventType.UPDATE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrudEventPublisherImplTest {
+
+    private static final String ENTITY = "TestEntity";
+    private static final String ENTITY_CLASS = "org.motechproject.test.TestEntity";
+
+    @Mock
+    private CrudEventOutboxRepository crudEventOutbox;
+
+    @Mock
+    private OsgiEventProxy osgiEventProxy;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CrudEventPublisherImpl crudEventPublisher;
+
+    @Before
+    public void setUp() {
+        crudEventPublisher = new CrudEventPublisherImpl();
+        crudEventPublisher.setCrudEventOutbox(crudEventOutbox);
+        crudEventPublisher.setOsgiEventProxy(osgiEventProxy);
+        crudEventPublisher.setTransactionManager(transactionManager);
+    }
+
+    @Test
+    public void shouldPublishCoalescedEventsAsSingleBatchAndRemoveThem() {
+        List<CrudEventOutboxEntry> entries = asList(entry(1L, 1L, CREATE), entry(2L, 1L, UPDATE),
+                entry(3L, 2L, DELETE));
+        when(crudEventOutbox.retrieveAndLock(CrudEventPublisherImpl.DEFAULT_BATCH_SIZE)).thenReturn(entries);
+
+        int published = crudEventPublisher.publishPendingEvents();
+
+        assertEquals(3, published);
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(osgiEventProxy).sendEvents(captor.capture());
+
+        List<Map<String, Object>> events = captor.getValue();
+        assertEquals(2, events.size());
+        assertEquals(entries.get(0).getSubject(), events.get(0).get(OsgiEventProxy.SUBJECT_PARAM));
+        assertEquals(entries.get(0).getParameters(), events.get(0).get(OsgiEventProxy.PARAMETERS_PARAM));
+        assertEquals(entries.get(2).getSubject(), events.get(1).get(OsgiEventProxy.SUBJECT_PARAM));
+
+        verify(crudEventOutbox).delete(entries);
+        assertEquals(2, crudEventPublisher.getPublishedCount());
+        assertEquals(1, crudEventPublisher.getCoalescedCount());
+    }
+
+    @Test
+    public void shouldPublishBatchesUntilOutboxIsDrained() {
+        crudEventPublisher.setBatchSize(2);
+
+        List<CrudEventOutboxEntry> first = asList(entry(1L, 1L, CREATE), entry(2L, 2L, CREATE));
+        List<CrudEventOutboxEntry> second = asList(entry(3L, 3L, CREATE));
+        when(crudEventOutbox.retrieveAndLock(2)).thenReturn(first, second);
+
+        int published = crudEventPublisher.publishPendingEvents();
+
+        assertEquals(3, published);
+        verify(crudEventOutbox).delete(first);
+        verify(crudEventOutbox).delete(second);
+        assertEquals(3, crudEventPublisher.getPublishedCount());
+    }
+
+    @Test
+    public void shouldNotPublishWhenOutboxIsEmpty() {
+        when(crudEventOutbox.retrieveAndLock(anyInt())).thenReturn(new ArrayList<CrudEventOutboxEntry>());
+
+        int published = crudEventPublisher.publishPendingEvents();
+
+        assertEquals(0, published);
+        verify(osgiEventProxy, never()).sendEvents(anyList());
+        verify(crudEventOutbox, never()).delete(any(List.class));
+    }
+
+    @Test
+    public void shouldLeaveEventsInOutboxWhenPublishingFails() {
+        List<CrudEventOutboxEntry> entries = Collections.singletonList(entry(1L, 1L, CREATE));
+        when(crudEventOutbox.retrieveAndLock(anyInt())).thenReturn(entries);
+        doThrow(new IllegalStateException()).when(osgiEventProxy).sendEvents(anyList());
+
+        int published = crudEventPublisher.publishPendingEvents();
+
+        assertEquals(0, published);
+        verify(crudEventOutbox, never()).delete(any(List.class));
+        verify(transactionManager).rollback(any(TransactionStatus.class));
+        assertEquals(1, crudEventPublisher.getFailedBatchCount());
+        assertEquals(0, crudEventPublisher.getPublishedCount());
+    }
+
+    private CrudEventOutboxEntry entry(Long id, Long instanceId, CrudEventType action) {
+        CrudEventOutboxEntry entry = new CrudEventOutboxEntry("module", "namespace", ENTITY, ENTITY_CLASS,
+                instanceId, action);
+        entry.setId(id);
+        return entry;
+    }
+}
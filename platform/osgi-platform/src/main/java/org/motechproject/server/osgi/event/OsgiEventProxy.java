@@ -1,6 +1,6 @@
 package org.motechproject.server.osgi.event;
 
-
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,6 +16,9 @@ public interface OsgiEventProxy {
     String PARAMETERS_PARAM = "parameters";
     String BROADCAST_PARAM = "broadcast";
     String PROXY_ON_RECEIVING_END_PARAM = "proxyOnReceivingEnd";
+    String EVENTS_PARAM = "events";
+    String METADATA_PARAM = "metadata";
+    String ACKNOWLEDGEMENT_PARAM = "acknowledgement";
 
     /**
      * Calling this method will result in sending an OSGi event that will be then relayed by the event module
@@ -32,6 +35,19 @@ public interface OsgiEventProxy {
      */
     void sendEvent(String subject, Map<String, Object> parameters);
 
+    /**
+     * Calling this method will result in sending a single OSGi event that will be then relayed by the event module
+     * as multiple Motech Events through the event queue, published to the broker as one batch. Unlike the other
+     * methods, the OSGi event is delivered synchronously and the event module acknowledges relaying the events
+     * through the {@link #ACKNOWLEDGEMENT_PARAM} property, so this method returns only once the events were
+     * published.
+     * @param events the events to send, each one a map holding the {@link #SUBJECT_PARAM} and, optionally,
+     *               the {@link #PARAMETERS_PARAM} and {@link #METADATA_PARAM} of the event
+     * @throws IllegalStateException if the events were not relayed, either because the event module is not
+     *               available or because publishing them failed
+     */
+    void sendEvents(List<Map<String, Object>> events);
+
     /**
      * Calling this method will result in sending an OSGi event that will be then relayed by the event module
      * as a Motech Event through the event topic - all Motech instances will receive the event.
@@ -5,7 +5,9 @@ import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The implementation of {@link OsgiEventProxy}. Uses the {@link EventAdmin}
@@ -30,6 +32,28 @@ public class OsgiEventProxyImpl implements OsgiEventProxy {
         eventAdmin.postEvent(event);
     }
 
+    @Override
+    public void sendEvents(List<Map<String, Object>> events) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(EVENTS_PARAM, events);
+        properties.put(BROADCAST_PARAM, false);
+        properties.put(PROXY_ON_RECEIVING_END_PARAM, false);
+
+        // set by the event module to true once the events are relayed, or to the exception that prevented it
+        AtomicReference<Object> acknowledgement = new AtomicReference<>();
+        properties.put(ACKNOWLEDGEMENT_PARAM, acknowledgement);
+
+        eventAdmin.sendEvent(new Event(PROXY_EVENT_TOPIC, properties));
+
+        // the EventAdmin swallows exceptions of handlers and silently drops events nobody handles
+        Object result = acknowledgement.get();
+        if (result instanceof Throwable) {
+            throw new IllegalStateException("Unable to relay " + events.size() + " events", (Throwable) result);
+        } else if (!Boolean.TRUE.equals(result)) {
+            throw new IllegalStateException("Unable to relay " + events.size() + " events, the event module did not handle them");
+        }
+    }
+
     @Override
     public void broadcastEvent(String subject, boolean proxyHandledEventInOSGi) {
         broadcastEvent(subject, new HashMap<String, Object>(), proxyHandledEventInOSGi);
@@ -5,16 +5,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.motechproject.server.osgi.event.impl.OsgiEventProxyImpl;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -58,6 +66,62 @@ public class OsgiEventProxyTest {
         verifyEvent(true, true, params);
     }
 
+    @Test
+    public void shouldProxyMultipleEventsForQueueSynchronously() {
+        Map<String, Object> first = new HashMap<>();
+        first.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        first.put(OsgiEventProxy.PARAMETERS_PARAM, buildParams());
+
+        Map<String, Object> second = new HashMap<>();
+        second.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+
+        List<Map<String, Object>> events = Arrays.asList(first, second);
+        acknowledgeWith(Boolean.TRUE);
+        osgiEventProxy.sendEvents(events);
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventAdmin).sendEvent(captor.capture());
+        Event event = captor.getValue();
+
+        assertEquals(OsgiEventProxy.PROXY_EVENT_TOPIC, event.getTopic());
+        assertEquals(false, event.getProperty(OsgiEventProxy.BROADCAST_PARAM));
+        assertEquals(events, event.getProperty(OsgiEventProxy.EVENTS_PARAM));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailIfEventsWereNotRelayed() {
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+
+        // no handler of the OSGi event
+        osgiEventProxy.sendEvents(Arrays.<Map<String, Object>>asList(event));
+    }
+
+    @Test
+    public void shouldFailIfRelayingEventsFailed() {
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        RuntimeException failure = new RuntimeException("broker down");
+        acknowledgeWith(failure);
+
+        try {
+            osgiEventProxy.sendEvents(Arrays.<Map<String, Object>>asList(event));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals(failure, e.getCause());
+        }
+    }
+
+    private void acknowledgeWith(final Object result) {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                Event event = (Event) invocation.getArguments()[0];
+                ((AtomicReference<Object>) event.getProperty(OsgiEventProxy.ACKNOWLEDGEMENT_PARAM)).set(result);
+                return null;
+            }
+        }).when(eventAdmin).sendEvent(any(Event.class));
+    }
 
     private Map<String, Object> buildParams() {
         Map<String, Object> params = new HashMap<>();